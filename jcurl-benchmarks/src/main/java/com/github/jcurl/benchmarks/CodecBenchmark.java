@@ -0,0 +1,138 @@
+package com.github.jcurl.benchmarks;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import javax.json.JsonArray;
+import javax.json.JsonObject;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.github.jcurl.core.buffer.BufferPool;
+import com.github.jcurl.core.buffer.PooledBuffer;
+import com.github.jcurl.core.codec.BodyCodec;
+import com.github.jcurl.core.json.Json;
+import com.github.jcurl.core.json.JsonStreamDecoder;
+
+/**
+ * The decoders of the buffered body codecs and the streaming JSON decoder, on
+ * an array of {@code items} users, and the JSON encoding of the users.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CodecBenchmark {
+
+	private static final BodyCodec<String> LATIN1 = BodyCodec.string("ISO-8859-1");
+	private static final BodyCodec<User[]> USERS = BodyCodec.json(User[].class);
+
+	@Param({ "10", "1000" })
+	public int items;
+
+	private User[] users;
+	private ByteBuffer array;
+	private ByteBuffer object;
+	private BufferPool pool;
+
+	@Setup
+	public void setup() {
+		users = new User[items];
+		for (int i = 0; i < items; i++) {
+			users[i] = new User(i, "user" + i, "user" + i + "@example.com", i % 2 == 0);
+		}
+		String json = Json.encode(users);
+		array = ByteBuffer.wrap(json.getBytes(StandardCharsets.UTF_8));
+		object = ByteBuffer.wrap(("{\"users\":" + json + "}").getBytes(StandardCharsets.UTF_8));
+		pool = new BufferPool(true, 32 * 1024 * 1024);
+	}
+
+	@Benchmark
+	public String string() {
+		return BodyCodec.string().decode(array.duplicate());
+	}
+
+	@Benchmark
+	public String stringWithEncoding() {
+		return LATIN1.decode(array.duplicate());
+	}
+
+	@Benchmark
+	public ByteBuffer buffer() {
+		return BodyCodec.buffer().decode(array.duplicate());
+	}
+
+	@Benchmark
+	public Void none() {
+		return BodyCodec.none().decode(array.duplicate());
+	}
+
+	@Benchmark
+	public JsonObject jsonObject() {
+		return BodyCodec.jsonObject().decode(object.duplicate());
+	}
+
+	@Benchmark
+	public JsonArray jsonArray() {
+		return BodyCodec.jsonArray().decode(array.duplicate());
+	}
+
+	@Benchmark
+	public User[] json() {
+		return USERS.decode(array.duplicate());
+	}
+
+	@Benchmark
+	public void jsonStream(Blackhole blackhole) {
+		JsonStreamDecoder<User> decoder = new JsonStreamDecoder<>(User.class);
+		decoder.decode(array.duplicate(), blackhole::consume);
+		decoder.end(blackhole::consume);
+	}
+
+	@Benchmark
+	public ByteBuffer encodeToBuffer() {
+		return Json.encodeToBuffer(users);
+	}
+
+	@Benchmark
+	public int encodeToPooledBuffer() {
+		PooledBuffer buffer = Json.encodeToBuffer(users, pool);
+		int length = buffer.buffer().remaining();
+		buffer.release();
+		return length;
+	}
+
+	public static class User {
+
+		public long id;
+		public String name;
+		public String email;
+		public boolean active;
+
+		public User() {
+		}
+
+		User(long id, String name, String email, boolean active) {
+			this.id = id;
+			this.name = name;
+			this.email = email;
+			this.active = active;
+		}
+
+	}
+
+}
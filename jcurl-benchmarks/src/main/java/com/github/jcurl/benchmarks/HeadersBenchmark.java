@@ -0,0 +1,66 @@
+package com.github.jcurl.benchmarks;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.github.jcurl.core.http.CaseInsensitiveHeaders;
+
+/**
+ * {@link CaseInsensitiveHeaders} filled and looked up like the headers of a
+ * typical response.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HeadersBenchmark {
+
+	private static final String[] NAMES = { "Date", "Content-Type", "Content-Length", "Connection", "Cache-Control",
+			"ETag", "Vary", "Server" };
+	private static final String[] VALUES = { "Mon, 23 Apr 2018 10:15:30 GMT", "application/json; charset=utf-8", "1024",
+			"keep-alive", "no-cache", "\"33a64df551425fcc55e4d42a148795d9f25f89d4\"", "Accept-Encoding", "jetty" };
+	private static final String[] LOOKUPS = { "content-type", "CONTENT-LENGTH", "Connection", "etag" };
+
+	private Map<String, String> headers;
+
+	@Setup
+	public void setup() {
+		headers = put();
+	}
+
+	@Benchmark
+	public Map<String, String> put() {
+		CaseInsensitiveHeaders headers = new CaseInsensitiveHeaders();
+		for (int i = 0; i < NAMES.length; i++) {
+			headers.put(NAMES[i], VALUES[i]);
+		}
+		return headers;
+	}
+
+	@Benchmark
+	public void get(Blackhole blackhole) {
+		for (String name : LOOKUPS) {
+			blackhole.consume(headers.get(name));
+		}
+	}
+
+	@Benchmark
+	public Map<String, String> copy() {
+		return new CaseInsensitiveHeaders(headers);
+	}
+
+}
@@ -0,0 +1,152 @@
+package com.github.jcurl.benchmarks;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+import com.github.jcurl.benchmarks.CodecBenchmark.User;
+import com.github.jcurl.core.buffer.BufferPool;
+import com.github.jcurl.core.buffer.PooledBuffer;
+import com.github.jcurl.core.codec.impl.JsonBodyCodec;
+import com.github.jcurl.core.json.CodecJsonEngine;
+import com.github.jcurl.core.json.DecodeException;
+import com.github.jcurl.core.json.EncodeException;
+import com.github.jcurl.core.json.Json;
+import com.github.jcurl.core.json.JsonCodec;
+import com.github.jcurl.core.json.JsonEngine;
+
+/**
+ * The JSON engines decoding and encoding an array of {@code items} users: the
+ * default Jackson engine, and a codec engine with a reflection-free codec of
+ * the users, written like the codecs generated at compile time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonEngineBenchmark {
+
+	private static final JsonBodyCodec<User[]> USERS = new JsonBodyCodec<>(User[].class);
+
+	@Param({ "jackson", "codec" })
+	public String engine;
+
+	@Param({ "10", "1000" })
+	public int items;
+
+	private JsonEngine jsonEngine;
+	private User[] users;
+	private ByteBuffer array;
+	private BufferPool pool;
+
+	@Setup
+	public void setup() {
+		jsonEngine = "codec".equals(engine)
+				? new CodecJsonEngine(Json.engine()).register(User[].class, new UsersCodec())
+				: Json.engine();
+		users = new User[items];
+		for (int i = 0; i < items; i++) {
+			users[i] = new User(i, "user" + i, "user" + i + "@example.com", i % 2 == 0);
+		}
+		array = Json.encodeToBuffer(users);
+		pool = new BufferPool(true, 32 * 1024 * 1024);
+	}
+
+	@Benchmark
+	public User[] decode() {
+		return USERS.decode(array.duplicate(), jsonEngine);
+	}
+
+	@Benchmark
+	public int encode() {
+		PooledBuffer buffer = Json.encodeToBuffer(users, pool, jsonEngine);
+		int length = buffer.buffer().remaining();
+		buffer.release();
+		return length;
+	}
+
+	static final class UsersCodec implements JsonCodec<User[]> {
+
+		private static final JsonFactory FACTORY = new JsonFactory();
+
+		@Override
+		public User[] decode(ByteBuffer buf) {
+			try (JsonParser parser = buf.hasArray()
+					? FACTORY.createParser(buf.array(), buf.arrayOffset() + buf.position(), buf.remaining())
+					: FACTORY.createParser(new ByteBufferBackedInputStream(buf))) {
+				if (parser.nextToken() != JsonToken.START_ARRAY) {
+					throw new DecodeException("Failed to decode: expected an array");
+				}
+				List<User> users = new ArrayList<>();
+				while (parser.nextToken() == JsonToken.START_OBJECT) {
+					User user = new User();
+					while (parser.nextToken() == JsonToken.FIELD_NAME) {
+						String name = parser.getCurrentName();
+						parser.nextToken();
+						switch (name) {
+						case "id":
+							user.id = parser.getLongValue();
+							break;
+						case "name":
+							user.name = parser.getText();
+							break;
+						case "email":
+							user.email = parser.getText();
+							break;
+						case "active":
+							user.active = parser.getBooleanValue();
+							break;
+						default:
+							parser.skipChildren();
+						}
+					}
+					users.add(user);
+				}
+				return users.toArray(new User[0]);
+			} catch (IOException e) {
+				throw new DecodeException("Failed to decode:" + e.getMessage(), e);
+			}
+		}
+
+		@Override
+		public void encode(User[] users, OutputStream out) throws IOException, EncodeException {
+			try (JsonGenerator generator = FACTORY.createGenerator(out)) {
+				generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+				generator.writeStartArray();
+				for (User user : users) {
+					generator.writeStartObject();
+					generator.writeNumberField("id", user.id);
+					generator.writeStringField("name", user.name);
+					generator.writeStringField("email", user.email);
+					generator.writeBooleanField("active", user.active);
+					generator.writeEndObject();
+				}
+				generator.writeEndArray();
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,123 @@
+package com.github.jcurl.benchmarks;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.jcurl.core.HttpRequest;
+import com.github.jcurl.core.HttpResponse;
+import com.github.jcurl.core.JCurlClient;
+import com.github.jcurl.core.http.JCurlClientOptions;
+
+/**
+ * End to end requests against a {@link LoopbackServer}, with
+ * {@code concurrency} requests in flight and a pool of as many connections.
+ * <p>
+ * {@link #throughput(Requests)} sends batches of {@code concurrency}
+ * asynchronous requests, its {@code requests} counter is the number of
+ * requests per second. {@link #latency(Load)} samples the time of a blocking
+ * request while {@code concurrency - 1} other requests are kept in flight.
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoopbackBenchmark {
+
+	@Param({ "1", "16", "64", "256" })
+	public int concurrency;
+
+	@Param({ "128", "16384" })
+	public int responseSize;
+
+	private LoopbackServer server;
+	private JCurlClient client;
+
+	@Setup
+	public void setup() {
+		server = new LoopbackServer(responseSize);
+		client = JCurlClient.create(new JCurlClientOptions().setMaxPoolSize(concurrency));
+	}
+
+	@TearDown
+	public void tearDown() {
+		client.close();
+		server.stop();
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.Throughput)
+	@OutputTimeUnit(TimeUnit.SECONDS)
+	public void throughput(Requests counters) {
+		CompletableFuture<?>[] futures = new CompletableFuture<?>[concurrency];
+		for (int i = 0; i < concurrency; i++) {
+			futures[i] = request().sendAsync();
+		}
+		CompletableFuture.allOf(futures).join();
+		counters.requests += concurrency;
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.SampleTime)
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public HttpResponse<ByteBuffer> latency(Load load) {
+		return request().send();
+	}
+
+	private HttpRequest<ByteBuffer> request() {
+		return client.get(server.port(), "127.0.0.1", "/").timeout(10_000);
+	}
+
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.OPERATIONS)
+	public static class Requests {
+
+		public long requests;
+
+	}
+
+	/**
+	 * Keeps {@code concurrency - 1} requests in flight during each iteration.
+	 */
+	@State(Scope.Benchmark)
+	public static class Load {
+
+		private volatile boolean running;
+
+		@Setup(Level.Iteration)
+		public void start(LoopbackBenchmark benchmark) {
+			running = true;
+			for (int i = 1; i < benchmark.concurrency; i++) {
+				next(benchmark);
+			}
+		}
+
+		@TearDown(Level.Iteration)
+		public void stop() {
+			running = false;
+		}
+
+		private void next(LoopbackBenchmark benchmark) {
+			if (running) {
+				benchmark.request().sendAsync().whenComplete((response, err) -> next(benchmark));
+			}
+		}
+
+	}
+
+}
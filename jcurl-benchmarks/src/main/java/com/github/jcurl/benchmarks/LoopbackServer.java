@@ -0,0 +1,60 @@
+package com.github.jcurl.benchmarks;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * An in-process HTTP/1.1 server on the loopback interface, answering every
+ * request with {@code responseSize} bytes once it read the request body.
+ */
+final class LoopbackServer {
+
+	private final HttpServer server;
+	private final ExecutorService executor;
+
+	LoopbackServer(int responseSize) {
+		byte[] response = new byte[responseSize];
+		Arrays.fill(response, (byte) 'x');
+		// the server writes the head and the body separately
+		System.setProperty("sun.net.httpserver.nodelay", "true");
+		try {
+			server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 1024);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+		server.setExecutor(executor);
+		server.createContext("/", exchange -> {
+			byte[] buf = new byte[8192];
+			try (InputStream in = exchange.getRequestBody()) {
+				while (in.read(buf) >= 0) {
+					// discard the request body
+				}
+			}
+			exchange.getResponseHeaders().set("Content-Type", "application/octet-stream");
+			exchange.sendResponseHeaders(200, response.length == 0 ? -1 : response.length);
+			try (OutputStream out = exchange.getResponseBody()) {
+				out.write(response);
+			}
+		});
+		server.start();
+	}
+
+	int port() {
+		return server.getAddress().getPort();
+	}
+
+	void stop() {
+		server.stop(0);
+		executor.shutdownNow();
+	}
+
+}
@@ -0,0 +1,108 @@
+package com.github.jcurl.core;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+import com.github.jcurl.core.codec.BodyCodec;
+import com.github.jcurl.core.http.HttpMethod;
+import com.github.jcurl.core.http.HttpVersion;
+
+/**
+ * Intercepts the requests of a client, such as to add authentication, record
+ * metrics, retry or answer from a cache, added with
+ * {@link com.github.jcurl.core.http.JCurlClientOptions#addInterceptor(HttpInterceptor)}.
+ * <p>
+ * The interceptors run in the order they are added, each one proceeding to
+ * the next, the last one to the server. An interceptor may proceed several
+ * times, later or not at all, completing the response itself. The requests of
+ * a client without interceptors do not go through a chain.
+ */
+@FunctionalInterface
+public interface HttpInterceptor {
+
+	/**
+	 * Intercept a request, on the thread sending it.
+	 *
+	 * @param chain the request and the rest of the chain
+	 * @return the future response, such as the one of {@link Chain#proceed()}
+	 */
+	CompletableFuture<HttpResponse<?>> intercept(Chain chain);
+
+	/**
+	 * A request going through the interceptors.
+	 */
+	interface Chain {
+
+		HttpMethod method();
+
+		boolean isSsl();
+
+		String host();
+
+		int port();
+
+		/**
+		 * @return the request target, with its path and query parameters
+		 */
+		String uri();
+
+		/**
+		 * @return the timeout of the request in milliseconds, zero or negative
+		 *         when it has none
+		 */
+		long timeout();
+
+		/**
+		 * @return the executor for the blocking work of an interceptor, such as
+		 *         writing to a disk, since the future of {@link #proceed()} may
+		 *         be completed on an event loop
+		 */
+		Executor executor();
+
+		/**
+		 * @return the headers of this send, a copy of the ones of the request:
+		 *         changes are sent when proceeding, and not kept by the request
+		 */
+		Map<String, String> headers();
+
+		/**
+		 * @return the body of the request, or {@code null}
+		 */
+		Object body();
+
+		/**
+		 * @return the codec decoding the body of the response
+		 */
+		BodyCodec<?> codec();
+
+		/**
+		 * Send the request through the next interceptors, then to the server.
+		 * <p>
+		 * The future is completed like the one of the asynchronous {@code send}
+		 * methods, cancelling it aborts the request.
+		 *
+		 * @return the future response
+		 */
+		CompletableFuture<HttpResponse<?>> proceed();
+
+		/**
+		 * Create a response without sending the request, with its body decoded by
+		 * the codec of the request.
+		 *
+		 * @param version       the version, such as the one of the stored response
+		 * @param statusCode    the status code
+		 * @param statusMessage the status message
+		 * @param headers       the headers
+		 * @param body          the body, or {@code null}
+		 * @return the response
+		 * @throws IllegalStateException when the codec streams the body rather
+		 *                               than buffering it
+		 */
+		HttpResponse<?> respond(HttpVersion version, int statusCode, String statusMessage, Map<String, String> headers,
+				ByteBuffer body);
+
+	}
+
+}
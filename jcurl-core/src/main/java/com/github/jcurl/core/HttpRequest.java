@@ -1,7 +1,10 @@
 package com.github.jcurl.core;
 
 import java.nio.Buffer;
+import java.nio.file.Path;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 import javax.json.JsonObject;
 
@@ -111,6 +114,42 @@ public interface HttpRequest<T> {
 	 * @return a reference to this, so the API can be used fluently
 	 */
 	HttpRequest<T> addPathParams(Map<String, String> pathParams);
+
+	/**
+	 * Configure the executor completing the futures of the asynchronous
+	 * {@code send} methods, so that their dependent stages do not run on the
+	 * event loop. By default the futures are completed from the
+	 * {@link JCurlClient#executor()} when it is enabled, from the event loop
+	 * otherwise.
+	 *
+	 * @param executor the executor, or {@code null} to complete from the event loop
+	 * @return a reference to this, so the API can be used fluently
+	 */
+	HttpRequest<T> executor(Executor executor);
+
+	/**
+	 * Configure the request to stream its body with the chunked transfer coding,
+	 * as it is encoded, rather than encoding it whole before sending it. The
+	 * memory used by a large body stays bounded, the encoding waits while the
+	 * connection is behind.
+	 * <p>
+	 * The body is written by the calling thread, or by the
+	 * {@link #executor(Executor)} of the asynchronous {@code send} methods when
+	 * there is one. A streamed request is not retried.
+	 *
+	 * @param value stream the body?
+	 * @return a reference to this, so the API can be used fluently
+	 */
+	HttpRequest<T> chunked(boolean value);
+
+	/**
+	 * Configure the request to compress its body with the {@code gzip} content
+	 * coding, the server must accept it.
+	 *
+	 * @param value compress the body?
+	 * @return a reference to this, so the API can be used fluently
+	 */
+	HttpRequest<T> gzip(boolean value);
 	
 	/**
 	 * Like {@link #send(Handler)} but with an HTTP request {@code body} buffer.
@@ -119,6 +158,17 @@ public interface HttpRequest<T> {
 	 */
 	HttpResponse<T> sendBuffer(Buffer body);
 
+	/**
+	 * Like {@link #send()} but with the file at {@code path} as the request
+	 * body. The file is sent with its {@code Content-Length}, from the file
+	 * system cache straight to the socket when the connection is plain text
+	 * HTTP/1.1, through pooled buffers otherwise. With {@link #gzip(boolean)}
+	 * it is compressed and streamed instead.
+	 *
+	 * @param path the file
+	 */
+	HttpResponse<T> sendFile(Path path);
+
 	/**
 	 * Like {@link #send(Handler)} but with an HTTP request {@code body} object
 	 * encoded as json and the content type set to {@code application/json}.
@@ -153,4 +203,48 @@ public interface HttpRequest<T> {
 	 */
 	HttpResponse<T> send();
 
+	/**
+	 * Like {@link #sendBuffer(Buffer)} but without waiting for the response.
+	 *
+	 * @param body the body
+	 */
+	CompletableFuture<HttpResponse<T>> sendBufferAsync(Buffer body);
+
+	/**
+	 * Like {@link #sendFile(Path)} but without waiting for the response.
+	 *
+	 * @param path the file
+	 */
+	CompletableFuture<HttpResponse<T>> sendFileAsync(Path path);
+
+	/**
+	 * Like {@link #sendJsonObject(JsonObject)} but without waiting for the
+	 * response.
+	 *
+	 * @param body the body
+	 */
+	CompletableFuture<HttpResponse<T>> sendJsonObjectAsync(JsonObject body);
+
+	/**
+	 * Like {@link #sendJson(Object)} but without waiting for the response.
+	 *
+	 * @param body the body
+	 */
+	CompletableFuture<HttpResponse<T>> sendJsonAsync(Object body);
+
+	/**
+	 * Like {@link #sendForm(Map)} but without waiting for the response.
+	 *
+	 * @param body the body
+	 */
+	CompletableFuture<HttpResponse<T>> sendFormAsync(Map<String, String> body);
+
+	/**
+	 * Send a request without waiting for the response. The future is completed
+	 * with the response, or with a {@link JCurlException} when the request
+	 * fails, from the event loop or from the {@link #executor(Executor)} of the
+	 * request. Cancelling the future aborts the request.
+	 */
+	CompletableFuture<HttpResponse<T>> sendAsync();
+
 }
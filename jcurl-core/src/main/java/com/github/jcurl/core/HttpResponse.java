@@ -1,6 +1,7 @@
 package com.github.jcurl.core;
 
 import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
 import java.util.List;
 import java.util.Map;
 
@@ -69,7 +70,7 @@ public interface HttpResponse<T> {
 	 */
 	default String bodyAsString(String encoding) {
 		ByteBuffer b = bodyAsBuffer();
-		return b != null ? b.toString() : null;
+		return b != null ? BodyCodecImpl.stringDecoder(Charset.forName(encoding)).apply(b) : null;
 	}
 
 	/**
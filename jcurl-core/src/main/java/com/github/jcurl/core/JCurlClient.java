@@ -1,17 +1,34 @@
 package com.github.jcurl.core;
 
 import java.nio.ByteBuffer;
+import java.util.concurrent.ExecutorService;
 
 import com.github.jcurl.core.http.HttpMethod;
+import com.github.jcurl.core.http.JCurlClientOptions;
 import com.github.jcurl.core.http.RequestOptions;
 import com.github.jcurl.core.impl.JCurlClientImpl;
 
 public interface JCurlClient {
 
-	default JCurlClient create() {
+	/**
+	 * Create a client with the default options.
+	 *
+	 * @return the client
+	 */
+	static JCurlClient create() {
 		return new JCurlClientImpl();
 	}
 
+	/**
+	 * Create a client.
+	 *
+	 * @param options the client options
+	 * @return the client
+	 */
+	static JCurlClient create(JCurlClientOptions options) {
+		return new JCurlClientImpl(options);
+	}
+
 	/**
 	 * Create an HTTP request to send to the server at the specified host and port.
 	 * 
@@ -295,6 +312,18 @@ public interface JCurlClient {
 	 */
 	HttpRequest<ByteBuffer> headAbs(String absoluteURI);
 
+	/**
+	 * The worker executor of the client, enabled with
+	 * {@link JCurlClientOptions#setVirtualThreads(boolean)}. It runs a virtual
+	 * thread per task. The blocking {@link HttpRequest#send()} calls of
+	 * platform threads run on it while their caller waits, and it completes the
+	 * asynchronous sends of the requests that have no other executor.
+	 *
+	 * @return the worker executor, or {@code null} when it is not enabled or
+	 *         the runtime has no virtual threads
+	 */
+	ExecutorService executor();
+
 	/**
 	 * Close the client. Closing will close down any pooled connections. Clients
 	 * should always be closed after use.
@@ -0,0 +1,22 @@
+package com.github.jcurl.core;
+
+/**
+ * Thrown when a request cannot be sent or its response cannot be received,
+ * e.g. connection failures, timeouts or malformed responses.
+ */
+public class JCurlException extends RuntimeException {
+
+	private static final long serialVersionUID = -3518249711387224506L;
+
+	public JCurlException() {
+	}
+
+	public JCurlException(String message) {
+		super(message);
+	}
+
+	public JCurlException(String message, Throwable cause) {
+		super(message, cause);
+	}
+
+}
@@ -0,0 +1,70 @@
+package com.github.jcurl.core.buffer;
+
+import java.io.OutputStream;
+
+/**
+ * An {@link OutputStream} writing to a {@link PooledBuffer}, replaced by a
+ * larger one from the pool when it is full.
+ */
+public final class BufferOutputStream extends OutputStream {
+
+	private final BufferPool pool;
+	private PooledBuffer buffer;
+
+	/**
+	 * @param pool            the pool of the buffers
+	 * @param initialCapacity the capacity of the first buffer
+	 */
+	public BufferOutputStream(BufferPool pool, int initialCapacity) {
+		this.pool = pool;
+		this.buffer = pool.acquire(initialCapacity);
+	}
+
+	@Override
+	public void write(int b) {
+		ensure(1);
+		buffer.buffer().put((byte) b);
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) {
+		ensure(len);
+		buffer.buffer().put(b, off, len);
+	}
+
+	/**
+	 * Hand the written bytes over, the stream must not be used afterwards.
+	 *
+	 * @return the buffer, flipped for reading
+	 */
+	public PooledBuffer toBuffer() {
+		PooledBuffer result = buffer;
+		buffer = null;
+		result.buffer().flip();
+		return result;
+	}
+
+	/**
+	 * Release the buffer when the bytes are not handed over, closing the stream
+	 * keeps them.
+	 */
+	public void release() {
+		if (buffer != null) {
+			buffer.release();
+			buffer = null;
+		}
+	}
+
+	private void ensure(int length) {
+		if (buffer.buffer().remaining() < length) {
+			int position = buffer.buffer().position();
+			PooledBuffer bigger = pool.acquire((int) Math.min(Math.max(buffer.capacity() * 2L, (long) position + length),
+					Integer.MAX_VALUE - 8));
+			buffer.buffer().flip();
+			bigger.buffer().put(buffer.buffer());
+			buffer.release();
+			buffer = bigger;
+		}
+	}
+
+}
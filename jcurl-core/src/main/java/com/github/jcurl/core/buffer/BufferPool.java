@@ -0,0 +1,136 @@
+package com.github.jcurl.core.buffer;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A pool of {@link ByteBuffer}s in power of two size classes, from 512 bytes
+ * to 1MB. Larger buffers are allocated on the heap and never retained.
+ * <p>
+ * Released buffers are kept for reuse until the pool retains its maximum
+ * number of bytes, then they are left to the garbage collector. The pool is
+ * thread safe.
+ */
+public final class BufferPool {
+
+	private static final int MIN_SHIFT = 9;
+	private static final int MAX_SHIFT = 20;
+
+	/**
+	 * The largest buffer the pool retains.
+	 */
+	public static final int MAX_POOLED_CAPACITY = 1 << MAX_SHIFT;
+
+	private final boolean direct;
+	private final long maxRetained;
+	private final SizeClass[] classes = new SizeClass[MAX_SHIFT - MIN_SHIFT + 1];
+	private final AtomicLong retained = new AtomicLong();
+
+	/**
+	 * @param direct      allocate direct buffers?
+	 * @param maxRetained the maximum number of bytes retained for reuse
+	 */
+	public BufferPool(boolean direct, long maxRetained) {
+		this.direct = direct;
+		this.maxRetained = maxRetained;
+		for (int i = 0; i < classes.length; i++) {
+			classes[i] = new SizeClass();
+		}
+	}
+
+	/**
+	 * @return are the pooled buffers direct?
+	 */
+	public boolean isDirect() {
+		return direct;
+	}
+
+	/**
+	 * @return the number of bytes retained for reuse
+	 */
+	public long retained() {
+		return retained.get();
+	}
+
+	/**
+	 * Acquire a buffer, its reference count is one.
+	 *
+	 * @param capacity the minimum capacity
+	 * @return a cleared buffer of at least {@code capacity} bytes
+	 */
+	public PooledBuffer acquire(int capacity) {
+		if (capacity > MAX_POOLED_CAPACITY) {
+			return new PooledBuffer(null, ByteBuffer.allocate(capacity));
+		}
+		int index = index(capacity);
+		PooledBuffer buffer = classes[index].poll();
+		if (buffer != null) {
+			retained.addAndGet(-buffer.capacity());
+			buffer.reuse();
+			return buffer;
+		}
+		int size = 1 << (index + MIN_SHIFT);
+		return new PooledBuffer(this, direct ? ByteBuffer.allocateDirect(size) : ByteBuffer.allocate(size));
+	}
+
+	/**
+	 * Take back a buffer whose reference count dropped to zero.
+	 */
+	void recycle(PooledBuffer buffer) {
+		int capacity = buffer.capacity();
+		if (retained.addAndGet(capacity) > maxRetained) {
+			retained.addAndGet(-capacity);
+			return;
+		}
+		classes[index(capacity)].offer(buffer);
+	}
+
+	private static int index(int capacity) {
+		if (capacity <= 1 << MIN_SHIFT) {
+			return 0;
+		}
+		return 32 - Integer.numberOfLeadingZeros(capacity - 1) - MIN_SHIFT;
+	}
+
+	/**
+	 * The free buffers of a size class, reused in LIFO order so that the most
+	 * recently used memory is handed over first.
+	 */
+	private static final class SizeClass {
+
+		private final ReentrantLock lock = new ReentrantLock();
+		private PooledBuffer[] free = new PooledBuffer[16];
+		private int size;
+
+		PooledBuffer poll() {
+			lock.lock();
+			try {
+				if (size == 0) {
+					return null;
+				}
+				PooledBuffer buffer = free[--size];
+				free[size] = null;
+				return buffer;
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		void offer(PooledBuffer buffer) {
+			lock.lock();
+			try {
+				if (size == free.length) {
+					PooledBuffer[] bigger = new PooledBuffer[size * 2];
+					System.arraycopy(free, 0, bigger, 0, size);
+					free = bigger;
+				}
+				free[size++] = buffer;
+			} finally {
+				lock.unlock();
+			}
+		}
+
+	}
+
+}
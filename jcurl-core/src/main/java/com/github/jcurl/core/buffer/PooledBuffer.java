@@ -0,0 +1,110 @@
+package com.github.jcurl.core.buffer;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A reference counted {@link ByteBuffer}, given back to its {@link BufferPool}
+ * once released by all its holders. The buffer must not be used after it is
+ * released.
+ * <p>
+ * Duplicates share the reference count of the buffer they are created from,
+ * with their own position and limit.
+ */
+public final class PooledBuffer {
+
+	private final BufferPool pool;
+	private final PooledBuffer root;
+	private final ByteBuffer buffer;
+	private final AtomicInteger references;
+
+	PooledBuffer(BufferPool pool, ByteBuffer buffer) {
+		this.pool = pool;
+		this.root = this;
+		this.buffer = buffer;
+		this.references = new AtomicInteger(1);
+	}
+
+	private PooledBuffer(ByteBuffer buffer, PooledBuffer root) {
+		this.pool = null;
+		this.root = root;
+		this.buffer = buffer;
+		this.references = null;
+	}
+
+	/**
+	 * Wrap a buffer that is not pooled, releasing it has no effect.
+	 *
+	 * @param buffer the buffer
+	 * @return the wrapper
+	 */
+	public static PooledBuffer wrap(ByteBuffer buffer) {
+		return new PooledBuffer(null, buffer);
+	}
+
+	/**
+	 * @return the buffer
+	 */
+	public ByteBuffer buffer() {
+		return buffer;
+	}
+
+	/**
+	 * @return the capacity of the buffer
+	 */
+	public int capacity() {
+		return buffer.capacity();
+	}
+
+	/**
+	 * @return is the buffer direct?
+	 */
+	public boolean isDirect() {
+		return buffer.isDirect();
+	}
+
+	/**
+	 * Increment the reference count.
+	 *
+	 * @return a reference to this
+	 */
+	public PooledBuffer retain() {
+		if (root.references.getAndIncrement() <= 0) {
+			root.references.getAndDecrement();
+			throw new IllegalStateException("Buffer already released");
+		}
+		return this;
+	}
+
+	/**
+	 * Duplicate the buffer and increment the reference count, the duplicate
+	 * must be released on its own.
+	 *
+	 * @return the duplicate of the remaining bytes
+	 */
+	public PooledBuffer retainedDuplicate() {
+		retain();
+		return new PooledBuffer(buffer.duplicate(), root);
+	}
+
+	/**
+	 * Decrement the reference count, the buffer is given back to its pool when
+	 * it drops to zero.
+	 */
+	public void release() {
+		int references = root.references.decrementAndGet();
+		if (references == 0) {
+			if (root.pool != null) {
+				root.pool.recycle(root);
+			}
+		} else if (references < 0) {
+			throw new IllegalStateException("Buffer already released");
+		}
+	}
+
+	void reuse() {
+		references.set(1);
+		buffer.clear();
+	}
+
+}
@@ -0,0 +1,125 @@
+package com.github.jcurl.core.cache;
+
+import java.util.Locale;
+
+/**
+ * The directives of a {@code Cache-Control} header used by a private cache,
+ * the ages are in seconds and {@code -1} when absent.
+ */
+final class CacheControl {
+
+	static final CacheControl NONE = new CacheControl();
+
+	boolean noStore;
+	boolean noCache;
+	boolean mustRevalidate;
+	boolean onlyIfCached;
+	long maxAge = -1;
+	long minFresh = -1;
+	// Long.MAX_VALUE when the directive has no value
+	long maxStale = -1;
+
+	private CacheControl() {
+	}
+
+	/**
+	 * @param value  the value of the header, or {@code null}
+	 * @param pragma the value of the {@code Pragma} header, used when there is
+	 *               no {@code Cache-Control} header
+	 */
+	static CacheControl parse(String value, String pragma) {
+		if (value == null) {
+			if (pragma == null || !pragma.toLowerCase(Locale.ROOT).contains("no-cache")) {
+				return NONE;
+			}
+			CacheControl cc = new CacheControl();
+			cc.noCache = true;
+			return cc;
+		}
+		CacheControl cc = new CacheControl();
+		int i = 0;
+		int length = value.length();
+		while (i < length) {
+			int end = i;
+			while (end < length && value.charAt(end) != ',' && value.charAt(end) != '=') {
+				end++;
+			}
+			String name = value.substring(i, end).trim().toLowerCase(Locale.ROOT);
+			String argument = null;
+			i = end;
+			if (i < length && value.charAt(i) == '=') {
+				i++;
+				while (i < length && value.charAt(i) == ' ') {
+					i++;
+				}
+				if (i < length && value.charAt(i) == '"') {
+					end = value.indexOf('"', i + 1);
+					end = end < 0 ? length : end;
+					argument = value.substring(i + 1, end);
+					i = end + 1;
+				} else {
+					end = i;
+					while (end < length && value.charAt(end) != ',') {
+						end++;
+					}
+					argument = value.substring(i, end).trim();
+					i = end;
+				}
+			}
+			while (i < length && value.charAt(i) != ',') {
+				i++;
+			}
+			i++;
+			cc.directive(name, argument);
+		}
+		return cc;
+	}
+
+	private void directive(String name, String argument) {
+		switch (name) {
+		case "no-store":
+			noStore = true;
+			break;
+		case "no-cache":
+			noCache = true;
+			break;
+		case "must-revalidate":
+			mustRevalidate = true;
+			break;
+		case "only-if-cached":
+			onlyIfCached = true;
+			break;
+		case "max-age":
+			maxAge = seconds(argument, -1);
+			break;
+		case "min-fresh":
+			minFresh = seconds(argument, -1);
+			break;
+		case "max-stale":
+			maxStale = argument == null ? Long.MAX_VALUE : seconds(argument, -1);
+			break;
+		default:
+			// the directives of the shared caches and the extensions
+		}
+	}
+
+	/**
+	 * @return the delta-seconds, or {@code invalid}
+	 */
+	static long seconds(String value, long invalid) {
+		if (value == null || value.isEmpty()) {
+			return invalid;
+		}
+		long seconds = 0;
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c < '0' || c > '9') {
+				return invalid;
+			}
+			// values beyond 2^31 are treated as 2^31
+			seconds = Math.min(seconds * 10 + c - '0', Integer.MAX_VALUE + 1L);
+		}
+		return seconds;
+	}
+
+}
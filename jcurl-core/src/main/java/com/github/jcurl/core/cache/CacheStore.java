@@ -0,0 +1,26 @@
+package com.github.jcurl.core.cache;
+
+/**
+ * Stores the responses of an {@link HttpCache} by key, shared by the threads
+ * of the clients. A store may drop a response at any time.
+ */
+public interface CacheStore {
+
+	/**
+	 * @param key the key of the request
+	 * @return the stored response, or {@code null}
+	 */
+	CachedResponse get(String key);
+
+	/**
+	 * @param key      the key of the request
+	 * @param response the response, replacing the stored one
+	 */
+	void put(String key, CachedResponse response);
+
+	/**
+	 * @param key the key of the request
+	 */
+	void remove(String key);
+
+}
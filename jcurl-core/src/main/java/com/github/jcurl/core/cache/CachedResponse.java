@@ -0,0 +1,244 @@
+package com.github.jcurl.core.cache;
+
+import java.nio.ByteBuffer;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Collections;
+import java.util.Map;
+
+import com.github.jcurl.core.http.CaseInsensitiveHeaders;
+import com.github.jcurl.core.http.HeaderNames;
+import com.github.jcurl.core.http.HttpVersion;
+
+/**
+ * A stored response: its status line, its headers, the bytes of its body as they
+ * are given to the codecs, and the times of its exchange. The freshness of the
+ * response is computed once, when it is stored.
+ */
+public final class CachedResponse {
+
+	// 10% of the time since the last modification, without explicit freshness
+	private static final int HEURISTIC_FRACTION = 10;
+
+	private final HttpVersion version;
+	private final int statusCode;
+	private final String statusMessage;
+	private final CaseInsensitiveHeaders headers;
+	private final ByteBuffer body;
+	private final Map<String, String> vary;
+	private final long requestTime;
+	private final long responseTime;
+	private final CacheControl cacheControl;
+	private final long freshnessLifetime;
+	private final long initialAge;
+
+	/**
+	 * @param version       the version
+	 * @param statusCode    the status code
+	 * @param statusMessage the status message
+	 * @param headers       the headers, not copied
+	 * @param body         the body, from its position to its limit, not copied
+	 * @param vary         the values of the request headers named by
+	 *                     {@code Vary}, by lower case name
+	 * @param requestTime  the time the request was sent, in milliseconds
+	 * @param responseTime the time the response was received, in milliseconds
+	 */
+	public CachedResponse(HttpVersion version, int statusCode, String statusMessage, CaseInsensitiveHeaders headers,
+			ByteBuffer body, Map<String, String> vary, long requestTime, long responseTime) {
+		this.version = version;
+		this.statusCode = statusCode;
+		this.statusMessage = statusMessage != null ? statusMessage : "";
+		this.headers = headers;
+		this.body = body;
+		this.vary = vary != null ? vary : Collections.emptyMap();
+		this.requestTime = requestTime;
+		this.responseTime = responseTime;
+		this.cacheControl = CacheControl.parse(headers.get(HeaderNames.CACHE_CONTROL), null);
+		long date = date(headers.get(HeaderNames.DATE), responseTime);
+		long apparentAge = Math.max(0, responseTime - date);
+		long age = CacheControl.seconds(headers.get(HeaderNames.AGE), 0) * 1000;
+		this.initialAge = Math.max(apparentAge, age + responseTime - requestTime);
+		this.freshnessLifetime = freshnessLifetime(date);
+	}
+
+	public HttpVersion version() {
+		return version;
+	}
+
+	public int statusCode() {
+		return statusCode;
+	}
+
+	public String statusMessage() {
+		return statusMessage;
+	}
+
+	/**
+	 * @return the headers, which must not be changed
+	 */
+	public CaseInsensitiveHeaders headers() {
+		return headers;
+	}
+
+	/**
+	 * @return the body, a view sharing the bytes of the stored one
+	 */
+	public ByteBuffer body() {
+		return body.duplicate();
+	}
+
+	/**
+	 * @return the values of the request headers named by {@code Vary}, by lower
+	 *         case name
+	 */
+	public Map<String, String> vary() {
+		return vary;
+	}
+
+	public long requestTime() {
+		return requestTime;
+	}
+
+	public long responseTime() {
+		return responseTime;
+	}
+
+	/**
+	 * @return the approximate number of bytes held by the response
+	 */
+	public long size() {
+		long size = body.remaining() + 128;
+		for (Map.Entry<String, String> header : headers.entrySet()) {
+			size += 2 * (header.getKey().length() + header.getValue().length()) + 32;
+		}
+		return size;
+	}
+
+	/**
+	 * @param now the time, in milliseconds
+	 * @return the age of the response
+	 */
+	long age(long now) {
+		return initialAge + Math.max(0, now - responseTime);
+	}
+
+	/**
+	 * @param now     the time, in milliseconds
+	 * @param request the directives of the request
+	 * @return can the response be used without validating it?
+	 */
+	boolean isFresh(long now, CacheControl request) {
+		if (cacheControl.noCache || request.noCache) {
+			return false;
+		}
+		long age = age(now);
+		if (request.maxAge >= 0 && age > request.maxAge * 1000) {
+			return false;
+		}
+		long remaining = freshnessLifetime - age;
+		if (request.minFresh >= 0 && remaining < request.minFresh * 1000) {
+			return false;
+		}
+		if (remaining > 0) {
+			return true;
+		}
+		// stale
+		return request.maxStale >= 0 && !cacheControl.mustRevalidate
+				&& (request.maxStale == Long.MAX_VALUE || -remaining <= request.maxStale * 1000);
+	}
+
+	/**
+	 * @param request the headers of the request
+	 * @return are the request headers named by {@code Vary} the ones of the
+	 *         stored request?
+	 */
+	boolean matches(Map<String, String> request) {
+		for (Map.Entry<String, String> header : vary.entrySet()) {
+			String value = request.get(header.getKey());
+			if (value == null ? header.getValue() != null : !value.equals(header.getValue())) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return has the response a validator for a conditional request?
+	 */
+	boolean isValidatable() {
+		return headers.containsKey(HeaderNames.ETAG) || headers.containsKey(HeaderNames.LAST_MODIFIED);
+	}
+
+	/**
+	 * @return is the response worth storing: fresh for a while, or validatable?
+	 */
+	boolean isUseful() {
+		return freshnessLifetime > initialAge || isValidatable();
+	}
+
+	/**
+	 * The response validated by a {@code 304} response, with its headers
+	 * updated by the ones of the {@code 304} response.
+	 *
+	 * @param notModified  the headers of the {@code 304} response
+	 * @param requestTime  the time the conditional request was sent
+	 * @param responseTime the time the {@code 304} response was received
+	 * @return the updated response
+	 */
+	CachedResponse validated(Map<String, String> notModified, long requestTime, long responseTime) {
+		CaseInsensitiveHeaders updated = new CaseInsensitiveHeaders(headers);
+		// all the values of a header replace the stored ones together
+		for (String name : notModified.keySet()) {
+			if (isUpdated(name)) {
+				updated.remove(name);
+			}
+		}
+		for (Map.Entry<String, String> header : notModified.entrySet()) {
+			if (isUpdated(header.getKey())) {
+				updated.add(header.getKey(), header.getValue());
+			}
+		}
+		return new CachedResponse(version, statusCode, statusMessage, updated, body, vary, requestTime, responseTime);
+	}
+
+	/**
+	 * @return is the header of a {@code 304} response updating the stored one,
+	 *         rather than describing a body it does not have?
+	 */
+	private static boolean isUpdated(String name) {
+		return !name.equalsIgnoreCase(HeaderNames.CONTENT_LENGTH) && !name.equalsIgnoreCase(HeaderNames.CONTENT_ENCODING)
+				&& !name.equalsIgnoreCase(HeaderNames.TRANSFER_ENCODING);
+	}
+
+	private long freshnessLifetime(long date) {
+		if (cacheControl.maxAge >= 0) {
+			return cacheControl.maxAge * 1000;
+		}
+		String expires = headers.get(HeaderNames.EXPIRES);
+		if (expires != null) {
+			// an invalid date means already expired
+			return Math.max(0, date(expires, date) - date);
+		}
+		String lastModified = headers.get(HeaderNames.LAST_MODIFIED);
+		if (lastModified != null && HttpCache.isCacheableByDefault(statusCode)) {
+			return Math.max(0, date - date(lastModified, date)) / HEURISTIC_FRACTION;
+		}
+		return 0;
+	}
+
+	/**
+	 * @return the time of an HTTP date, or {@code invalid}
+	 */
+	static long date(String value, long invalid) {
+		if (value == null) {
+			return invalid;
+		}
+		try {
+			return ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+		} catch (DateTimeParseException e) {
+			return invalid;
+		}
+	}
+
+}
@@ -0,0 +1,520 @@
+package com.github.jcurl.core.cache;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+import com.github.jcurl.core.http.CaseInsensitiveHeaders;
+import com.github.jcurl.core.http.HttpVersion;
+
+/**
+ * Keeps the responses in append-only segment files of a directory, memory
+ * mapped, so that they survive the restarts of the process. The bodies are
+ * read-only views of the mapped files, given to the codecs and to
+ * {@code bodyAsBuffer()} without copying them to the heap.
+ * <p>
+ * The index of the records is kept in memory and rebuilt from the segments
+ * when the store is opened, a record torn by a crash ends its segment. A
+ * replaced or removed record is marked dead in place; a segment less than
+ * half live is compacted into the current one, and the oldest segments are
+ * dropped when the files exceed the maximum size.
+ * <p>
+ * The directory is locked while the store is open, it cannot be shared by
+ * stores, in this process or others.
+ */
+public final class DiskCacheStore implements CacheStore, Closeable {
+
+	/**
+	 * The default size of the segment files = 64 MB
+	 */
+	public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+	private static final String SUFFIX = ".segment";
+	private static final int MAGIC = 0x4a435243;
+	private static final byte LIVE = 1;
+	private static final byte DEAD = 2;
+	// magic, state, key length, meta length, body length, checksum
+	private static final int HEADER_SIZE = 21;
+	private static final int STATE_OFFSET = 4;
+
+	private final Path directory;
+	private final long maxSize;
+	private final int segmentSize;
+	private final FileChannel lockChannel;
+	private final FileLock fileLock;
+	private final ReentrantLock lock = new ReentrantLock();
+	// guarded by the lock, the segments from the oldest
+	private final ArrayDeque<Segment> segments = new ArrayDeque<>();
+	private final Map<String, Record> index = new HashMap<>();
+	private Segment current;
+	private long size;
+	private int nextId;
+	private boolean closed;
+
+	/**
+	 * @param directory the directory of the segments, created when missing
+	 * @param maxSize   the maximum number of bytes of the segment files
+	 * @throws IOException when the directory cannot be opened or is locked
+	 */
+	public DiskCacheStore(Path directory, long maxSize) throws IOException {
+		this(directory, maxSize, DEFAULT_SEGMENT_SIZE);
+	}
+
+	/**
+	 * @param directory   the directory of the segments, created when missing
+	 * @param maxSize     the maximum number of bytes of the segment files
+	 * @param segmentSize the size of a segment file, larger for a larger record
+	 * @throws IOException when the directory cannot be opened or is locked
+	 */
+	public DiskCacheStore(Path directory, long maxSize, int segmentSize) throws IOException {
+		if (segmentSize <= HEADER_SIZE || maxSize < segmentSize) {
+			throw new IllegalArgumentException("Invalid cache sizes: " + maxSize + ", " + segmentSize);
+		}
+		this.directory = directory;
+		this.maxSize = maxSize;
+		this.segmentSize = segmentSize;
+		Files.createDirectories(directory);
+		this.lockChannel = FileChannel.open(directory.resolve("lock"), StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE);
+		FileLock acquired;
+		try {
+			acquired = lockChannel.tryLock();
+		} catch (OverlappingFileLockException e) {
+			// locked by a store of this process
+			acquired = null;
+		}
+		if (acquired == null) {
+			lockChannel.close();
+			throw new IOException("The cache directory " + directory + " is used by another store");
+		}
+		this.fileLock = acquired;
+		try {
+			recover();
+		} catch (IOException | RuntimeException e) {
+			close();
+			throw e;
+		}
+	}
+
+	@Override
+	public CachedResponse get(String key) {
+		lock.lock();
+		try {
+			Record record = index.get(key);
+			if (record == null) {
+				return null;
+			}
+			if (record.response == null) {
+				try {
+					record.response = read(record);
+				} catch (IOException e) {
+					kill(key, record);
+					return null;
+				}
+			}
+			return record.response;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public void put(String key, CachedResponse response) {
+		byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+		byte[] meta;
+		try {
+			meta = meta(response);
+		} catch (IOException e) {
+			// such as a header too large, the response is not stored
+			remove(key);
+			return;
+		}
+		ByteBuffer body = response.body();
+		long length = (long) HEADER_SIZE + keyBytes.length + meta.length + body.remaining();
+		if (length > Integer.MAX_VALUE || length > maxSize) {
+			remove(key);
+			return;
+		}
+		lock.lock();
+		try {
+			if (closed) {
+				return;
+			}
+			Record previous = index.remove(key);
+			if (previous != null) {
+				kill(previous);
+			}
+			Segment segment = reserve((int) length);
+			if (segment == null) {
+				return;
+			}
+			int offset = segment.position;
+			ByteBuffer map = segment.map.duplicate();
+			map.position(offset + STATE_OFFSET);
+			map.put(LIVE).putInt(keyBytes.length).putInt(meta.length).putInt(body.remaining());
+			CRC32 crc = new CRC32();
+			crc.update(keyBytes);
+			crc.update(meta);
+			crc.update(body.duplicate());
+			map.putInt((int) crc.getValue());
+			map.put(keyBytes).put(meta).put(body);
+			map.putInt(offset, MAGIC);
+			segment.position += (int) length;
+			segment.live += length;
+			Record record = new Record(segment, offset, (int) length);
+			index.put(key, record);
+			compact(previous);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public void remove(String key) {
+		lock.lock();
+		try {
+			Record record = index.remove(key);
+			if (record != null) {
+				kill(record);
+				compact(record);
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @return the number of bytes of the segment files
+	 */
+	public long size() {
+		lock.lock();
+		try {
+			return size;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public long maxSize() {
+		return maxSize;
+	}
+
+	/**
+	 * Write the segments to the disk and close the files, the bodies already
+	 * returned stay readable.
+	 */
+	@Override
+	public void close() throws IOException {
+		lock.lock();
+		try {
+			if (closed) {
+				return;
+			}
+			closed = true;
+			for (Segment segment : segments) {
+				segment.map.force();
+				segment.channel.close();
+			}
+			segments.clear();
+			index.clear();
+			current = null;
+		} finally {
+			lock.unlock();
+			try {
+				fileLock.release();
+			} finally {
+				lockChannel.close();
+			}
+		}
+	}
+
+	private void recover() throws IOException {
+		TreeMap<Integer, Path> files = new TreeMap<>();
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+			for (Path file : stream) {
+				String name = file.getFileName().toString();
+				try {
+					files.put(Integer.parseInt(name.substring(0, name.length() - SUFFIX.length())), file);
+				} catch (NumberFormatException e) {
+					// not a segment
+				}
+			}
+		}
+		for (Map.Entry<Integer, Path> file : files.entrySet()) {
+			int capacity = (int) Math.min(Files.size(file.getValue()), Integer.MAX_VALUE);
+			Segment segment = open(file.getKey(), capacity);
+			scan(segment);
+			nextId = file.getKey() + 1;
+		}
+		current = segments.peekLast();
+		for (Segment segment : new ArrayList<>(segments)) {
+			if (segment.live == 0 && segment != current) {
+				drop(segment);
+			}
+		}
+	}
+
+	/**
+	 * Index the live records of a segment, up to the first invalid one.
+	 */
+	private void scan(Segment segment) {
+		ByteBuffer map = segment.map;
+		int offset = 0;
+		while (offset + HEADER_SIZE <= segment.capacity && map.getInt(offset) == MAGIC) {
+			byte state = map.get(offset + STATE_OFFSET);
+			int keyLength = map.getInt(offset + 5);
+			int metaLength = map.getInt(offset + 9);
+			int bodyLength = map.getInt(offset + 13);
+			long length = (long) HEADER_SIZE + keyLength + metaLength + bodyLength;
+			if (keyLength < 0 || metaLength < 0 || bodyLength < 0 || offset + length > segment.capacity) {
+				break;
+			}
+			if (state == LIVE) {
+				ByteBuffer data = slice(map, offset + HEADER_SIZE, (int) length - HEADER_SIZE);
+				CRC32 crc = new CRC32();
+				crc.update(data);
+				if ((int) crc.getValue() != map.getInt(offset + 17)) {
+					break;
+				}
+				String key = StandardCharsets.UTF_8
+						.decode(slice(map, offset + HEADER_SIZE, keyLength)).toString();
+				Record previous = index.put(key, new Record(segment, offset, (int) length));
+				if (previous != null) {
+					// a crash before the previous record was marked dead
+					kill(previous);
+				}
+				segment.live += length;
+			} else if (state != DEAD) {
+				break;
+			}
+			offset += (int) length;
+		}
+		segment.position = offset;
+	}
+
+	/**
+	 * @return the segment with room for a record of {@code length} bytes, or
+	 *         {@code null} when a segment cannot be created
+	 */
+	private Segment reserve(int length) {
+		if (current != null && current.capacity - current.position >= length) {
+			return current;
+		}
+		int capacity = Math.max(segmentSize, length);
+		while (!segments.isEmpty() && size + capacity > maxSize) {
+			drop(segments.peekFirst());
+		}
+		try {
+			current = open(nextId++, capacity);
+		} catch (IOException e) {
+			// such as a full disk, the record is not stored
+			current = null;
+		}
+		return current;
+	}
+
+	private Segment open(int id, int capacity) throws IOException {
+		Path path = directory.resolve(String.format("%08d", id) + SUFFIX);
+		FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE);
+		MappedByteBuffer map;
+		try {
+			map = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+		} catch (IOException e) {
+			channel.close();
+			throw e;
+		}
+		Segment segment = new Segment(path, channel, map, capacity);
+		segments.addLast(segment);
+		size += capacity;
+		return segment;
+	}
+
+	/**
+	 * Delete a segment and forget its records.
+	 */
+	private void drop(Segment segment) {
+		Iterator<Record> records = index.values().iterator();
+		while (records.hasNext()) {
+			if (records.next().segment == segment) {
+				records.remove();
+			}
+		}
+		segments.remove(segment);
+		size -= segment.capacity;
+		segment.dropped = true;
+		if (current == segment) {
+			current = null;
+		}
+		try {
+			segment.channel.close();
+			Files.deleteIfExists(segment.path);
+		} catch (IOException e) {
+			// the segment is no longer indexed
+		}
+	}
+
+	/**
+	 * Move the live records of the segment of a dead record to the current
+	 * segment, once less than half of it is live.
+	 */
+	private void compact(Record dead) {
+		if (dead == null) {
+			return;
+		}
+		Segment segment = dead.segment;
+		if (segment == current || segment.dropped || segment.live * 2 >= segment.position) {
+			return;
+		}
+		List<Map.Entry<String, Record>> live = new ArrayList<>();
+		for (Map.Entry<String, Record> entry : index.entrySet()) {
+			if (entry.getValue().segment == segment) {
+				live.add(entry);
+			}
+		}
+		for (Map.Entry<String, Record> entry : live) {
+			Record record = entry.getValue();
+			Segment target = reserve(record.length);
+			if (target == null || segment.dropped) {
+				return;
+			}
+			ByteBuffer map = target.map.duplicate();
+			map.position(target.position);
+			map.put(slice(segment.map, record.offset, record.length));
+			Record moved = new Record(target, target.position, record.length);
+			moved.response = record.response;
+			target.position += record.length;
+			target.live += record.length;
+			entry.setValue(moved);
+		}
+		drop(segment);
+	}
+
+	private void kill(String key, Record record) {
+		index.remove(key);
+		kill(record);
+	}
+
+	private void kill(Record record) {
+		record.segment.live -= record.length;
+		if (!record.segment.dropped) {
+			record.segment.map.put(record.offset + STATE_OFFSET, DEAD);
+		}
+	}
+
+	private static CachedResponse read(Record record) throws IOException {
+		ByteBuffer map = record.segment.map;
+		int keyLength = map.getInt(record.offset + 5);
+		int metaLength = map.getInt(record.offset + 9);
+		int bodyLength = map.getInt(record.offset + 13);
+		int metaOffset = record.offset + HEADER_SIZE + keyLength;
+		byte[] meta = new byte[metaLength];
+		slice(map, metaOffset, metaLength).get(meta);
+		ByteBuffer body = slice(map, metaOffset + metaLength, bodyLength).asReadOnlyBuffer();
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(meta));
+		HttpVersion version = HttpVersion.valueOf(in.readUTF());
+		int statusCode = in.readInt();
+		String statusMessage = in.readUTF();
+		long requestTime = in.readLong();
+		long responseTime = in.readLong();
+		CaseInsensitiveHeaders headers = new CaseInsensitiveHeaders();
+		for (int i = in.readInt(); i > 0; i--) {
+			headers.add(in.readUTF(), in.readUTF());
+		}
+		Map<String, String> vary = new LinkedHashMap<>();
+		for (int i = in.readInt(); i > 0; i--) {
+			String name = in.readUTF();
+			vary.put(name, in.readBoolean() ? in.readUTF() : null);
+		}
+		return new CachedResponse(version, statusCode, statusMessage, headers, body, vary, requestTime, responseTime);
+	}
+
+	private static byte[] meta(CachedResponse response) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeUTF(response.version().name());
+		out.writeInt(response.statusCode());
+		out.writeUTF(response.statusMessage());
+		out.writeLong(response.requestTime());
+		out.writeLong(response.responseTime());
+		out.writeInt(response.headers().size());
+		for (Map.Entry<String, String> header : response.headers().entrySet()) {
+			out.writeUTF(header.getKey());
+			out.writeUTF(header.getValue());
+		}
+		out.writeInt(response.vary().size());
+		for (Map.Entry<String, String> header : response.vary().entrySet()) {
+			out.writeUTF(header.getKey());
+			out.writeBoolean(header.getValue() != null);
+			if (header.getValue() != null) {
+				out.writeUTF(header.getValue());
+			}
+		}
+		return bytes.toByteArray();
+	}
+
+	private static ByteBuffer slice(ByteBuffer map, int offset, int length) {
+		ByteBuffer slice = map.duplicate();
+		slice.limit(offset + length).position(offset);
+		return slice.slice();
+	}
+
+	private static final class Segment {
+
+		final Path path;
+		final FileChannel channel;
+		final MappedByteBuffer map;
+		final int capacity;
+		int position;
+		long live;
+		boolean dropped;
+
+		Segment(Path path, FileChannel channel, MappedByteBuffer map, int capacity) {
+			this.path = path;
+			this.channel = channel;
+			this.map = map;
+			this.capacity = capacity;
+		}
+
+	}
+
+	private static final class Record {
+
+		final Segment segment;
+		final int offset;
+		final int length;
+		// decoded on the first read
+		CachedResponse response;
+
+		Record(Segment segment, int offset, int length) {
+			this.segment = segment;
+			this.offset = offset;
+			this.length = length;
+		}
+
+	}
+
+}
@@ -0,0 +1,215 @@
+package com.github.jcurl.core.cache;
+
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+import com.github.jcurl.core.HttpInterceptor;
+import com.github.jcurl.core.HttpResponse;
+import com.github.jcurl.core.codec.impl.FileBodyCodec;
+import com.github.jcurl.core.codec.impl.StreamBodyCodec;
+import com.github.jcurl.core.http.CaseInsensitiveHeaders;
+import com.github.jcurl.core.http.HeaderNames;
+import com.github.jcurl.core.http.HttpMethod;
+import com.github.jcurl.core.http.HttpVersion;
+
+/**
+ * A private HTTP cache (RFC 7234) of the {@code GET} responses, added to a
+ * client as an interceptor:
+ *
+ * <pre>
+ * new JCurlClientOptions().addInterceptor(new HttpCache(new MemoryCacheStore(64 * 1024 * 1024)))
+ * </pre>
+ *
+ * The fresh responses are answered from the store, with their body decoded
+ * again by the codec of each request. The stale ones are validated with a
+ * conditional request when they have an {@code ETag} or a
+ * {@code Last-Modified} header, a {@code 304} response refreshing them. The
+ * request headers named by {@code Vary} must match the ones of the stored
+ * response, which is replaced otherwise.
+ * <p>
+ * The requests streaming their response or sending their own conditional or
+ * range headers bypass the cache, and the successful responses of the unsafe
+ * methods invalidate the response of their target.
+ * <p>
+ * The store is written on the executor of the chain rather than on the event
+ * loop completing the response, since a store may write to a disk.
+ */
+public final class HttpCache implements HttpInterceptor {
+
+	private final CacheStore store;
+
+	/**
+	 * @param store the store of the responses
+	 */
+	public HttpCache(CacheStore store) {
+		this.store = store;
+	}
+
+	public CacheStore store() {
+		return store;
+	}
+
+	@Override
+	public CompletableFuture<HttpResponse<?>> intercept(Chain chain) {
+		HttpMethod method = chain.method();
+		if (method != HttpMethod.GET) {
+			if (method == HttpMethod.HEAD || method == HttpMethod.OPTIONS || method == HttpMethod.TRACE) {
+				return chain.proceed();
+			}
+			String key = key(chain);
+			return then(chain, chain.proceed(), response -> {
+				if (response.statusCode() < 400) {
+					store.remove(key);
+				}
+				return response;
+			});
+		}
+		Map<String, String> headers = chain.headers();
+		if (chain.codec() instanceof StreamBodyCodec || chain.codec() instanceof FileBodyCodec
+				|| headers.containsKey(HeaderNames.IF_NONE_MATCH) || headers.containsKey(HeaderNames.IF_MODIFIED_SINCE)
+				|| headers.containsKey(HeaderNames.RANGE)) {
+			return chain.proceed();
+		}
+		CacheControl cacheControl = CacheControl.parse(headers.get(HeaderNames.CACHE_CONTROL),
+				headers.get(HeaderNames.PRAGMA));
+		if (cacheControl.noStore) {
+			return chain.proceed();
+		}
+		String key = key(chain);
+		CachedResponse cached = store.get(key);
+		if (cached != null && !cached.matches(headers)) {
+			cached = null;
+		}
+		long now = System.currentTimeMillis();
+		if (cached != null && cached.isFresh(now, cacheControl)) {
+			return CompletableFuture.completedFuture(respond(chain, cached, now));
+		}
+		if (cacheControl.onlyIfCached) {
+			return CompletableFuture.completedFuture(chain.respond(HttpVersion.HTTP_1_1, 504,
+					"Gateway Timeout", Collections.emptyMap(), ByteBuffer.allocate(0)));
+		}
+		boolean conditional = cached != null && cached.isValidatable();
+		if (conditional) {
+			// the headers are a copy for this send, the validators are not left to the next sends
+			String etag = cached.headers().get(HeaderNames.ETAG);
+			if (etag != null) {
+				headers.put(HeaderNames.IF_NONE_MATCH, etag);
+			}
+			String lastModified = cached.headers().get(HeaderNames.LAST_MODIFIED);
+			if (lastModified != null) {
+				headers.put(HeaderNames.IF_MODIFIED_SINCE, lastModified);
+			}
+		}
+		CachedResponse validated = conditional ? cached : null;
+		return then(chain, chain.proceed(), response -> received(chain, key, validated, now, response));
+	}
+
+	/**
+	 * Apply {@code action} to the response, on the executor of the chain unless
+	 * the response is already there: the store may write to a disk, which must
+	 * not stall the event loop completing the response.
+	 */
+	private static CompletableFuture<HttpResponse<?>> then(Chain chain, CompletableFuture<HttpResponse<?>> future,
+			Function<HttpResponse<?>, HttpResponse<?>> action) {
+		CompletableFuture<HttpResponse<?>> result = future.isDone() ? future.thenApply(action)
+				: future.thenApplyAsync(action, chain.executor());
+		result.whenComplete((response, err) -> {
+			if (err instanceof CancellationException) {
+				future.cancel(false);
+			}
+		});
+		return result;
+	}
+
+	private HttpResponse<?> received(Chain chain, String key, CachedResponse validated, long requestTime,
+			HttpResponse<?> response) {
+		long responseTime = System.currentTimeMillis();
+		if (response.statusCode() == 304 && validated != null) {
+			CachedResponse updated = validated.validated(response.headers(), requestTime, responseTime);
+			store.put(key, updated);
+			return respond(chain, updated, responseTime);
+		}
+		CaseInsensitiveHeaders headers = new CaseInsensitiveHeaders(response.headers());
+		ByteBuffer body = response.bodyAsBuffer();
+		if (body == null || response.statusCode() < 200 || response.statusCode() == 206) {
+			return response;
+		}
+		CacheControl cacheControl = CacheControl.parse(headers.get(HeaderNames.CACHE_CONTROL), null);
+		String vary = headers.get(HeaderNames.VARY);
+		if (cacheControl.noStore || (vary != null && vary.contains("*"))) {
+			store.remove(key);
+			return response;
+		}
+		boolean explicit = cacheControl.maxAge >= 0 || headers.containsKey(HeaderNames.EXPIRES);
+		if (!explicit && !isCacheableByDefault(response.statusCode())) {
+			return response;
+		}
+		CachedResponse cached = new CachedResponse(response.version(), response.statusCode(),
+				response.statusMessage(), headers, copy(body),
+				vary != null ? selected(vary, chain.headers()) : null, requestTime, responseTime);
+		if (cached.isUseful()) {
+			store.put(key, cached);
+		}
+		return response;
+	}
+
+	private static HttpResponse<?> respond(Chain chain, CachedResponse cached, long now) {
+		CaseInsensitiveHeaders headers = new CaseInsensitiveHeaders(cached.headers());
+		headers.put(HeaderNames.AGE, Long.toString(cached.age(now) / 1000));
+		return chain.respond(cached.version(), cached.statusCode(), cached.statusMessage(), headers, cached.body());
+	}
+
+	/**
+	 * @return the values of the request headers named by {@code vary}
+	 */
+	private static Map<String, String> selected(String vary, Map<String, String> request) {
+		Map<String, String> selected = new HashMap<>();
+		for (String name : vary.split(",")) {
+			name = name.trim().toLowerCase(Locale.ROOT);
+			if (!name.isEmpty()) {
+				selected.put(name, request.get(name));
+			}
+		}
+		return selected;
+	}
+
+	private static ByteBuffer copy(ByteBuffer body) {
+		byte[] bytes = new byte[body.remaining()];
+		body.get(bytes);
+		return ByteBuffer.wrap(bytes);
+	}
+
+	private static String key(Chain chain) {
+		return (chain.isSsl() ? "https://" : "http://") + chain.host().toLowerCase(Locale.ROOT) + ":" + chain.port()
+				+ chain.uri();
+	}
+
+	/**
+	 * @return may a response with this status be stored without explicit
+	 *         freshness?
+	 */
+	static boolean isCacheableByDefault(int statusCode) {
+		switch (statusCode) {
+		case 200:
+		case 203:
+		case 204:
+		case 300:
+		case 301:
+		case 404:
+		case 405:
+		case 410:
+		case 414:
+		case 501:
+			return true;
+		default:
+			return false;
+		}
+	}
+
+}
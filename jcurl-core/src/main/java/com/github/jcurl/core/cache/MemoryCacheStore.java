@@ -0,0 +1,144 @@
+package com.github.jcurl.core.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Keeps the responses in the heap, up to a number of bytes, with a segmented
+ * LRU eviction: a response enters a probation segment, and moves to a
+ * protected segment when it is read again. The protected segment holds up to
+ * 80% of the bytes, its least recently used responses go back to probation,
+ * and the responses are evicted from probation first. A burst of responses
+ * read once does not evict the ones read often.
+ */
+public final class MemoryCacheStore implements CacheStore {
+
+	private final ReentrantLock lock = new ReentrantLock();
+	private final long maxSize;
+	private final long maxProtectedSize;
+	// guarded by the lock, in access order
+	private final LinkedHashMap<String, Entry> probation = new LinkedHashMap<>(16, 0.75f, true);
+	private final LinkedHashMap<String, Entry> protectedSegment = new LinkedHashMap<>(16, 0.75f, true);
+	private long size;
+	private long protectedSize;
+
+	/**
+	 * @param maxSize the maximum number of bytes of the responses
+	 */
+	public MemoryCacheStore(long maxSize) {
+		if (maxSize <= 0) {
+			throw new IllegalArgumentException("Invalid cache size: " + maxSize);
+		}
+		this.maxSize = maxSize;
+		this.maxProtectedSize = maxSize / 5 * 4;
+	}
+
+	@Override
+	public CachedResponse get(String key) {
+		lock.lock();
+		try {
+			Entry entry = protectedSegment.get(key);
+			if (entry != null) {
+				return entry.response;
+			}
+			entry = probation.remove(key);
+			if (entry == null) {
+				return null;
+			}
+			protectedSegment.put(key, entry);
+			protectedSize += entry.size;
+			while (protectedSize > maxProtectedSize) {
+				Iterator<Map.Entry<String, Entry>> eldest = protectedSegment.entrySet().iterator();
+				Map.Entry<String, Entry> demoted = eldest.next();
+				eldest.remove();
+				protectedSize -= demoted.getValue().size;
+				probation.put(demoted.getKey(), demoted.getValue());
+			}
+			return entry.response;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public void put(String key, CachedResponse response) {
+		Entry entry = new Entry(response, 2L * key.length() + response.size());
+		lock.lock();
+		try {
+			remove0(key);
+			if (entry.size > maxSize) {
+				return;
+			}
+			probation.put(key, entry);
+			size += entry.size;
+			while (size > maxSize) {
+				evict(probation.isEmpty() ? protectedSegment : probation);
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public void remove(String key) {
+		lock.lock();
+		try {
+			remove0(key);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @return the number of bytes of the responses
+	 */
+	public long size() {
+		lock.lock();
+		try {
+			return size;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public long maxSize() {
+		return maxSize;
+	}
+
+	private void remove0(String key) {
+		Entry entry = probation.remove(key);
+		if (entry == null) {
+			entry = protectedSegment.remove(key);
+			if (entry == null) {
+				return;
+			}
+			protectedSize -= entry.size;
+		}
+		size -= entry.size;
+	}
+
+	private void evict(LinkedHashMap<String, Entry> segment) {
+		Iterator<Entry> eldest = segment.values().iterator();
+		Entry entry = eldest.next();
+		eldest.remove();
+		size -= entry.size;
+		if (segment == protectedSegment) {
+			protectedSize -= entry.size;
+		}
+	}
+
+	private static final class Entry {
+
+		final CachedResponse response;
+		final long size;
+
+		Entry(CachedResponse response, long size) {
+			this.response = response;
+			this.size = size;
+		}
+
+	}
+
+}
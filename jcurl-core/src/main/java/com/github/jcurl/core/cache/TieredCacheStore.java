@@ -0,0 +1,69 @@
+package com.github.jcurl.core.cache;
+
+/**
+ * A memory store in front of a disk store: the responses are written to both,
+ * and read from the disk when the memory no longer has them. The small
+ * responses read from the disk are kept in memory again, the large ones are
+ * only read from the disk, whose bodies are mapped rather than copied.
+ */
+public final class TieredCacheStore implements CacheStore {
+
+	/**
+	 * The default maximum size of the bodies kept in memory = 256 KB
+	 */
+	public static final int DEFAULT_MAX_MEMORY_BODY_SIZE = 256 * 1024;
+
+	private final CacheStore memory;
+	private final CacheStore disk;
+	private final int maxMemoryBodySize;
+
+	/**
+	 * @param memory the first tier, such as a {@link MemoryCacheStore}
+	 * @param disk   the second tier, such as a {@link DiskCacheStore}
+	 */
+	public TieredCacheStore(CacheStore memory, CacheStore disk) {
+		this(memory, disk, DEFAULT_MAX_MEMORY_BODY_SIZE);
+	}
+
+	/**
+	 * @param memory            the first tier, such as a {@link MemoryCacheStore}
+	 * @param disk              the second tier, such as a {@link DiskCacheStore}
+	 * @param maxMemoryBodySize the maximum size of the bodies kept in the first
+	 *                          tier
+	 */
+	public TieredCacheStore(CacheStore memory, CacheStore disk, int maxMemoryBodySize) {
+		this.memory = memory;
+		this.disk = disk;
+		this.maxMemoryBodySize = maxMemoryBodySize;
+	}
+
+	@Override
+	public CachedResponse get(String key) {
+		CachedResponse response = memory.get(key);
+		if (response != null) {
+			return response;
+		}
+		response = disk.get(key);
+		if (response != null && response.body().remaining() <= maxMemoryBodySize) {
+			memory.put(key, response);
+		}
+		return response;
+	}
+
+	@Override
+	public void put(String key, CachedResponse response) {
+		if (response.body().remaining() <= maxMemoryBodySize) {
+			memory.put(key, response);
+		} else {
+			memory.remove(key);
+		}
+		disk.put(key, response);
+	}
+
+	@Override
+	public void remove(String key) {
+		memory.remove(key);
+		disk.remove(key);
+	}
+
+}
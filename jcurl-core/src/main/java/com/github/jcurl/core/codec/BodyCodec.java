@@ -2,12 +2,16 @@ package com.github.jcurl.core.codec;
 
 import java.nio.Buffer;
 import java.nio.ByteBuffer;
+import java.nio.file.Path;
 import java.util.function.Function;
 
 import javax.json.JsonArray;
 import javax.json.JsonObject;
 
 import com.github.jcurl.core.codec.impl.BodyCodecImpl;
+import com.github.jcurl.core.codec.impl.FileBodyCodec;
+import com.github.jcurl.core.codec.impl.StreamBodyCodec;
+import com.github.jcurl.core.stream.Publisher;
 
 public interface BodyCodec<T> {
 
@@ -50,7 +54,8 @@ public interface BodyCodec<T> {
 	}
 
 	/**
-	 * Create and return a codec for Java objects encoded using Jackson mapper.
+	 * Create and return a codec for Java objects encoded in JSON, mapped with the
+	 * {@link com.github.jcurl.core.json.JsonEngine} of the client.
 	 *
 	 * @return a codec for mapping POJO to Json
 	 */
@@ -65,6 +70,64 @@ public interface BodyCodec<T> {
 		return BodyCodecImpl.NONE;
 	}
 
+	/**
+	 * Create a codec that streams the body instead of buffering it: the response
+	 * is returned once its head is received, and its body publishes slices of
+	 * the bytes as they are read from the connection. Reading pauses until the
+	 * subscriber requests more slices, and the publisher must be subscribed to
+	 * for the connection to be released.
+	 * <p>
+	 * Each slice is only valid until {@code onNext} returns, the subscriber
+	 * callbacks run on the event loop thread and must not block it.
+	 *
+	 * @return the streaming codec
+	 */
+	static BodyCodec<Publisher<ByteBuffer>> stream() {
+		return StreamBodyCodec.BYTES;
+	}
+
+	/**
+	 * Create a codec that streams the body as JSON elements: the elements of a
+	 * root array are mapped to {@code type} and published as soon as they are
+	 * parsed, the whole document is never buffered. Root values that are not
+	 * arrays are published as single elements.
+	 *
+	 * @param type the class of the elements
+	 * @return the streaming codec
+	 * @see #stream()
+	 */
+	static <U> BodyCodec<Publisher<U>> jsonStream(Class<U> type) {
+		return BodyCodecImpl.jsonStream(type);
+	}
+
+	/**
+	 * Create a codec that writes the body of a successful response to the file
+	 * at {@code path} as it is received, instead of buffering it. The body of
+	 * the response is the path once the file is complete, the other responses
+	 * are buffered and have no body.
+	 *
+	 * @param path the file, replaced when it exists
+	 * @return the file codec
+	 */
+	static BodyCodec<Path> file(Path path) {
+		return new FileBodyCodec(path, false);
+	}
+
+	/**
+	 * Like {@link #file(Path)}, optionally resuming the download of an existing
+	 * file: the request asks for the bytes following it with a {@code Range}
+	 * header, and they are appended when the server sends a partial response.
+	 * The file is replaced when the server sends the whole body instead, and a
+	 * {@code 416} response tells it is already complete.
+	 *
+	 * @param path   the file
+	 * @param resume resume the download of an existing file?
+	 * @return the file codec
+	 */
+	static BodyCodec<Path> file(Path path, boolean resume) {
+		return new FileBodyCodec(path, resume);
+	}
+
 	/**
 	 * Create a codec that buffers the entire body and then apply the {@code decode}
 	 * function and returns the result.
@@ -1,40 +1,58 @@
 package com.github.jcurl.core.codec.impl;
 
 import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.util.function.Function;
 
 import javax.json.JsonArray;
 import javax.json.JsonObject;
-import javax.json.bind.JsonbBuilder;
 
+import com.fasterxml.jackson.databind.ObjectReader;
 import com.github.jcurl.core.codec.BodyCodec;
 import com.github.jcurl.core.json.Json;
+import com.github.jcurl.core.stream.Publisher;
 
 
 public class BodyCodecImpl<T> implements BodyCodec<T> {
 
 	public static final Function<ByteBuffer, Void> VOID_DECODER = buff -> null;
-	public static final Function<ByteBuffer, String> UTF8_DECODER = buff -> new String(buff.array(), StandardCharsets.UTF_8);
-	public static final Function<ByteBuffer, JsonObject> JSON_OBJECT_DECODER = buff -> JsonbBuilder.create().fromJson(buff.toString(), JsonObject.class);
-	public static final Function<ByteBuffer, JsonArray> JSON_ARRAY_DECODER = buff -> JsonbBuilder.create().fromJson(buff.toString(), JsonArray.class);
+	public static final Function<ByteBuffer, String> UTF8_DECODER = stringDecoder(StandardCharsets.UTF_8);
+	public static final Function<ByteBuffer, JsonObject> JSON_OBJECT_DECODER = jsonDecoder(JsonObject.class);
+	public static final Function<ByteBuffer, JsonArray> JSON_ARRAY_DECODER = jsonDecoder(JsonArray.class);
 
 	public static final BodyCodec<String> STRING = new BodyCodecImpl<>(UTF8_DECODER);
 	public static final BodyCodec<Void> NONE = new BodyCodecImpl<>(VOID_DECODER);
 	public static final BodyCodec<ByteBuffer> BUFFER = new BodyCodecImpl<>(Function.identity());
-	public static final BodyCodec<JsonObject> JSON_OBJECT = new BodyCodecImpl<>(JSON_OBJECT_DECODER);
-	public static final BodyCodec<JsonArray> JSON_ARRAY = new BodyCodecImpl<>(JSON_ARRAY_DECODER);
+	public static final BodyCodec<JsonObject> JSON_OBJECT = new JsonBodyCodec<>(JsonObject.class);
+	public static final BodyCodec<JsonArray> JSON_ARRAY = new JsonBodyCodec<>(JsonArray.class);
 
 	public static BodyCodecImpl<String> string(String encoding) {
-		return new BodyCodecImpl<>(buff -> buff.toString());
+		return new BodyCodecImpl<>(stringDecoder(Charset.forName(encoding)));
 	}
 
 	public static <T> BodyCodec<T> json(Class<T> type) {
-		return new BodyCodecImpl<>(jsonDecoder(type));
+		return new JsonBodyCodec<>(type);
+	}
+
+	public static <T> BodyCodec<Publisher<T>> jsonStream(Class<T> type) {
+		return new StreamBodyCodec<>(bytes -> new JsonStreamPublisher<>(bytes, type));
 	}
 
 	public static <T> Function<ByteBuffer, T> jsonDecoder(Class<T> type) {
-		return buff -> Json.decodeValue(buff.toString(), type);
+		ObjectReader reader = Json.reader(type);
+		return buff -> Json.decodeValue(buff, reader);
+	}
+
+	/**
+	 * @param charset the charset of the bytes
+	 * @return a decoder of the remaining bytes, heap or direct, which leaves the
+	 *         position of the buffer unchanged
+	 */
+	public static Function<ByteBuffer, String> stringDecoder(Charset charset) {
+		return buff -> buff.hasArray()
+				? new String(buff.array(), buff.arrayOffset() + buff.position(), buff.remaining(), charset)
+				: charset.decode(buff.duplicate()).toString();
 	}
 
 	private final Function<ByteBuffer, T> decoder;
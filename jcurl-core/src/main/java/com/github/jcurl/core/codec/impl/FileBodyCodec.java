@@ -0,0 +1,44 @@
+package com.github.jcurl.core.codec.impl;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+
+import com.github.jcurl.core.codec.BodyCodec;
+
+/**
+ * A codec whose body is written to a file as it arrives, the body of the
+ * response is the path of the file once it is complete.
+ */
+public class FileBodyCodec implements BodyCodec<Path> {
+
+	private final Path path;
+	private final boolean resume;
+
+	/**
+	 * @param path   the file
+	 * @param resume append to the file the bytes following it, when it exists
+	 */
+	public FileBodyCodec(Path path, boolean resume) {
+		this.path = path;
+		this.resume = resume;
+	}
+
+	public Path path() {
+		return path;
+	}
+
+	public boolean isResume() {
+		return resume;
+	}
+
+	/**
+	 * The body is never buffered.
+	 *
+	 * @throws UnsupportedOperationException always
+	 */
+	@Override
+	public Path decode(ByteBuffer buffer) {
+		throw new UnsupportedOperationException("The body is written to a file");
+	}
+
+}
@@ -0,0 +1,45 @@
+package com.github.jcurl.core.codec.impl;
+
+import java.nio.ByteBuffer;
+
+import com.github.jcurl.core.codec.BodyCodec;
+import com.github.jcurl.core.json.Json;
+import com.github.jcurl.core.json.JsonEngine;
+
+/**
+ * A codec mapping the buffered body from JSON, with the engine of the client
+ * receiving the response.
+ */
+public class JsonBodyCodec<T> implements BodyCodec<T> {
+
+	private final Class<T> type;
+
+	/**
+	 * @param type the class to map to
+	 */
+	public JsonBodyCodec(Class<T> type) {
+		this.type = type;
+	}
+
+	public Class<T> type() {
+		return type;
+	}
+
+	/**
+	 * Decode with {@link Json#engine()}.
+	 */
+	@Override
+	public T decode(ByteBuffer buffer) {
+		return decode(buffer, Json.engine());
+	}
+
+	/**
+	 * @param buffer the buffer to be decoded
+	 * @param engine the engine of the client
+	 * @return the decoded buffer
+	 */
+	public T decode(ByteBuffer buffer, JsonEngine engine) {
+		return buffer != null ? engine.decode(buffer, type) : null;
+	}
+
+}
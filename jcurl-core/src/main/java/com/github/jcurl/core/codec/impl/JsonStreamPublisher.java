@@ -0,0 +1,159 @@
+package com.github.jcurl.core.codec.impl;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.github.jcurl.core.json.JsonStreamDecoder;
+import com.github.jcurl.core.stream.Publisher;
+import com.github.jcurl.core.stream.Subscriber;
+import com.github.jcurl.core.stream.Subscription;
+
+/**
+ * Publishes the JSON elements decoded from a publisher of bytes. A slice of
+ * bytes is requested only once the elements decoded from the previous one
+ * were delivered, so that memory stays bounded by the size of a slice and of
+ * an element.
+ *
+ * @param <T> the type of the elements
+ */
+public class JsonStreamPublisher<T> implements Publisher<T> {
+
+	private final Publisher<ByteBuffer> bytes;
+	private final Class<T> type;
+
+	public JsonStreamPublisher(Publisher<ByteBuffer> bytes, Class<T> type) {
+		this.bytes = bytes;
+		this.type = type;
+	}
+
+	@Override
+	public void subscribe(Subscriber<? super T> subscriber) {
+		bytes.subscribe(new DecodingSubscriber<>(subscriber, new JsonStreamDecoder<>(type)));
+	}
+
+	private static final class DecodingSubscriber<T> implements Subscriber<ByteBuffer>, Subscription {
+
+		private final Subscriber<? super T> downstream;
+		private final JsonStreamDecoder<T> decoder;
+		private final Queue<T> elements = new ConcurrentLinkedQueue<>();
+		private final AtomicLong demand = new AtomicLong();
+		// serializes the drain loop
+		private final AtomicInteger wip = new AtomicInteger();
+		private Subscription upstream;
+		private volatile boolean upstreamPending;
+		private volatile boolean upstreamDone;
+		private volatile boolean cancelled;
+		private Throwable error;
+		private boolean terminated;
+
+		DecodingSubscriber(Subscriber<? super T> downstream, JsonStreamDecoder<T> decoder) {
+			this.downstream = downstream;
+			this.decoder = decoder;
+		}
+
+		@Override
+		public void onSubscribe(Subscription subscription) {
+			this.upstream = subscription;
+			downstream.onSubscribe(this);
+		}
+
+		@Override
+		public void onNext(ByteBuffer chunk) {
+			try {
+				decoder.decode(chunk, elements::add);
+			} catch (RuntimeException e) {
+				upstream.cancel();
+				onError(e);
+				return;
+			}
+			upstreamPending = false;
+			drain();
+		}
+
+		@Override
+		public void onComplete() {
+			try {
+				decoder.end(elements::add);
+			} catch (RuntimeException e) {
+				onError(e);
+				return;
+			}
+			upstreamDone = true;
+			drain();
+		}
+
+		@Override
+		public void onError(Throwable cause) {
+			error = cause;
+			upstreamDone = true;
+			drain();
+		}
+
+		@Override
+		public void request(long n) {
+			if (n <= 0) {
+				cancel();
+				onError(new IllegalArgumentException("Requested " + n + " elements, the demand must be positive"));
+				return;
+			}
+			for (;;) {
+				long current = demand.get();
+				long next = current + n;
+				if (demand.compareAndSet(current, next < 0 ? Long.MAX_VALUE : next)) {
+					break;
+				}
+			}
+			drain();
+		}
+
+		@Override
+		public void cancel() {
+			if (!cancelled) {
+				cancelled = true;
+				upstream.cancel();
+			}
+		}
+
+		private void drain() {
+			if (wip.getAndIncrement() != 0) {
+				return;
+			}
+			int missed = 1;
+			do {
+				long requested = demand.get();
+				long delivered = 0;
+				T element;
+				while (delivered != requested && !cancelled && (element = elements.poll()) != null) {
+					downstream.onNext(element);
+					delivered++;
+				}
+				if (delivered != 0 && requested != Long.MAX_VALUE) {
+					demand.addAndGet(-delivered);
+				}
+				if (cancelled) {
+					elements.clear();
+				} else if (elements.isEmpty()) {
+					if (upstreamDone) {
+						if (!terminated) {
+							terminated = true;
+							if (error != null) {
+								downstream.onError(error);
+							} else {
+								downstream.onComplete();
+							}
+						}
+					} else if (demand.get() > 0 && !upstreamPending) {
+						upstreamPending = true;
+						upstream.request(1);
+					}
+				}
+				missed = wip.addAndGet(-missed);
+			} while (missed != 0);
+		}
+
+	}
+
+}
@@ -0,0 +1,46 @@
+package com.github.jcurl.core.codec.impl;
+
+import java.nio.ByteBuffer;
+import java.util.function.Function;
+
+import com.github.jcurl.core.codec.BodyCodec;
+import com.github.jcurl.core.stream.Publisher;
+
+/**
+ * A codec whose body is streamed: the response is returned as soon as its
+ * head is received and the body is a publisher of the bytes as they arrive.
+ */
+public class StreamBodyCodec<T> implements BodyCodec<T> {
+
+	public static final StreamBodyCodec<Publisher<ByteBuffer>> BYTES = new StreamBodyCodec<>(Function.identity());
+
+	private final Function<Publisher<ByteBuffer>, T> mapper;
+
+	/**
+	 * @param mapper maps the publisher of the body bytes to the body of the
+	 *               response
+	 */
+	public StreamBodyCodec(Function<Publisher<ByteBuffer>, T> mapper) {
+		this.mapper = mapper;
+	}
+
+	/**
+	 * @param bytes the publisher of the body bytes, each one only valid until
+	 *              {@code onNext} returns
+	 * @return the body of the response
+	 */
+	public T publisher(Publisher<ByteBuffer> bytes) {
+		return mapper.apply(bytes);
+	}
+
+	/**
+	 * The body is never buffered.
+	 *
+	 * @throws UnsupportedOperationException always
+	 */
+	@Override
+	public T decode(ByteBuffer buffer) {
+		throw new UnsupportedOperationException("The body is streamed");
+	}
+
+}
@@ -0,0 +1,230 @@
+package com.github.jcurl.core.dns;
+
+import java.io.IOException;
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Resolves the host names of the connections without blocking the caller:
+ * the lookups of a {@link HostResolver} run on an executor, and their
+ * addresses are cached for their TTL. The failed lookups are cached as well,
+ * for the negative TTL.
+ * <p>
+ * Once the TTL expired, the addresses are still used during the stale TTL
+ * while a single lookup refreshes them in the background, and until the next
+ * attempt when that lookup fails. Concurrent lookups of a host share a single
+ * lookup.
+ * <p>
+ * The addresses are returned in the order to connect to them: the families
+ * alternate, starting with the family of the first address of the resolver,
+ * and each family starts with the next address at each call, so that the
+ * connections are spread across the addresses.
+ */
+public final class DnsCache {
+
+	private static final int SWEEP_SIZE = 1024;
+
+	private final HostResolver resolver;
+	private final Executor executor;
+	private final long negativeTtlNanos;
+	private final long staleTtlNanos;
+	private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+	private final ConcurrentHashMap<String, CompletableFuture<Entry>> lookups = new ConcurrentHashMap<>();
+
+	/**
+	 * @param resolver    the resolver
+	 * @param executor    the executor of the lookups
+	 * @param negativeTtl the time in milliseconds a failed lookup is cached
+	 * @param staleTtl    the time in milliseconds the addresses are used after
+	 *                    their TTL, while they are looked up again
+	 */
+	public DnsCache(HostResolver resolver, Executor executor, long negativeTtl, long staleTtl) {
+		this.resolver = resolver;
+		this.executor = executor;
+		this.negativeTtlNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(negativeTtl, 0));
+		this.staleTtlNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(staleTtl, 0));
+	}
+
+	/**
+	 * Resolve a host, can be called from any thread.
+	 *
+	 * @param host the host name or IP address literal
+	 * @return a future completed with the addresses of the host, in the order to
+	 *         connect to them, or with the failure of the lookup
+	 */
+	public CompletableFuture<List<InetAddress>> resolve(String host) {
+		CompletableFuture<List<InetAddress>> future = new CompletableFuture<>();
+		try {
+			InetAddress literal = IpLiterals.parse(host);
+			if (literal != null) {
+				future.complete(Collections.singletonList(literal));
+				return future;
+			}
+		} catch (UnknownHostException e) {
+			future.completeExceptionally(e);
+			return future;
+		}
+		String name = host.toLowerCase(Locale.ROOT);
+		Entry entry = entries.get(name);
+		if (entry != null) {
+			long now = System.nanoTime();
+			if (now - entry.expires < 0) {
+				entry.complete(future);
+				return future;
+			}
+			if (entry.failure == null && now - entry.stale < 0) {
+				lookup(name);
+				entry.complete(future);
+				return future;
+			}
+		}
+		lookup(name).thenAccept(e -> e.complete(future));
+		return future;
+	}
+
+	/**
+	 * Forget the addresses of a host, it is looked up again by the next call.
+	 *
+	 * @param host the host name
+	 */
+	public void invalidate(String host) {
+		entries.remove(host.toLowerCase(Locale.ROOT));
+	}
+
+	private CompletableFuture<Entry> lookup(String host) {
+		CompletableFuture<Entry> lookup = lookups.get(host);
+		if (lookup != null) {
+			return lookup;
+		}
+		CompletableFuture<Entry> future = new CompletableFuture<>();
+		lookup = lookups.putIfAbsent(host, future);
+		if (lookup != null) {
+			return lookup;
+		}
+		try {
+			executor.execute(() -> lookedUp(host, future));
+		} catch (RejectedExecutionException e) {
+			lookups.remove(host, future);
+			future.complete(new Entry(e, System.nanoTime()));
+		}
+		return future;
+	}
+
+	private void lookedUp(String host, CompletableFuture<Entry> future) {
+		Entry entry;
+		long now;
+		try {
+			HostAddresses addresses = resolver.resolve(host);
+			now = System.nanoTime();
+			long expires = now + TimeUnit.MILLISECONDS.toNanos(addresses.ttl());
+			entry = new Entry(addresses.addresses(), expires, expires + staleTtlNanos);
+		} catch (IOException | RuntimeException e) {
+			now = System.nanoTime();
+			Entry previous = entries.get(host);
+			if (previous != null && previous.failure == null && now - previous.stale < 0) {
+				// the resolver is unavailable, the stale addresses are used until the next attempt
+				entry = previous.retryAt(now + negativeTtlNanos);
+			} else {
+				entry = new Entry(e, now + negativeTtlNanos);
+			}
+		}
+		if (entry.stale - now > 0) {
+			if (entries.size() >= SWEEP_SIZE) {
+				long time = now;
+				entries.values().removeIf(e -> time - e.stale >= 0);
+			}
+			entries.put(host, entry);
+		}
+		lookups.remove(host, future);
+		future.complete(entry);
+	}
+
+	/**
+	 * The addresses of a host split by family, or the failure of its lookup.
+	 */
+	private static final class Entry {
+
+		private final InetAddress[] first;
+		private final InetAddress[] second;
+		private final Throwable failure;
+		private final long expires;
+		private final long stale;
+		private final AtomicInteger next;
+
+		Entry(List<InetAddress> addresses, long expires, long stale) {
+			boolean ipv6 = addresses.get(0) instanceof Inet6Address;
+			List<InetAddress> first = new ArrayList<>(addresses.size());
+			List<InetAddress> second = new ArrayList<>(0);
+			for (InetAddress address : addresses) {
+				(address instanceof Inet6Address == ipv6 ? first : second).add(address);
+			}
+			this.first = first.toArray(new InetAddress[0]);
+			this.second = second.toArray(new InetAddress[0]);
+			this.failure = null;
+			this.expires = expires;
+			this.stale = stale;
+			this.next = new AtomicInteger();
+		}
+
+		Entry(Throwable failure, long expires) {
+			this.first = null;
+			this.second = null;
+			this.failure = failure;
+			this.expires = expires;
+			this.stale = expires;
+			this.next = null;
+		}
+
+		private Entry(Entry entry, long expires) {
+			this.first = entry.first;
+			this.second = entry.second;
+			this.failure = null;
+			this.expires = expires;
+			this.stale = entry.stale;
+			this.next = entry.next;
+		}
+
+		/**
+		 * @return the same addresses, expiring at {@code expires} unless they are
+		 *         no longer usable by then
+		 */
+		Entry retryAt(long expires) {
+			return new Entry(this, stale - expires < 0 ? stale : expires);
+		}
+
+		void complete(CompletableFuture<List<InetAddress>> future) {
+			if (failure != null) {
+				future.completeExceptionally(failure);
+				return;
+			}
+			if (first.length == 1 && second.length == 0) {
+				future.complete(Collections.singletonList(first[0]));
+				return;
+			}
+			int turn = next.getAndIncrement() & Integer.MAX_VALUE;
+			List<InetAddress> addresses = new ArrayList<>(first.length + second.length);
+			for (int i = 0; i < Math.max(first.length, second.length); i++) {
+				if (i < first.length) {
+					addresses.add(first[(turn + i) % first.length]);
+				}
+				if (i < second.length) {
+					addresses.add(second[(turn + i) % second.length]);
+				}
+			}
+			future.complete(addresses);
+		}
+
+	}
+
+}
@@ -0,0 +1,45 @@
+package com.github.jcurl.core.dns;
+
+import java.net.InetAddress;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The A and AAAA records of a host, in the order of the resolver, and how
+ * long they can be cached.
+ */
+public final class HostAddresses {
+
+	private final List<InetAddress> addresses;
+	private final long ttl;
+
+	/**
+	 * @param addresses the addresses, at least one
+	 * @param ttl       the time to live in milliseconds, zero for none
+	 */
+	public HostAddresses(List<InetAddress> addresses, long ttl) {
+		if (addresses.isEmpty()) {
+			throw new IllegalArgumentException("addresses must not be empty");
+		}
+		this.addresses = Collections.unmodifiableList(Arrays.asList(addresses.toArray(new InetAddress[0])));
+		this.ttl = Math.max(ttl, 0);
+	}
+
+	public List<InetAddress> addresses() {
+		return addresses;
+	}
+
+	/**
+	 * @return the time to live in milliseconds
+	 */
+	public long ttl() {
+		return ttl;
+	}
+
+	@Override
+	public String toString() {
+		return addresses + " ttl=" + ttl;
+	}
+
+}
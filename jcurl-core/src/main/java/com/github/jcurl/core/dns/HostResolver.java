@@ -0,0 +1,21 @@
+package com.github.jcurl.core.dns;
+
+import java.io.IOException;
+
+/**
+ * Looks up the addresses of the host names, such as the
+ * {@link SystemHostResolver} or a {@link StaticHostResolver} standing in for
+ * it. The lookups may block: a {@link DnsCache} runs them on threads of its
+ * own, never on the event loops.
+ */
+public interface HostResolver {
+
+	/**
+	 * @param host the host name, never an IP address literal
+	 * @return the addresses of the host and how long they can be cached
+	 * @throws java.net.UnknownHostException when the host has no address
+	 * @throws IOException                   when the lookup fails
+	 */
+	HostAddresses resolve(String host) throws IOException;
+
+}
@@ -0,0 +1,53 @@
+package com.github.jcurl.core.dns;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+/**
+ * Parses the hosts given as IP address literals, without any lookup.
+ */
+final class IpLiterals {
+
+	private IpLiterals() {
+	}
+
+	/**
+	 * @param host a host name or an IPv4 or IPv6 literal, the latter with or
+	 *             without brackets
+	 * @return the address of the literal, or {@code null} for a host name
+	 * @throws UnknownHostException when the host is a malformed IPv6 literal
+	 */
+	static InetAddress parse(String host) throws UnknownHostException {
+		if (host.indexOf(':') >= 0) {
+			// the JDK never looks up a host containing a colon
+			return InetAddress.getByName(host);
+		}
+		return isIpv4(host) ? InetAddress.getByName(host) : null;
+	}
+
+	private static boolean isIpv4(String host) {
+		int parts = 0;
+		int value = 0;
+		int digits = 0;
+		for (int i = 0; i < host.length(); i++) {
+			char c = host.charAt(i);
+			if (c == '.') {
+				if (digits == 0 || ++parts > 3) {
+					return false;
+				}
+				value = 0;
+				digits = 0;
+			} else if (c >= '0' && c <= '9' && digits < 3) {
+				value = value * 10 + c - '0';
+				digits++;
+				if (value > 255) {
+					return false;
+				}
+			} else {
+				return false;
+			}
+		}
+		return parts == 3 && digits > 0;
+	}
+
+}
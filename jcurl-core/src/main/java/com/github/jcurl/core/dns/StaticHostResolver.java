@@ -0,0 +1,117 @@
+package com.github.jcurl.core.dns;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Resolves the host names from addresses held in memory, added by the
+ * application or loaded from a file in the format of {@code /etc/hosts}. The
+ * other host names are looked up by a fallback resolver, or are unknown.
+ */
+public final class StaticHostResolver implements HostResolver {
+
+	private final ConcurrentHashMap<String, List<InetAddress>> hosts = new ConcurrentHashMap<>();
+	private final long ttl;
+	private final HostResolver fallback;
+
+	/**
+	 * @param ttl the time in milliseconds the addresses are cached
+	 */
+	public StaticHostResolver(long ttl) {
+		this(ttl, null);
+	}
+
+	/**
+	 * @param ttl      the time in milliseconds the addresses are cached
+	 * @param fallback the resolver of the other host names, or {@code null}
+	 */
+	public StaticHostResolver(long ttl, HostResolver fallback) {
+		this.ttl = ttl;
+		this.fallback = fallback;
+	}
+
+	/**
+	 * Set the addresses of a host, replacing its previous ones.
+	 *
+	 * @param host      the host name
+	 * @param addresses the addresses, in their order of preference
+	 * @return a reference to this, so the API can be used fluently
+	 */
+	public StaticHostResolver add(String host, InetAddress... addresses) {
+		if (addresses.length == 0) {
+			throw new IllegalArgumentException("addresses must not be empty");
+		}
+		hosts.put(host.toLowerCase(Locale.ROOT), Collections.unmodifiableList(Arrays.asList(addresses.clone())));
+		return this;
+	}
+
+	/**
+	 * @param host the host name, looked up by the fallback from now on
+	 * @return a reference to this, so the API can be used fluently
+	 */
+	public StaticHostResolver remove(String host) {
+		hosts.remove(host.toLowerCase(Locale.ROOT));
+		return this;
+	}
+
+	/**
+	 * Add the hosts of a file in the format of {@code /etc/hosts}: an IP address
+	 * followed by the host names it is the address of, per line. A host name on
+	 * several lines has all their addresses.
+	 *
+	 * @param file the file
+	 * @return a reference to this, so the API can be used fluently
+	 * @throws IOException when the file cannot be read or has a malformed
+	 *                     address
+	 */
+	public StaticHostResolver load(Path file) throws IOException {
+		Map<String, List<InetAddress>> loaded = new LinkedHashMap<>();
+		int number = 0;
+		for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+			number++;
+			int comment = line.indexOf('#');
+			String[] fields = (comment >= 0 ? line.substring(0, comment) : line).trim().split("\\s+");
+			if (fields.length < 2) {
+				continue;
+			}
+			InetAddress address = IpLiterals.parse(fields[0]);
+			if (address == null) {
+				throw new IOException("Malformed address at " + file + ":" + number + ": " + fields[0]);
+			}
+			for (int i = 1; i < fields.length; i++) {
+				List<InetAddress> addresses = loaded.computeIfAbsent(fields[i].toLowerCase(Locale.ROOT),
+						k -> new ArrayList<>());
+				if (!addresses.contains(address)) {
+					addresses.add(address);
+				}
+			}
+		}
+		loaded.forEach((host, addresses) -> hosts.put(host, Collections.unmodifiableList(addresses)));
+		return this;
+	}
+
+	@Override
+	public HostAddresses resolve(String host) throws IOException {
+		List<InetAddress> addresses = hosts.get(host.toLowerCase(Locale.ROOT));
+		if (addresses != null) {
+			return new HostAddresses(addresses, ttl);
+		}
+		if (fallback != null) {
+			return fallback.resolve(host);
+		}
+		throw new UnknownHostException(host);
+	}
+
+}
@@ -0,0 +1,30 @@
+package com.github.jcurl.core.dns;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Arrays;
+
+/**
+ * Looks up the host names with {@link InetAddress#getAllByName(String)}, the
+ * resolver of the operating system.
+ * <p>
+ * The JDK does not expose the TTLs of the records, the addresses are cached
+ * for a fixed time instead.
+ */
+public final class SystemHostResolver implements HostResolver {
+
+	private final long ttl;
+
+	/**
+	 * @param ttl the time in milliseconds the addresses are cached
+	 */
+	public SystemHostResolver(long ttl) {
+		this.ttl = ttl;
+	}
+
+	@Override
+	public HostAddresses resolve(String host) throws UnknownHostException {
+		return new HostAddresses(Arrays.asList(InetAddress.getAllByName(host)), ttl);
+	}
+
+}
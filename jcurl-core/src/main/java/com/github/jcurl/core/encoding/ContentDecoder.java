@@ -0,0 +1,36 @@
+package com.github.jcurl.core.encoding;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Decodes a response body encoded with a content coding, chunk by chunk as it
+ * is received. A decoder is used by a single response on its event loop
+ * thread.
+ */
+public interface ContentDecoder {
+
+	/**
+	 * Decode the next chunk of the body, all its bytes are consumed.
+	 *
+	 * @param chunk the received bytes, only valid during the call
+	 * @return the decoded bytes, possibly empty, only valid until the next call
+	 * @throws IOException when the body is malformed
+	 */
+	ByteBuffer decode(ByteBuffer chunk) throws IOException;
+
+	/**
+	 * The body is complete.
+	 *
+	 * @return the last decoded bytes, possibly empty
+	 * @throws IOException when the body is truncated
+	 */
+	ByteBuffer finish() throws IOException;
+
+	/**
+	 * Release the resources of the decoder, called once the body is complete or
+	 * failed.
+	 */
+	void close();
+
+}
@@ -0,0 +1,25 @@
+package com.github.jcurl.core.encoding;
+
+/**
+ * Provides the decoders of a content coding, such as {@code br} or
+ * {@code zstd}.
+ * <p>
+ * The providers are loaded with the {@link java.util.ServiceLoader}, they are
+ * registered in
+ * {@code META-INF/services/com.github.jcurl.core.encoding.ContentDecoderProvider}.
+ * A provider of {@code gzip} or {@code deflate} replaces the built-in one.
+ */
+public interface ContentDecoderProvider {
+
+	/**
+	 * @return the name of the content coding, as sent in
+	 *         {@code Accept-Encoding}
+	 */
+	String encoding();
+
+	/**
+	 * @return a new decoder for a response body
+	 */
+	ContentDecoder create();
+
+}
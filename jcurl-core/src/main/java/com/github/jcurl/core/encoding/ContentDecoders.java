@@ -0,0 +1,78 @@
+package com.github.jcurl.core.encoding;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.ServiceLoader;
+
+/**
+ * The content codings a client accepts: the built-in {@code gzip} and
+ * {@code deflate}, and the ones of the {@link ContentDecoderProvider}
+ * services.
+ */
+public final class ContentDecoders {
+
+	private static final int POOL_CAPACITY = 64;
+
+	private final Map<String, ContentDecoderProvider> providers = new LinkedHashMap<>();
+	private final String acceptEncoding;
+
+	public ContentDecoders() {
+		InflaterPool raw = new InflaterPool(true, POOL_CAPACITY);
+		InflaterPool zlib = new InflaterPool(false, POOL_CAPACITY);
+		register(new InflaterProvider("gzip", true, raw, zlib));
+		register(new InflaterProvider("deflate", false, raw, zlib));
+		for (ContentDecoderProvider provider : ServiceLoader.load(ContentDecoderProvider.class)) {
+			register(provider);
+		}
+		acceptEncoding = String.join(", ", providers.keySet());
+	}
+
+	/**
+	 * @return the value of the {@code Accept-Encoding} request header
+	 */
+	public String acceptEncoding() {
+		return acceptEncoding;
+	}
+
+	/**
+	 * @param contentEncoding the {@code Content-Encoding} of a response
+	 * @return a new decoder of the body, or {@code null} when the body is not
+	 *         encoded, or encoded with an unsupported or with several codings
+	 */
+	public ContentDecoder create(String contentEncoding) {
+		ContentDecoderProvider provider = providers.get(contentEncoding.trim().toLowerCase(Locale.ROOT));
+		return provider != null ? provider.create() : null;
+	}
+
+	private void register(ContentDecoderProvider provider) {
+		providers.put(provider.encoding().toLowerCase(Locale.ROOT), provider);
+	}
+
+	private static final class InflaterProvider implements ContentDecoderProvider {
+
+		private final String encoding;
+		private final boolean gzip;
+		private final InflaterPool raw;
+		private final InflaterPool zlib;
+
+		InflaterProvider(String encoding, boolean gzip, InflaterPool raw, InflaterPool zlib) {
+			this.encoding = encoding;
+			this.gzip = gzip;
+			this.raw = raw;
+			this.zlib = zlib;
+		}
+
+		@Override
+		public String encoding() {
+			return encoding;
+		}
+
+		@Override
+		public ContentDecoder create() {
+			return new InflaterDecoder(gzip, raw, zlib);
+		}
+
+	}
+
+}
@@ -0,0 +1,51 @@
+package com.github.jcurl.core.encoding;
+
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.Deflater;
+
+/**
+ * Reuses the raw deflate deflaters and their native memory across the request
+ * bodies, the deflaters beyond the capacity of the pool are ended.
+ */
+final class DeflaterPool {
+
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Deflater[] free;
+	private int size;
+
+	/**
+	 * @param capacity the maximum number of idle deflaters
+	 */
+	DeflaterPool(int capacity) {
+		this.free = new Deflater[capacity];
+	}
+
+	Deflater acquire() {
+		lock.lock();
+		try {
+			if (size > 0) {
+				Deflater deflater = free[--size];
+				free[size] = null;
+				return deflater;
+			}
+		} finally {
+			lock.unlock();
+		}
+		return new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+	}
+
+	void release(Deflater deflater) {
+		deflater.reset();
+		lock.lock();
+		try {
+			if (size < free.length) {
+				free[size++] = deflater;
+				return;
+			}
+		} finally {
+			lock.unlock();
+		}
+		deflater.end();
+	}
+
+}
@@ -0,0 +1,92 @@
+package com.github.jcurl.core.encoding;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Compresses a request body with the {@code gzip} content coding, as it is
+ * written, with a pooled deflater.
+ * <p>
+ * Closing the stream writes the gzip trailer and closes the underlying
+ * stream, {@link #release()} gives the deflater back when the body is
+ * abandoned instead.
+ */
+public final class GzipOutputStream extends DeflaterOutputStream {
+
+	private static final DeflaterPool POOL = new DeflaterPool(64);
+	private static final int BUFFER_SIZE = 8 * 1024;
+	private static final byte[] HEADER = { 0x1f, (byte) 0x8b, 8, 0, 0, 0, 0, 0, 0, (byte) 0xff };
+
+	private final CRC32 crc = new CRC32();
+	private boolean released;
+
+	/**
+	 * @param out the stream of the compressed bytes
+	 * @throws IOException when the gzip header cannot be written
+	 */
+	public GzipOutputStream(OutputStream out) throws IOException {
+		super(out, POOL.acquire(), BUFFER_SIZE);
+		try {
+			out.write(HEADER);
+		} catch (IOException e) {
+			release();
+			throw e;
+		}
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		super.write(b, off, len);
+		crc.update(b, off, len);
+	}
+
+	@Override
+	public void finish() throws IOException {
+		if (def.finished()) {
+			return;
+		}
+		def.finish();
+		while (!def.finished()) {
+			deflate();
+		}
+		long size = def.getBytesRead();
+		byte[] trailer = new byte[8];
+		putInt(trailer, 0, crc.getValue());
+		putInt(trailer, 4, size);
+		out.write(trailer);
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (released) {
+			return;
+		}
+		try {
+			finish();
+		} finally {
+			release();
+		}
+		out.close();
+	}
+
+	/**
+	 * Give the deflater back to the pool, the stream must not be used
+	 * afterwards.
+	 */
+	public void release() {
+		if (!released) {
+			released = true;
+			POOL.release(def);
+		}
+	}
+
+	private static void putInt(byte[] b, int off, long value) {
+		b[off] = (byte) value;
+		b[off + 1] = (byte) (value >> 8);
+		b[off + 2] = (byte) (value >> 16);
+		b[off + 3] = (byte) (value >> 24);
+	}
+
+}
@@ -0,0 +1,250 @@
+package com.github.jcurl.core.encoding;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Decodes the {@code gzip} and {@code deflate} content codings with a pooled
+ * {@link Inflater}. The gzip header and trailer are parsed as the bytes
+ * arrive, concatenated gzip members are decoded one after the other.
+ * <p>
+ * The {@code deflate} data is zlib wrapped as specified, or raw as some
+ * servers send it, which is told apart by its first byte.
+ */
+final class InflaterDecoder implements ContentDecoder {
+
+	private static final int INITIAL_OUTPUT_SIZE = 16 * 1024;
+
+	// gzip header flags
+	private static final int FHCRC = 2;
+	private static final int FEXTRA = 4;
+	private static final int FNAME = 8;
+	private static final int FCOMMENT = 16;
+
+	private enum State {
+		HEADER, EXTRA_LENGTH, EXTRA, NAME, COMMENT, HEADER_CRC, DATA, TRAILER, DONE
+	}
+
+	private final boolean gzip;
+	private final InflaterPool raw;
+	private final InflaterPool zlib;
+	private final CRC32 crc;
+	private Inflater inflater;
+	private InflaterPool pool;
+	private State state;
+	// gzip header flags, the bytes of the current header or trailer field read,
+	// the length of the extra field and the trailer read so far
+	private int flags;
+	private int count;
+	private int extraLength;
+	private long trailer;
+	private long size;
+	private byte[] input = new byte[0];
+	private byte[] output = new byte[INITIAL_OUTPUT_SIZE];
+	private int outputLength;
+
+	/**
+	 * @param gzip is the data gzip rather than deflate?
+	 * @param raw  the pool of the raw deflate inflaters
+	 * @param zlib the pool of the zlib inflaters
+	 */
+	InflaterDecoder(boolean gzip, InflaterPool raw, InflaterPool zlib) {
+		this.gzip = gzip;
+		this.raw = raw;
+		this.zlib = zlib;
+		this.crc = gzip ? new CRC32() : null;
+		this.state = gzip ? State.HEADER : State.DATA;
+	}
+
+	@Override
+	public ByteBuffer decode(ByteBuffer chunk) throws IOException {
+		outputLength = 0;
+		while (chunk.hasRemaining()) {
+			switch (state) {
+			case HEADER:
+				int b = chunk.get() & 0xff;
+				if ((count == 0 && b != 0x1f) || (count == 1 && b != 0x8b) || (count == 2 && b != 8)) {
+					throw new IOException("Not in gzip format");
+				}
+				if (count == 3) {
+					flags = b;
+				}
+				if (++count == 10) {
+					next(State.HEADER);
+				}
+				break;
+			case EXTRA_LENGTH:
+				extraLength |= (chunk.get() & 0xff) << (8 * count);
+				if (++count == 2) {
+					count = 0;
+					if (extraLength > 0) {
+						state = State.EXTRA;
+					} else {
+						next(State.EXTRA);
+					}
+				}
+				break;
+			case EXTRA:
+				int n = Math.min(extraLength - count, chunk.remaining());
+				chunk.position(chunk.position() + n);
+				count += n;
+				if (count == extraLength) {
+					next(State.EXTRA);
+				}
+				break;
+			case NAME:
+			case COMMENT:
+				if (chunk.get() == 0) {
+					next(state);
+				}
+				break;
+			case HEADER_CRC:
+				chunk.get();
+				if (++count == 2) {
+					next(State.HEADER_CRC);
+				}
+				break;
+			case DATA:
+				inflate(chunk);
+				break;
+			case TRAILER:
+				trailer |= (long) (chunk.get() & 0xff) << (8 * count);
+				if (++count == 8) {
+					checkTrailer();
+					state = State.DONE;
+				}
+				break;
+			default:
+				if (gzip && chunk.get(chunk.position()) == 0x1f) {
+					// another member follows
+					inflater.reset();
+					crc.reset();
+					size = 0;
+					count = 0;
+					state = State.HEADER;
+				} else {
+					// trailing garbage
+					chunk.position(chunk.limit());
+				}
+			}
+		}
+		return ByteBuffer.wrap(output, 0, outputLength);
+	}
+
+	@Override
+	public ByteBuffer finish() throws IOException {
+		outputLength = 0;
+		if (state == State.DATA && inflater != null && !gzip) {
+			// raw deflate may need a dummy byte to complete
+			inflate(ByteBuffer.wrap(new byte[1]));
+		}
+		if (state != State.DONE && !(gzip ? state == State.HEADER && count == 0 : inflater == null)) {
+			throw new IOException("Truncated " + (gzip ? "gzip" : "deflate") + " data");
+		}
+		return ByteBuffer.wrap(output, 0, outputLength);
+	}
+
+	@Override
+	public void close() {
+		if (inflater != null) {
+			pool.release(inflater);
+			inflater = null;
+		}
+	}
+
+	/**
+	 * Move to the state following the {@code done} field of the gzip header.
+	 */
+	private void next(State done) {
+		count = 0;
+		switch (done) {
+		case HEADER:
+			if ((flags & FEXTRA) != 0) {
+				extraLength = 0;
+				state = State.EXTRA_LENGTH;
+				return;
+			}
+			// fall through
+		case EXTRA:
+			if ((flags & FNAME) != 0) {
+				state = State.NAME;
+				return;
+			}
+			// fall through
+		case NAME:
+			if ((flags & FCOMMENT) != 0) {
+				state = State.COMMENT;
+				return;
+			}
+			// fall through
+		case COMMENT:
+			if ((flags & FHCRC) != 0) {
+				state = State.HEADER_CRC;
+				return;
+			}
+			// fall through
+		default:
+			state = State.DATA;
+		}
+	}
+
+	private void inflate(ByteBuffer chunk) throws IOException {
+		if (inflater == null) {
+			// zlib data starts with the deflate method and a small window size
+			int first = chunk.get(chunk.position()) & 0xff;
+			pool = !gzip && (first & 0x0f) == 8 && (first >> 4) <= 7 ? zlib : raw;
+			inflater = pool.acquire();
+		}
+		int n = chunk.remaining();
+		if (input.length < n) {
+			input = new byte[n];
+		}
+		chunk.get(input, 0, n);
+		inflater.setInput(input, 0, n);
+		for (;;) {
+			if (outputLength == output.length) {
+				output = Arrays.copyOf(output, output.length * 2);
+			}
+			int inflated;
+			try {
+				inflated = inflater.inflate(output, outputLength, output.length - outputLength);
+			} catch (DataFormatException e) {
+				throw new IOException("Invalid " + (gzip ? "gzip" : "deflate") + " data: " + e.getMessage(), e);
+			}
+			if (gzip) {
+				crc.update(output, outputLength, inflated);
+				size += inflated;
+			}
+			outputLength += inflated;
+			if (inflater.finished()) {
+				// give back the bytes following the deflate data
+				chunk.position(chunk.limit() - inflater.getRemaining());
+				count = 0;
+				trailer = 0;
+				state = gzip ? State.TRAILER : State.DONE;
+				return;
+			}
+			if (inflater.needsDictionary()) {
+				throw new IOException("Unsupported deflate dictionary");
+			}
+			if (inflated == 0 && outputLength < output.length) {
+				// needs input
+				return;
+			}
+		}
+	}
+
+	private void checkTrailer() throws IOException {
+		if ((trailer & 0xffffffffL) != crc.getValue()) {
+			throw new IOException("Corrupt gzip data: CRC mismatch");
+		}
+		if ((trailer >>> 32) != (size & 0xffffffffL)) {
+			throw new IOException("Corrupt gzip data: size mismatch");
+		}
+	}
+
+}
@@ -0,0 +1,55 @@
+package com.github.jcurl.core.encoding;
+
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.Inflater;
+
+/**
+ * Reuses the inflaters and their native memory across the responses, the
+ * inflaters beyond the capacity of the pool are ended.
+ */
+final class InflaterPool {
+
+	private final boolean nowrap;
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Inflater[] free;
+	private int size;
+
+	/**
+	 * @param nowrap   are the inflaters for raw deflate data, without the zlib
+	 *                 header and checksum?
+	 * @param capacity the maximum number of idle inflaters
+	 */
+	InflaterPool(boolean nowrap, int capacity) {
+		this.nowrap = nowrap;
+		this.free = new Inflater[capacity];
+	}
+
+	Inflater acquire() {
+		lock.lock();
+		try {
+			if (size > 0) {
+				Inflater inflater = free[--size];
+				free[size] = null;
+				return inflater;
+			}
+		} finally {
+			lock.unlock();
+		}
+		return new Inflater(nowrap);
+	}
+
+	void release(Inflater inflater) {
+		inflater.reset();
+		lock.lock();
+		try {
+			if (size < free.length) {
+				free[size++] = inflater;
+				return;
+			}
+		} finally {
+			lock.unlock();
+		}
+		inflater.end();
+	}
+
+}
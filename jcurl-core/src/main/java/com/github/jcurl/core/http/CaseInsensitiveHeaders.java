@@ -1,83 +1,610 @@
 package com.github.jcurl.core.http;
 
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.function.BiConsumer;
 
+/**
+ * Headers with case insensitive names, in the order they were added.
+ * <p>
+ * A name can have several values, added with {@link #add(String, String)}:
+ * {@link #get(Object)} returns the first one, {@link #getAll(String)} all of
+ * them, and {@link #entrySet()} has an entry per value, so {@link #size()}
+ * counts the values. The other {@link Map} methods work on names, such as
+ * {@link #put(String, String)} which replaces all the values of a name.
+ * <p>
+ * The names are compared with ASCII case folding, independently of the locale
+ * and without allocating. The entries are kept in flat arrays that are
+ * scanned while there are a few of them, and indexed by an open addressing
+ * table beyond.
+ */
 public class CaseInsensitiveHeaders implements Map<String, String> {
-	
-	private Map<String, String> headers;
-	
+
+	private static final int INITIAL_CAPACITY = 8;
+	// the number of entries scanned before using an index
+	private static final int INDEX_THRESHOLD = 16;
+
+	private String[] names;
+	private String[] values;
+	private int[] hashes;
+	// the position of the next entry with the same name, or -1
+	private int[] next;
+	private int size;
+	// the position + 1 of the first entry of each name, null below the threshold
+	private int[] index;
+	private int indexed;
+
 	public CaseInsensitiveHeaders() {
-		this.headers = new HashMap<>();
+		this(INITIAL_CAPACITY);
 	}
-	
+
 	public CaseInsensitiveHeaders(Map<String, String> headers) {
-		this.headers = new HashMap<>();
-		putAll(headers);
+		this(Math.max(INITIAL_CAPACITY, headers.size()));
+		if (headers instanceof CaseInsensitiveHeaders) {
+			CaseInsensitiveHeaders other = (CaseInsensitiveHeaders) headers;
+			System.arraycopy(other.names, 0, names, 0, other.size);
+			System.arraycopy(other.values, 0, values, 0, other.size);
+			System.arraycopy(other.hashes, 0, hashes, 0, other.size);
+			System.arraycopy(other.next, 0, next, 0, other.size);
+			size = other.size;
+			if (other.index != null) {
+				index = other.index.clone();
+				indexed = other.indexed;
+			}
+		} else {
+			putAll(headers);
+		}
+	}
+
+	private CaseInsensitiveHeaders(int capacity) {
+		names = new String[capacity];
+		values = new String[capacity];
+		hashes = new int[capacity];
+		next = new int[capacity];
+	}
+
+	/**
+	 * Add a value to the header {@code name}, after its other values.
+	 *
+	 * @param name  the name
+	 * @param value the value
+	 * @return a reference to this, so the API can be used fluently
+	 */
+	public CaseInsensitiveHeaders add(String name, String value) {
+		int hash = hash(name);
+		add(name, value, hash, find(name, hash));
+		return this;
+	}
+
+	/**
+	 * @param name the name
+	 * @return the values of the header {@code name}, in the order they were
+	 *         added, empty when there is none
+	 */
+	public List<String> getAll(String name) {
+		int position = find(name, hash(name));
+		if (position < 0) {
+			return Collections.emptyList();
+		}
+		if (next[position] < 0) {
+			return Collections.singletonList(values[position]);
+		}
+		List<String> all = new ArrayList<>();
+		for (; position >= 0; position = next[position]) {
+			all.add(values[position]);
+		}
+		return all;
+	}
+
+	/**
+	 * Test whether a value of the header {@code name} contains {@code token} as
+	 * one of its comma separated elements, ignoring the ASCII case, such as
+	 * {@code chunked} in {@code Transfer-Encoding: gzip, chunked}.
+	 *
+	 * @param name  the name
+	 * @param token the token
+	 * @return is the token present?
+	 */
+	public boolean containsToken(String name, String token) {
+		for (int position = find(name, hash(name)); position >= 0; position = next[position]) {
+			if (hasToken(values[position], token)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @param position the position of an entry, from 0 to {@link #size()}
+	 *                 exclusive
+	 * @return the name of the entry
+	 */
+	public String name(int position) {
+		checkPosition(position);
+		return names[position];
+	}
+
+	/**
+	 * @param position the position of an entry, from 0 to {@link #size()}
+	 *                 exclusive
+	 * @return the value of the entry
+	 */
+	public String value(int position) {
+		checkPosition(position);
+		return values[position];
 	}
 
 	@Override
 	public void clear() {
-		headers.clear();
+		Arrays.fill(names, 0, size, null);
+		Arrays.fill(values, 0, size, null);
+		size = 0;
+		index = null;
+		indexed = 0;
 	}
 
 	@Override
 	public boolean containsKey(Object key) {
-		return headers.containsKey(((String) key).toLowerCase());
+		return key instanceof String && find((String) key, hash((String) key)) >= 0;
 	}
 
 	@Override
 	public boolean containsValue(Object value) {
-		return headers.containsValue(value);
+		for (int i = 0; i < size; i++) {
+			if (values[i].equals(value)) {
+				return true;
+			}
+		}
+		return false;
 	}
 
 	@Override
 	public Set<Entry<String, String>> entrySet() {
-		return Collections.unmodifiableSet(headers.entrySet());
+		return new AbstractSet<Entry<String, String>>() {
+
+			@Override
+			public Iterator<Entry<String, String>> iterator() {
+				return new EntryIterator<Entry<String, String>>() {
+
+					@Override
+					Entry<String, String> get(int position) {
+						return new AbstractMap.SimpleImmutableEntry<>(names[position], values[position]);
+					}
+
+				};
+			}
+
+			@Override
+			public int size() {
+				return size;
+			}
+
+		};
+	}
+
+	@Override
+	public void forEach(BiConsumer<? super String, ? super String> action) {
+		for (int i = 0; i < size; i++) {
+			action.accept(names[i], values[i]);
+		}
 	}
 
 	@Override
 	public String get(Object key) {
-		return headers.get(key);
+		if (!(key instanceof String)) {
+			return null;
+		}
+		int position = find((String) key, hash((String) key));
+		return position >= 0 ? values[position] : null;
 	}
 
 	@Override
 	public boolean isEmpty() {
-		return headers.isEmpty();
+		return size == 0;
 	}
 
+	/**
+	 * @return the names, once each, in the order they were first added
+	 */
 	@Override
 	public Set<String> keySet() {
-		return Collections.unmodifiableSet(headers.keySet());
+		return new AbstractSet<String>() {
+
+			@Override
+			public Iterator<String> iterator() {
+				return new EntryIterator<String>() {
+
+					@Override
+					boolean skip(int position) {
+						return find(names[position], hashes[position]) != position;
+					}
+
+					@Override
+					String get(int position) {
+						return names[position];
+					}
+
+				};
+			}
+
+			@Override
+			public boolean contains(Object o) {
+				return containsKey(o);
+			}
+
+			@Override
+			public int size() {
+				int count = 0;
+				for (int i = 0; i < size; i++) {
+					if (find(names[i], hashes[i]) == i) {
+						count++;
+					}
+				}
+				return count;
+			}
+
+		};
 	}
 
+	/**
+	 * Replace all the values of the header {@code key}.
+	 *
+	 * @return the previous first value, or {@code null}
+	 */
 	@Override
 	public String put(String key, String value) {
-		return headers.put(key.toLowerCase(), value);
+		int hash = hash(key);
+		int position = find(key, hash);
+		if (position < 0) {
+			add(key, value, hash, -1);
+			return null;
+		}
+		String previous = values[position];
+		names[position] = key;
+		values[position] = value;
+		if (next[position] >= 0) {
+			for (int i = next[position]; i >= 0; i = next[i]) {
+				names[i] = null;
+			}
+			compact();
+		}
+		return previous;
 	}
 
 	@Override
 	public void putAll(Map<? extends String, ? extends String> m) {
-		m.entrySet().forEach(e -> put(e.getKey(), e.getValue()));
+		if (m instanceof CaseInsensitiveHeaders) {
+			CaseInsensitiveHeaders other = (CaseInsensitiveHeaders) m;
+			for (int i = 0; i < other.size; i++) {
+				if (other.find(other.names[i], other.hashes[i]) == i) {
+					remove(other.names[i]);
+				}
+			}
+			for (int i = 0; i < other.size; i++) {
+				add(other.names[i], other.values[i]);
+			}
+		} else {
+			for (Entry<? extends String, ? extends String> e : m.entrySet()) {
+				put(e.getKey(), e.getValue());
+			}
+		}
 	}
 
+	/**
+	 * Remove all the values of the header {@code key}.
+	 *
+	 * @return the previous first value, or {@code null}
+	 */
 	@Override
 	public String remove(Object key) {
-		return headers.remove(((String) key).toLowerCase());
+		if (!(key instanceof String)) {
+			return null;
+		}
+		int position = find((String) key, hash((String) key));
+		if (position < 0) {
+			return null;
+		}
+		String previous = values[position];
+		for (int i = position; i >= 0; i = next[i]) {
+			names[i] = null;
+		}
+		compact();
+		return previous;
 	}
 
+	/**
+	 * @return the number of values
+	 */
 	@Override
 	public int size() {
-		return headers.size();
+		return size;
 	}
 
 	@Override
 	public Collection<String> values() {
-		return Collections.unmodifiableCollection(headers.values());
+		return new AbstractCollection<String>() {
+
+			@Override
+			public Iterator<String> iterator() {
+				return new EntryIterator<String>() {
+
+					@Override
+					String get(int position) {
+						return values[position];
+					}
+
+				};
+			}
+
+			@Override
+			public int size() {
+				return size;
+			}
+
+		};
 	}
 
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder("{");
+		for (int i = 0; i < size; i++) {
+			if (i > 0) {
+				sb.append(", ");
+			}
+			sb.append(names[i]).append('=').append(values[i]);
+		}
+		return sb.append('}').toString();
+	}
+
+	private void add(String name, String value, int hash, int first) {
+		int position = append(name, value, hash);
+		if (first >= 0) {
+			int last = first;
+			while (next[last] >= 0) {
+				last = next[last];
+			}
+			next[last] = position;
+		} else if (index != null) {
+			insert(position);
+		} else if (size > INDEX_THRESHOLD) {
+			reindex();
+		}
+	}
+
+	private int append(String name, String value, int hash) {
+		if (size == names.length) {
+			int capacity = size * 2;
+			names = Arrays.copyOf(names, capacity);
+			values = Arrays.copyOf(values, capacity);
+			hashes = Arrays.copyOf(hashes, capacity);
+			next = Arrays.copyOf(next, capacity);
+		}
+		int position = size++;
+		names[position] = name;
+		values[position] = value;
+		hashes[position] = hash;
+		next[position] = -1;
+		return position;
+	}
+
+	/**
+	 * @return the position of the first entry of {@code name}, or -1
+	 */
+	private int find(String name, int hash) {
+		if (index == null) {
+			for (int i = 0; i < size; i++) {
+				if (hashes[i] == hash && equalsIgnoreCase(names[i], name)) {
+					return i;
+				}
+			}
+			return -1;
+		}
+		int mask = index.length - 1;
+		for (int slot = hash & mask;; slot = (slot + 1) & mask) {
+			int position = index[slot] - 1;
+			if (position < 0) {
+				return -1;
+			}
+			if (hashes[position] == hash && equalsIgnoreCase(names[position], name)) {
+				return position;
+			}
+		}
+	}
+
+	private void insert(int position) {
+		if (++indexed * 2 > index.length) {
+			reindex();
+			return;
+		}
+		int mask = index.length - 1;
+		int slot = hashes[position] & mask;
+		while (index[slot] != 0) {
+			slot = (slot + 1) & mask;
+		}
+		index[slot] = position + 1;
+	}
+
+	/**
+	 * Remove the entries whose name was cleared and link the remaining ones
+	 * again.
+	 */
+	private void compact() {
+		int kept = 0;
+		for (int i = 0; i < size; i++) {
+			if (names[i] != null) {
+				names[kept] = names[i];
+				values[kept] = values[i];
+				hashes[kept] = hashes[i];
+				kept++;
+			}
+		}
+		Arrays.fill(names, kept, size, null);
+		Arrays.fill(values, kept, size, null);
+		size = kept;
+		relink();
+	}
+
+	/**
+	 * Rebuild the index, sized for the current entries.
+	 */
+	private void reindex() {
+		int capacity = Integer.highestOneBit(Math.max(size, INDEX_THRESHOLD) * 4 - 1);
+		index = new int[capacity];
+		relink();
+	}
+
+	/**
+	 * Rebuild the links between the entries of a name, and the index when
+	 * there is one.
+	 */
+	private void relink() {
+		if (index != null) {
+			if (size <= INDEX_THRESHOLD / 2) {
+				index = null;
+			} else {
+				Arrays.fill(index, 0);
+			}
+		}
+		indexed = 0;
+		int count = size;
+		for (int i = 0; i < count; i++) {
+			// only the entries before i are visible to find
+			size = i;
+			int first = find(names[i], hashes[i]);
+			next[i] = -1;
+			if (first >= 0) {
+				int last = first;
+				while (next[last] >= 0) {
+					last = next[last];
+				}
+				next[last] = i;
+			} else if (index != null) {
+				int mask = index.length - 1;
+				int slot = hashes[i] & mask;
+				while (index[slot] != 0) {
+					slot = (slot + 1) & mask;
+				}
+				index[slot] = i + 1;
+				indexed++;
+			}
+		}
+		size = count;
+	}
+
+	private void checkPosition(int position) {
+		if (position < 0 || position >= size) {
+			throw new IndexOutOfBoundsException("Position " + position + ", size " + size);
+		}
+	}
+
+	private static int hash(String name) {
+		int h = 0;
+		for (int i = 0; i < name.length(); i++) {
+			h = 31 * h + toLowerCase(name.charAt(i));
+		}
+		return h ^ (h >>> 16);
+	}
+
+	private static boolean equalsIgnoreCase(String a, String b) {
+		if (a == b) {
+			return true;
+		}
+		int length = a.length();
+		if (length != b.length()) {
+			return false;
+		}
+		for (int i = 0; i < length; i++) {
+			char c = a.charAt(i);
+			char d = b.charAt(i);
+			if (c != d && toLowerCase(c) != toLowerCase(d)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean hasToken(String value, String token) {
+		int length = value.length();
+		int start = 0;
+		while (start < length) {
+			int end = value.indexOf(',', start);
+			if (end < 0) {
+				end = length;
+			}
+			int from = start;
+			int to = end;
+			while (from < to && (value.charAt(from) == ' ' || value.charAt(from) == '\t')) {
+				from++;
+			}
+			while (to > from && (value.charAt(to - 1) == ' ' || value.charAt(to - 1) == '\t')) {
+				to--;
+			}
+			if (to - from == token.length() && regionEqualsIgnoreCase(value, from, token)) {
+				return true;
+			}
+			start = end + 1;
+		}
+		return false;
+	}
+
+	private static boolean regionEqualsIgnoreCase(String value, int from, String token) {
+		for (int i = 0; i < token.length(); i++) {
+			if (toLowerCase(value.charAt(from + i)) != toLowerCase(token.charAt(i))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static char toLowerCase(char c) {
+		return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+	}
+
+	/**
+	 * Iterates the entries, or the ones that are not skipped.
+	 */
+	private abstract class EntryIterator<E> implements Iterator<E> {
+
+		private int position = advance(0);
+
+		@Override
+		public boolean hasNext() {
+			return position < size;
+		}
+
+		@Override
+		public E next() {
+			if (position >= size) {
+				throw new NoSuchElementException();
+			}
+			E element = get(position);
+			position = advance(position + 1);
+			return element;
+		}
+
+		boolean skip(int position) {
+			return false;
+		}
+
+		abstract E get(int position);
+
+		private int advance(int from) {
+			while (from < size && skip(from)) {
+				from++;
+			}
+			return from;
+		}
+
+	}
 
 }
@@ -0,0 +1,297 @@
+package com.github.jcurl.core.http;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The well-known header names, with their lower case form and their
+ * pre-encoded US-ASCII bytes.
+ * <p>
+ * The requests and the responses use the instances of this class for the
+ * well-known names, so that writing a header copies its name bytes and
+ * parsing one does not allocate its name.
+ */
+public final class HeaderNames {
+
+	public static final String ACCEPT = "Accept";
+	public static final String ACCEPT_CHARSET = "Accept-Charset";
+	public static final String ACCEPT_ENCODING = "Accept-Encoding";
+	public static final String ACCEPT_LANGUAGE = "Accept-Language";
+	public static final String ACCEPT_RANGES = "Accept-Ranges";
+	public static final String AGE = "Age";
+	public static final String ALLOW = "Allow";
+	public static final String AUTHORIZATION = "Authorization";
+	public static final String CACHE_CONTROL = "Cache-Control";
+	public static final String CONNECTION = "Connection";
+	public static final String CONTENT_DISPOSITION = "Content-Disposition";
+	public static final String CONTENT_ENCODING = "Content-Encoding";
+	public static final String CONTENT_LANGUAGE = "Content-Language";
+	public static final String CONTENT_LENGTH = "Content-Length";
+	public static final String CONTENT_LOCATION = "Content-Location";
+	public static final String CONTENT_RANGE = "Content-Range";
+	public static final String CONTENT_TYPE = "Content-Type";
+	public static final String COOKIE = "Cookie";
+	public static final String DATE = "Date";
+	public static final String ETAG = "ETag";
+	public static final String EXPECT = "Expect";
+	public static final String EXPIRES = "Expires";
+	public static final String HOST = "Host";
+	public static final String IF_MATCH = "If-Match";
+	public static final String IF_MODIFIED_SINCE = "If-Modified-Since";
+	public static final String IF_NONE_MATCH = "If-None-Match";
+	public static final String IF_RANGE = "If-Range";
+	public static final String IF_UNMODIFIED_SINCE = "If-Unmodified-Since";
+	public static final String KEEP_ALIVE = "Keep-Alive";
+	public static final String LAST_MODIFIED = "Last-Modified";
+	public static final String LINK = "Link";
+	public static final String LOCATION = "Location";
+	public static final String ORIGIN = "Origin";
+	public static final String PRAGMA = "Pragma";
+	public static final String PROXY_AUTHENTICATE = "Proxy-Authenticate";
+	public static final String PROXY_AUTHORIZATION = "Proxy-Authorization";
+	public static final String PROXY_CONNECTION = "Proxy-Connection";
+	public static final String RANGE = "Range";
+	public static final String REFERER = "Referer";
+	public static final String RETRY_AFTER = "Retry-After";
+	public static final String SERVER = "Server";
+	public static final String SET_COOKIE = "Set-Cookie";
+	public static final String STRICT_TRANSPORT_SECURITY = "Strict-Transport-Security";
+	public static final String TE = "TE";
+	public static final String TRAILER = "Trailer";
+	public static final String TRANSFER_ENCODING = "Transfer-Encoding";
+	public static final String UPGRADE = "Upgrade";
+	public static final String USER_AGENT = "User-Agent";
+	public static final String VARY = "Vary";
+	public static final String VIA = "Via";
+	public static final String WWW_AUTHENTICATE = "WWW-Authenticate";
+	public static final String X_FORWARDED_FOR = "X-Forwarded-For";
+	public static final String X_REQUESTED_WITH = "X-Requested-With";
+
+	private static final String[] NAMES = { ACCEPT, ACCEPT_CHARSET, ACCEPT_ENCODING, ACCEPT_LANGUAGE, ACCEPT_RANGES,
+			AGE, ALLOW, AUTHORIZATION, CACHE_CONTROL, CONNECTION, CONTENT_DISPOSITION, CONTENT_ENCODING,
+			CONTENT_LANGUAGE, CONTENT_LENGTH, CONTENT_LOCATION, CONTENT_RANGE, CONTENT_TYPE, COOKIE, DATE, ETAG,
+			EXPECT, EXPIRES, HOST, IF_MATCH, IF_MODIFIED_SINCE, IF_NONE_MATCH, IF_RANGE, IF_UNMODIFIED_SINCE,
+			KEEP_ALIVE, LAST_MODIFIED, LINK, LOCATION, ORIGIN, PRAGMA, PROXY_AUTHENTICATE, PROXY_AUTHORIZATION,
+			PROXY_CONNECTION, RANGE, REFERER, RETRY_AFTER, SERVER, SET_COOKIE, STRICT_TRANSPORT_SECURITY, TE,
+			TRAILER, TRANSFER_ENCODING, UPGRADE, USER_AGENT, VARY, VIA, WWW_AUTHENTICATE, X_FORWARDED_FOR,
+			X_REQUESTED_WITH };
+
+	// by exact name, in the canonical and lower case forms
+	private static final Map<String, Name> EXACT = new HashMap<>();
+	// open addressing by case folded hash, for the names in any case
+	private static final Name[] FOLDED = new Name[256];
+
+	static {
+		for (String name : NAMES) {
+			Name entry = new Name(name);
+			EXACT.put(name, entry);
+			EXACT.put(entry.lowerCase, entry);
+			int mask = FOLDED.length - 1;
+			int slot = entry.hash & mask;
+			while (FOLDED[slot] != null) {
+				slot = (slot + 1) & mask;
+			}
+			FOLDED[slot] = entry;
+		}
+	}
+
+	private HeaderNames() {
+	}
+
+	/**
+	 * @param name a header name
+	 * @return the well-known instance of the name in any case, or {@code name}
+	 *         when it is not well-known
+	 */
+	public static String intern(String name) {
+		Name entry = EXACT.get(name);
+		if (entry == null) {
+			entry = lookup(name, 0, name.length());
+		}
+		return entry != null ? entry.name : name;
+	}
+
+	/**
+	 * Intern the header name between {@code start} and {@code end}, without
+	 * allocating when it is well-known.
+	 *
+	 * @param chars the chars containing the name
+	 * @param start the index of the first char of the name
+	 * @param end   the index after the last char of the name
+	 * @return the well-known instance of the name, or a new string
+	 */
+	public static String intern(CharSequence chars, int start, int end) {
+		Name entry = lookup(chars, start, end);
+		return entry != null ? entry.name : chars.subSequence(start, end).toString();
+	}
+
+	/**
+	 * Intern the header name bytes between {@code start} and {@code end},
+	 * without allocating when it is well-known.
+	 *
+	 * @param bytes the ISO-8859-1 bytes containing the name
+	 * @param start the index of the first byte of the name
+	 * @param end   the index after the last byte of the name
+	 * @return the well-known instance of the name, or a new string
+	 */
+	public static String intern(byte[] bytes, int start, int end) {
+		int h = 0;
+		for (int i = start; i < end; i++) {
+			h = 31 * h + toLowerCase((char) (bytes[i] & 0xff));
+		}
+		int mask = FOLDED.length - 1;
+		for (int slot = h & mask;; slot = (slot + 1) & mask) {
+			Name entry = FOLDED[slot];
+			if (entry == null) {
+				return new String(bytes, start, end - start, StandardCharsets.ISO_8859_1);
+			}
+			if (entry.hash == h && entry.matches(bytes, start, end)) {
+				return entry.name;
+			}
+		}
+	}
+
+	/**
+	 * @param name a header name
+	 * @return the US-ASCII bytes of the name followed by {@code ": "}, or
+	 *         {@code null} when the name is not well-known, to be copied and
+	 *         not modified
+	 */
+	public static byte[] encoded(String name) {
+		Name entry = EXACT.get(name);
+		return entry != null ? entry.encoded : null;
+	}
+
+	/**
+	 * @param name a header name
+	 * @return the name in lower case, as HTTP/2 requires, without allocating
+	 *         when it is well-known or already in lower case
+	 */
+	public static String toLowerCase(String name) {
+		Name entry = EXACT.get(name);
+		if (entry != null) {
+			return entry.lowerCase;
+		}
+		for (int i = 0; i < name.length(); i++) {
+			char c = name.charAt(i);
+			if (c >= 'A' && c <= 'Z') {
+				char[] chars = name.toCharArray();
+				for (int j = i; j < chars.length; j++) {
+					chars[j] = toLowerCase(chars[j]);
+				}
+				return new String(chars);
+			}
+		}
+		return name;
+	}
+
+	/**
+	 * Check that a header can be written as is: its name is a token and its
+	 * value has no CR, LF or NUL, which would split the request.
+	 *
+	 * @param name  the header name
+	 * @param value the header value
+	 * @throws IllegalArgumentException when the header is invalid
+	 */
+	public static void check(String name, String value) {
+		if (name == null || name.isEmpty() || value == null) {
+			throw new IllegalArgumentException("Invalid header: " + name + ": " + value);
+		}
+		if (!EXACT.containsKey(name)) {
+			for (int i = 0; i < name.length(); i++) {
+				if (!isTokenChar(name.charAt(i))) {
+					throw new IllegalArgumentException("Invalid header name: " + name);
+				}
+			}
+		}
+		if (!isFieldValue(value)) {
+			throw new IllegalArgumentException("Invalid value of the header " + name);
+		}
+	}
+
+	/**
+	 * @param value a header value or request target
+	 * @return has the value no CR, LF or NUL?
+	 */
+	public static boolean isFieldValue(String value) {
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c == '\r' || c == '\n' || c == 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean isTokenChar(char c) {
+		return c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c >= '0' && c <= '9'
+				|| c < 128 && "!#$%&'*+-.^_`|~".indexOf(c) >= 0;
+	}
+
+	private static Name lookup(CharSequence chars, int start, int end) {
+		int h = 0;
+		for (int i = start; i < end; i++) {
+			h = 31 * h + toLowerCase(chars.charAt(i));
+		}
+		int mask = FOLDED.length - 1;
+		for (int slot = h & mask;; slot = (slot + 1) & mask) {
+			Name entry = FOLDED[slot];
+			if (entry == null) {
+				return null;
+			}
+			if (entry.hash == h && entry.matches(chars, start, end)) {
+				return entry;
+			}
+		}
+	}
+
+	private static char toLowerCase(char c) {
+		return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+	}
+
+	private static final class Name {
+
+		final String name;
+		final String lowerCase;
+		final byte[] encoded;
+		final int hash;
+
+		Name(String name) {
+			this.name = name;
+			this.lowerCase = toLowerCase(name);
+			this.encoded = (name + ": ").getBytes(StandardCharsets.US_ASCII);
+			int h = 0;
+			for (int i = 0; i < lowerCase.length(); i++) {
+				h = 31 * h + lowerCase.charAt(i);
+			}
+			this.hash = h;
+		}
+
+		boolean matches(CharSequence chars, int start, int end) {
+			if (end - start != lowerCase.length()) {
+				return false;
+			}
+			for (int i = start; i < end; i++) {
+				if (HeaderNames.toLowerCase(chars.charAt(i)) != lowerCase.charAt(i - start)) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		boolean matches(byte[] bytes, int start, int end) {
+			if (end - start != lowerCase.length()) {
+				return false;
+			}
+			for (int i = start; i < end; i++) {
+				if (HeaderNames.toLowerCase((char) (bytes[i] & 0xff)) != lowerCase.charAt(i - start)) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+	}
+
+}
@@ -0,0 +1,1094 @@
+package com.github.jcurl.core.http;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.json.JsonObject;
+import javax.net.ssl.SSLContext;
+
+import com.github.jcurl.core.HttpInterceptor;
+import com.github.jcurl.core.dns.HostResolver;
+import com.github.jcurl.core.json.JsonEngine;
+
+public class JCurlClientOptions {
+
+	/**
+	 * The default number of event loop threads = number of available processors
+	 */
+	public static final int DEFAULT_EVENT_LOOP_SIZE = Runtime.getRuntime().availableProcessors();
+
+	/**
+	 * The default host used when none is given to the request = "localhost"
+	 */
+	public static final String DEFAULT_DEFAULT_HOST = RequestOptions.DEFAULT_HOST;
+
+	/**
+	 * The default port used when none is given to the request = 80
+	 */
+	public static final int DEFAULT_DEFAULT_PORT = RequestOptions.DEFAULT_PORT;
+
+	/**
+	 * SSL enabled by default = false
+	 */
+	public static final boolean DEFAULT_SSL = RequestOptions.DEFAULT_SSL;
+
+	/**
+	 * The default connect timeout in milliseconds = 60000
+	 */
+	public static final int DEFAULT_CONNECT_TIMEOUT = 60000;
+
+	/**
+	 * TCP no delay enabled by default = true
+	 */
+	public static final boolean DEFAULT_TCP_NO_DELAY = true;
+
+	/**
+	 * The default size of the per connection read buffer = 16384
+	 */
+	public static final int DEFAULT_READ_BUFFER_SIZE = 16 * 1024;
+
+	/**
+	 * The default maximum size of the response status line and headers = 65536
+	 */
+	public static final int DEFAULT_MAX_HEADER_SIZE = 64 * 1024;
+
+	/**
+	 * Keep alive enabled by default = true
+	 */
+	public static final boolean DEFAULT_KEEP_ALIVE = true;
+
+	/**
+	 * The default maximum number of connections per host = 5
+	 */
+	public static final int DEFAULT_MAX_POOL_SIZE = 5;
+
+	/**
+	 * The default maximum number of connections of the client = 256
+	 */
+	public static final int DEFAULT_MAX_TOTAL_POOL_SIZE = 256;
+
+	/**
+	 * The default time in milliseconds an unused connection stays in the pool =
+	 * 60000
+	 */
+	public static final int DEFAULT_IDLE_TIMEOUT = 60000;
+
+	/**
+	 * The default maximum lifetime in milliseconds of a pooled connection = 0
+	 * (unlimited)
+	 */
+	public static final int DEFAULT_MAX_LIFETIME = 0;
+
+	/**
+	 * The default maximum number of requests waiting for a connection = -1
+	 * (unbounded)
+	 */
+	public static final int DEFAULT_MAX_WAIT_QUEUE_SIZE = -1;
+
+	/**
+	 * The default time in milliseconds a request waits for a connection = 60000
+	 */
+	public static final int DEFAULT_ACQUIRE_TIMEOUT = 60000;
+
+	/**
+	 * The default period in milliseconds of the idle connection eviction = 1000
+	 */
+	public static final int DEFAULT_POOL_CLEANER_PERIOD = 1000;
+
+	/**
+	 * The default HTTP/1.1 pipelining = false
+	 */
+	public static final boolean DEFAULT_PIPELINING = false;
+
+	/**
+	 * The default maximum number of pipelined requests per connection = 10
+	 */
+	public static final int DEFAULT_PIPELINING_LIMIT = 10;
+
+	/**
+	 * The default protocol version = HTTP/1.1
+	 */
+	public static final HttpVersion DEFAULT_PROTOCOL_VERSION = HttpVersion.HTTP_1_1;
+
+	/**
+	 * The default maximum number of concurrent HTTP/2 streams per connection = 100
+	 */
+	public static final int DEFAULT_HTTP2_MAX_CONCURRENT_STREAMS = 100;
+
+	/**
+	 * The default HTTP/2 initial stream window size = 1048576
+	 */
+	public static final int DEFAULT_HTTP2_INITIAL_WINDOW_SIZE = 1024 * 1024;
+
+	/**
+	 * The default HTTP/2 connection window size = 16777216
+	 */
+	public static final int DEFAULT_HTTP2_CONNECTION_WINDOW_SIZE = 16 * 1024 * 1024;
+
+	/**
+	 * The default HTTP/2 maximum frame size = 16384
+	 */
+	public static final int DEFAULT_HTTP2_MAX_FRAME_SIZE = 16384;
+
+	/**
+	 * The default HPACK header table size = 4096
+	 */
+	public static final int DEFAULT_HTTP2_HEADER_TABLE_SIZE = 4096;
+
+	/**
+	 * The default use of direct buffers for the socket I/O = true
+	 */
+	public static final boolean DEFAULT_DIRECT_BUFFERS = true;
+
+	/**
+	 * The default maximum number of bytes retained by the buffer pool = 33554432
+	 */
+	public static final int DEFAULT_BUFFER_POOL_SIZE = 32 * 1024 * 1024;
+
+	/**
+	 * The default use of virtual threads for the worker executor = false
+	 */
+	public static final boolean DEFAULT_VIRTUAL_THREADS = false;
+
+	/**
+	 * The default response decompression = true
+	 */
+	public static final boolean DEFAULT_DECOMPRESSION = true;
+
+	/**
+	 * The default coalescing of the identical requests in flight = false
+	 */
+	public static final boolean DEFAULT_COALESCING = false;
+
+	/**
+	 * The default time in milliseconds the addresses of the system resolver are
+	 * cached = 30000
+	 */
+	public static final int DEFAULT_DNS_CACHE_TTL = 30000;
+
+	/**
+	 * The default time in milliseconds a failed host lookup is cached = 10000
+	 */
+	public static final int DEFAULT_DNS_NEGATIVE_TTL = 10000;
+
+	/**
+	 * The default time in milliseconds the addresses of a host are used after
+	 * their TTL, while they are looked up again = 60000
+	 */
+	public static final int DEFAULT_DNS_STALE_TTL = 60000;
+
+	/**
+	 * The default delay in milliseconds before connecting to the next address of
+	 * a host = 250
+	 */
+	public static final int DEFAULT_HAPPY_EYEBALLS_DELAY = 250;
+
+	private int eventLoopSize;
+	private String defaultHost;
+	private int defaultPort;
+	private boolean ssl;
+	private SSLContext sslContext;
+	private int connectTimeout;
+	private boolean tcpNoDelay;
+	private int readBufferSize;
+	private int maxHeaderSize;
+	private boolean keepAlive;
+	private int maxPoolSize;
+	private int maxTotalPoolSize;
+	private int idleTimeout;
+	private int maxLifetime;
+	private int maxWaitQueueSize;
+	private int acquireTimeout;
+	private int poolCleanerPeriod;
+	private boolean pipelining;
+	private int pipeliningLimit;
+	private HttpVersion protocolVersion;
+	private int http2MaxConcurrentStreams;
+	private int http2InitialWindowSize;
+	private int http2ConnectionWindowSize;
+	private int http2MaxFrameSize;
+	private int http2HeaderTableSize;
+	private boolean directBuffers;
+	private int bufferPoolSize;
+	private boolean virtualThreads;
+	private boolean decompression;
+	private boolean coalescing;
+	private HostResolver hostResolver;
+	private int dnsCacheTtl;
+	private int dnsNegativeTtl;
+	private int dnsStaleTtl;
+	private int happyEyeballsDelay;
+	private JsonEngine jsonEngine;
+	private final List<HttpInterceptor> interceptors = new ArrayList<>();
+
+	/**
+	 * Default constructor
+	 */
+	public JCurlClientOptions() {
+		eventLoopSize = DEFAULT_EVENT_LOOP_SIZE;
+		defaultHost = DEFAULT_DEFAULT_HOST;
+		defaultPort = DEFAULT_DEFAULT_PORT;
+		ssl = DEFAULT_SSL;
+		connectTimeout = DEFAULT_CONNECT_TIMEOUT;
+		tcpNoDelay = DEFAULT_TCP_NO_DELAY;
+		readBufferSize = DEFAULT_READ_BUFFER_SIZE;
+		maxHeaderSize = DEFAULT_MAX_HEADER_SIZE;
+		keepAlive = DEFAULT_KEEP_ALIVE;
+		maxPoolSize = DEFAULT_MAX_POOL_SIZE;
+		maxTotalPoolSize = DEFAULT_MAX_TOTAL_POOL_SIZE;
+		idleTimeout = DEFAULT_IDLE_TIMEOUT;
+		maxLifetime = DEFAULT_MAX_LIFETIME;
+		maxWaitQueueSize = DEFAULT_MAX_WAIT_QUEUE_SIZE;
+		acquireTimeout = DEFAULT_ACQUIRE_TIMEOUT;
+		poolCleanerPeriod = DEFAULT_POOL_CLEANER_PERIOD;
+		pipelining = DEFAULT_PIPELINING;
+		pipeliningLimit = DEFAULT_PIPELINING_LIMIT;
+		protocolVersion = DEFAULT_PROTOCOL_VERSION;
+		http2MaxConcurrentStreams = DEFAULT_HTTP2_MAX_CONCURRENT_STREAMS;
+		http2InitialWindowSize = DEFAULT_HTTP2_INITIAL_WINDOW_SIZE;
+		http2ConnectionWindowSize = DEFAULT_HTTP2_CONNECTION_WINDOW_SIZE;
+		http2MaxFrameSize = DEFAULT_HTTP2_MAX_FRAME_SIZE;
+		http2HeaderTableSize = DEFAULT_HTTP2_HEADER_TABLE_SIZE;
+		directBuffers = DEFAULT_DIRECT_BUFFERS;
+		bufferPoolSize = DEFAULT_BUFFER_POOL_SIZE;
+		virtualThreads = DEFAULT_VIRTUAL_THREADS;
+		decompression = DEFAULT_DECOMPRESSION;
+		coalescing = DEFAULT_COALESCING;
+		dnsCacheTtl = DEFAULT_DNS_CACHE_TTL;
+		dnsNegativeTtl = DEFAULT_DNS_NEGATIVE_TTL;
+		dnsStaleTtl = DEFAULT_DNS_STALE_TTL;
+		happyEyeballsDelay = DEFAULT_HAPPY_EYEBALLS_DELAY;
+	}
+
+	/**
+	 * Copy constructor
+	 *
+	 * @param other the options to copy
+	 */
+	public JCurlClientOptions(JCurlClientOptions other) {
+		setEventLoopSize(other.eventLoopSize);
+		setDefaultHost(other.defaultHost);
+		setDefaultPort(other.defaultPort);
+		setSsl(other.ssl);
+		setSslContext(other.sslContext);
+		setConnectTimeout(other.connectTimeout);
+		setTcpNoDelay(other.tcpNoDelay);
+		setReadBufferSize(other.readBufferSize);
+		setMaxHeaderSize(other.maxHeaderSize);
+		setKeepAlive(other.keepAlive);
+		setMaxPoolSize(other.maxPoolSize);
+		setMaxTotalPoolSize(other.maxTotalPoolSize);
+		setIdleTimeout(other.idleTimeout);
+		setMaxLifetime(other.maxLifetime);
+		setMaxWaitQueueSize(other.maxWaitQueueSize);
+		setAcquireTimeout(other.acquireTimeout);
+		setPoolCleanerPeriod(other.poolCleanerPeriod);
+		setPipelining(other.pipelining);
+		setPipeliningLimit(other.pipeliningLimit);
+		setProtocolVersion(other.protocolVersion);
+		setHttp2MaxConcurrentStreams(other.http2MaxConcurrentStreams);
+		setHttp2InitialWindowSize(other.http2InitialWindowSize);
+		setHttp2ConnectionWindowSize(other.http2ConnectionWindowSize);
+		setHttp2MaxFrameSize(other.http2MaxFrameSize);
+		setHttp2HeaderTableSize(other.http2HeaderTableSize);
+		this.directBuffers = other.directBuffers;
+		this.bufferPoolSize = other.bufferPoolSize;
+		this.virtualThreads = other.virtualThreads;
+		this.decompression = other.decompression;
+		this.coalescing = other.coalescing;
+		this.hostResolver = other.hostResolver;
+		this.dnsCacheTtl = other.dnsCacheTtl;
+		this.dnsNegativeTtl = other.dnsNegativeTtl;
+		this.dnsStaleTtl = other.dnsStaleTtl;
+		this.happyEyeballsDelay = other.happyEyeballsDelay;
+		this.jsonEngine = other.jsonEngine;
+		this.interceptors.addAll(other.interceptors);
+	}
+
+	/**
+	 * Create options from JSON
+	 *
+	 * @param json the JSON
+	 */
+	public JCurlClientOptions(JsonObject json) {
+		setEventLoopSize(json.getInt("eventLoopSize", DEFAULT_EVENT_LOOP_SIZE));
+		setDefaultHost(json.getString("defaultHost", DEFAULT_DEFAULT_HOST));
+		setDefaultPort(json.getInt("defaultPort", DEFAULT_DEFAULT_PORT));
+		setSsl(json.getBoolean("ssl", DEFAULT_SSL));
+		setConnectTimeout(json.getInt("connectTimeout", DEFAULT_CONNECT_TIMEOUT));
+		setTcpNoDelay(json.getBoolean("tcpNoDelay", DEFAULT_TCP_NO_DELAY));
+		setReadBufferSize(json.getInt("readBufferSize", DEFAULT_READ_BUFFER_SIZE));
+		setMaxHeaderSize(json.getInt("maxHeaderSize", DEFAULT_MAX_HEADER_SIZE));
+		setKeepAlive(json.getBoolean("keepAlive", DEFAULT_KEEP_ALIVE));
+		setMaxPoolSize(json.getInt("maxPoolSize", DEFAULT_MAX_POOL_SIZE));
+		setMaxTotalPoolSize(json.getInt("maxTotalPoolSize", DEFAULT_MAX_TOTAL_POOL_SIZE));
+		setIdleTimeout(json.getInt("idleTimeout", DEFAULT_IDLE_TIMEOUT));
+		setMaxLifetime(json.getInt("maxLifetime", DEFAULT_MAX_LIFETIME));
+		setMaxWaitQueueSize(json.getInt("maxWaitQueueSize", DEFAULT_MAX_WAIT_QUEUE_SIZE));
+		setAcquireTimeout(json.getInt("acquireTimeout", DEFAULT_ACQUIRE_TIMEOUT));
+		setPoolCleanerPeriod(json.getInt("poolCleanerPeriod", DEFAULT_POOL_CLEANER_PERIOD));
+		setPipelining(json.getBoolean("pipelining", DEFAULT_PIPELINING));
+		setPipeliningLimit(json.getInt("pipeliningLimit", DEFAULT_PIPELINING_LIMIT));
+		setProtocolVersion(HttpVersion.valueOf(json.getString("protocolVersion", DEFAULT_PROTOCOL_VERSION.name())));
+		setHttp2MaxConcurrentStreams(json.getInt("http2MaxConcurrentStreams", DEFAULT_HTTP2_MAX_CONCURRENT_STREAMS));
+		setHttp2InitialWindowSize(json.getInt("http2InitialWindowSize", DEFAULT_HTTP2_INITIAL_WINDOW_SIZE));
+		setHttp2ConnectionWindowSize(json.getInt("http2ConnectionWindowSize", DEFAULT_HTTP2_CONNECTION_WINDOW_SIZE));
+		setHttp2MaxFrameSize(json.getInt("http2MaxFrameSize", DEFAULT_HTTP2_MAX_FRAME_SIZE));
+		setHttp2HeaderTableSize(json.getInt("http2HeaderTableSize", DEFAULT_HTTP2_HEADER_TABLE_SIZE));
+		setDirectBuffers(json.getBoolean("directBuffers", DEFAULT_DIRECT_BUFFERS));
+		setBufferPoolSize(json.getInt("bufferPoolSize", DEFAULT_BUFFER_POOL_SIZE));
+		setVirtualThreads(json.getBoolean("virtualThreads", DEFAULT_VIRTUAL_THREADS));
+		setDecompression(json.getBoolean("decompression", DEFAULT_DECOMPRESSION));
+		setCoalescing(json.getBoolean("coalescing", DEFAULT_COALESCING));
+		setDnsCacheTtl(json.getInt("dnsCacheTtl", DEFAULT_DNS_CACHE_TTL));
+		setDnsNegativeTtl(json.getInt("dnsNegativeTtl", DEFAULT_DNS_NEGATIVE_TTL));
+		setDnsStaleTtl(json.getInt("dnsStaleTtl", DEFAULT_DNS_STALE_TTL));
+		setHappyEyeballsDelay(json.getInt("happyEyeballsDelay", DEFAULT_HAPPY_EYEBALLS_DELAY));
+	}
+
+	/**
+	 * @return the number of event loop threads shared by all the connections of
+	 *         the client
+	 */
+	public int getEventLoopSize() {
+		return eventLoopSize;
+	}
+
+	/**
+	 * Set the number of event loop threads. Each thread multiplexes many
+	 * connections with a single selector.
+	 *
+	 * @param eventLoopSize the number of threads
+	 * @return a reference to this, so the API can be used fluently
+	 */
+	public JCurlClientOptions setEventLoopSize(int eventLoopSize) {
+		if (eventLoopSize < 1) {
+			throw new IllegalArgumentException("eventLoopSize must be > 0");
+		}
+		this.eventLoopSize = eventLoopSize;
+		return this;
+	}
+
+	/**
+	 * @return the host name used when the request does not specify one
+	 */
+	public String getDefaultHost() {
+		return defaultHost;
+	}
+
+	/**
+	 * Set the host name used when the request does not specify one.
+	 *
+	 * @return a reference to this, so the API can be used fluently
+	 */
+	public JCurlClientOptions setDefaultHost(String defaultHost) {
+		this.defaultHost = defaultHost;
+		return this;
+	}
+
+	/**
+	 * @return the port used when the request does not specify one
+	 */
+	public int getDefaultPort() {
+		return defaultPort;
+	}
+
+	/**
+	 * Set the port used when the request does not specify one.
+	 *
+	 * @return a reference to this, so the API can be used fluently
+	 */
+	public JCurlClientOptions setDefaultPort(int defaultPort) {
+		this.defaultPort = defaultPort;
+		return this;
+	}
+
+	/**
+	 * @return is SSL/TLS enabled for requests that do not specify it?
+	 */
+	public boolean isSsl() {
+		return ssl;
+	}
+
+	/**
+	 * Set whether SSL/TLS is enabled for requests that do not specify it
+	 *
+	 * @param ssl true if enabled
+	 * @return a reference to this, so the API can be used fluently
+	 */
+	public JCurlClientOptions setSsl(boolean ssl) {
+		this.ssl = ssl;
+		return this;
+	}
+
+	/**
+	 * @return the SSL context used for SSL/TLS connections, {@code null} means
+	 *         the JVM default context
+	 */
+	public SSLContext getSslContext() {
+		return sslContext;
+	}
+
+	/**
+	 * Set the SSL context used for SSL/TLS connections.
+	 *
+	 * @param sslContext the context, or {@code null} for the JVM default
+	 * @return a reference to this, so the API can be used fluently
+	 */
+	public JCurlClientOptions setSslContext(SSLContext sslContext) {
+		this.sslContext = sslContext;
+		return this;
+	}
+
+	/**
+	 * @return the connect timeout in milliseconds
+	 */
+	public int getConnectTimeout() {
+		return connectTimeout;
+	}
+
+	/**
+	 * Set the connect timeout in milliseconds, zero or a negative value disables
+	 * it.
+	 *
+	 * @return a reference to this, so the API can be used fluently
+	 */
+	public JCurlClientOptions setConnectTimeout(int connectTimeout) {
+		this.connectTimeout = connectTimeout;
+		return this;
+	}
+
+	/**
+	 * @return is TCP no delay enabled?
+	 */
+	public boolean isTcpNoDelay() {
+		return tcpNoDelay;
+	}
+
+	/**
+	 * Set whether TCP no delay is enabled
+	 *
+	 * @param tcpNoDelay true if enabled
+	 * @return a reference to this, so the API can be used fluently
+	 */
+	public JCurlClientOptions setTcpNoDelay(boolean tcpNoDelay) {
+		this.tcpNoDelay = tcpNoDelay;
+		return this;
+	}
+
+	/**
+	 * @return the initial size of the per connection read buffer
+	 */
+	public int getReadBufferSize() {
+		return readBufferSize;
+	}
+
+	/**
+	 * Set the initial size of the per connection read buffer.
+	 *
+	 * @return a reference to this, so the API can be used fluently
+	 */
+	public JCurlClientOptions setReadBufferSize(int readBufferSize) {
+		if (readBufferSize < 1) {
+			throw new IllegalArgumentException("readBufferSize must be > 0");
+		}
+		this.readBufferSize = readBufferSize;
+		return this;
+	}
+
+	/**
+	 * @return the maximum size of the response status line and headers
+	 */
+	public int getMaxHeaderSize() {
+		return maxHeaderSize;
+	}
+
+	/**
+	 * Set the maximum size of the response status line and headers, larger
+	 * responses fail the request.
+	 *
+	 * @return a reference to this, so the API can be used fluently
+	 */
+	public JCurlClientOptions setMaxHeaderSize(int maxHeaderSize) {
+		this.maxHeaderSize = maxHeaderSize;
+		return this;
+	}
+
+	/**
+	 * @return are connections kept open and reused after a response?
+	 */
+	public boolean isKeepAlive() {
+		return keepAlive;
+	}
+
+	/**
+	 * Set whether connections are kept open and reused after a response
+	 *
+	 * @param keepAlive true if enabled
+	 * @return a reference to this, so the API can be used fluently
+	 */
+	public JCurlClientOptions setKeepAlive(boolean keepAlive) {
+		this.keepAlive = keepAlive;
+		return this;
+	}
+
+	/**
+	 * @return the maximum number of connections per host
+	 */
+	public int getMaxPoolSize() {
+		return maxPoolSize;
+	}
+
+	/**
+	 * Set the maximum number of connections per host, requests wait for a
+	 * connection once it is reached.
+	 *
+	 * @return a reference to this, so the API can be used fluently
+	 */
+	public JCurlClientOptions setMaxPoolSize(int maxPoolSize) {
+		if (maxPoolSize < 1) {
+			throw new IllegalArgumentException("maxPoolSize must be > 0");
+		}
+		this.maxPoolSize = maxPoolSize;
+		return this;
+	}
+
+	/**
+	 * @return the maximum number of connections of the client, all hosts included
+	 */
+	public int getMaxTotalPoolSize() {
+		return maxTotalPoolSize;
+	}
+
+	/**
+	 * Set the maximum number of connections of the client, all hosts included.
+	 * Idle connections of other hosts are closed to make room before a request
+	 * waits.
+	 *
+	 * @return a reference to this, so the API can be used fluently
+	 */
+	public JCurlClientOptions setMaxTotalPoolSize(int maxTotalPoolSize) {
+		if (maxTotalPoolSize < 1) {
+			throw new IllegalArgumentException("maxTotalPoolSize must be > 0");
+		}
+		this.maxTotalPoolSize = maxTotalPoolSize;
+		return this;
+	}
+
+	/**
+	 * @return the time in milliseconds an unused connection stays in the pool
+	 */
+	public int getIdleTimeout() {
+		return idleTimeout;
+	}
+
+	/**
+	 * Set the time in milliseconds an unused connection stays in the pool, zero
+	 * or a negative value keeps it until the server closes it.
+	 *
+	 * @return a reference to this, so the API can be used fluently
+	 */
+	public JCurlClientOptions setIdleTimeout(int idleTimeout) {
+		this.idleTimeout = idleTimeout;
+		return this;
+	}
+
+	/**
+	 * @return the maximum lifetime in milliseconds of a pooled connection
+	 */
+	public int getMaxLifetime() {
+		return maxLifetime;
+	}
+
+	/**
+	 * Set the maximum lifetime in milliseconds of a pooled connection, it is
+	 * closed instead of being reused once expired. Zero or a negative value
+	 * disables it.
+	 *
+	 * @return a reference to this, so the API can be used fluently
+	 */
+	public JCurlClientOptions setMaxLifetime(int maxLifetime) {
+		this.maxLifetime = maxLifetime;
+		return this;
+	}
+
+	/**
+	 * @return the maximum number of requests waiting for a connection per host
+	 */
+	public int getMaxWaitQueueSize() {
+		return maxWaitQueueSize;
+	}
+
+	/**
+	 * Set the maximum number of requests waiting for a connection per host,
+	 * further requests fail immediately. A negative value means unbounded.
+	 *
+	 * @return a reference to this, so the API can be used fluently
+	 */
+	public JCurlClientOptions setMaxWaitQueueSize(int maxWaitQueueSize) {
+		this.maxWaitQueueSize = maxWaitQueueSize;
+		return this;
+	}
+
+	/**
+	 * @return the time in milliseconds a request waits for a connection
+	 */
+	public int getAcquireTimeout() {
+		return acquireTimeout;
+	}
+
+	/**
+	 * Set the time in milliseconds a request waits for a pooled connection, zero
+	 * or a negative value disables it.
+	 *
+	 * @return a reference to this, so the API can be used fluently
+	 */
+	public JCurlClientOptions setAcquireTimeout(int acquireTimeout) {
+		this.acquireTimeout = acquireTimeout;
+		return this;
+	}
+
+	/**
+	 * @return the period in milliseconds of the idle connection eviction
+	 */
+	public int getPoolCleanerPeriod() {
+		return poolCleanerPeriod;
+	}
+
+	/**
+	 * Set the period in milliseconds of the idle connection eviction.
+	 *
+	 * @return a reference to this, so the API can be used fluently
+	 */
+	public JCurlClientOptions setPoolCleanerPeriod(int poolCleanerPeriod) {
+		if (poolCleanerPeriod < 1) {
+			throw new IllegalArgumentException("poolCleanerPeriod must be > 0");
+		}
+		this.poolCleanerPeriod = poolCleanerPeriod;
+		return this;
+	}
+
+	/**
+	 * @return is HTTP/1.1 pipelining enabled?
+	 */
+	public boolean isPipelining() {
+		return pipelining;
+	}
+
+	/**
+	 * Set whether idempotent requests are pipelined on busy connections, instead
+	 * of waiting for their response before sending the next request.
+	 *
+	 * @return a reference to this, so the API can be used fluently
+	 */
+	public JCurlClientOptions setPipelining(boolean pipelining) {
+		this.pipelining = pipelining;
+		return this;
+	}
+
+	/**
+	 * @return the maximum number of pipelined requests per connection
+	 */
+	public int getPipeliningLimit() {
+		return pipeliningLimit;
+	}
+
+	/**
+	 * Set the maximum number of requests waiting for their response on a
+	 * pipelined connection.
+	 *
+	 * @return a reference to this, so the API can be used fluently
+	 */
+	public JCurlClientOptions setPipeliningLimit(int pipeliningLimit) {
+		if (pipeliningLimit < 1) {
+			throw new IllegalArgumentException("pipeliningLimit must be > 0");
+		}
+		this.pipeliningLimit = pipeliningLimit;
+		return this;
+	}
+
+	/**
+	 * @return the preferred protocol version
+	 */
+	public HttpVersion getProtocolVersion() {
+		return protocolVersion;
+	}
+
+	/**
+	 * Set the preferred protocol version. With {@link HttpVersion#HTTP_2}, HTTP/2
+	 * is negotiated with ALPN over SSL/TLS, falling back to HTTP/1.1 when the
+	 * server does not support it, and used with prior knowledge over plain text.
+	 * ALPN requires Java 8u252 or later, the SSL/TLS connections use HTTP/1.1 on
+	 * older runtimes.
+	 *
+	 * @return a reference to this, so the API can be used fluently
+	 */
+	public JCurlClientOptions setProtocolVersion(HttpVersion protocolVersion) {
+		if (protocolVersion == null || protocolVersion == HttpVersion.HTTP_1_0) {
+			throw new IllegalArgumentException("protocolVersion must be HTTP_1_1 or HTTP_2");
+		}
+		this.protocolVersion = protocolVersion;
+		return this;
+	}
+
+	/**
+	 * @return the maximum number of concurrent streams of an HTTP/2 connection
+	 */
+	public int getHttp2MaxConcurrentStreams() {
+		return http2MaxConcurrentStreams;
+	}
+
+	/**
+	 * Set the maximum number of concurrent streams of an HTTP/2 connection, the
+	 * server can lower it. Another connection is opened when all the streams are
+	 * in use, up to the max pool size.
+	 *
+	 * @return a reference to this, so the API can be used fluently
+	 */
+	public JCurlClientOptions setHttp2MaxConcurrentStreams(int http2MaxConcurrentStreams) {
+		if (http2MaxConcurrentStreams < 1) {
+			throw new IllegalArgumentException("http2MaxConcurrentStreams must be > 0");
+		}
+		this.http2MaxConcurrentStreams = http2MaxConcurrentStreams;
+		return this;
+	}
+
+	/**
+	 * @return the HTTP/2 flow control window of each stream
+	 */
+	public int getHttp2InitialWindowSize() {
+		return http2InitialWindowSize;
+	}
+
+	/**
+	 * Set the HTTP/2 flow control window of each stream, the number of response
+	 * bytes the server can send before the client acknowledges them.
+	 *
+	 * @return a reference to this, so the API can be used fluently
+	 */
+	public JCurlClientOptions setHttp2InitialWindowSize(int http2InitialWindowSize) {
+		if (http2InitialWindowSize < 65535) {
+			throw new IllegalArgumentException("http2InitialWindowSize must be >= 65535");
+		}
+		this.http2InitialWindowSize = http2InitialWindowSize;
+		return this;
+	}
+
+	/**
+	 * @return the HTTP/2 flow control window shared by the streams of a connection
+	 */
+	public int getHttp2ConnectionWindowSize() {
+		return http2ConnectionWindowSize;
+	}
+
+	/**
+	 * Set the HTTP/2 flow control window shared by the streams of a connection.
+	 *
+	 * @return a reference to this, so the API can be used fluently
+	 */
+	public JCurlClientOptions setHttp2ConnectionWindowSize(int http2ConnectionWindowSize) {
+		if (http2ConnectionWindowSize < 65535) {
+			throw new IllegalArgumentException("http2ConnectionWindowSize must be >= 65535");
+		}
+		this.http2ConnectionWindowSize = http2ConnectionWindowSize;
+		return this;
+	}
+
+	/**
+	 * @return the largest HTTP/2 frame payload the client accepts
+	 */
+	public int getHttp2MaxFrameSize() {
+		return http2MaxFrameSize;
+	}
+
+	/**
+	 * Set the largest HTTP/2 frame payload the client accepts.
+	 *
+	 * @return a reference to this, so the API can be used fluently
+	 */
+	public JCurlClientOptions setHttp2MaxFrameSize(int http2MaxFrameSize) {
+		if (http2MaxFrameSize < 16384 || http2MaxFrameSize > 16777215) {
+			throw new IllegalArgumentException("http2MaxFrameSize must be between 16384 and 16777215");
+		}
+		this.http2MaxFrameSize = http2MaxFrameSize;
+		return this;
+	}
+
+	/**
+	 * @return the size of the HPACK dynamic tables
+	 */
+	public int getHttp2HeaderTableSize() {
+		return http2HeaderTableSize;
+	}
+
+	/**
+	 * Set the size of the HPACK dynamic tables, the encoder uses at most the
+	 * size allowed by the server.
+	 *
+	 * @return a reference to this, so the API can be used fluently
+	 */
+	public JCurlClientOptions setHttp2HeaderTableSize(int http2HeaderTableSize) {
+		if (http2HeaderTableSize < 0) {
+			throw new IllegalArgumentException("http2HeaderTableSize must be >= 0");
+		}
+		this.http2HeaderTableSize = http2HeaderTableSize;
+		return this;
+	}
+
+	/**
+	 * @return are the socket I/O buffers direct?
+	 */
+	public boolean isDirectBuffers() {
+		return directBuffers;
+	}
+
+	/**
+	 * Set whether the buffers used for the socket I/O are direct, so that reads
+	 * and writes avoid a copy between the heap and native memory.
+	 *
+	 * @return a reference to this, so the API can be used fluently
+	 */
+	public JCurlClientOptions setDirectBuffers(boolean directBuffers) {
+		this.directBuffers = directBuffers;
+		return this;
+	}
+
+	/**
+	 * @return the maximum number of bytes retained by the buffer pool
+	 */
+	public int getBufferPoolSize() {
+		return bufferPoolSize;
+	}
+
+	/**
+	 * Set the maximum number of bytes the buffer pool retains for reuse, zero
+	 * disables the pooling.
+	 *
+	 * @return a reference to this, so the API can be used fluently
+	 */
+	public JCurlClientOptions setBufferPoolSize(int bufferPoolSize) {
+		if (bufferPoolSize < 0) {
+			throw new IllegalArgumentException("bufferPoolSize must be >= 0");
+		}
+		this.bufferPoolSize = bufferPoolSize;
+		return this;
+	}
+
+	/**
+	 * @return does the client run a worker executor on virtual threads?
+	 */
+	public boolean isVirtualThreads() {
+		return virtualThreads;
+	}
+
+	/**
+	 * Set whether the client runs a worker executor with a virtual thread per
+	 * task. The blocking sends of platform threads run on the executor while
+	 * their caller waits, virtual callers send directly, and the executor
+	 * completes the asynchronous sends by default. It is available with
+	 * {@link com.github.jcurl.core.JCurlClient#executor()}. The option is
+	 * ignored when the runtime has no virtual threads (before Java 21).
+	 *
+	 * @return a reference to this, so the API can be used fluently
+	 */
+	public JCurlClientOptions setVirtualThreads(boolean virtualThreads) {
+		this.virtualThreads = virtualThreads;
+		return this;
+	}
+
+	/**
+	 * @return does the client negotiate and decode the compressed response
+	 *         bodies?
+	 */
+	public boolean isDecompression() {
+		return decompression;
+	}
+
+	/**
+	 * Set whether the requests send the supported content codings in
+	 * {@code Accept-Encoding} and the response bodies are decoded as they are
+	 * received, before the body codec. The {@code gzip} and {@code deflate}
+	 * codings are built in, others are added with a
+	 * {@link com.github.jcurl.core.encoding.ContentDecoderProvider}. A request
+	 * setting its own {@code Accept-Encoding} header receives the bodies as they
+	 * are sent.
+	 *
+	 * @return a reference to this, so the API can be used fluently
+	 */
+	public JCurlClientOptions setDecompression(boolean decompression) {
+		this.decompression = decompression;
+		return this;
+	}
+
+	/**
+	 * @return are the identical requests in flight sent once?
+	 */
+	public boolean isCoalescing() {
+		return coalescing;
+	}
+
+	/**
+	 * Set whether a {@code GET} request without a body is sent at all while an
+	 * identical one is in flight: same target, headers and SSL, and buffered
+	 * response codecs. It waits for the response of the request in flight
+	 * instead, decoded again by its own codec, or for its failure. It runs
+	 * after the {@link #addInterceptor(HttpInterceptor) interceptors}, and
+	 * waits no longer than its own timeout. It is sent after all when the
+	 * request in flight is cancelled, interrupted or times out.
+	 *
+	 * @return a reference to this, so the API can be used fluently
+	 */
+	public JCurlClientOptions setCoalescing(boolean coalescing) {
+		this.coalescing = coalescing;
+		return this;
+	}
+
+	/**
+	 * @return the resolver of the host names, {@code null} means a
+	 *         {@link com.github.jcurl.core.dns.SystemHostResolver} caching the
+	 *         addresses for the {@link #getDnsCacheTtl() DNS cache TTL}
+	 */
+	public HostResolver getHostResolver() {
+		return hostResolver;
+	}
+
+	/**
+	 * Set the resolver of the host names, such as a
+	 * {@link com.github.jcurl.core.dns.StaticHostResolver} standing in for the
+	 * DNS. Its lookups run on threads of the client rather than on the event
+	 * loops, and only when a new connection is opened.
+	 *
+	 * @param hostResolver the resolver, or {@code null} for the system resolver
+	 * @return a reference to this, so the API can be used fluently
+	 */
+	public JCurlClientOptions setHostResolver(HostResolver hostResolver) {
+		this.hostResolver = hostResolver;
+		return this;
+	}
+
+	/**
+	 * @return the time in milliseconds the addresses of the system resolver are
+	 *         cached
+	 */
+	public int getDnsCacheTtl() {
+		return dnsCacheTtl;
+	}
+
+	/**
+	 * Set the time in milliseconds the addresses of the system resolver are
+	 * cached, which does not expose the TTLs of the records. The other
+	 * resolvers give the TTL of their addresses.
+	 *
+	 * @return a reference to this, so the API can be used fluently
+	 */
+	public JCurlClientOptions setDnsCacheTtl(int dnsCacheTtl) {
+		if (dnsCacheTtl < 0) {
+			throw new IllegalArgumentException("dnsCacheTtl must be >= 0");
+		}
+		this.dnsCacheTtl = dnsCacheTtl;
+		return this;
+	}
+
+	/**
+	 * @return the time in milliseconds a failed host lookup is cached
+	 */
+	public int getDnsNegativeTtl() {
+		return dnsNegativeTtl;
+	}
+
+	/**
+	 * Set the time in milliseconds a failed host lookup is cached, the requests
+	 * to the host fail meanwhile without looking it up again.
+	 *
+	 * @return a reference to this, so the API can be used fluently
+	 */
+	public JCurlClientOptions setDnsNegativeTtl(int dnsNegativeTtl) {
+		if (dnsNegativeTtl < 0) {
+			throw new IllegalArgumentException("dnsNegativeTtl must be >= 0");
+		}
+		this.dnsNegativeTtl = dnsNegativeTtl;
+		return this;
+	}
+
+	/**
+	 * @return the time in milliseconds the addresses of a host are used after
+	 *         their TTL
+	 */
+	public int getDnsStaleTtl() {
+		return dnsStaleTtl;
+	}
+
+	/**
+	 * Set the time in milliseconds the addresses of a host are used after their
+	 * TTL, while they are looked up again in the background, zero disables it.
+	 *
+	 * @return a reference to this, so the API can be used fluently
+	 */
+	public JCurlClientOptions setDnsStaleTtl(int dnsStaleTtl) {
+		if (dnsStaleTtl < 0) {
+			throw new IllegalArgumentException("dnsStaleTtl must be >= 0");
+		}
+		this.dnsStaleTtl = dnsStaleTtl;
+		return this;
+	}
+
+	/**
+	 * @return the delay in milliseconds before connecting to the next address of
+	 *         a host
+	 */
+	public int getHappyEyeballsDelay() {
+		return happyEyeballsDelay;
+	}
+
+	/**
+	 * Set the delay in milliseconds before connecting to the next address of a
+	 * host while the connection to the previous one is pending, the first
+	 * connection established is used. The addresses are tried one after the
+	 * other when it is zero or negative, on failure only.
+	 *
+	 * @return a reference to this, so the API can be used fluently
+	 */
+	public JCurlClientOptions setHappyEyeballsDelay(int happyEyeballsDelay) {
+		this.happyEyeballsDelay = happyEyeballsDelay;
+		return this;
+	}
+
+	/**
+	 * @return the engine mapping the JSON bodies, {@code null} means
+	 *         {@link com.github.jcurl.core.json.Json#engine()}
+	 */
+	public JsonEngine getJsonEngine() {
+		return jsonEngine;
+	}
+
+	/**
+	 * Set the engine mapping the POJO request bodies and the bodies of the
+	 * {@link com.github.jcurl.core.codec.BodyCodec#json(Class)} codecs.
+	 *
+	 * @param jsonEngine the engine, or {@code null} for the default engine
+	 * @return a reference to this, so the API can be used fluently
+	 */
+	public JCurlClientOptions setJsonEngine(JsonEngine jsonEngine) {
+		this.jsonEngine = jsonEngine;
+		return this;
+	}
+
+	/**
+	 * @return the interceptors of the requests, in their order
+	 */
+	public List<HttpInterceptor> getInterceptors() {
+		return interceptors;
+	}
+
+	/**
+	 * Add an interceptor of the requests, running after the ones already added.
+	 *
+	 * @param interceptor the interceptor
+	 * @return a reference to this, so the API can be used fluently
+	 */
+	public JCurlClientOptions addInterceptor(HttpInterceptor interceptor) {
+		interceptors.add(interceptor);
+		return this;
+	}
+
+}
@@ -0,0 +1,117 @@
+package com.github.jcurl.core.impl;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import com.github.jcurl.core.encoding.ContentDecoder;
+import com.github.jcurl.core.encoding.ContentDecoders;
+import com.github.jcurl.core.http.HeaderNames;
+import com.github.jcurl.core.net.ResponseHead;
+import com.github.jcurl.core.net.ResponseListener;
+
+/**
+ * Decodes the body of a response with its {@code Content-Encoding} before it
+ * reaches the listener of the exchange. Each received chunk is decoded into a
+ * single slice, so that the demand of a streamed body is kept.
+ * <p>
+ * Once a decoder is installed, {@code Content-Encoding} and
+ * {@code Content-Length} are removed from the head, since they describe the
+ * encoded body. The head is left as received when the coding is not supported.
+ */
+final class DecodingListener implements ResponseListener {
+
+	private final ResponseListener listener;
+	private final ContentDecoders decoders;
+	private ContentDecoder decoder;
+	private boolean failed;
+
+	DecodingListener(ResponseListener listener, ContentDecoders decoders) {
+		this.listener = listener;
+		this.decoders = decoders;
+	}
+
+	@Override
+	public void onHead(ResponseHead head) {
+		close();
+		failed = false;
+		String contentEncoding = head.header(HeaderNames.CONTENT_ENCODING);
+		if (contentEncoding != null) {
+			decoder = decoders.create(contentEncoding);
+			if (decoder != null) {
+				head.removeHeader(HeaderNames.CONTENT_ENCODING);
+				head.removeHeader(HeaderNames.CONTENT_LENGTH);
+			}
+		}
+		listener.onHead(head);
+	}
+
+	@Override
+	public void onData(ByteBuffer chunk) {
+		if (decoder == null) {
+			if (!failed) {
+				listener.onData(chunk);
+			}
+			return;
+		}
+		ByteBuffer decoded;
+		try {
+			decoded = decoder.decode(chunk);
+		} catch (IOException e) {
+			fail(e);
+			return;
+		}
+		if (decoded.hasRemaining()) {
+			listener.onData(decoded);
+		}
+	}
+
+	@Override
+	public boolean isSuspended() {
+		return !failed && listener.isSuspended();
+	}
+
+	@Override
+	public void onEnd() {
+		if (failed) {
+			return;
+		}
+		if (decoder != null) {
+			ByteBuffer decoded;
+			try {
+				decoded = decoder.finish();
+			} catch (IOException e) {
+				fail(e);
+				return;
+			}
+			if (decoded.hasRemaining()) {
+				listener.onData(decoded);
+			}
+			close();
+		}
+		listener.onEnd();
+	}
+
+	@Override
+	public void onError(Throwable cause) {
+		close();
+		listener.onError(cause);
+	}
+
+	/**
+	 * Fail the exchange, the rest of the body is read and ignored so that the
+	 * connection can be reused.
+	 */
+	private void fail(IOException cause) {
+		close();
+		failed = true;
+		listener.onError(cause);
+	}
+
+	private void close() {
+		if (decoder != null) {
+			decoder.close();
+			decoder = null;
+		}
+	}
+
+}
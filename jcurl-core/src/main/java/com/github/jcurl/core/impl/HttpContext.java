@@ -0,0 +1,1148 @@
+package com.github.jcurl.core.impl;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.json.JsonObject;
+
+import com.github.jcurl.core.HttpResponse;
+import com.github.jcurl.core.JCurlException;
+import com.github.jcurl.core.buffer.BufferOutputStream;
+import com.github.jcurl.core.buffer.PooledBuffer;
+import com.github.jcurl.core.codec.impl.BodyCodecImpl;
+import com.github.jcurl.core.codec.BodyCodec;
+import com.github.jcurl.core.codec.impl.FileBodyCodec;
+import com.github.jcurl.core.codec.impl.JsonBodyCodec;
+import com.github.jcurl.core.codec.impl.StreamBodyCodec;
+import com.github.jcurl.core.encoding.ContentDecoders;
+import com.github.jcurl.core.encoding.GzipOutputStream;
+import com.github.jcurl.core.http.CaseInsensitiveHeaders;
+import com.github.jcurl.core.http.HeaderNames;
+import com.github.jcurl.core.http.HttpMethod;
+import com.github.jcurl.core.json.EncodeException;
+import com.github.jcurl.core.json.Json;
+import com.github.jcurl.core.json.JsonEngine;
+import com.github.jcurl.core.net.BodyStream;
+import com.github.jcurl.core.net.ConnectionKey;
+import com.github.jcurl.core.net.EventLoop;
+import com.github.jcurl.core.net.FileRegion;
+import com.github.jcurl.core.net.HttpConnection;
+import com.github.jcurl.core.net.HttpExchange;
+import com.github.jcurl.core.net.ResponseHead;
+import com.github.jcurl.core.net.ResponseListener;
+import com.github.jcurl.core.net.Timeout;
+import com.github.jcurl.core.stream.Publisher;
+import com.github.jcurl.core.stream.Subscriber;
+import com.github.jcurl.core.stream.Subscription;
+
+/**
+ * The execution of a request: encodes the body, hands the exchange over to an
+ * event loop and buffers or streams the response.
+ */
+public class HttpContext<T> {
+
+	private static final int STREAM_CHUNK_SIZE = 16 * 1024;
+	private static final int STREAM_MAX_QUEUED = 256 * 1024;
+	// the body buffer grows from there as the bytes arrive, whatever the announced length
+	private static final int MAX_INITIAL_BODY_CAPACITY = 64 * 1024;
+
+	private final HttpRequestImpl<T> request;
+	// the headers of this send, null when there is none
+	private final Map<String, String> headers;
+	private final Object body;
+	private String contentType;
+	// the streamed body and its bytes encoded ahead, null for a POJO
+	private BodyStream stream;
+	private PooledBuffer streamed;
+
+	public HttpContext(HttpRequestImpl<T> request, String contentType, Object body) {
+		this(request, request.getHeaders(), contentType, body);
+	}
+
+	/**
+	 * @param headers the headers sent instead of the ones of the request, such
+	 *                as the copy changed by the interceptors
+	 */
+	public HttpContext(HttpRequestImpl<T> request, Map<String, String> headers, String contentType, Object body) {
+		this.request = request;
+		this.headers = headers;
+		this.contentType = contentType;
+		this.body = body;
+	}
+
+	/**
+	 * Send the request and wait for the response.
+	 *
+	 * @return the response, with its body decoded by the request codec
+	 * @throws JCurlException when the request fails
+	 */
+	public HttpResponse<T> send() {
+		ExchangeListener listener = execute();
+		if (stream != null) {
+			upload(listener);
+		}
+		try {
+			listener.future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			listener.fail(e);
+			throw new JCurlException("Interrupted while waiting for the response", e);
+		} catch (ExecutionException e) {
+			throw failure(e.getCause());
+		}
+		return listener.response();
+	}
+
+	/**
+	 * Send the request without waiting for the response.
+	 * <p>
+	 * The future is completed from the event loop thread, or from the
+	 * {@code executor} when one is given, so that its dependent stages do not
+	 * run on the event loop. The body is decoded by the thread completing the
+	 * future. Cancelling the future aborts the request.
+	 *
+	 * @param executor the executor completing the future, or {@code null}
+	 * @return the future response, with its body decoded by the request codec
+	 */
+	public CompletableFuture<HttpResponse<T>> sendAsync(Executor executor) {
+		CompletableFuture<HttpResponse<T>> result = new CompletableFuture<>();
+		ExchangeListener listener;
+		try {
+			listener = execute();
+		} catch (RuntimeException e) {
+			result.completeExceptionally(e);
+			return result;
+		}
+		if (stream != null) {
+			if (executor == null) {
+				upload(listener);
+			} else {
+				try {
+					executor.execute(() -> upload(listener));
+				} catch (RejectedExecutionException e) {
+					stream.fail(e);
+					releaseStreamed();
+					listener.fail(new JCurlException("The executor rejected the request body", e));
+				}
+			}
+		}
+		listener.future.whenComplete((v, err) -> {
+			if (executor == null) {
+				complete(result, listener, err);
+				return;
+			}
+			try {
+				executor.execute(() -> complete(result, listener, err));
+			} catch (RejectedExecutionException e) {
+				result.completeExceptionally(new JCurlException("The executor rejected the response", e));
+			}
+		});
+		result.whenComplete((response, err) -> {
+			if (err instanceof CancellationException) {
+				listener.fail(err);
+			}
+		});
+		return result;
+	}
+
+	private void complete(CompletableFuture<HttpResponse<T>> result, ExchangeListener listener, Throwable err) {
+		if (err != null) {
+			result.completeExceptionally(failure(err));
+			return;
+		}
+		try {
+			result.complete(listener.response());
+		} catch (RuntimeException e) {
+			result.completeExceptionally(e);
+		}
+	}
+
+	private JCurlException failure(Throwable cause) {
+		if (cause instanceof JCurlException) {
+			return (JCurlException) cause;
+		}
+		return new JCurlException("Failed to send " + request.getMethod() + " " + request.getURI() + ": " + cause, cause);
+	}
+
+	private ExchangeListener execute() {
+		JCurlClientImpl client = request.client();
+		String host = request.getHost();
+		int port = request.getPort();
+		boolean ssl = request.isSsl();
+		HttpMethod method = request.getMethod();
+		// checked before any buffer is acquired
+		String target = requestTarget(request);
+		checkHeaders(host);
+		boolean gzip = body != null && request.isGzip();
+		// a compressed file is streamed
+		boolean chunked = body != null && (body instanceof Path ? gzip : request.isChunked());
+		FileRegion file = body instanceof Path && !chunked ? fileRegion((Path) body) : null;
+		PooledBuffer payload = body instanceof Path ? null : encodeBody(!chunked && !gzip);
+		if (gzip && !chunked) {
+			payload = compress(payload);
+		}
+		ExchangeListener listener;
+		try {
+			long contentLength = file != null ? file.count() : payload != null ? payload.buffer().remaining() : -1;
+			CaseInsensitiveHeaders headers = requestHeaders(host, port, ssl, method, contentLength, chunked, gzip);
+			if (request.getCodec() instanceof StreamBodyCodec) {
+				listener = new StreamingListener(method);
+			} else if (request.getCodec() instanceof FileBodyCodec) {
+				listener = new FileListener(method, (FileBodyCodec) request.getCodec(), headers);
+			} else {
+				listener = new BufferingListener(method);
+			}
+
+			if (chunked) {
+				stream = new BodyStream(client.bufferPool(), STREAM_CHUNK_SIZE, STREAM_MAX_QUEUED);
+				streamed = payload;
+				payload = null;
+				listener.stream(stream);
+			} else if (file != null) {
+				listener.exclusive();
+			}
+			ContentDecoders decoders = client.contentDecoders();
+			ResponseListener responseListener = listener;
+			if (decoders != null && !headers.containsKey(HeaderNames.ACCEPT_ENCODING)) {
+				headers.put(HeaderNames.ACCEPT_ENCODING, decoders.acceptEncoding());
+				responseListener = new DecodingListener(listener, decoders);
+			}
+			if (stream != null) {
+				listener.exchange = new HttpExchange(method, target, headers, stream, responseListener);
+			} else if (file != null) {
+				listener.exchange = new HttpExchange(method, target, headers, file, responseListener);
+			} else {
+				listener.exchange = new HttpExchange(method, target, headers, payload, responseListener);
+			}
+			listener.key = new ConnectionKey(host, port, ssl);
+			try {
+				listener.start(client.eventLoopGroup().next(), request.getTimeout());
+			} catch (RejectedExecutionException e) {
+				throw new JCurlException("Client is closed", e);
+			}
+		} catch (RuntimeException e) {
+			// no exchange owns the body yet
+			if (payload != null) {
+				payload.release();
+			}
+			releaseStreamed();
+			stream = null;
+			throw e;
+		}
+		listener.acquire();
+		return listener;
+	}
+
+	/**
+	 * Check the host and the headers, which may have been put in the map of the
+	 * request or changed by the interceptors without checking them.
+	 *
+	 * @throws IllegalArgumentException when they would split the request
+	 */
+	private void checkHeaders(String host) {
+		if (host == null || !HeaderNames.isFieldValue(host)) {
+			throw new IllegalArgumentException("The host is missing or contains CR, LF or NUL");
+		}
+		if (headers != null) {
+			for (Map.Entry<String, String> header : headers.entrySet()) {
+				HeaderNames.check(header.getKey(), header.getValue());
+			}
+		}
+	}
+
+	private CaseInsensitiveHeaders requestHeaders(String host, int port, boolean ssl, HttpMethod method,
+			long contentLength, boolean chunked, boolean gzip) {
+		CaseInsensitiveHeaders headers = new CaseInsensitiveHeaders();
+		if (this.headers != null) {
+			headers.putAll(this.headers);
+		}
+		if (!headers.containsKey(HeaderNames.HOST)) {
+			headers.put(HeaderNames.HOST, port == (ssl ? 443 : 80) ? host : host + ":" + port);
+		}
+		if (contentType != null && (!headers.containsKey(HeaderNames.CONTENT_TYPE)
+				|| contentType.startsWith(HttpRequestImpl.MULTIPART_FORM_DATA))) {
+			headers.put(HeaderNames.CONTENT_TYPE, contentType);
+		}
+		if (!request.client().options().isKeepAlive()) {
+			headers.put(HeaderNames.CONNECTION, "close");
+		}
+		if (gzip) {
+			headers.put(HeaderNames.CONTENT_ENCODING, "gzip");
+		}
+		if (chunked) {
+			headers.remove(HeaderNames.CONTENT_LENGTH);
+			headers.put(HeaderNames.TRANSFER_ENCODING, "chunked");
+		} else if (contentLength >= 0) {
+			headers.put(HeaderNames.CONTENT_LENGTH, Long.toString(contentLength));
+		} else if (method == HttpMethod.POST || method == HttpMethod.PUT || method == HttpMethod.PATCH) {
+			headers.put(HeaderNames.CONTENT_LENGTH, "0");
+		}
+		return headers;
+	}
+
+	/**
+	 * @return the request target, with the path and query parameters
+	 * @throws IllegalArgumentException when the URI would split the request
+	 */
+	static String requestTarget(HttpRequestImpl<?> request) {
+		String uri = request.getURI();
+		if (uri == null || uri.isEmpty()) {
+			uri = "/";
+		} else if (!HeaderNames.isFieldValue(uri)) {
+			throw new IllegalArgumentException("The request URI contains CR, LF or NUL");
+		}
+		Map<String, String> pathParams = request.getPathParams();
+		if (pathParams != null) {
+			for (Map.Entry<String, String> param : pathParams.entrySet()) {
+				uri = uri.replace("{" + param.getKey() + "}", urlEncode(param.getValue()));
+			}
+		}
+		Map<String, String> queryParams = request.getQueryParams();
+		if (queryParams == null || queryParams.isEmpty()) {
+			return uri;
+		}
+		StringBuilder sb = new StringBuilder(uri);
+		char separator = uri.indexOf('?') < 0 ? '?' : '&';
+		for (Map.Entry<String, String> param : queryParams.entrySet()) {
+			sb.append(separator).append(urlEncode(param.getKey())).append('=').append(urlEncode(param.getValue()));
+			separator = '&';
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * @param serialize encode a POJO, rather than leaving it to
+	 *                  {@link #writeBody(OutputStream, PooledBuffer)}
+	 * @return the body, released once the exchange no longer needs it
+	 */
+	@SuppressWarnings("unchecked")
+	private PooledBuffer encodeBody(boolean serialize) {
+		if (body == null) {
+			return null;
+		}
+		if (body instanceof Buffer) {
+			if (!(body instanceof ByteBuffer)) {
+				throw new IllegalArgumentException("Unsupported buffer type: " + body.getClass().getName());
+			}
+			return PooledBuffer.wrap(((ByteBuffer) body).duplicate());
+		}
+		if (body instanceof JsonObject) {
+			return PooledBuffer.wrap(ByteBuffer.wrap(body.toString().getBytes(StandardCharsets.UTF_8)));
+		}
+		if (body instanceof Map && (HttpRequestImpl.FORM_URLENCODED.equals(contentType)
+				|| HttpRequestImpl.isMultipart(contentType))) {
+			return PooledBuffer.wrap(encodeForm((Map<String, String>) body));
+		}
+		return serialize ? Json.encodeToBuffer(body, request.client().bufferPool(), jsonEngine()) : null;
+	}
+
+	private JsonEngine jsonEngine() {
+		return jsonEngine(request.client());
+	}
+
+	private static JsonEngine jsonEngine(JCurlClientImpl client) {
+		JsonEngine engine = client.options().getJsonEngine();
+		return engine != null ? engine : Json.engine();
+	}
+
+	/**
+	 * @param buffer the buffered body, or {@code null}
+	 * @return the body decoded by the codec of the request, with the JSON engine
+	 *         of its client
+	 */
+	@SuppressWarnings("unchecked")
+	static <T> T decode(HttpRequestImpl<T> request, ByteBuffer buffer) {
+		BodyCodec<T> codec = request.getCodec();
+		if (codec instanceof JsonBodyCodec) {
+			return ((JsonBodyCodec<T>) codec).decode(buffer, jsonEngine(request.client()));
+		}
+		return codec.decode(buffer);
+	}
+
+	private static FileRegion fileRegion(Path path) {
+		try {
+			return new FileRegion(path, 0, Files.size(path));
+		} catch (IOException e) {
+			throw new JCurlException("Failed to read the file " + path + ": " + e, e);
+		}
+	}
+
+	/**
+	 * @param payload the encoded body, or {@code null} for a POJO or a file
+	 * @return the compressed body
+	 */
+	private PooledBuffer compress(PooledBuffer payload) {
+		BufferOutputStream out = new BufferOutputStream(request.client().bufferPool(), 1024);
+		GzipOutputStream gzip = null;
+		try {
+			gzip = new GzipOutputStream(out);
+			writeBody(gzip, payload);
+			gzip.close();
+			return out.toBuffer();
+		} catch (IOException | RuntimeException e) {
+			if (gzip != null) {
+				gzip.release();
+			}
+			out.release();
+			throw e instanceof RuntimeException ? (RuntimeException) e
+					: new EncodeException("Failed to compress the body: " + e.getMessage(), e);
+		} finally {
+			if (payload != null) {
+				payload.release();
+			}
+		}
+	}
+
+	/**
+	 * Write the streamed body, blocking while the connection is behind. The
+	 * request is aborted when the body cannot be written.
+	 */
+	private void upload(ExchangeListener listener) {
+		OutputStream out = stream;
+		GzipOutputStream gzip = null;
+		try {
+			if (request.isGzip()) {
+				out = gzip = new GzipOutputStream(stream);
+			}
+			writeBody(out, streamed);
+			out.close();
+		} catch (IOException | RuntimeException e) {
+			if (gzip != null) {
+				gzip.release();
+			}
+			stream.fail(e);
+			listener.fail(e);
+		} finally {
+			releaseStreamed();
+		}
+	}
+
+	private void releaseStreamed() {
+		if (streamed != null) {
+			streamed.release();
+			streamed = null;
+		}
+	}
+
+	/**
+	 * @param payload the encoded body, or {@code null} to copy the file or to
+	 *                encode the POJO as JSON
+	 */
+	private void writeBody(OutputStream out, PooledBuffer payload) throws IOException {
+		if (payload == null) {
+			if (body instanceof Path) {
+				Files.copy((Path) body, out);
+			} else {
+				jsonEngine().encode(body, out);
+			}
+			return;
+		}
+		ByteBuffer buffer = payload.buffer();
+		if (buffer.hasArray()) {
+			out.write(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+			return;
+		}
+		ByteBuffer src = buffer.duplicate();
+		byte[] bytes = new byte[Math.min(src.remaining(), 8 * 1024)];
+		while (src.hasRemaining()) {
+			int n = Math.min(src.remaining(), bytes.length);
+			src.get(bytes, 0, n);
+			out.write(bytes, 0, n);
+		}
+	}
+
+	private ByteBuffer encodeForm(Map<String, String> form) {
+		StringBuilder sb = new StringBuilder();
+		if (HttpRequestImpl.FORM_URLENCODED.equals(contentType)) {
+			for (Map.Entry<String, String> field : form.entrySet()) {
+				if (sb.length() > 0) {
+					sb.append('&');
+				}
+				sb.append(urlEncode(field.getKey())).append('=').append(urlEncode(field.getValue()));
+			}
+		} else {
+			String boundary = UUID.randomUUID().toString();
+			contentType = HttpRequestImpl.MULTIPART_FORM_DATA + "; boundary=" + boundary;
+			for (Map.Entry<String, String> field : form.entrySet()) {
+				sb.append("--").append(boundary).append("\r\n");
+				sb.append("content-disposition: form-data; name=\"").append(field.getKey()).append("\"\r\n\r\n");
+				sb.append(field.getValue()).append("\r\n");
+			}
+			sb.append("--").append(boundary).append("--\r\n");
+		}
+		return ByteBuffer.wrap(sb.toString().getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static String urlEncode(String value) {
+		try {
+			return URLEncoder.encode(value, "UTF-8");
+		} catch (UnsupportedEncodingException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Acquires a connection for the exchange and retries it once when the
+	 * connection fails before the response starts. The response callbacks run
+	 * on the event loop of the connection, the other methods on any thread.
+	 */
+	private abstract class ExchangeListener implements ResponseListener {
+
+		final CompletableFuture<Void> future = new CompletableFuture<>();
+		final HttpMethod method;
+		HttpExchange exchange;
+		ConnectionKey key;
+		volatile HttpConnection connection;
+		EventLoop loop;
+		Timeout timeout;
+		long timeoutNanos;
+		volatile long lastActivity;
+		ResponseHead head;
+		BodyStream stream;
+		private long streamProgress;
+		private boolean reused;
+		private boolean pipelined;
+		private boolean retried;
+		private volatile boolean bodyReleased;
+
+		ExchangeListener(HttpMethod method) {
+			this.method = method;
+			this.pipelined = request.client().options().isPipelining() && isIdempotent(method);
+		}
+
+		/**
+		 * @return the response, once the future completed
+		 */
+		abstract HttpResponse<T> response();
+
+		/**
+		 * @return is the exchange complete?
+		 */
+		abstract boolean isDone();
+
+		/**
+		 * @return does the exchange wait for the caller rather than for the server?
+		 */
+		boolean isPaused() {
+			return false;
+		}
+
+		/**
+		 * The request body is streamed, the exchange is neither pipelined nor
+		 * retried since the body cannot be sent again.
+		 */
+		void stream(BodyStream stream) {
+			this.stream = stream;
+			this.pipelined = false;
+			this.retried = true;
+			future.whenComplete((v, err) -> {
+				if (err != null) {
+					stream.cancel(err);
+				}
+			});
+		}
+
+		/**
+		 * The request body is read from a file, the exchange is not pipelined so
+		 * that the requests following it do not wait for it.
+		 */
+		void exclusive() {
+			this.pipelined = false;
+		}
+
+		/**
+		 * Give the request body back once the exchange can no longer be retried,
+		 * the connections retain it while they write it.
+		 */
+		void releaseBody() {
+			PooledBuffer body = exchange.body();
+			if (!bodyReleased && body != null) {
+				bodyReleased = true;
+				body.release();
+			}
+		}
+
+		/**
+		 * The response is received. On an HTTP/1.x connection the exchange
+		 * completes after the current task of the event loop, once the
+		 * connection is back in the pool, so that a caller sending its next
+		 * request right away reuses it rather than opening another one.
+		 */
+		void completed() {
+			HttpConnection c = connection;
+			if (c != null && !c.isMultiplexed()) {
+				try {
+					c.channel().eventLoop().execute(() -> future.complete(null));
+					return;
+				} catch (RejectedExecutionException e) {
+					// the loop is shut down
+				}
+			}
+			future.complete(null);
+		}
+
+		/**
+		 * The exchange failed, it is not retried.
+		 */
+		void failed(Throwable cause) {
+			future.completeExceptionally(cause);
+		}
+
+		void start(EventLoop loop, long timeoutMillis) {
+			this.loop = loop;
+			if (timeoutMillis > 0) {
+				timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+				lastActivity = System.nanoTime();
+				timeout = loop.schedule(this::checkTimeout, timeoutNanos, TimeUnit.NANOSECONDS);
+			}
+		}
+
+		void acquire() {
+			request.client().connectionPool().acquire(key, pipelined).whenComplete((connection, err) -> {
+				if (err != null) {
+					onError(err);
+				} else {
+					this.connection = connection;
+					this.reused = connection.exchanges() > 0;
+					if (future.isDone()) {
+						// cancelled or timed out meanwhile, the connection may carry other exchanges
+						connection.release();
+					} else {
+						connection.send(exchange);
+					}
+				}
+			});
+		}
+
+		void fail(Throwable cause) {
+			HttpConnection c = connection;
+			if (future.completeExceptionally(cause) && c != null) {
+				c.cancel(exchange);
+			}
+		}
+
+		private void checkTimeout() {
+			if (isDone()) {
+				return;
+			}
+			if (isPaused()) {
+				lastActivity = System.nanoTime();
+			}
+			if (stream != null && stream.progress() != streamProgress) {
+				// the request body is still being written or sent
+				streamProgress = stream.progress();
+				lastActivity = System.nanoTime();
+			}
+			long idle = System.nanoTime() - lastActivity;
+			if (idle >= timeoutNanos) {
+				fail(new JCurlException("The timeout period of " + TimeUnit.NANOSECONDS.toMillis(timeoutNanos)
+						+ "ms has been exceeded", new TimeoutException()));
+			} else {
+				timeout = loop.schedule(this::checkTimeout, timeoutNanos - idle, TimeUnit.NANOSECONDS);
+			}
+		}
+
+		@Override
+		public void onError(Throwable cause) {
+			if (head == null && (reused || pipelined) && !retried && isIdempotent(method) && !future.isDone()) {
+				// the server closed the kept alive connection before reading the request, a
+				// response pipelined ahead of this one failed, or the stream was refused
+				retried = true;
+				connection = null;
+				acquire();
+				return;
+			}
+			if (timeout != null) {
+				timeout.cancel();
+			}
+			releaseBody();
+			failed(cause);
+		}
+
+	}
+
+	/**
+	 * Buffers the response body, unless the codec discards it.
+	 */
+	private final class BufferingListener extends ExchangeListener {
+
+		private final boolean discard;
+		private ByteBuffer body;
+
+		BufferingListener(HttpMethod method) {
+			super(method);
+			this.discard = request.getCodec() == BodyCodecImpl.NONE;
+		}
+
+		@Override
+		HttpResponse<T> response() {
+			return new HttpResponseImpl<>(head, body, decode(request, body != null ? body.duplicate() : null));
+		}
+
+		@Override
+		boolean isDone() {
+			return future.isDone();
+		}
+
+		@Override
+		public void onHead(ResponseHead head) {
+			this.head = head;
+			lastActivity = System.nanoTime();
+			releaseBody();
+			String contentLength = head.header(HeaderNames.CONTENT_LENGTH);
+			int capacity = 1024;
+			if (contentLength != null && method != HttpMethod.HEAD) {
+				try {
+					capacity = (int) Math.max(Math.min(Long.parseLong(contentLength), MAX_INITIAL_BODY_CAPACITY), 0);
+				} catch (NumberFormatException e) {
+					// the decoder rejects it
+				}
+			}
+			if (!discard) {
+				body = ByteBuffer.allocate(capacity);
+			}
+		}
+
+		@Override
+		public void onData(ByteBuffer chunk) {
+			lastActivity = System.nanoTime();
+			if (discard) {
+				return;
+			}
+			body = append(body, chunk);
+		}
+
+		@Override
+		public void onEnd() {
+			if (timeout != null) {
+				timeout.cancel();
+			}
+			if (body != null) {
+				body.flip();
+			}
+			completed();
+		}
+
+	}
+
+	/**
+	 * Writes the body of a successful response to a file as it is received,
+	 * straight from the read buffers of the connection. The other responses are
+	 * buffered.
+	 */
+	private final class FileListener extends ExchangeListener {
+
+		private final FileBodyCodec codec;
+		// the length of the file whose download is resumed
+		private final long resumed;
+		// event loop
+		private FileChannel file;
+		private long position;
+		private boolean complete;
+		private ByteBuffer body;
+
+		FileListener(HttpMethod method, FileBodyCodec codec, CaseInsensitiveHeaders headers) {
+			super(method);
+			this.codec = codec;
+			this.resumed = codec.isResume() && !headers.containsKey(HeaderNames.RANGE) ? size(codec.path()) : 0;
+			if (resumed > 0) {
+				headers.put(HeaderNames.RANGE, "bytes=" + resumed + "-");
+				if (!headers.containsKey(HeaderNames.ACCEPT_ENCODING)) {
+					// a range of an encoded body cannot be decoded on its own
+					headers.put(HeaderNames.ACCEPT_ENCODING, "identity");
+				}
+			}
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		HttpResponse<T> response() {
+			return new HttpResponseImpl<>(head, body, complete ? (T) codec.path() : null);
+		}
+
+		@Override
+		boolean isDone() {
+			return future.isDone();
+		}
+
+		@Override
+		void fail(Throwable cause) {
+			super.fail(cause);
+			if (loop == null || loop.inEventLoop()) {
+				closeFile();
+				return;
+			}
+			try {
+				// once cancelled, the connection no longer calls back
+				loop.execute(this::closeFile);
+			} catch (RejectedExecutionException e) {
+				closeFile();
+			}
+		}
+
+		@Override
+		public void onHead(ResponseHead head) {
+			this.head = head;
+			lastActivity = System.nanoTime();
+			releaseBody();
+			int status = head.statusCode();
+			if (status == 416 && resumed > 0) {
+				// the file is already complete
+				complete = true;
+				return;
+			}
+			if (status / 100 != 2 || method == HttpMethod.HEAD) {
+				body = ByteBuffer.allocate(1024);
+				return;
+			}
+			try {
+				long start = status == 206 ? rangeStart(head) : 0;
+				file = FileChannel.open(codec.path(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+				if (start > file.size()) {
+					throw new IOException("The partial response starts after the end of the file");
+				}
+				file.truncate(start);
+				position = start;
+			} catch (IOException e) {
+				closeFile();
+				fail(new JCurlException("Failed to write the file " + codec.path() + ": " + e, e));
+			}
+		}
+
+		@Override
+		public void onData(ByteBuffer chunk) {
+			lastActivity = System.nanoTime();
+			if (file != null) {
+				try {
+					while (chunk.hasRemaining()) {
+						position += file.write(chunk, position);
+					}
+				} catch (IOException e) {
+					closeFile();
+					fail(new JCurlException("Failed to write the file " + codec.path() + ": " + e, e));
+				}
+			} else if (body != null) {
+				body = append(body, chunk);
+			}
+		}
+
+		@Override
+		public void onEnd() {
+			if (timeout != null) {
+				timeout.cancel();
+			}
+			if (body != null) {
+				body.flip();
+			}
+			if (file != null) {
+				try {
+					file.close();
+				} catch (IOException e) {
+					failed(new JCurlException("Failed to write the file " + codec.path() + ": " + e, e));
+					return;
+				} finally {
+					file = null;
+				}
+				complete = true;
+			}
+			completed();
+		}
+
+		@Override
+		public void onError(Throwable cause) {
+			closeFile();
+			super.onError(cause);
+		}
+
+		private void closeFile() {
+			if (file != null) {
+				try {
+					file.close();
+				} catch (IOException e) {
+					// the exchange failed, the bytes written are kept to resume
+				}
+				file = null;
+			}
+		}
+
+	}
+
+	/**
+	 * Publishes the response body as it is received, the response is complete
+	 * once its head is. The subscriber callbacks run on the event loop.
+	 * <p>
+	 * The demand of the subscriber suspends the listener when it drops to zero,
+	 * the connection is resumed when more slices are requested.
+	 */
+	private final class StreamingListener extends ExchangeListener implements Publisher<ByteBuffer>, Subscription {
+
+		private static final long PAUSED = -1;
+
+		private final AtomicLong demand = new AtomicLong();
+		private final AtomicBoolean subscribed = new AtomicBoolean();
+		private volatile boolean done;
+		// event loop
+		private Subscriber<? super ByteBuffer> subscriber;
+		private boolean ended;
+		private Throwable error;
+
+		StreamingListener(HttpMethod method) {
+			super(method);
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		HttpResponse<T> response() {
+			return new HttpResponseImpl<>(head, null, ((StreamBodyCodec<T>) request.getCodec()).publisher(this));
+		}
+
+		@Override
+		boolean isDone() {
+			return done;
+		}
+
+		@Override
+		boolean isPaused() {
+			return demand.get() == PAUSED;
+		}
+
+		@Override
+		void fail(Throwable cause) {
+			HttpConnection c = connection;
+			if (future.completeExceptionally(cause)) {
+				done = true;
+				if (c != null) {
+					c.cancel(exchange);
+				}
+			} else {
+				execute(() -> terminate(cause, true));
+			}
+		}
+
+		@Override
+		void failed(Throwable cause) {
+			if (future.completeExceptionally(cause)) {
+				done = true;
+			} else {
+				terminate(cause, false);
+			}
+		}
+
+		@Override
+		public void subscribe(Subscriber<? super ByteBuffer> subscriber) {
+			if (!subscribed.compareAndSet(false, true)) {
+				subscriber.onSubscribe(CANCELLED);
+				subscriber.onError(new IllegalStateException("The body can only be subscribed once"));
+				return;
+			}
+			boolean accepted = execute(() -> {
+				this.subscriber = subscriber;
+				subscriber.onSubscribe(this);
+				if (error != null) {
+					subscriber.onError(error);
+				} else if (ended) {
+					subscriber.onComplete();
+				}
+			});
+			if (!accepted) {
+				subscriber.onSubscribe(CANCELLED);
+				subscriber.onError(new JCurlException("Client is closed"));
+			}
+		}
+
+		@Override
+		public void request(long n) {
+			if (n <= 0) {
+				fail(new IllegalArgumentException("Requested " + n + " slices, the demand must be positive"));
+				return;
+			}
+			for (;;) {
+				long current = demand.get();
+				long next = current == PAUSED ? n : current + n;
+				if (demand.compareAndSet(current, next < 0 ? Long.MAX_VALUE : next)) {
+					if (current == PAUSED && !done) {
+						lastActivity = System.nanoTime();
+						connection.resume(exchange);
+					}
+					return;
+				}
+			}
+		}
+
+		@Override
+		public void cancel() {
+			if (!done) {
+				done = true;
+				if (timeout != null) {
+					timeout.cancel();
+				}
+				connection.cancel(exchange);
+			}
+		}
+
+		@Override
+		public boolean isSuspended() {
+			for (;;) {
+				long current = demand.get();
+				if (current > 0) {
+					return false;
+				}
+				if (current == PAUSED || demand.compareAndSet(0, PAUSED)) {
+					return true;
+				}
+			}
+		}
+
+		@Override
+		public void onHead(ResponseHead head) {
+			this.head = head;
+			lastActivity = System.nanoTime();
+			releaseBody();
+			future.complete(null);
+		}
+
+		@Override
+		public void onData(ByteBuffer chunk) {
+			lastActivity = System.nanoTime();
+			demand.decrementAndGet();
+			if (done) {
+				return;
+			}
+			try {
+				subscriber.onNext(chunk);
+			} catch (RuntimeException e) {
+				terminate(e, true);
+			}
+		}
+
+		@Override
+		public void onEnd() {
+			if (timeout != null) {
+				timeout.cancel();
+			}
+			if (!done) {
+				done = true;
+				ended = true;
+				if (subscriber != null) {
+					subscriber.onComplete();
+				}
+			}
+		}
+
+		/**
+		 * Fail the subscriber from the event loop.
+		 */
+		private void terminate(Throwable cause, boolean cancel) {
+			if (done) {
+				return;
+			}
+			done = true;
+			if (timeout != null) {
+				timeout.cancel();
+			}
+			if (cancel) {
+				connection.cancel(exchange);
+			}
+			error = cause;
+			if (subscriber != null) {
+				subscriber.onError(cause);
+			}
+		}
+
+		/**
+		 * @return false when the loop is shut down, its connections are closed
+		 */
+		private boolean execute(Runnable task) {
+			try {
+				loop.execute(task);
+				return true;
+			} catch (RejectedExecutionException e) {
+				done = true;
+				return false;
+			}
+		}
+
+	}
+
+	/**
+	 * @return the {@code body} with the {@code chunk} appended, replaced by a
+	 *         larger buffer when it is full
+	 */
+	private static ByteBuffer append(ByteBuffer body, ByteBuffer chunk) {
+		if (body.remaining() < chunk.remaining()) {
+			long required = (long) body.position() + chunk.remaining();
+			int capacity = (int) Math.min(Math.max(required, body.capacity() * 2L), Integer.MAX_VALUE - 8);
+			if (capacity < required) {
+				throw new JCurlException("Response body too large");
+			}
+			ByteBuffer bigger = ByteBuffer.allocate(capacity);
+			body.flip();
+			body = bigger.put(body);
+		}
+		return body.put(chunk);
+	}
+
+	/**
+	 * @return the position of the first byte of a partial response
+	 */
+	private static long rangeStart(ResponseHead head) throws IOException {
+		String range = head.header(HeaderNames.CONTENT_RANGE);
+		if (range != null && range.regionMatches(true, 0, "bytes ", 0, 6)) {
+			int dash = range.indexOf('-', 6);
+			try {
+				return Long.parseLong(range.substring(6, dash < 0 ? range.length() : dash).trim());
+			} catch (NumberFormatException e) {
+				// invalid
+			}
+		}
+		throw new IOException("Invalid Content-Range of a partial response: " + range);
+	}
+
+	/**
+	 * @return the length of the file, zero when it does not exist
+	 */
+	private static long size(Path path) {
+		try {
+			return Files.size(path);
+		} catch (IOException e) {
+			return 0;
+		}
+	}
+
+	private static final Subscription CANCELLED = new Subscription() {
+
+		@Override
+		public void request(long n) {
+		}
+
+		@Override
+		public void cancel() {
+		}
+
+	};
+
+	private static boolean isIdempotent(HttpMethod method) {
+		return method != HttpMethod.POST && method != HttpMethod.PATCH && method != HttpMethod.CONNECT;
+	}
+
+}
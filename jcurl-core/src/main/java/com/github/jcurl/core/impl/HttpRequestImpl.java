@@ -1,18 +1,34 @@
 package com.github.jcurl.core.impl;
 
 import java.nio.Buffer;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 
 import javax.json.JsonObject;
 
+import com.github.jcurl.core.HttpInterceptor;
 import com.github.jcurl.core.HttpRequest;
 import com.github.jcurl.core.HttpResponse;
+import com.github.jcurl.core.JCurlException;
 import com.github.jcurl.core.codec.BodyCodec;
 import com.github.jcurl.core.http.CaseInsensitiveHeaders;
+import com.github.jcurl.core.http.HeaderNames;
 import com.github.jcurl.core.http.HttpMethod;
 
 public class HttpRequestImpl<T> implements HttpRequest<T> {
 
+	static final String APPLICATION_JSON = "application/json";
+	static final String APPLICATION_OCTET_STREAM = "application/octet-stream";
+	static final String FORM_URLENCODED = "application/x-www-form-urlencoded";
+	static final String MULTIPART_FORM_DATA = "multipart/form-data";
+
 	private final JCurlClientImpl client;
 	private Map<String, String> pathParams;
 	private Map<String, String> queryParams;
@@ -25,6 +41,9 @@ public class HttpRequestImpl<T> implements HttpRequest<T> {
 	private long timeout = -1;
 	private BodyCodec<T> codec;
 	private boolean ssl;
+	private Executor executor;
+	private boolean chunked;
+	private boolean gzip;
 
 	HttpRequestImpl(JCurlClientImpl client, HttpMethod method, boolean ssl, int port, String host, String uri, BodyCodec<T> codec) {
 		this(client, method, null, ssl, port, host, uri, codec);
@@ -39,9 +58,10 @@ public class HttpRequestImpl<T> implements HttpRequest<T> {
 		this.host = host;
 		this.uri = uri;
 		this.ssl = ssl;
+		this.executor = client.executor();
 	}
 
-	private HttpRequestImpl(HttpRequestImpl<T> other) {
+	private HttpRequestImpl(HttpRequestImpl<?> other, BodyCodec<T> codec) {
 		this.client = other.client;
 		this.method = other.method;
 		this.protocol = other.protocol;
@@ -49,125 +69,312 @@ public class HttpRequestImpl<T> implements HttpRequest<T> {
 		this.host = other.host;
 		this.timeout = other.timeout;
 		this.uri = other.uri;
+		this.ssl = other.ssl;
+		this.executor = other.executor;
+		this.chunked = other.chunked;
+		this.gzip = other.gzip;
 		this.headers = other.headers != null ? new CaseInsensitiveHeaders(other.headers) : null;
-		this.queryParams = other.queryParams != null ? new CaseInsensitiveHeaders(other.queryParams) : null;
-		this.pathParams = other.pathParams != null ? new CaseInsensitiveHeaders(other.pathParams) : null;
-		this.codec = other.codec;
+		this.queryParams = other.queryParams != null ? new LinkedHashMap<>(other.queryParams) : null;
+		this.pathParams = other.pathParams != null ? new LinkedHashMap<>(other.pathParams) : null;
+		this.codec = codec;
 	}
 
 	@Override
 	public HttpRequest<T> method(HttpMethod value) {
-		// TODO Auto-generated method stub
+		this.method = value;
 		return this;
 	}
 
 	@Override
 	public HttpRequest<T> port(int value) {
-		// TODO Auto-generated method stub
-		return null;
+		this.port = value;
+		return this;
 	}
 
 	@Override
 	public <U> HttpRequest<U> as(BodyCodec<U> responseCodec) {
-		// TODO Auto-generated method stub
-		return null;
+		return new HttpRequestImpl<>(this, responseCodec);
 	}
 
 	@Override
 	public HttpRequest<T> host(String value) {
-		// TODO Auto-generated method stub
-		return null;
+		this.host = value;
+		return this;
 	}
 
 	@Override
 	public HttpRequest<T> uri(String value) {
-		// TODO Auto-generated method stub
-		return null;
+		this.uri = value;
+		return this;
 	}
 
 	@Override
 	public HttpRequest<T> putHeader(String name, String value) {
-		// TODO Auto-generated method stub
-		return null;
+		HeaderNames.check(name, value);
+		headers().put(HeaderNames.intern(name), value);
+		return this;
 	}
 
 	@Override
 	public HttpRequest<T> putHeaders(Map<String, String> headers) {
-		// TODO Auto-generated method stub
-		return null;
+		for (Map.Entry<String, String> header : headers.entrySet()) {
+			HeaderNames.check(header.getKey(), header.getValue());
+		}
+		for (Map.Entry<String, String> header : headers.entrySet()) {
+			headers().put(HeaderNames.intern(header.getKey()), header.getValue());
+		}
+		return this;
 	}
 
 	@Override
 	public HttpRequest<T> ssl(boolean value) {
-		// TODO Auto-generated method stub
-		return null;
+		this.ssl = value;
+		return this;
 	}
 
 	@Override
 	public HttpRequest<T> timeout(long value) {
-		// TODO Auto-generated method stub
-		return null;
+		this.timeout = value;
+		return this;
 	}
 
 	@Override
 	public HttpRequest<T> addQueryParam(String paramName, String paramValue) {
-		// TODO Auto-generated method stub
-		return null;
+		queryParams().put(paramName, paramValue);
+		return this;
 	}
 
 	@Override
 	public HttpRequest<T> addQueryParams(Map<String, String> queryParams) {
-		// TODO Auto-generated method stub
-		return null;
+		queryParams().putAll(queryParams);
+		return this;
 	}
 
 	@Override
 	public HttpRequest<T> addPathParam(String paramName, String paramValue) {
-		// TODO Auto-generated method stub
-		return null;
+		pathParams().put(paramName, paramValue);
+		return this;
 	}
 
 	@Override
 	public HttpRequest<T> addPathParams(Map<String, String> pathParams) {
-		// TODO Auto-generated method stub
-		return null;
+		pathParams().putAll(pathParams);
+		return this;
+	}
+
+	@Override
+	public HttpRequest<T> executor(Executor executor) {
+		this.executor = executor;
+		return this;
+	}
+
+	@Override
+	public HttpRequest<T> chunked(boolean value) {
+		this.chunked = value;
+		return this;
+	}
+
+	@Override
+	public HttpRequest<T> gzip(boolean value) {
+		this.gzip = value;
+		return this;
 	}
 
 	@Override
 	public HttpResponse<T> sendBuffer(Buffer body) {
-		// TODO Auto-generated method stub
-		return null;
+		return send(null, body);
+	}
+
+	@Override
+	public HttpResponse<T> sendFile(Path path) {
+		return send(APPLICATION_OCTET_STREAM, path);
 	}
 
 	@Override
 	public HttpResponse<T> sendJsonObject(JsonObject body) {
-		// TODO Auto-generated method stub
-		return null;
+		return send(APPLICATION_JSON, body);
 	}
 
 	@Override
 	public HttpResponse<T> sendJson(Object body) {
-		// TODO Auto-generated method stub
-		return null;
+		return send(APPLICATION_JSON, body);
 	}
 
 	@Override
 	public HttpResponse<T> sendForm(Map<String, String> body) {
-		// TODO Auto-generated method stub
-		return null;
+		return send(formContentType(), body);
 	}
 
 	@Override
 	public HttpResponse<T> send() {
-		// TODO Auto-generated method stub
-		return null;
+		return send(null, null);
+	}
+
+	private HttpResponse<T> send(String contentType, Object body) {
+		ExecutorService workers = client.executor();
+		if (workers == null || Workers.isVirtual(Thread.currentThread())) {
+			// a virtual caller blocks as cheaply as a worker would
+			return sendNow(contentType, body);
+		}
+		// the caller waits while a worker thread sends the request
+		Future<HttpResponse<T>> future;
+		try {
+			future = workers.submit(() -> sendNow(contentType, body));
+		} catch (RejectedExecutionException e) {
+			throw new JCurlException("The executor rejected the request", e);
+		}
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			future.cancel(true);
+			Thread.currentThread().interrupt();
+			throw new JCurlException("Interrupted while waiting for the response", e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new JCurlException("Failed to send " + method + " " + uri + ": " + cause, cause);
+		}
+	}
+
+	private HttpResponse<T> sendNow(String contentType, Object body) {
+		HttpInterceptor[] interceptors = client.interceptors();
+		if (interceptors.length > 0) {
+			return InterceptorChain.send(this, contentType, body, interceptors);
+		}
+		HttpContext<T> ctx = new HttpContext<>(this, contentType, body);
+		return ctx.send();
+	}
+
+	@Override
+	public CompletableFuture<HttpResponse<T>> sendBufferAsync(Buffer body) {
+		return sendAsync(null, body);
+	}
+
+	@Override
+	public CompletableFuture<HttpResponse<T>> sendFileAsync(Path path) {
+		return sendAsync(APPLICATION_OCTET_STREAM, path);
+	}
+
+	@Override
+	public CompletableFuture<HttpResponse<T>> sendJsonObjectAsync(JsonObject body) {
+		return sendAsync(APPLICATION_JSON, body);
+	}
+
+	@Override
+	public CompletableFuture<HttpResponse<T>> sendJsonAsync(Object body) {
+		return sendAsync(APPLICATION_JSON, body);
+	}
+
+	@Override
+	public CompletableFuture<HttpResponse<T>> sendFormAsync(Map<String, String> body) {
+		return sendAsync(formContentType(), body);
+	}
+
+	@Override
+	public CompletableFuture<HttpResponse<T>> sendAsync() {
+		return sendAsync(null, null);
+	}
+
+	private CompletableFuture<HttpResponse<T>> sendAsync(String contentType, Object body) {
+		HttpInterceptor[] interceptors = client.interceptors();
+		if (interceptors.length > 0) {
+			return InterceptorChain.sendAsync(this, contentType, body, interceptors, executor);
+		}
+		HttpContext<T> ctx = new HttpContext<>(this, contentType, body);
+		return ctx.sendAsync(executor);
+	}
+
+	private String formContentType() {
+		String contentType = headers != null ? headers.get(HeaderNames.CONTENT_TYPE) : null;
+		if (contentType == null || !isMultipart(contentType)) {
+			contentType = FORM_URLENCODED;
+		}
+		return contentType;
+	}
+
+	/**
+	 * @return is the content type {@code multipart/form-data}, in any case?
+	 */
+	static boolean isMultipart(String contentType) {
+		return contentType.regionMatches(true, 0, MULTIPART_FORM_DATA, 0, MULTIPART_FORM_DATA.length());
+	}
+
+	private Map<String, String> headers() {
+		if (headers == null) {
+			headers = new CaseInsensitiveHeaders();
+		}
+		return headers;
+	}
+
+	private Map<String, String> queryParams() {
+		if (queryParams == null) {
+			queryParams = new LinkedHashMap<>();
+		}
+		return queryParams;
+	}
+
+	private Map<String, String> pathParams() {
+		if (pathParams == null) {
+			pathParams = new LinkedHashMap<>();
+		}
+		return pathParams;
+	}
+
+	JCurlClientImpl client() {
+		return client;
+	}
+
+	HttpMethod getMethod() {
+		return method;
+	}
+
+	int getPort() {
+		return port;
+	}
+
+	String getHost() {
+		return host;
+	}
+
+	String getURI() {
+		return uri;
+	}
+
+	boolean isSsl() {
+		return ssl;
+	}
+
+	long getTimeout() {
+		return timeout;
+	}
+
+	boolean isChunked() {
+		return chunked;
+	}
+
+	boolean isGzip() {
+		return gzip;
+	}
+
+	BodyCodec<T> getCodec() {
+		return codec;
+	}
+
+	Map<String, String> getHeaders() {
+		return headers;
+	}
+
+	Map<String, String> getQueryParams() {
+		return queryParams;
 	}
 
-	private void send(String contentType, Object body) {
-//		HttpContext ex = new HttpContext(this, contentType, body);
-//		ex.interceptAndSend();
-		
-		// TODO Auto-generated method stub
+	Map<String, String> getPathParams() {
+		return pathParams;
 	}
 
 }
@@ -1,5 +1,63 @@
 package com.github.jcurl.core.impl;
 
-public class HttpResponseImpl {
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+
+import com.github.jcurl.core.HttpResponse;
+import com.github.jcurl.core.http.HttpVersion;
+import com.github.jcurl.core.net.ResponseHead;
+
+public class HttpResponseImpl<T> implements HttpResponse<T> {
+
+	private final ResponseHead head;
+	private final ByteBuffer buffer;
+	private final T body;
+
+	public HttpResponseImpl(ResponseHead head, ByteBuffer buffer, T body) {
+		this.head = head;
+		this.buffer = buffer;
+		this.body = body;
+	}
+
+	@Override
+	public HttpVersion version() {
+		return head.version();
+	}
+
+	@Override
+	public int statusCode() {
+		return head.statusCode();
+	}
+
+	@Override
+	public String statusMessage() {
+		return head.statusMessage();
+	}
+
+	@Override
+	public Map<String, String> headers() {
+		return head.headers();
+	}
+
+	@Override
+	public String getHeader(String headerName) {
+		return head.header(headerName);
+	}
+
+	@Override
+	public List<String> cookies() {
+		return head.cookies();
+	}
+
+	@Override
+	public T body() {
+		return body;
+	}
+
+	@Override
+	public ByteBuffer bodyAsBuffer() {
+		return buffer != null ? buffer.duplicate() : null;
+	}
 
 }
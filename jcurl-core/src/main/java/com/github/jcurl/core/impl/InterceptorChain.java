@@ -0,0 +1,187 @@
+package com.github.jcurl.core.impl;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+
+import com.github.jcurl.core.HttpInterceptor;
+import com.github.jcurl.core.HttpResponse;
+import com.github.jcurl.core.JCurlException;
+import com.github.jcurl.core.codec.BodyCodec;
+import com.github.jcurl.core.codec.impl.FileBodyCodec;
+import com.github.jcurl.core.codec.impl.StreamBodyCodec;
+import com.github.jcurl.core.http.CaseInsensitiveHeaders;
+import com.github.jcurl.core.http.HeaderNames;
+import com.github.jcurl.core.http.HttpMethod;
+import com.github.jcurl.core.http.HttpVersion;
+import com.github.jcurl.core.net.ResponseHead;
+
+/**
+ * The position of a request in the interceptors of its client, the last
+ * position sends the request.
+ */
+final class InterceptorChain<T> implements HttpInterceptor.Chain {
+
+	private final HttpRequestImpl<T> request;
+	// a copy per send, shared by the positions of the chain
+	private final CaseInsensitiveHeaders headers;
+	private final String contentType;
+	private final Object body;
+	private final HttpInterceptor[] interceptors;
+	private final int index;
+	// the sending thread waits for the response
+	private final boolean blocking;
+	private final Executor executor;
+
+	private InterceptorChain(HttpRequestImpl<T> request, CaseInsensitiveHeaders headers, String contentType,
+			Object body, HttpInterceptor[] interceptors, int index, boolean blocking, Executor executor) {
+		this.request = request;
+		this.headers = headers;
+		this.contentType = contentType;
+		this.body = body;
+		this.interceptors = interceptors;
+		this.index = index;
+		this.blocking = blocking;
+		this.executor = executor;
+	}
+
+	/**
+	 * Send the request through the interceptors and wait for the response.
+	 */
+	@SuppressWarnings("unchecked")
+	static <T> HttpResponse<T> send(HttpRequestImpl<T> request, String contentType, Object body,
+			HttpInterceptor[] interceptors) {
+		CompletableFuture<HttpResponse<?>> future = new InterceptorChain<>(request, copyHeaders(request), contentType,
+				body, interceptors, 0, true, null).proceed();
+		try {
+			return (HttpResponse<T>) future.get();
+		} catch (InterruptedException e) {
+			future.cancel(false);
+			Thread.currentThread().interrupt();
+			throw new JCurlException("Interrupted while waiting for the response", e);
+		} catch (ExecutionException e) {
+			throw failure(request, e.getCause());
+		}
+	}
+
+	/**
+	 * Send the request through the interceptors without waiting for the
+	 * response.
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	static <T> CompletableFuture<HttpResponse<T>> sendAsync(HttpRequestImpl<T> request, String contentType,
+			Object body, HttpInterceptor[] interceptors, Executor executor) {
+		return (CompletableFuture) new InterceptorChain<>(request, copyHeaders(request), contentType, body, interceptors,
+				0, false, executor).proceed();
+	}
+
+	@Override
+	public HttpMethod method() {
+		return request.getMethod();
+	}
+
+	@Override
+	public boolean isSsl() {
+		return request.isSsl();
+	}
+
+	@Override
+	public String host() {
+		return request.getHost();
+	}
+
+	@Override
+	public int port() {
+		return request.getPort();
+	}
+
+	@Override
+	public String uri() {
+		return HttpContext.requestTarget(request);
+	}
+
+	@Override
+	public long timeout() {
+		return request.getTimeout();
+	}
+
+	@Override
+	public Executor executor() {
+		return executor != null ? executor : request.client().blockingExecutor();
+	}
+
+	@Override
+	public Map<String, String> headers() {
+		return headers;
+	}
+
+	@Override
+	public Object body() {
+		return body;
+	}
+
+	@Override
+	public BodyCodec<?> codec() {
+		return request.getCodec();
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	@Override
+	public CompletableFuture<HttpResponse<?>> proceed() {
+		if (index == interceptors.length) {
+			HttpContext<T> ctx = new HttpContext<>(request, headers, contentType, body);
+			if (!blocking) {
+				return (CompletableFuture) ctx.sendAsync(executor);
+			}
+			try {
+				return CompletableFuture.completedFuture(ctx.send());
+			} catch (RuntimeException e) {
+				return failed(e);
+			}
+		}
+		CompletableFuture<HttpResponse<?>> future;
+		try {
+			future = interceptors[index].intercept(
+					new InterceptorChain<>(request, headers, contentType, body, interceptors, index + 1, blocking,
+							executor));
+		} catch (RuntimeException e) {
+			return failed(failure(request, e));
+		}
+		return future != null ? future : failed(new JCurlException("The interceptor returned no response"));
+	}
+
+	@Override
+	public HttpResponse<?> respond(HttpVersion version, int statusCode, String statusMessage,
+			Map<String, String> headers, ByteBuffer body) {
+		if (request.getCodec() instanceof StreamBodyCodec || request.getCodec() instanceof FileBodyCodec) {
+			throw new IllegalStateException("The codec of the request does not buffer the body");
+		}
+		CaseInsensitiveHeaders copy = headers != null ? new CaseInsensitiveHeaders(headers) : new CaseInsensitiveHeaders();
+		List<String> cookies = new ArrayList<>(copy.getAll(HeaderNames.SET_COOKIE));
+		ResponseHead head = new ResponseHead(version, statusCode, statusMessage, copy, cookies);
+		return new HttpResponseImpl<>(head, body, HttpContext.decode(request, body != null ? body.duplicate() : null));
+	}
+
+	private static CaseInsensitiveHeaders copyHeaders(HttpRequestImpl<?> request) {
+		Map<String, String> headers = request.getHeaders();
+		return headers != null ? new CaseInsensitiveHeaders(headers) : new CaseInsensitiveHeaders();
+	}
+
+	private static JCurlException failure(HttpRequestImpl<?> request, Throwable cause) {
+		if (cause instanceof JCurlException) {
+			return (JCurlException) cause;
+		}
+		return new JCurlException("Failed to send " + request.getMethod() + " " + request.getURI() + ": " + cause, cause);
+	}
+
+	private static CompletableFuture<HttpResponse<?>> failed(Throwable cause) {
+		CompletableFuture<HttpResponse<?>> future = new CompletableFuture<>();
+		future.completeExceptionally(cause);
+		return future;
+	}
+
+}
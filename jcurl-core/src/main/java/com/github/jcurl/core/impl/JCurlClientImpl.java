@@ -1,194 +1,286 @@
 package com.github.jcurl.core.impl;
 
+import java.net.URI;
 import java.nio.ByteBuffer;
-
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.github.jcurl.core.HttpInterceptor;
 import com.github.jcurl.core.HttpRequest;
 import com.github.jcurl.core.JCurlClient;
+import com.github.jcurl.core.buffer.BufferPool;
+import com.github.jcurl.core.codec.BodyCodec;
+import com.github.jcurl.core.dns.DnsCache;
+import com.github.jcurl.core.dns.HostResolver;
+import com.github.jcurl.core.dns.SystemHostResolver;
+import com.github.jcurl.core.encoding.ContentDecoders;
 import com.github.jcurl.core.http.HttpMethod;
+import com.github.jcurl.core.http.JCurlClientOptions;
 import com.github.jcurl.core.http.RequestOptions;
+import com.github.jcurl.core.net.ConnectionFactory;
+import com.github.jcurl.core.net.ConnectionPool;
+import com.github.jcurl.core.net.EventLoopGroup;
 
 public class JCurlClientImpl implements JCurlClient {
 
+	private final JCurlClientOptions options;
+	private final EventLoopGroup eventLoopGroup;
+	private final BufferPool bufferPool;
+	private final ConnectionFactory connectionFactory;
+	private final ConnectionPool connectionPool;
+	// the host name lookups and the blocking work of the interceptors
+	private final ExecutorService blockingExecutor;
+	private final ExecutorService executor;
+	private final ContentDecoders contentDecoders;
+	private final HttpInterceptor[] interceptors;
+	private final AtomicBoolean closed = new AtomicBoolean();
+
+	public JCurlClientImpl() {
+		this(new JCurlClientOptions());
+	}
+
+	public JCurlClientImpl(JCurlClientOptions options) {
+		this.options = new JCurlClientOptions(options);
+		this.eventLoopGroup = new EventLoopGroup(this.options.getEventLoopSize());
+		this.bufferPool = new BufferPool(this.options.isDirectBuffers(), this.options.getBufferPoolSize());
+		this.connectionFactory = new ConnectionFactory(this.options, bufferPool);
+		this.blockingExecutor = Workers.create("blocking");
+		HostResolver resolver = this.options.getHostResolver() != null ? this.options.getHostResolver()
+				: new SystemHostResolver(this.options.getDnsCacheTtl());
+		DnsCache dnsCache = new DnsCache(resolver, blockingExecutor, this.options.getDnsNegativeTtl(),
+				this.options.getDnsStaleTtl());
+		this.connectionPool = new ConnectionPool(this.options, eventLoopGroup, connectionFactory, dnsCache);
+		this.executor = this.options.isVirtualThreads() ? Workers.virtual("worker") : null;
+		this.contentDecoders = this.options.isDecompression() ? new ContentDecoders() : null;
+		List<HttpInterceptor> interceptors = new ArrayList<>(this.options.getInterceptors());
+		if (this.options.isCoalescing()) {
+			interceptors.add(new RequestCoalescer(eventLoopGroup));
+		}
+		this.interceptors = interceptors.toArray(new HttpInterceptor[0]);
+	}
+
 	@Override
 	public HttpRequest<ByteBuffer> request(HttpMethod method, int port, String host, String requestURI) {
-		// TODO Auto-generated method stub
-		return null;
+		return new HttpRequestImpl<>(this, method, options.isSsl(), port, host, requestURI, BodyCodec.buffer());
 	}
 
 	@Override
 	public HttpRequest<ByteBuffer> request(HttpMethod method, String host, String requestURI) {
-		// TODO Auto-generated method stub
-		return null;
+		return request(method, options.getDefaultPort(), host, requestURI);
 	}
 
 	@Override
 	public HttpRequest<ByteBuffer> request(HttpMethod method, String requestURI) {
-		// TODO Auto-generated method stub
-		return null;
+		return request(method, options.getDefaultPort(), options.getDefaultHost(), requestURI);
 	}
 
 	@Override
 	public HttpRequest<ByteBuffer> request(HttpMethod method, RequestOptions options) {
-		// TODO Auto-generated method stub
-		return null;
+		return new HttpRequestImpl<>(this, method, options.isSsl(), options.getPort(), options.getHost(), options.getURI(),
+				BodyCodec.buffer());
 	}
 
 	@Override
 	public HttpRequest<ByteBuffer> requestAbs(HttpMethod method, String absoluteURI) {
-		// TODO Auto-generated method stub
-		return null;
+		URI uri = URI.create(absoluteURI);
+		String scheme = uri.getScheme() != null ? uri.getScheme().toLowerCase(Locale.ROOT) : null;
+		boolean ssl;
+		if ("http".equals(scheme)) {
+			ssl = false;
+		} else if ("https".equals(scheme)) {
+			ssl = true;
+		} else {
+			throw new IllegalArgumentException("Unsupported scheme: " + absoluteURI);
+		}
+		if (uri.getHost() == null) {
+			throw new IllegalArgumentException("Missing host: " + absoluteURI);
+		}
+		int port = uri.getPort() != -1 ? uri.getPort() : ssl ? 443 : 80;
+		String requestURI = uri.getRawPath() == null || uri.getRawPath().isEmpty() ? "/" : uri.getRawPath();
+		if (uri.getRawQuery() != null) {
+			requestURI += "?" + uri.getRawQuery();
+		}
+		return new HttpRequestImpl<>(this, method, ssl, port, uri.getHost(), requestURI, BodyCodec.buffer());
 	}
 
 	@Override
 	public HttpRequest<ByteBuffer> get(String requestURI) {
-		// TODO Auto-generated method stub
-		return null;
+		return request(HttpMethod.GET, requestURI);
 	}
 
 	@Override
 	public HttpRequest<ByteBuffer> get(int port, String host, String requestURI) {
-		// TODO Auto-generated method stub
-		return null;
+		return request(HttpMethod.GET, port, host, requestURI);
 	}
 
 	@Override
 	public HttpRequest<ByteBuffer> get(String host, String requestURI) {
-		// TODO Auto-generated method stub
-		return null;
+		return request(HttpMethod.GET, host, requestURI);
 	}
 
 	@Override
 	public HttpRequest<ByteBuffer> getAbs(String absoluteURI) {
-		// TODO Auto-generated method stub
-		return null;
+		return requestAbs(HttpMethod.GET, absoluteURI);
 	}
 
 	@Override
 	public HttpRequest<ByteBuffer> post(String requestURI) {
-		// TODO Auto-generated method stub
-		return null;
+		return request(HttpMethod.POST, requestURI);
 	}
 
 	@Override
 	public HttpRequest<ByteBuffer> post(int port, String host, String requestURI) {
-		// TODO Auto-generated method stub
-		return null;
+		return request(HttpMethod.POST, port, host, requestURI);
 	}
 
 	@Override
 	public HttpRequest<ByteBuffer> post(String host, String requestURI) {
-		// TODO Auto-generated method stub
-		return null;
+		return request(HttpMethod.POST, host, requestURI);
 	}
 
 	@Override
 	public HttpRequest<ByteBuffer> postAbs(String absoluteURI) {
-		// TODO Auto-generated method stub
-		return null;
+		return requestAbs(HttpMethod.POST, absoluteURI);
 	}
 
 	@Override
 	public HttpRequest<ByteBuffer> put(String requestURI) {
-		// TODO Auto-generated method stub
-		return null;
+		return request(HttpMethod.PUT, requestURI);
 	}
 
 	@Override
 	public HttpRequest<ByteBuffer> put(int port, String host, String requestURI) {
-		// TODO Auto-generated method stub
-		return null;
+		return request(HttpMethod.PUT, port, host, requestURI);
 	}
 
 	@Override
 	public HttpRequest<ByteBuffer> put(String host, String requestURI) {
-		// TODO Auto-generated method stub
-		return null;
+		return request(HttpMethod.PUT, host, requestURI);
 	}
 
 	@Override
 	public HttpRequest<ByteBuffer> putAbs(String absoluteURI) {
-		// TODO Auto-generated method stub
-		return null;
+		return requestAbs(HttpMethod.PUT, absoluteURI);
 	}
 
 	@Override
 	public HttpRequest<ByteBuffer> delete(String requestURI) {
-		// TODO Auto-generated method stub
-		return null;
+		return request(HttpMethod.DELETE, requestURI);
 	}
 
 	@Override
 	public HttpRequest<ByteBuffer> delete(int port, String host, String requestURI) {
-		// TODO Auto-generated method stub
-		return null;
+		return request(HttpMethod.DELETE, port, host, requestURI);
 	}
 
 	@Override
 	public HttpRequest<ByteBuffer> delete(String host, String requestURI) {
-		// TODO Auto-generated method stub
-		return null;
+		return request(HttpMethod.DELETE, host, requestURI);
 	}
 
 	@Override
 	public HttpRequest<ByteBuffer> deleteAbs(String absoluteURI) {
-		// TODO Auto-generated method stub
-		return null;
+		return requestAbs(HttpMethod.DELETE, absoluteURI);
 	}
 
 	@Override
 	public HttpRequest<ByteBuffer> patch(String requestURI) {
-		// TODO Auto-generated method stub
-		return null;
+		return request(HttpMethod.PATCH, requestURI);
 	}
 
 	@Override
 	public HttpRequest<ByteBuffer> patch(int port, String host, String requestURI) {
-		// TODO Auto-generated method stub
-		return null;
+		return request(HttpMethod.PATCH, port, host, requestURI);
 	}
 
 	@Override
 	public HttpRequest<ByteBuffer> patch(String host, String requestURI) {
-		// TODO Auto-generated method stub
-		return null;
+		return request(HttpMethod.PATCH, host, requestURI);
 	}
 
 	@Override
 	public HttpRequest<ByteBuffer> patchAbs(String absoluteURI) {
-		// TODO Auto-generated method stub
-		return null;
+		return requestAbs(HttpMethod.PATCH, absoluteURI);
 	}
 
 	@Override
 	public HttpRequest<ByteBuffer> head(String requestURI) {
-		// TODO Auto-generated method stub
-		return null;
+		return request(HttpMethod.HEAD, requestURI);
 	}
 
 	@Override
 	public HttpRequest<ByteBuffer> head(int port, String host, String requestURI) {
-		// TODO Auto-generated method stub
-		return null;
+		return request(HttpMethod.HEAD, port, host, requestURI);
 	}
 
 	@Override
 	public HttpRequest<ByteBuffer> head(String host, String requestURI) {
-		// TODO Auto-generated method stub
-		return null;
+		return request(HttpMethod.HEAD, host, requestURI);
 	}
 
 	@Override
 	public HttpRequest<ByteBuffer> headAbs(String absoluteURI) {
-		// TODO Auto-generated method stub
-		return null;
+		return requestAbs(HttpMethod.HEAD, absoluteURI);
+	}
+
+	@Override
+	public ExecutorService executor() {
+		return executor;
 	}
 
 	@Override
 	public void close() {
-		// TODO Auto-generated method stub
-		
+		if (closed.compareAndSet(false, true)) {
+			connectionPool.close();
+			eventLoopGroup.shutdown();
+			blockingExecutor.shutdown();
+			if (executor != null) {
+				executor.shutdown();
+			}
+		}
+	}
+
+	/**
+	 * @return the executor of the blocking work that must not run on the event
+	 *         loops
+	 */
+	Executor blockingExecutor() {
+		return executor != null ? executor : blockingExecutor;
 	}
 
+	JCurlClientOptions options() {
+		return options;
+	}
+
+	EventLoopGroup eventLoopGroup() {
+		return eventLoopGroup;
+	}
+
+	ConnectionPool connectionPool() {
+		return connectionPool;
+	}
 
+	BufferPool bufferPool() {
+		return bufferPool;
+	}
+
+	/**
+	 * @return the accepted content codings, or {@code null} when the responses
+	 *         are not decompressed
+	 */
+	ContentDecoders contentDecoders() {
+		return contentDecoders;
+	}
+
+	/**
+	 * @return the interceptors of the requests, empty when there are none
+	 */
+	HttpInterceptor[] interceptors() {
+		return interceptors;
+	}
 
 }
@@ -0,0 +1,155 @@
+package com.github.jcurl.core.impl;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import com.github.jcurl.core.HttpInterceptor;
+import com.github.jcurl.core.HttpResponse;
+import com.github.jcurl.core.JCurlException;
+import com.github.jcurl.core.codec.BodyCodec;
+import com.github.jcurl.core.codec.impl.FileBodyCodec;
+import com.github.jcurl.core.codec.impl.StreamBodyCodec;
+import com.github.jcurl.core.http.HttpMethod;
+import com.github.jcurl.core.net.EventLoopGroup;
+import com.github.jcurl.core.net.Timeout;
+
+/**
+ * Sends an identical {@code GET} request once while it is in flight, the
+ * requests arriving meanwhile complete with a copy of its response decoded by
+ * their own codec, or with its failure.
+ * <p>
+ * A waiting request keeps its own timeout. When the request in flight fails on
+ * its own, because it was cancelled, interrupted or timed out, the waiting
+ * requests are coalesced again and sent.
+ */
+final class RequestCoalescer implements HttpInterceptor {
+
+	private final ConcurrentHashMap<String, CompletableFuture<HttpResponse<?>>> inFlight = new ConcurrentHashMap<>();
+	private final EventLoopGroup eventLoopGroup;
+
+	/**
+	 * @param eventLoopGroup the loops running the timeouts of the waiting
+	 *                       requests
+	 */
+	RequestCoalescer(EventLoopGroup eventLoopGroup) {
+		this.eventLoopGroup = eventLoopGroup;
+	}
+
+	@Override
+	public CompletableFuture<HttpResponse<?>> intercept(Chain chain) {
+		if (chain.method() != HttpMethod.GET || chain.body() != null || !isBuffered(chain.codec())) {
+			return chain.proceed();
+		}
+		String key = key(chain);
+		CompletableFuture<HttpResponse<?>> shared = new CompletableFuture<>();
+		CompletableFuture<HttpResponse<?>> leader = inFlight.putIfAbsent(key, shared);
+		if (leader != null) {
+			return follow(chain, leader);
+		}
+		CompletableFuture<HttpResponse<?>> future = chain.proceed();
+		future.whenComplete((response, err) -> {
+			// the requests arriving from now on are sent
+			inFlight.remove(key, shared);
+			if (err != null) {
+				shared.completeExceptionally(err);
+			} else {
+				shared.complete(response);
+			}
+		});
+		return future;
+	}
+
+	private CompletableFuture<HttpResponse<?>> follow(Chain chain, CompletableFuture<HttpResponse<?>> leader) {
+		CompletableFuture<HttpResponse<?>> result = new CompletableFuture<>();
+		long timeout = chain.timeout();
+		if (timeout > 0) {
+			try {
+				Timeout timer = eventLoopGroup.next().schedule(() -> result.completeExceptionally(new JCurlException(
+						"The timeout period of " + timeout + "ms has been exceeded", new TimeoutException())), timeout,
+						TimeUnit.MILLISECONDS);
+				result.whenComplete((response, err) -> timer.cancel());
+			} catch (RejectedExecutionException e) {
+				result.completeExceptionally(new JCurlException("Client is closed", e));
+				return result;
+			}
+		}
+		leader.whenComplete((response, err) -> {
+			if (result.isDone()) {
+				return;
+			}
+			if (err != null && isOwnFailure(err)) {
+				// this one is still wanted
+				CompletableFuture<HttpResponse<?>> own = intercept(chain);
+				own.whenComplete((ownResponse, ownErr) -> {
+					if (ownErr != null) {
+						result.completeExceptionally(ownErr);
+					} else {
+						result.complete(ownResponse);
+					}
+				});
+				result.whenComplete((ownResponse, ownErr) -> {
+					if (ownErr != null) {
+						own.cancel(false);
+					}
+				});
+			} else if (err != null) {
+				result.completeExceptionally(unwrap(err));
+			} else {
+				try {
+					result.complete(chain.respond(response.version(), response.statusCode(),
+							response.statusMessage(), response.headers(), response.bodyAsBuffer()));
+				} catch (RuntimeException e) {
+					result.completeExceptionally(e);
+				}
+			}
+		});
+		return result;
+	}
+
+	/**
+	 * @return did the request in flight fail because of its caller rather than
+	 *         because of the server?
+	 */
+	private static boolean isOwnFailure(Throwable err) {
+		for (Throwable cause = err; cause != null; cause = cause.getCause()) {
+			if (cause instanceof CancellationException || cause instanceof TimeoutException
+					|| cause instanceof InterruptedException) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static Throwable unwrap(Throwable err) {
+		return err instanceof CompletionException && err.getCause() != null ? err.getCause() : err;
+	}
+
+	private static boolean isBuffered(BodyCodec<?> codec) {
+		return !(codec instanceof StreamBodyCodec) && !(codec instanceof FileBodyCodec) && codec != BodyCodec.none();
+	}
+
+	private static String key(Chain chain) {
+		StringBuilder key = new StringBuilder(128);
+		key.append(chain.isSsl() ? "https://" : "http://").append(chain.host().toLowerCase(Locale.ROOT)).append(':')
+				.append(chain.port()).append(chain.uri());
+		// the same headers in any order, the values of a repeated header keep
+		// their order
+		List<String> headers = new ArrayList<>(chain.headers().size());
+		chain.headers().forEach((name, value) -> headers.add(name.toLowerCase(Locale.ROOT) + ':' + value));
+		headers.sort(Comparator.comparing(header -> header.substring(0, header.indexOf(':'))));
+		for (String header : headers) {
+			key.append('\n').append(header);
+		}
+		return key.toString();
+	}
+
+}
@@ -0,0 +1,121 @@
+package com.github.jcurl.core.impl;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates the worker and blocking executors of the clients with a virtual
+ * thread per task when the runtime supports them. Without virtual threads there
+ * is no worker executor, and the blocking executor is a bounded pool of daemon
+ * platform threads. The virtual threads are looked up reflectively, the library
+ * is built for Java 8.
+ */
+final class Workers {
+
+	/**
+	 * The maximum number of platform threads of an executor.
+	 */
+	private static final int MAX_PLATFORM_THREADS = 64;
+
+	private static final AtomicInteger POOL_INDEX = new AtomicInteger();
+	private static final Method OF_VIRTUAL;
+	private static final Method BUILDER_NAME;
+	private static final Method BUILDER_FACTORY;
+	private static final Method NEW_THREAD_PER_TASK_EXECUTOR;
+	private static final Method IS_VIRTUAL;
+
+	static {
+		Method ofVirtual = null;
+		Method builderName = null;
+		Method builderFactory = null;
+		Method newThreadPerTaskExecutor = null;
+		Method isVirtual = null;
+		try {
+			// the methods of the public interfaces, the builders are not public
+			Class<?> builder = Class.forName("java.lang.Thread$Builder");
+			ofVirtual = Thread.class.getMethod("ofVirtual");
+			builderName = builder.getMethod("name", String.class, long.class);
+			builderFactory = builder.getMethod("factory");
+			newThreadPerTaskExecutor = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+			isVirtual = Thread.class.getMethod("isVirtual");
+		} catch (ClassNotFoundException | NoSuchMethodException e) {
+			ofVirtual = null;
+			isVirtual = null;
+		}
+		OF_VIRTUAL = ofVirtual;
+		BUILDER_NAME = builderName;
+		BUILDER_FACTORY = builderFactory;
+		NEW_THREAD_PER_TASK_EXECUTOR = newThreadPerTaskExecutor;
+		IS_VIRTUAL = isVirtual;
+	}
+
+	private Workers() {
+	}
+
+	/**
+	 * @param thread the thread
+	 * @return is the thread a virtual thread?
+	 */
+	static boolean isVirtual(Thread thread) {
+		if (IS_VIRTUAL == null) {
+			return false;
+		}
+		try {
+			return (Boolean) IS_VIRTUAL.invoke(thread);
+		} catch (IllegalAccessException | InvocationTargetException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * @param name the name of the threads, following {@code jcurl-}
+	 * @return a new executor with a virtual thread per task, or {@code null}
+	 *         when the runtime has no virtual threads
+	 */
+	static ExecutorService virtual(String name) {
+		if (OF_VIRTUAL == null) {
+			return null;
+		}
+		String prefix = "jcurl-" + name + "-" + POOL_INDEX.getAndIncrement() + "-";
+		try {
+			Object builder = BUILDER_NAME.invoke(OF_VIRTUAL.invoke(null), prefix, 0L);
+			ThreadFactory factory = (ThreadFactory) BUILDER_FACTORY.invoke(builder);
+			return (ExecutorService) NEW_THREAD_PER_TASK_EXECUTOR.invoke(null, factory);
+		} catch (IllegalAccessException | InvocationTargetException e) {
+			// a preview runtime with the preview features disabled
+			return null;
+		}
+	}
+
+	/**
+	 * @param name the name of the threads, following {@code jcurl-}
+	 * @return a new executor with a virtual thread per task, or with at most
+	 *         {@value #MAX_PLATFORM_THREADS} platform threads when the runtime
+	 *         has no virtual threads
+	 */
+	static ExecutorService create(String name) {
+		ExecutorService executor = virtual(name);
+		if (executor != null) {
+			return executor;
+		}
+		String prefix = "jcurl-" + name + "-" + POOL_INDEX.getAndIncrement() + "-";
+		AtomicInteger index = new AtomicInteger();
+		// the tasks queue once every thread is busy, the idle threads terminate
+		ThreadPoolExecutor pool = new ThreadPoolExecutor(MAX_PLATFORM_THREADS, MAX_PLATFORM_THREADS, 60L,
+				TimeUnit.SECONDS, new LinkedBlockingQueue<>(), task -> {
+					Thread thread = new Thread(task, prefix + index.getAndIncrement());
+					thread.setDaemon(true);
+					return thread;
+				});
+		pool.allowCoreThreadTimeOut(true);
+		return pool;
+	}
+
+}
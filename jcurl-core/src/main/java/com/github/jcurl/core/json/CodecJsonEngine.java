@@ -0,0 +1,54 @@
+package com.github.jcurl.core.json;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * An engine mapping the types of its registered {@link JsonCodec}, such as the
+ * codecs generated at compile time for the DTOs, and the other types with a
+ * fallback engine. The codecs are looked up by the exact class of the values.
+ */
+public final class CodecJsonEngine implements JsonEngine {
+
+	private final JsonEngine fallback;
+	private final ConcurrentMap<Class<?>, JsonCodec<?>> codecs = new ConcurrentHashMap<>();
+
+	/**
+	 * @param fallback the engine of the types without a codec
+	 */
+	public CodecJsonEngine(JsonEngine fallback) {
+		this.fallback = fallback;
+	}
+
+	/**
+	 * @param type  the class mapped by the codec
+	 * @param codec the codec, replacing the one of the class
+	 * @return a reference to this, so the API can be used fluently
+	 */
+	public <T> CodecJsonEngine register(Class<T> type, JsonCodec<T> codec) {
+		codecs.put(type, codec);
+		return this;
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public <T> T decode(ByteBuffer buf, Class<T> type) throws DecodeException {
+		JsonCodec<T> codec = (JsonCodec<T>) codecs.get(type);
+		return codec != null ? codec.decode(buf) : fallback.decode(buf, type);
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public void encode(Object obj, OutputStream out) throws IOException, EncodeException {
+		JsonCodec<Object> codec = obj != null ? (JsonCodec<Object>) codecs.get(obj.getClass()) : null;
+		if (codec != null) {
+			codec.encode(obj, out);
+		} else {
+			fallback.encode(obj, out);
+		}
+	}
+
+}
@@ -0,0 +1,88 @@
+package com.github.jcurl.core.json;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+/**
+ * An engine mapping with a Jackson mapper, tuned by its modules and features,
+ * such as a module generating the accessors of the POJOs with bytecode.
+ * <p>
+ * The readers and writers are built once per type from the mapper, which must
+ * be configured before the first use of the engine.
+ */
+public final class JacksonJsonEngine implements JsonEngine {
+
+	private final ObjectMapper mapper;
+	private final ConcurrentMap<Type, ObjectReader> readers = new ConcurrentHashMap<>();
+	private final ConcurrentMap<Class<?>, ObjectWriter> writers = new ConcurrentHashMap<>();
+
+	/**
+	 * @param mapper the mapper
+	 */
+	public JacksonJsonEngine(ObjectMapper mapper) {
+		this.mapper = mapper;
+	}
+
+	public ObjectMapper mapper() {
+		return mapper;
+	}
+
+	/**
+	 * @param type the class to map to
+	 * @return the reader of the class, shared by the calls
+	 */
+	public ObjectReader reader(Class<?> type) {
+		return readers.computeIfAbsent(type, t -> mapper.readerFor(type));
+	}
+
+	/**
+	 * @param type the type to map to
+	 * @return the reader of the type, shared by the calls
+	 */
+	public ObjectReader reader(TypeReference<?> type) {
+		return readers.computeIfAbsent(type.getType(), t -> mapper.readerFor(type));
+	}
+
+	/**
+	 * @param type the class of the POJOs
+	 * @return the writer of the class, shared by the calls, which leaves the
+	 *         streams open
+	 */
+	public ObjectWriter writer(Class<?> type) {
+		return writers.computeIfAbsent(type, t -> mapper.writerFor(type).without(JsonGenerator.Feature.AUTO_CLOSE_TARGET));
+	}
+
+	/**
+	 * @param obj a POJO, or {@code null}
+	 * @return the writer of the class of the POJO
+	 */
+	public ObjectWriter writerOf(Object obj) {
+		return obj != null ? writer(obj.getClass()) : mapper.writer();
+	}
+
+	@Override
+	public <T> T decode(ByteBuffer buf, Class<T> type) throws DecodeException {
+		return Json.decodeValue(buf, reader(type));
+	}
+
+	@Override
+	public void encode(Object obj, OutputStream out) throws IOException, EncodeException {
+		try {
+			writerOf(obj).writeValue(out, obj);
+		} catch (JsonProcessingException e) {
+			throw new EncodeException("Failed to encode as JSON: " + e.getMessage(), e);
+		}
+	}
+
+}
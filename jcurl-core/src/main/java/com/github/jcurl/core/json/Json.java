@@ -1,7 +1,10 @@
 package com.github.jcurl.core.json;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.ByteBuffer;
 import java.util.Iterator;
+import java.util.ServiceLoader;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
@@ -9,10 +12,16 @@ import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
 import com.fasterxml.jackson.datatype.jdk8.Jdk8Module;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import com.fasterxml.jackson.datatype.jsr353.JSR353Module;
+import com.github.jcurl.core.buffer.BufferOutputStream;
+import com.github.jcurl.core.buffer.BufferPool;
+import com.github.jcurl.core.buffer.PooledBuffer;
 
 public class Json {
 
@@ -39,6 +48,56 @@ public class Json {
 		prettyMapper.registerModule(javaTimeModule);
 	}
 
+	// the readers and writers are built from the mapper, configure it before the first use
+	private static final JacksonJsonEngine JACKSON = new JacksonJsonEngine(mapper);
+
+	/**
+	 * @return the engine of the clients without one: the first one registered
+	 *         with the {@link ServiceLoader}, or the Jackson engine of the
+	 *         {@link #mapper}
+	 */
+	public static JsonEngine engine() {
+		return DefaultEngine.ENGINE;
+	}
+
+	private static final class DefaultEngine {
+
+		static final JsonEngine ENGINE = load();
+
+		private static JsonEngine load() {
+			for (JsonEngine engine : ServiceLoader.load(JsonEngine.class)) {
+				return engine;
+			}
+			return JACKSON;
+		}
+
+	}
+
+	/**
+	 * @param type the class to map to
+	 * @return the reader of the class, shared by the calls
+	 */
+	public static ObjectReader reader(Class<?> type) {
+		return JACKSON.reader(type);
+	}
+
+	/**
+	 * @param type the type to map to
+	 * @return the reader of the type, shared by the calls
+	 */
+	public static ObjectReader reader(TypeReference<?> type) {
+		return JACKSON.reader(type);
+	}
+
+	/**
+	 * @param type the class of the POJOs
+	 * @return the writer of the class, shared by the calls, which leaves the
+	 *         streams open
+	 */
+	public static ObjectWriter writer(Class<?> type) {
+		return JACKSON.writer(type);
+	}
+
 	/**
 	 * Encode a POJO to JSON using the underlying Jackson mapper.
 	 *
@@ -49,7 +108,7 @@ public class Json {
 	 */
 	public static String encode(Object obj) throws EncodeException {
 		try {
-			return mapper.writeValueAsString(obj);
+			return JACKSON.writerOf(obj).writeValueAsString(obj);
 		} catch (Exception e) {
 			throw new EncodeException("Failed to encode as JSON: " + e.getMessage());
 		}
@@ -64,12 +123,63 @@ public class Json {
 	 */
 	public static ByteBuffer encodeToBuffer(Object obj) throws EncodeException {
 		try {
-			return ByteBuffer.wrap(mapper.writeValueAsBytes(obj));
+			return ByteBuffer.wrap(JACKSON.writerOf(obj).writeValueAsBytes(obj));
 		} catch (Exception e) {
 			throw new EncodeException("Failed to encode as JSON: " + e.getMessage());
 		}
 	}
 
+	/**
+	 * Encode a POJO to JSON in a buffer taken from the {@code pool}.
+	 *
+	 * @param obj  a POJO
+	 * @param pool the pool of the buffer
+	 * @return a buffer containing the JSON representation of the given POJO, to
+	 *         be released once written
+	 * @throws EncodeException if a property cannot be encoded.
+	 */
+	public static PooledBuffer encodeToBuffer(Object obj, BufferPool pool) throws EncodeException {
+		return encodeToBuffer(obj, pool, JACKSON);
+	}
+
+	/**
+	 * Encode a POJO to JSON with the {@code engine}, in a buffer taken from the
+	 * {@code pool}.
+	 *
+	 * @param obj    a POJO
+	 * @param pool   the pool of the buffer
+	 * @param engine the engine
+	 * @return a buffer containing the JSON representation of the given POJO, to
+	 *         be released once written
+	 * @throws EncodeException if a property cannot be encoded.
+	 */
+	public static PooledBuffer encodeToBuffer(Object obj, BufferPool pool, JsonEngine engine) throws EncodeException {
+		BufferOutputStream out = new BufferOutputStream(pool, 1024);
+		try {
+			engine.encode(obj, out);
+			return out.toBuffer();
+		} catch (EncodeException e) {
+			out.release();
+			throw e;
+		} catch (Exception e) {
+			out.release();
+			throw new EncodeException("Failed to encode as JSON: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Encode a POJO to JSON in the {@code out} stream, as it is serialized. The
+	 * stream is left open.
+	 *
+	 * @param obj a POJO
+	 * @param out the stream
+	 * @throws IOException     when the stream fails
+	 * @throws EncodeException if a property cannot be encoded.
+	 */
+	public static void encode(Object obj, OutputStream out) throws IOException, EncodeException {
+		JACKSON.encode(obj, out);
+	}
+
 	/**
 	 * Encode a POJO to JSON with pretty indentation, using the underlying Jackson
 	 * mapper.
@@ -97,7 +207,7 @@ public class Json {
 	 */
 	public static <T> T decodeValue(String str, Class<T> clazz) throws DecodeException {
 		try {
-			return mapper.readValue(str, clazz);
+			return reader(clazz).readValue(str);
 		} catch (Exception e) {
 			throw new DecodeException("Failed to decode: " + e.getMessage());
 		}
@@ -114,7 +224,7 @@ public class Json {
 	 */
 	public static <T> T decodeValue(String str, TypeReference<T> type) throws DecodeException {
 		try {
-			return mapper.readValue(str, type);
+			return reader(type).readValue(str);
 		} catch (Exception e) {
 			throw new DecodeException("Failed to decode: " + e.getMessage(), e);
 		}
@@ -130,11 +240,7 @@ public class Json {
 	 * @throws DecodeException when there is a parsing or invalid mapping.
 	 */
 	public static <T> T decodeValue(ByteBuffer buf, TypeReference<T> type) throws DecodeException {
-		try {
-			return mapper.readValue(buf.array(), type);
-		} catch (Exception e) {
-			throw new DecodeException("Failed to decode:" + e.getMessage(), e);
-		}
+		return decodeValue(buf, reader(type));
 	}
 
 	/**
@@ -147,8 +253,25 @@ public class Json {
 	 * @throws DecodeException when there is a parsing or invalid mapping.
 	 */
 	public static <T> T decodeValue(ByteBuffer buf, Class<T> clazz) throws DecodeException {
+		return decodeValue(buf, reader(clazz));
+	}
+
+	/**
+	 * Decode the remaining bytes of a JSON buffer, heap or direct, with the
+	 * {@code reader}. The position of the buffer is left unchanged.
+	 * 
+	 * @param buf    the JSON buffer.
+	 * @param reader the reader of the type to map to.
+	 * @param        <T> the generic type.
+	 * @return an instance of T
+	 * @throws DecodeException when there is a parsing or invalid mapping.
+	 */
+	public static <T> T decodeValue(ByteBuffer buf, ObjectReader reader) throws DecodeException {
 		try {
-			return mapper.readValue(buf.array(), clazz);
+			if (buf.hasArray()) {
+				return reader.readValue(buf.array(), buf.arrayOffset() + buf.position(), buf.remaining());
+			}
+			return reader.readValue(new ByteBufferBackedInputStream(buf.duplicate()));
 		} catch (Exception e) {
 			throw new DecodeException("Failed to decode:" + e.getMessage(), e);
 		}
@@ -0,0 +1,31 @@
+package com.github.jcurl.core.json;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Maps one type to and from JSON without reflection, such as a codec generated
+ * at compile time for a DTO, registered with
+ * {@link CodecJsonEngine#register(Class, JsonCodec)}.
+ *
+ * @param <T> the mapped type
+ */
+public interface JsonCodec<T> {
+
+	/**
+	 * @param buf the JSON bytes, from the position to the limit, heap or direct
+	 * @return an instance of T
+	 * @throws DecodeException when there is a parsing or invalid mapping.
+	 */
+	T decode(ByteBuffer buf) throws DecodeException;
+
+	/**
+	 * @param value the value, not {@code null}
+	 * @param out   the stream, left open
+	 * @throws IOException     when the stream fails
+	 * @throws EncodeException if a property cannot be encoded.
+	 */
+	void encode(T value, OutputStream out) throws IOException, EncodeException;
+
+}
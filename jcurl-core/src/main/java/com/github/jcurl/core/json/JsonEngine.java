@@ -0,0 +1,39 @@
+package com.github.jcurl.core.json;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Maps the JSON request and response bodies of a client to and from Java
+ * objects, set with
+ * {@link com.github.jcurl.core.http.JCurlClientOptions#setJsonEngine(JsonEngine)}.
+ * <p>
+ * The clients without an engine use {@link Json#engine()}: the first engine
+ * registered in
+ * {@code META-INF/services/com.github.jcurl.core.json.JsonEngine}, or the
+ * {@link JacksonJsonEngine} of {@link Json#mapper}. The engines are shared by
+ * the threads of the client.
+ */
+public interface JsonEngine {
+
+	/**
+	 * @param buf  the JSON bytes, from the position to the limit, heap or
+	 *             direct; the position may be moved
+	 * @param type the class to map to
+	 * @return an instance of T
+	 * @throws DecodeException when there is a parsing or invalid mapping.
+	 */
+	<T> T decode(ByteBuffer buf, Class<T> type) throws DecodeException;
+
+	/**
+	 * Encode a POJO to JSON in the {@code out} stream, which is left open.
+	 *
+	 * @param obj a POJO
+	 * @param out the stream
+	 * @throws IOException     when the stream fails
+	 * @throws EncodeException if a property cannot be encoded.
+	 */
+	void encode(Object obj, OutputStream out) throws IOException, EncodeException;
+
+}
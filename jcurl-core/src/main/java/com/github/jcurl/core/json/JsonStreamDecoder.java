@@ -0,0 +1,121 @@
+package com.github.jcurl.core.json;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.function.Consumer;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+
+/**
+ * Decodes a JSON document fed in chunks with the non blocking Jackson parser,
+ * each element of a root array is mapped as soon as its last token is parsed.
+ * Root values that are not arrays are mapped as single elements, so
+ * concatenated or newline delimited documents are decoded too.
+ * <p>
+ * Only the tokens of the element being parsed are retained.
+ *
+ * @param <T> the type of the elements
+ */
+public class JsonStreamDecoder<T> {
+
+	private final ObjectReader reader;
+	private final JsonParser parser;
+	private final ByteArrayFeeder feeder;
+	private byte[] scratch;
+	private TokenBuffer tokens;
+	private int depth;
+	private boolean inArray;
+
+	/**
+	 * @param type the class the elements are mapped to
+	 */
+	public JsonStreamDecoder(Class<T> type) {
+		this.reader = Json.reader(type);
+		try {
+			this.parser = Json.mapper.getFactory().createNonBlockingByteArrayParser();
+		} catch (IOException e) {
+			throw new DecodeException("Failed to create the JSON parser: " + e.getMessage(), e);
+		}
+		this.feeder = (ByteArrayFeeder) parser.getNonBlockingInputFeeder();
+	}
+
+	/**
+	 * Parse the {@code chunk}, it is fully consumed.
+	 *
+	 * @param chunk    the next bytes of the document
+	 * @param elements receives the elements completed by the chunk
+	 * @throws DecodeException when the document is malformed or an element
+	 *                         cannot be mapped
+	 */
+	public void decode(ByteBuffer chunk, Consumer<? super T> elements) throws DecodeException {
+		int length = chunk.remaining();
+		try {
+			if (chunk.hasArray()) {
+				int start = chunk.arrayOffset() + chunk.position();
+				feeder.feedInput(chunk.array(), start, start + length);
+			} else {
+				if (scratch == null || scratch.length < length) {
+					scratch = new byte[Math.max(length, 8192)];
+				}
+				chunk.duplicate().get(scratch, 0, length);
+				feeder.feedInput(scratch, 0, length);
+			}
+			chunk.position(chunk.limit());
+			parse(elements);
+		} catch (IOException e) {
+			throw new DecodeException("Failed to decode: " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Signal the end of the document.
+	 *
+	 * @param elements receives the last elements
+	 * @throws DecodeException when the document is truncated
+	 */
+	public void end(Consumer<? super T> elements) throws DecodeException {
+		try {
+			feeder.endOfInput();
+			parse(elements);
+			parser.close();
+		} catch (IOException e) {
+			throw new DecodeException("Failed to decode: " + e.getMessage(), e);
+		}
+		if (tokens != null || inArray) {
+			throw new DecodeException("Failed to decode: unexpected end of the JSON document");
+		}
+	}
+
+	private void parse(Consumer<? super T> elements) throws IOException {
+		JsonToken token;
+		while ((token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+			if (tokens == null) {
+				if (token == JsonToken.START_ARRAY && !inArray) {
+					inArray = true;
+					continue;
+				}
+				if (token == JsonToken.END_ARRAY && inArray) {
+					inArray = false;
+					continue;
+				}
+				tokens = new TokenBuffer(parser);
+			}
+			tokens.copyCurrentEvent(parser);
+			if (token.isStructStart()) {
+				depth++;
+			} else if (token.isStructEnd()) {
+				depth--;
+			}
+			if (depth == 0) {
+				JsonParser element = tokens.asParser(Json.mapper);
+				tokens = null;
+				elements.accept(reader.readValue(element));
+			}
+		}
+	}
+
+}
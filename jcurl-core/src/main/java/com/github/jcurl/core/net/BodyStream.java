@@ -0,0 +1,272 @@
+package com.github.jcurl.core.net;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.github.jcurl.core.buffer.BufferPool;
+import com.github.jcurl.core.buffer.PooledBuffer;
+
+/**
+ * A request body written by a thread of the caller while the connection sends
+ * it, in pooled chunks.
+ * <p>
+ * The writer blocks once {@code maxQueued} bytes wait to be sent, so that the
+ * memory of a large body stays bounded. The connection polls the chunks from
+ * its event loop, and is called back when a chunk is queued after a poll
+ * found none.
+ */
+public final class BodyStream extends OutputStream {
+
+	private final BufferPool pool;
+	private final int chunkSize;
+	private final long maxQueued;
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition drained = lock.newCondition();
+	// guarded by the lock
+	private final ArrayDeque<PooledBuffer> queue = new ArrayDeque<>();
+	private long queued;
+	private boolean ended;
+	private Throwable failure;
+	private Runnable listener;
+	private boolean waiting;
+	// writer
+	private PooledBuffer current;
+	private volatile long progress;
+
+	/**
+	 * @param pool      the pool of the chunks
+	 * @param chunkSize the size of the chunks
+	 * @param maxQueued the maximum number of bytes waiting to be sent
+	 */
+	public BodyStream(BufferPool pool, int chunkSize, long maxQueued) {
+		this.pool = pool;
+		this.chunkSize = chunkSize;
+		this.maxQueued = maxQueued;
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		if (current == null || !current.buffer().hasRemaining()) {
+			next();
+		}
+		current.buffer().put((byte) b);
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		while (len > 0) {
+			if (current == null || !current.buffer().hasRemaining()) {
+				next();
+			}
+			int n = Math.min(len, current.buffer().remaining());
+			current.buffer().put(b, off, n);
+			off += n;
+			len -= n;
+		}
+	}
+
+	/**
+	 * End the body, once the written bytes are sent.
+	 */
+	@Override
+	public void close() throws IOException {
+		if (current != null) {
+			enqueue();
+		}
+		Runnable callback;
+		lock.lock();
+		try {
+			if (failure != null) {
+				throw new IOException("The request body was aborted", failure);
+			}
+			ended = true;
+			callback = wakeUp();
+		} finally {
+			lock.unlock();
+		}
+		if (callback != null) {
+			callback.run();
+		}
+	}
+
+	/**
+	 * The writer failed, the request is aborted rather than sent with a
+	 * truncated body.
+	 *
+	 * @param cause the failure of the writer
+	 */
+	public void fail(Throwable cause) {
+		if (current != null) {
+			current.release();
+			current = null;
+		}
+		Runnable callback;
+		lock.lock();
+		try {
+			if (failure != null || ended) {
+				return;
+			}
+			failure = cause;
+			releaseQueue();
+			callback = wakeUp();
+		} finally {
+			lock.unlock();
+		}
+		if (callback != null) {
+			callback.run();
+		}
+	}
+
+	/**
+	 * Stop sending the body, the writer fails on its next write.
+	 *
+	 * @param cause the reason, such as the failure of the exchange
+	 */
+	public void cancel(Throwable cause) {
+		lock.lock();
+		try {
+			if (failure == null) {
+				failure = cause;
+			}
+			releaseQueue();
+			drained.signalAll();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Set the callback of the connection, run by the writer thread when a chunk
+	 * is queued or the body ends after {@link #poll()} found no chunk.
+	 *
+	 * @param listener the callback
+	 */
+	public void onAvailable(Runnable listener) {
+		lock.lock();
+		try {
+			this.listener = listener;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @return the next chunk, flipped for reading and released by the caller, or
+	 *         {@code null} when none is queued yet, or the body ended or failed
+	 */
+	public PooledBuffer poll() {
+		lock.lock();
+		try {
+			PooledBuffer chunk = queue.poll();
+			if (chunk == null) {
+				waiting = !ended && failure == null;
+				return null;
+			}
+			queued -= chunk.buffer().remaining();
+			progress += chunk.buffer().remaining();
+			drained.signalAll();
+			return chunk;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @return was the whole body polled?
+	 */
+	public boolean isEnded() {
+		lock.lock();
+		try {
+			return ended && queue.isEmpty();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @return the failure of the writer or the reason of the cancellation, or
+	 *         {@code null}
+	 */
+	public Throwable failure() {
+		lock.lock();
+		try {
+			return failure;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @return a counter increasing as the body is written and sent
+	 */
+	public long progress() {
+		return progress;
+	}
+
+	private void next() throws IOException {
+		if (current != null) {
+			enqueue();
+		}
+		current = pool.acquire(chunkSize);
+	}
+
+	private void enqueue() throws IOException {
+		PooledBuffer chunk = current;
+		current = null;
+		chunk.buffer().flip();
+		if (!chunk.buffer().hasRemaining()) {
+			chunk.release();
+			return;
+		}
+		Runnable callback;
+		lock.lock();
+		try {
+			while (failure == null && queued >= maxQueued) {
+				try {
+					drained.await();
+				} catch (InterruptedException e) {
+					chunk.release();
+					Thread.currentThread().interrupt();
+					throw new InterruptedIOException("Interrupted while writing the request body");
+				}
+			}
+			if (failure != null) {
+				chunk.release();
+				throw new IOException("The request body was aborted", failure);
+			}
+			queue.add(chunk);
+			queued += chunk.buffer().remaining();
+			progress += chunk.buffer().remaining();
+			callback = wakeUp();
+		} finally {
+			lock.unlock();
+		}
+		if (callback != null) {
+			callback.run();
+		}
+	}
+
+	/**
+	 * @return the callback to run outside of the lock, when the connection waits
+	 */
+	private Runnable wakeUp() {
+		if (waiting && listener != null) {
+			waiting = false;
+			return listener;
+		}
+		return null;
+	}
+
+	private void releaseQueue() {
+		PooledBuffer chunk;
+		while ((chunk = queue.poll()) != null) {
+			chunk.release();
+		}
+		queued = 0;
+	}
+
+}
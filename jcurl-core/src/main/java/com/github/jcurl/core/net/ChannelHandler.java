@@ -0,0 +1,27 @@
+package com.github.jcurl.core.net;
+
+import java.io.IOException;
+import java.nio.channels.SelectionKey;
+
+/**
+ * Attachment of a {@link SelectionKey} registered on an {@link EventLoop}.
+ */
+public interface ChannelHandler {
+
+	/**
+	 * Called on the event loop thread when the key is selected.
+	 *
+	 * @param key the selected key
+	 * @throws IOException closes the handler with the exception as cause
+	 */
+	void handle(SelectionKey key) throws IOException;
+
+	/**
+	 * Called on the event loop thread when the handler fails or the loop is
+	 * shut down.
+	 *
+	 * @param cause the failure, never {@code null}
+	 */
+	void close(Throwable cause);
+
+}
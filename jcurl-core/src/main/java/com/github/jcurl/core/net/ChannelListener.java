@@ -0,0 +1,40 @@
+package com.github.jcurl.core.net;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Receives the events of a {@link NioChannel}, always on its event loop thread.
+ */
+public interface ChannelListener {
+
+	/**
+	 * The channel is connected and, for SSL/TLS channels, the handshake is done.
+	 *
+	 * @param channel the channel
+	 */
+	void onConnected(NioChannel channel);
+
+	/**
+	 * Data was received. The listener consumes as many bytes as it can, the bytes
+	 * left in the buffer are kept and handed over again, followed by the next
+	 * received bytes.
+	 *
+	 * @param buffer the received plain text bytes, readable
+	 */
+	void onData(ByteBuffer buffer);
+
+	/**
+	 * The bytes queued while the socket send buffer was full are written, see
+	 * {@link NioChannel#isWritable()}.
+	 */
+	default void onWritable() {
+	}
+
+	/**
+	 * The channel is closed, either by the peer or locally.
+	 *
+	 * @param cause the failure, {@code null} for an orderly close
+	 */
+	void onClosed(Throwable cause);
+
+}
@@ -0,0 +1,217 @@
+package com.github.jcurl.core.net;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLParameters;
+
+import com.github.jcurl.core.buffer.BufferPool;
+import com.github.jcurl.core.http.HttpVersion;
+import com.github.jcurl.core.http.JCurlClientOptions;
+import com.github.jcurl.core.net.http2.Http2Connection;
+
+/**
+ * Opens {@link HttpConnection}s on an {@link EventLoop}.
+ * <p>
+ * When HTTP/2 is preferred, it is negotiated with ALPN over SSL/TLS and used
+ * with prior knowledge over plain text, otherwise connections use HTTP/1.1.
+ */
+public class ConnectionFactory {
+
+	private static final String H2 = "h2";
+	private static final String HTTP_1_1 = "http/1.1";
+	/**
+	 * Is ALPN supported by the runtime? It was backported to Java 8u252.
+	 */
+	static final boolean ALPN = hasAlpn();
+
+	private final JCurlClientOptions options;
+	private final BufferPool bufferPool;
+	private volatile SSLContext sslContext;
+
+	public ConnectionFactory(JCurlClientOptions options, BufferPool bufferPool) {
+		this.options = options;
+		this.bufferPool = bufferPool;
+		this.sslContext = options.getSslContext();
+	}
+
+	/**
+	 * Open a connection to the first address accepting it, must be called from
+	 * the {@code eventLoop} thread.
+	 * <p>
+	 * The next address is tried when the connection to the previous one fails,
+	 * or is still pending after the happy eyeballs delay (RFC 8305): the pending
+	 * attempts race, the first one connected is used and the others are closed.
+	 *
+	 * @param eventLoop the loop of the connection
+	 * @param addresses the resolved addresses, in the order to try them
+	 * @param key       the host name, used for SNI and hostname verification, the
+	 *                  port, and whether SSL/TLS is enabled
+	 * @return a future completed on the loop thread once connected, or with the
+	 *         failure of the first attempt when they all failed
+	 */
+	public CompletableFuture<HttpConnection> connect(EventLoop eventLoop, List<InetAddress> addresses, ConnectionKey key) {
+		CompletableFuture<HttpConnection> future = new CompletableFuture<>();
+		new Attempts(eventLoop, addresses, key, future).next();
+		return future;
+	}
+
+	private boolean isHttp2(NioChannel channel) {
+		if (options.getProtocolVersion() != HttpVersion.HTTP_2) {
+			return false;
+		}
+		return !channel.isSsl() || H2.equals(channel.applicationProtocol());
+	}
+
+	private SSLEngine createEngine(String host, int port) throws NoSuchAlgorithmException {
+		SSLContext context = sslContext;
+		if (context == null) {
+			sslContext = context = SSLContext.getDefault();
+		}
+		SSLEngine engine = context.createSSLEngine(host, port);
+		engine.setUseClientMode(true);
+		SSLParameters parameters = engine.getSSLParameters();
+		parameters.setEndpointIdentificationAlgorithm("HTTPS");
+		if (options.getProtocolVersion() == HttpVersion.HTTP_2 && ALPN) {
+			parameters.setApplicationProtocols(new String[] { H2, HTTP_1_1 });
+		}
+		engine.setSSLParameters(parameters);
+		return engine;
+	}
+
+	private static boolean hasAlpn() {
+		try {
+			SSLEngine.class.getMethod("getApplicationProtocol");
+			return true;
+		} catch (NoSuchMethodException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * The connection attempts to the addresses of a host, confined to the loop
+	 * thread.
+	 */
+	private final class Attempts {
+
+		private final EventLoop eventLoop;
+		private final List<InetAddress> addresses;
+		private final ConnectionKey key;
+		private final CompletableFuture<HttpConnection> future;
+		private final List<NioChannel> pending = new ArrayList<>(1);
+		private int index;
+		private Timeout delay;
+		private Throwable failure;
+
+		Attempts(EventLoop eventLoop, List<InetAddress> addresses, ConnectionKey key,
+				CompletableFuture<HttpConnection> future) {
+			this.eventLoop = eventLoop;
+			this.addresses = addresses;
+			this.key = key;
+			this.future = future;
+		}
+
+		/**
+		 * Connect to the next address, unless they were all tried.
+		 */
+		void next() {
+			if (delay != null) {
+				delay.cancel();
+				delay = null;
+			}
+			if (index == addresses.size()) {
+				if (pending.isEmpty()) {
+					future.completeExceptionally(failure);
+				}
+				return;
+			}
+			InetSocketAddress address = new InetSocketAddress(addresses.get(index++), key.port());
+			NioChannel channel;
+			try {
+				channel = new NioChannel(eventLoop, key.ssl() ? createEngine(key.host(), key.port()) : null, options,
+						bufferPool);
+			} catch (IOException | NoSuchAlgorithmException e) {
+				failed(e);
+				return;
+			}
+			pending.add(channel);
+			if (index < addresses.size() && options.getHappyEyeballsDelay() > 0) {
+				delay = eventLoop.schedule(this::next, options.getHappyEyeballsDelay(), TimeUnit.MILLISECONDS);
+			}
+			channel.connect(address, new Attempt(channel), options.getConnectTimeout());
+		}
+
+		private void connected(NioChannel channel) {
+			if (delay != null) {
+				delay.cancel();
+				delay = null;
+			}
+			pending.remove(channel);
+			List<NioChannel> others = new ArrayList<>(pending);
+			pending.clear();
+			others.forEach(NioChannel::close);
+		}
+
+		private void failed(Throwable cause) {
+			if (failure == null) {
+				failure = cause;
+			} else {
+				failure.addSuppressed(cause);
+			}
+			next();
+		}
+
+		private final class Attempt implements ChannelListener {
+
+			private final NioChannel channel;
+			private HttpConnection connection;
+
+			Attempt(NioChannel channel) {
+				this.channel = channel;
+			}
+
+			@Override
+			public void onConnected(NioChannel channel) {
+				connected(channel);
+				if (isHttp2(channel)) {
+					connection = new Http2Connection(channel, key, options);
+				} else {
+					connection = new Http1Connection(channel, key, options);
+				}
+				connection.onConnected(channel);
+				future.complete(connection);
+			}
+
+			@Override
+			public void onData(ByteBuffer buffer) {
+				connection.onData(buffer);
+			}
+
+			@Override
+			public void onWritable() {
+				connection.onWritable();
+			}
+
+			@Override
+			public void onClosed(Throwable cause) {
+				if (connection != null) {
+					connection.onClosed(cause);
+				} else if (pending.remove(channel)) {
+					failed(cause != null ? cause : new IOException("Connection closed"));
+				}
+			}
+
+		}
+
+	}
+
+}
@@ -0,0 +1,55 @@
+package com.github.jcurl.core.net;
+
+/**
+ * Identifies the connections that can serve a request: same host, port and
+ * SSL/TLS setting.
+ */
+public final class ConnectionKey {
+
+	private final String host;
+	private final int port;
+	private final boolean ssl;
+	private final int hashCode;
+
+	public ConnectionKey(String host, int port, boolean ssl) {
+		this.host = host;
+		this.port = port;
+		this.ssl = ssl;
+		this.hashCode = (host.hashCode() * 31 + port) * 31 + (ssl ? 1 : 0);
+	}
+
+	public String host() {
+		return host;
+	}
+
+	public int port() {
+		return port;
+	}
+
+	public boolean ssl() {
+		return ssl;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof ConnectionKey)) {
+			return false;
+		}
+		ConnectionKey other = (ConnectionKey) obj;
+		return port == other.port && ssl == other.ssl && host.equals(other.host);
+	}
+
+	@Override
+	public int hashCode() {
+		return hashCode;
+	}
+
+	@Override
+	public String toString() {
+		return (ssl ? "https://" : "http://") + host + ":" + port;
+	}
+
+}
@@ -0,0 +1,551 @@
+package com.github.jcurl.core.net;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.github.jcurl.core.JCurlException;
+import com.github.jcurl.core.dns.DnsCache;
+import com.github.jcurl.core.http.HttpVersion;
+import com.github.jcurl.core.http.JCurlClientOptions;
+
+/**
+ * Keep-alive connections per {@link ConnectionKey}, bounded per host and in
+ * total.
+ * <p>
+ * Idle connections are reused most recently used first, and closed once they
+ * exceed the idle timeout or the maximum lifetime. When no connection can be
+ * opened the request waits in a per host queue until a connection is released
+ * or the acquire timeout expires.
+ * <p>
+ * With pipelining enabled, a pipelined request is also assigned to a busy
+ * connection that only carries pipelined requests, up to the pipelining limit.
+ * A request that is not pipelined always gets an HTTP/1.1 connection of its
+ * own.
+ * <p>
+ * HTTP/2 connections carry any request, up to their maximum number of
+ * concurrent streams. When HTTP/2 is preferred, requests wait for the first
+ * connection of a host to be established rather than opening more, since
+ * that connection will likely serve them all.
+ * <p>
+ * The host is resolved by the {@link DnsCache} when a connection is opened,
+ * the idle and shared connections are reused without any lookup.
+ */
+public class ConnectionPool {
+
+	private final JCurlClientOptions options;
+	private final EventLoopGroup eventLoopGroup;
+	private final ConnectionFactory connectionFactory;
+	private final DnsCache dnsCache;
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Map<ConnectionKey, Endpoint> endpoints = new HashMap<>();
+	private final int pipeliningLimit;
+	private final boolean multiplexing;
+	private final long idleTimeoutNanos;
+	private final long maxLifetimeNanos;
+	private int total;
+	private boolean closed;
+	private Timeout cleaner;
+
+	public ConnectionPool(JCurlClientOptions options, EventLoopGroup eventLoopGroup, ConnectionFactory connectionFactory,
+			DnsCache dnsCache) {
+		this.options = options;
+		this.eventLoopGroup = eventLoopGroup;
+		this.connectionFactory = connectionFactory;
+		this.dnsCache = dnsCache;
+		this.pipeliningLimit = options.isPipelining() ? options.getPipeliningLimit() : 1;
+		this.multiplexing = options.getProtocolVersion() == HttpVersion.HTTP_2;
+		this.idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(options.getIdleTimeout());
+		this.maxLifetimeNanos = TimeUnit.MILLISECONDS.toNanos(options.getMaxLifetime());
+		scheduleCleaner();
+	}
+
+	/**
+	 * Acquire a connection for the {@code key}, can be called from any thread.
+	 *
+	 * @param key       the key, its host is resolved when a connection is opened
+	 * @param pipelined whether the request can share an HTTP/1.1 connection with
+	 *                  other pipelined requests
+	 * @return a future completed with a connection ready to send a request
+	 */
+	public CompletableFuture<HttpConnection> acquire(ConnectionKey key, boolean pipelined) {
+		pipelined &= pipeliningLimit > 1;
+		CompletableFuture<HttpConnection> future = new CompletableFuture<>();
+		List<HttpConnection> evicted = new ArrayList<>(0);
+		HttpConnection connection = null;
+		boolean connect = false;
+		lock.lock();
+		try {
+			if (closed) {
+				future.completeExceptionally(new JCurlException("Client is closed"));
+				return future;
+			}
+			Endpoint endpoint = endpoints.computeIfAbsent(key, k -> new Endpoint());
+			connection = pollIdle(endpoint, evicted);
+			if (connection == null) {
+				connection = pollShared(endpoint, pipelined);
+			}
+			// the connection being established will likely multiplex the request
+			boolean await = multiplexing && !endpoint.http1 && endpoint.connecting > 0;
+			if (connection != null) {
+				assign(endpoint, connection, pipelined);
+			} else if (!await && endpoint.size < options.getMaxPoolSize()
+					&& (total < options.getMaxTotalPoolSize() || evictIdle(endpoint, evicted))) {
+				endpoint.size++;
+				endpoint.connecting++;
+				total++;
+				connect = true;
+			} else if (options.getMaxWaitQueueSize() < 0 || endpoint.waiters.size() < options.getMaxWaitQueueSize()) {
+				enqueue(endpoint, future, pipelined);
+			} else {
+				future.completeExceptionally(new JCurlException(
+						"Connection pool reached max wait queue size of " + options.getMaxWaitQueueSize()));
+			}
+		} finally {
+			lock.unlock();
+		}
+		evicted.forEach(HttpConnection::close);
+		if (connection != null) {
+			future.complete(connection);
+		} else if (connect) {
+			connect(key, future, pipelined);
+		}
+		return future;
+	}
+
+	/**
+	 * Close the idle connections and fail the waiting requests.
+	 */
+	public void close() {
+		List<HttpConnection> idle = new ArrayList<>();
+		List<Waiter> waiters = new ArrayList<>();
+		lock.lock();
+		try {
+			closed = true;
+			if (cleaner != null) {
+				cleaner.cancel();
+			}
+			for (Endpoint endpoint : endpoints.values()) {
+				idle.addAll(endpoint.idle);
+				waiters.addAll(endpoint.waiters);
+				endpoint.idle.clear();
+				endpoint.waiters.clear();
+			}
+		} finally {
+			lock.unlock();
+		}
+		idle.forEach(HttpConnection::close);
+		JCurlException cause = new JCurlException("Client is closed");
+		waiters.forEach(waiter -> waiter.fail(cause));
+	}
+
+	private void connect(ConnectionKey key, CompletableFuture<HttpConnection> future, boolean pipelined) {
+		dnsCache.resolve(key.host()).whenComplete((addresses, failure) -> {
+			if (failure != null) {
+				connectFailed(key);
+				future.completeExceptionally(failure instanceof RejectedExecutionException
+						? new JCurlException("Client is closed", failure)
+						: failure);
+				return;
+			}
+			EventLoop loop = eventLoopGroup.next();
+			try {
+				loop.execute(() -> connectionFactory.connect(loop, addresses, key).whenComplete((connection, err) -> {
+					if (err != null) {
+						connectFailed(key);
+						future.completeExceptionally(err);
+					} else {
+						connected(connection, future, pipelined);
+					}
+				}));
+			} catch (RejectedExecutionException e) {
+				connectFailed(key);
+				future.completeExceptionally(new JCurlException("Client is closed", e));
+			}
+		});
+	}
+
+	private void connected(HttpConnection connection, CompletableFuture<HttpConnection> future, boolean pipelined) {
+		List<Waiter> served;
+		List<Waiter> connecting = new ArrayList<>(0);
+		Endpoint endpoint;
+		lock.lock();
+		try {
+			endpoint = endpoints.get(connection.key());
+			endpoint.connecting--;
+			connection.pooled = true;
+			assign(endpoint, connection, pipelined);
+			served = connection.exclusive ? null : dispatch(endpoint, connection);
+			if (multiplexing && !connection.isMultiplexed()) {
+				// the server does not support HTTP/2, the waiting requests need their own
+				// connections
+				endpoint.http1 = true;
+				Waiter waiter;
+				while (endpoint.size < options.getMaxPoolSize() && total < options.getMaxTotalPoolSize()
+						&& (waiter = pollWaiter(endpoint, false)) != null) {
+					endpoint.size++;
+					endpoint.connecting++;
+					total++;
+					connecting.add(waiter);
+				}
+			} else if (connection.isMultiplexed()) {
+				endpoint.http1 = false;
+				// the streams are all in use, another connection serves the remaining requests
+				Waiter waiter;
+				if (endpoint.connecting == 0 && endpoint.size < options.getMaxPoolSize()
+						&& total < options.getMaxTotalPoolSize() && (waiter = pollWaiter(endpoint, false)) != null) {
+					endpoint.size++;
+					endpoint.connecting++;
+					total++;
+					connecting.add(waiter);
+				}
+			}
+		} finally {
+			lock.unlock();
+		}
+		connection.recycleHandler(this::recycle);
+		connection.closeHandler(this::closed);
+		if (!future.complete(connection)) {
+			recycle(connection);
+		}
+		complete(served, connection);
+		for (Waiter waiter : connecting) {
+			connect(connection.key(), waiter.future, waiter.pipelined);
+		}
+	}
+
+	/**
+	 * Called each time a response completes and the connection stays open.
+	 */
+	private void recycle(HttpConnection connection) {
+		boolean close = false;
+		List<Waiter> served = null;
+		lock.lock();
+		try {
+			if (!connection.pooled) {
+				return;
+			}
+			Endpoint endpoint = endpoints.get(connection.key());
+			connection.pending--;
+			boolean reusable = !closed && connection.isOpen() && options.isKeepAlive()
+					&& !isExpired(connection, System.nanoTime());
+			if (connection.pending == 0) {
+				endpoint.busy.remove(connection);
+				connection.exclusive = false;
+				if (!reusable) {
+					close = true;
+				} else {
+					Waiter waiter = pollWaiter(endpoint, false);
+					if (waiter != null) {
+						assign(endpoint, connection, waiter.pipelined);
+						served = new ArrayList<>();
+						served.add(waiter);
+						if (!connection.exclusive) {
+							served.addAll(dispatch(endpoint, connection));
+						}
+					} else {
+						connection.idleSince = System.nanoTime();
+						endpoint.idle.push(connection);
+					}
+				}
+			} else if (reusable && !connection.exclusive) {
+				served = dispatch(endpoint, connection);
+			}
+		} finally {
+			lock.unlock();
+		}
+		if (close) {
+			connection.close();
+		}
+		complete(served, connection);
+	}
+
+	/**
+	 * Called once the connection is closed, its slot can serve a waiting
+	 * request.
+	 */
+	private void closed(HttpConnection connection) {
+		lock.lock();
+		try {
+			if (!connection.pooled) {
+				return;
+			}
+			connection.pooled = false;
+			Endpoint endpoint = endpoints.get(connection.key());
+			endpoint.idle.remove(connection);
+			endpoint.busy.remove(connection);
+		} finally {
+			lock.unlock();
+		}
+		released(connection.key());
+	}
+
+	private void connectFailed(ConnectionKey key) {
+		lock.lock();
+		try {
+			endpoints.get(key).connecting--;
+		} finally {
+			lock.unlock();
+		}
+		released(key);
+	}
+
+	private void released(ConnectionKey key) {
+		Endpoint endpoint;
+		ConnectionKey connectKey = null;
+		Waiter waiter = null;
+		lock.lock();
+		try {
+			endpoint = endpoints.get(key);
+			endpoint.size--;
+			total--;
+			if (closed) {
+				return;
+			}
+			waiter = pollWaiter(endpoint, false);
+			if (waiter != null) {
+				connectKey = key;
+			} else {
+				for (Map.Entry<ConnectionKey, Endpoint> other : endpoints.entrySet()) {
+					Endpoint e = other.getValue();
+					if (e.size < options.getMaxPoolSize() && (waiter = pollWaiter(e, false)) != null) {
+						connectKey = other.getKey();
+						endpoint = e;
+						break;
+					}
+				}
+			}
+			if (waiter != null) {
+				endpoint.size++;
+				endpoint.connecting++;
+				total++;
+			} else if (endpoint.size == 0 && endpoint.waiters.isEmpty()) {
+				endpoints.remove(key);
+			}
+		} finally {
+			lock.unlock();
+		}
+		if (waiter != null) {
+			connect(connectKey, waiter.future, waiter.pipelined);
+		}
+	}
+
+	private void complete(List<Waiter> served, HttpConnection connection) {
+		if (served != null) {
+			for (Waiter waiter : served) {
+				if (!waiter.complete(connection)) {
+					recycle(connection);
+				}
+			}
+		}
+	}
+
+	private void assign(Endpoint endpoint, HttpConnection connection, boolean pipelined) {
+		if (connection.pending++ == 0) {
+			connection.exclusive = !pipelined && !connection.isMultiplexed();
+			endpoint.busy.add(connection);
+		}
+	}
+
+	/**
+	 * Assign the waiting requests the connection can share, up to its capacity.
+	 */
+	private List<Waiter> dispatch(Endpoint endpoint, HttpConnection connection) {
+		List<Waiter> served = new ArrayList<>(0);
+		boolean pipelinedOnly = !connection.isMultiplexed();
+		int capacity = capacity(connection);
+		Waiter waiter;
+		while (connection.pending < capacity && (waiter = pollWaiter(endpoint, pipelinedOnly)) != null) {
+			assign(endpoint, connection, true);
+			served.add(waiter);
+		}
+		return served;
+	}
+
+	private HttpConnection pollIdle(Endpoint endpoint, List<HttpConnection> evicted) {
+		long now = System.nanoTime();
+		HttpConnection connection;
+		while ((connection = endpoint.idle.poll()) != null) {
+			if (connection.isOpen() && !isExpired(connection, now)) {
+				return connection;
+			}
+			evicted.add(connection);
+		}
+		return null;
+	}
+
+	/**
+	 * @return the busy connection the request can share carrying the fewest
+	 *         requests, below its capacity
+	 */
+	private HttpConnection pollShared(Endpoint endpoint, boolean pipelined) {
+		long now = System.nanoTime();
+		HttpConnection best = null;
+		for (HttpConnection connection : endpoint.busy) {
+			if ((connection.isMultiplexed() || (pipelined && !connection.exclusive))
+					&& connection.pending < capacity(connection) && connection.isOpen() && !isExpired(connection, now)
+					&& (best == null || connection.pending < best.pending)) {
+				best = connection;
+			}
+		}
+		return best;
+	}
+
+	private int capacity(HttpConnection connection) {
+		return connection.isMultiplexed() ? connection.concurrency() : pipeliningLimit;
+	}
+
+	/**
+	 * Close the least recently used idle connection of another host to make
+	 * room for a new connection.
+	 */
+	private boolean evictIdle(Endpoint requester, List<HttpConnection> evicted) {
+		HttpConnection oldest = null;
+		for (Endpoint endpoint : endpoints.values()) {
+			HttpConnection candidate = endpoint != requester ? endpoint.idle.peekLast() : null;
+			if (candidate != null && (oldest == null || candidate.idleSince - oldest.idleSince < 0)) {
+				oldest = candidate;
+			}
+		}
+		if (oldest == null) {
+			return false;
+		}
+		// hand the slot over right away rather than when the close completes
+		Endpoint owner = endpoints.get(oldest.key());
+		owner.idle.remove(oldest);
+		oldest.pooled = false;
+		owner.size--;
+		total--;
+		if (owner.size == 0 && owner.waiters.isEmpty()) {
+			endpoints.remove(oldest.key());
+		}
+		evicted.add(oldest);
+		return true;
+	}
+
+	/**
+	 * @param pipelinedOnly only return a waiter of a pipelined request
+	 */
+	private Waiter pollWaiter(Endpoint endpoint, boolean pipelinedOnly) {
+		Iterator<Waiter> it = endpoint.waiters.iterator();
+		while (it.hasNext()) {
+			Waiter waiter = it.next();
+			if (waiter.future.isDone()) {
+				it.remove();
+			} else if (!pipelinedOnly || waiter.pipelined) {
+				it.remove();
+				return waiter;
+			}
+		}
+		return null;
+	}
+
+	private void enqueue(Endpoint endpoint, CompletableFuture<HttpConnection> future, boolean pipelined) {
+		Waiter waiter = new Waiter(future, pipelined);
+		endpoint.waiters.add(waiter);
+		int acquireTimeout = options.getAcquireTimeout();
+		if (acquireTimeout > 0) {
+			waiter.timeout = eventLoopGroup.next().schedule(() -> {
+				lock.lock();
+				try {
+					endpoint.waiters.remove(waiter);
+				} finally {
+					lock.unlock();
+				}
+				waiter.fail(new JCurlException("Timed out after " + acquireTimeout + "ms waiting for a connection",
+						new TimeoutException()));
+			}, acquireTimeout, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	private boolean isExpired(HttpConnection connection, long now) {
+		return maxLifetimeNanos > 0 && now - connection.createdAt() >= maxLifetimeNanos;
+	}
+
+	private void scheduleCleaner() {
+		if (idleTimeoutNanos <= 0 && maxLifetimeNanos <= 0) {
+			return;
+		}
+		cleaner = eventLoopGroup.next().schedule(() -> {
+			evictExpired();
+			lock.lock();
+			try {
+				if (!closed) {
+					scheduleCleaner();
+				}
+			} finally {
+				lock.unlock();
+			}
+		}, options.getPoolCleanerPeriod(), TimeUnit.MILLISECONDS);
+	}
+
+	private void evictExpired() {
+		List<HttpConnection> expired = new ArrayList<>();
+		long now = System.nanoTime();
+		lock.lock();
+		try {
+			for (Endpoint endpoint : endpoints.values()) {
+				Iterator<HttpConnection> it = endpoint.idle.descendingIterator();
+				while (it.hasNext()) {
+					HttpConnection connection = it.next();
+					if ((idleTimeoutNanos > 0 && now - connection.idleSince >= idleTimeoutNanos)
+							|| isExpired(connection, now)) {
+						it.remove();
+						expired.add(connection);
+					}
+				}
+			}
+		} finally {
+			lock.unlock();
+		}
+		expired.forEach(HttpConnection::close);
+	}
+
+	private static final class Endpoint {
+
+		private final ArrayDeque<HttpConnection> idle = new ArrayDeque<>();
+		private final List<HttpConnection> busy = new ArrayList<>();
+		private final ArrayDeque<Waiter> waiters = new ArrayDeque<>();
+		private int size;
+		private int connecting;
+		// the server negotiated HTTP/1.1 although HTTP/2 is preferred
+		private boolean http1;
+
+	}
+
+	private static final class Waiter {
+
+		private final CompletableFuture<HttpConnection> future;
+		private final boolean pipelined;
+		private Timeout timeout;
+
+		Waiter(CompletableFuture<HttpConnection> future, boolean pipelined) {
+			this.future = future;
+			this.pipelined = pipelined;
+		}
+
+		boolean complete(HttpConnection connection) {
+			if (timeout != null) {
+				timeout.cancel();
+			}
+			return future.complete(connection);
+		}
+
+		void fail(Throwable cause) {
+			if (timeout != null) {
+				timeout.cancel();
+			}
+			future.completeExceptionally(cause);
+		}
+
+	}
+
+}
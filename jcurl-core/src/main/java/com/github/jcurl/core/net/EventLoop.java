@@ -0,0 +1,229 @@
+package com.github.jcurl.core.net;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A single thread multiplexing many channels with one {@link Selector}.
+ * <p>
+ * Channels registered on the loop and their {@link ChannelHandler} are only
+ * touched from the loop thread, other threads hand work over with
+ * {@link #execute(Runnable)}.
+ */
+public class EventLoop implements Executor {
+
+	// the queue is purged once most of its timeouts are cancelled, beyond this number
+	private static final int PURGE_THRESHOLD = 256;
+
+	private final Selector selector;
+	private final Thread thread;
+	private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+	private final PriorityQueue<Timeout> timeouts = new PriorityQueue<>();
+	// the cancelled timeouts still in the queue, an estimate
+	private final AtomicInteger cancelledTimeouts = new AtomicInteger();
+	private final AtomicBoolean wakenUp = new AtomicBoolean();
+	private volatile boolean running = true;
+	private long timeoutSequence;
+
+	public EventLoop(String name) {
+		try {
+			selector = Selector.open();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		thread = new Thread(this::run, name);
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * @return is the current thread the loop thread?
+	 */
+	public boolean inEventLoop() {
+		return Thread.currentThread() == thread;
+	}
+
+	/**
+	 * @return is the loop accepting tasks?
+	 */
+	public boolean isRunning() {
+		return running;
+	}
+
+	/**
+	 * Run the {@code task} on the loop thread.
+	 *
+	 * @throws RejectedExecutionException when the loop is shut down
+	 */
+	@Override
+	public void execute(Runnable task) {
+		if (!running) {
+			throw new RejectedExecutionException("Event loop is shut down");
+		}
+		tasks.add(task);
+		if (!inEventLoop() && wakenUp.compareAndSet(false, true)) {
+			selector.wakeup();
+		}
+	}
+
+	/**
+	 * Run the {@code task} on the loop thread after {@code delay}.
+	 *
+	 * @return a handle to cancel the task
+	 */
+	public Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+		long deadline = System.nanoTime() + unit.toNanos(delay);
+		if (inEventLoop()) {
+			Timeout timeout = new Timeout(this, task, deadline, timeoutSequence++);
+			timeouts.add(timeout);
+			return timeout;
+		}
+		Timeout timeout = new Timeout(this, task, deadline, 0);
+		execute(() -> timeouts.add(timeout));
+		return timeout;
+	}
+
+	/**
+	 * Register the {@code channel} on the loop selector, must be called from the
+	 * loop thread.
+	 *
+	 * @param channel the channel, in non blocking mode
+	 * @param ops     the initial interest set
+	 * @param handler the handler notified when the key is selected
+	 * @return the selection key
+	 */
+	public SelectionKey register(SelectableChannel channel, int ops, ChannelHandler handler)
+			throws ClosedChannelException {
+		return channel.register(selector, ops, handler);
+	}
+
+	/**
+	 * Stop the loop, every registered handler is closed from the loop thread.
+	 */
+	public void shutdown() {
+		running = false;
+		selector.wakeup();
+	}
+
+	private void run() {
+		while (running) {
+			try {
+				select();
+				processSelectedKeys();
+				runTasks();
+				runTimeouts();
+			} catch (ClosedSelectorException e) {
+				break;
+			} catch (Throwable t) {
+				// keep the loop alive, handler failures are reported to the handler
+			}
+		}
+		closeAll();
+	}
+
+	private void select() throws IOException {
+		if (!tasks.isEmpty()) {
+			selector.selectNow();
+		} else {
+			Timeout next;
+			while ((next = timeouts.peek()) != null && next.isCancelled()) {
+				timeouts.poll();
+				cancelledTimeouts.decrementAndGet();
+			}
+			if (next == null) {
+				selector.select();
+			} else {
+				long nanos = next.deadline() - System.nanoTime();
+				if (nanos > 0) {
+					// rounded up, waking up early would spin until the deadline
+					selector.select(TimeUnit.NANOSECONDS.toMillis(nanos + 999_999));
+				} else {
+					selector.selectNow();
+				}
+			}
+		}
+		wakenUp.set(false);
+	}
+
+	private void processSelectedKeys() {
+		Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+		while (it.hasNext()) {
+			SelectionKey key = it.next();
+			it.remove();
+			ChannelHandler handler = (ChannelHandler) key.attachment();
+			try {
+				if (key.isValid()) {
+					handler.handle(key);
+				}
+			} catch (Throwable t) {
+				handler.close(t);
+			}
+		}
+	}
+
+	private void runTasks() {
+		Runnable task;
+		while ((task = tasks.poll()) != null) {
+			try {
+				task.run();
+			} catch (Throwable t) {
+				// tasks report their own failures
+			}
+		}
+	}
+
+	/**
+	 * A timeout was cancelled, it stays in the queue until its deadline or the
+	 * next purge.
+	 */
+	void cancelled() {
+		cancelledTimeouts.incrementAndGet();
+	}
+
+	private void runTimeouts() {
+		int cancelled = cancelledTimeouts.get();
+		if (cancelled > PURGE_THRESHOLD && cancelled > timeouts.size() / 2) {
+			// the cancelled timeouts would hold their tasks until their deadlines
+			timeouts.removeIf(Timeout::isCancelled);
+			cancelledTimeouts.addAndGet(-cancelled);
+		}
+		long now = System.nanoTime();
+		Timeout timeout;
+		while ((timeout = timeouts.peek()) != null && timeout.deadline() - now <= 0) {
+			timeouts.poll();
+			try {
+				timeout.run();
+			} catch (Throwable t) {
+				// tasks report their own failures
+			}
+		}
+	}
+
+	private void closeAll() {
+		runTasks();
+		ClosedChannelException cause = new ClosedChannelException();
+		for (SelectionKey key : selector.keys()) {
+			((ChannelHandler) key.attachment()).close(cause);
+		}
+		try {
+			selector.close();
+		} catch (IOException e) {
+			// nothing to do
+		}
+	}
+
+}
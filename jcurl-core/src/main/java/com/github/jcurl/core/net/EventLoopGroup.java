@@ -0,0 +1,39 @@
+package com.github.jcurl.core.net;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A fixed set of {@link EventLoop}s handed out round-robin.
+ */
+public class EventLoopGroup {
+
+	private static final AtomicInteger GROUP_INDEX = new AtomicInteger();
+
+	private final EventLoop[] loops;
+	private final AtomicInteger next = new AtomicInteger();
+
+	public EventLoopGroup(int size) {
+		int group = GROUP_INDEX.getAndIncrement();
+		loops = new EventLoop[size];
+		for (int i = 0; i < size; i++) {
+			loops[i] = new EventLoop("jcurl-eventloop-" + group + "-" + i);
+		}
+	}
+
+	/**
+	 * @return the next loop
+	 */
+	public EventLoop next() {
+		return loops[(next.getAndIncrement() & Integer.MAX_VALUE) % loops.length];
+	}
+
+	/**
+	 * Shut down every loop of the group.
+	 */
+	public void shutdown() {
+		for (EventLoop loop : loops) {
+			loop.shutdown();
+		}
+	}
+
+}
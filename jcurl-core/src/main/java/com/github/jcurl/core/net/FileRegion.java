@@ -0,0 +1,63 @@
+package com.github.jcurl.core.net;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A request body read from a file. The connections open the file for each
+ * attempt of the exchange, and write its bytes from the file system cache
+ * straight to the socket when the channel is plain text.
+ */
+public final class FileRegion {
+
+	private final Path path;
+	private final long position;
+	private final long count;
+
+	/**
+	 * @param path     the file
+	 * @param position the position of the first byte sent
+	 * @param count    the number of bytes sent
+	 */
+	public FileRegion(Path path, long position, long count) {
+		this.path = path;
+		this.position = position;
+		this.count = count;
+	}
+
+	public Path path() {
+		return path;
+	}
+
+	public long position() {
+		return position;
+	}
+
+	public long count() {
+		return count;
+	}
+
+	/**
+	 * @return the file opened for reading, closed by the caller
+	 * @throws IOException when the file cannot be opened, or is shorter than
+	 *                     the region
+	 */
+	public FileChannel open() throws IOException {
+		FileChannel file = FileChannel.open(path, StandardOpenOption.READ);
+		if (file.size() < position + count) {
+			file.close();
+			throw truncated();
+		}
+		return file;
+	}
+
+	/**
+	 * @return the failure of a file shortened while it is sent
+	 */
+	public IOException truncated() {
+		return new IOException("The file " + path + " is shorter than the " + count + " bytes to send");
+	}
+
+}
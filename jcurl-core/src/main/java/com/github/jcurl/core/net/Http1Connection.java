@@ -0,0 +1,364 @@
+package com.github.jcurl.core.net;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.concurrent.RejectedExecutionException;
+
+import com.github.jcurl.core.buffer.PooledBuffer;
+import com.github.jcurl.core.http.CaseInsensitiveHeaders;
+import com.github.jcurl.core.http.HeaderNames;
+import com.github.jcurl.core.http.HttpVersion;
+import com.github.jcurl.core.http.JCurlClientOptions;
+
+/**
+ * An HTTP/1.1 connection, requests are written in order and their responses
+ * are matched in the same order.
+ */
+public class Http1Connection extends HttpConnection {
+
+	private static final byte[] SP = { ' ' };
+	private static final byte[] HTTP_1_1 = " HTTP/1.1\r\n".getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] CRLF = { '\r', '\n' };
+	private static final byte[] COLON_SP = { ':', ' ' };
+	private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] LAST_CHUNK = { '0', '\r', '\n', '\r', '\n' };
+	private static final int FILE_CHUNK_SIZE = 64 * 1024;
+
+	private final ArrayDeque<HttpExchange> inflight = new ArrayDeque<>();
+	private final Http1ResponseDecoder decoder;
+	// the exchange whose streamed or file body is being sent
+	private HttpExchange uploading;
+	private FileChannel file;
+	private long filePosition;
+	private long fileEnd;
+
+	public Http1Connection(NioChannel channel, ConnectionKey key, JCurlClientOptions options) {
+		super(channel, key);
+		this.decoder = new Http1ResponseDecoder(options.getMaxHeaderSize());
+	}
+
+	@Override
+	public HttpVersion version() {
+		return HttpVersion.HTTP_1_1;
+	}
+
+	@Override
+	public int inflight() {
+		return inflight.size();
+	}
+
+	@Override
+	public void send(HttpExchange exchange) {
+		EventLoop loop = channel.eventLoop();
+		if (!loop.inEventLoop()) {
+			try {
+				loop.execute(() -> send(exchange));
+			} catch (RejectedExecutionException e) {
+				exchange.listener().onError(e);
+			}
+			return;
+		}
+		if (closed) {
+			exchange.listener().onError(new IOException("Connection closed"));
+			return;
+		}
+		exchanges++;
+		inflight.add(exchange);
+		if (inflight.size() == 1) {
+			decoder.reset(exchange.method(), exchange.listener());
+		}
+		channel.write(encodeHead(exchange));
+		if (exchange.body() != null && exchange.body().buffer().hasRemaining()) {
+			channel.write(exchange.body().retainedDuplicate());
+		} else if (exchange.stream() != null) {
+			uploading = exchange;
+			exchange.stream().onAvailable(() -> {
+				try {
+					loop.execute(this::upload);
+				} catch (RejectedExecutionException e) {
+					// the loop closes its channels on shutdown
+				}
+			});
+			upload();
+		} else if (exchange.file() != null && exchange.file().count() > 0) {
+			FileRegion region = exchange.file();
+			try {
+				file = region.open();
+			} catch (IOException e) {
+				channel.close(e);
+				return;
+			}
+			uploading = exchange;
+			filePosition = region.position();
+			fileEnd = region.position() + region.count();
+			uploadFile();
+		}
+	}
+
+	@Override
+	public void onWritable() {
+		if (uploading == null) {
+			return;
+		}
+		if (file != null) {
+			uploadFile();
+		} else {
+			upload();
+		}
+	}
+
+	/**
+	 * Send the file while the socket accepts it: from the file system cache
+	 * straight to the socket on a plain text channel, through pooled buffers
+	 * otherwise.
+	 */
+	private void uploadFile() {
+		try {
+			while (filePosition < fileEnd && channel.isWritable()) {
+				long remaining = fileEnd - filePosition;
+				if (!channel.isSsl()) {
+					long written = channel.transferFrom(file, filePosition, remaining);
+					if (written == 0 && filePosition >= file.size()) {
+						throw uploading.file().truncated();
+					}
+					filePosition += written;
+					if (written < remaining) {
+						// called back once the socket accepts more bytes
+						return;
+					}
+				} else {
+					PooledBuffer chunk = channel.bufferPool().acquire((int) Math.min(remaining, FILE_CHUNK_SIZE));
+					ByteBuffer buffer = chunk.buffer();
+					buffer.limit((int) Math.min(remaining, buffer.capacity()));
+					try {
+						while (buffer.hasRemaining()) {
+							if (file.read(buffer, filePosition + buffer.position()) < 0) {
+								throw uploading.file().truncated();
+							}
+						}
+					} catch (IOException e) {
+						chunk.release();
+						throw e;
+					}
+					buffer.flip();
+					filePosition += buffer.remaining();
+					channel.write(chunk);
+				}
+			}
+			if (filePosition == fileEnd) {
+				uploading = null;
+				closeFile();
+			}
+		} catch (IOException e) {
+			uploading = null;
+			closeFile();
+			channel.close(e);
+		}
+	}
+
+	private void abortUpload(Throwable cause) {
+		if (uploading != null) {
+			if (uploading.stream() != null) {
+				uploading.stream().cancel(cause);
+			}
+			uploading = null;
+		}
+		closeFile();
+	}
+
+	private void closeFile() {
+		if (file != null) {
+			try {
+				file.close();
+			} catch (IOException e) {
+				// read only
+			}
+			file = null;
+		}
+	}
+
+	/**
+	 * Send the chunks of the streamed body while the socket accepts them, the
+	 * connection resumes once it is writable or more chunks are queued.
+	 */
+	private void upload() {
+		HttpExchange exchange = uploading;
+		if (exchange == null) {
+			return;
+		}
+		BodyStream stream = exchange.stream();
+		while (channel.isWritable()) {
+			PooledBuffer chunk = stream.poll();
+			if (chunk == null) {
+				Throwable failure = stream.failure();
+				if (failure != null) {
+					uploading = null;
+					channel.close(failure);
+				} else if (stream.isEnded()) {
+					uploading = null;
+					channel.write(ByteBuffer.wrap(LAST_CHUNK));
+				}
+				return;
+			}
+			PooledBuffer size = channel.bufferPool().acquire(16);
+			ByteBuffer out = size.buffer();
+			int length = chunk.buffer().remaining();
+			for (int shift = (31 - Integer.numberOfLeadingZeros(length)) & ~3; shift >= 0; shift -= 4) {
+				out.put(HEX[(length >>> shift) & 0xf]);
+			}
+			out.put(CRLF).flip();
+			channel.write(size);
+			channel.write(chunk);
+			channel.write(ByteBuffer.wrap(CRLF));
+		}
+	}
+
+	/**
+	 * Close the connection, requests written on an HTTP/1.1 connection cannot be
+	 * aborted on their own.
+	 */
+	@Override
+	public void cancel(HttpExchange exchange) {
+		close();
+	}
+
+	@Override
+	public void resume(HttpExchange exchange) {
+		EventLoop loop = channel.eventLoop();
+		try {
+			// always deferred, the listener may resume from one of its callbacks
+			loop.execute(() -> {
+				if (inflight.peek() == exchange) {
+					channel.resumeReading();
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			// the loop closes its channels on shutdown
+		}
+	}
+
+	@Override
+	public void onData(ByteBuffer buffer) {
+		try {
+			while (!inflight.isEmpty()) {
+				if (!decoder.decode(buffer)) {
+					if (decoder.isSuspended()) {
+						channel.pauseReading();
+					}
+					return;
+				}
+				HttpExchange done = inflight.poll();
+				if (done == uploading) {
+					// the server responded before reading the whole body
+					abortUpload(new IOException("The response was received before the request body was sent"));
+					close();
+					return;
+				}
+				if (!decoder.isKeepAlive()) {
+					close();
+					return;
+				}
+				HttpExchange next = inflight.peek();
+				if (next != null) {
+					decoder.reset(next.method(), next.listener());
+				}
+				recycled();
+			}
+			if (buffer.hasRemaining()) {
+				throw new IOException("Unexpected data received");
+			}
+		} catch (IOException e) {
+			channel.close(e);
+		}
+	}
+
+	@Override
+	public void onClosed(Throwable cause) {
+		closed = true;
+		if (cause == null && decoder.isUntilClose()) {
+			inflight.poll();
+			decoder.closed();
+		}
+		Throwable failure = cause != null ? cause : new IOException("Connection closed");
+		abortUpload(failure);
+		HttpExchange exchange;
+		while ((exchange = inflight.poll()) != null) {
+			exchange.listener().onError(failure);
+		}
+		closed();
+	}
+
+	/**
+	 * Encode the request line and headers in a pooled buffer, the header values
+	 * are written as ISO-8859-1.
+	 */
+	private PooledBuffer encodeHead(HttpExchange exchange) {
+		PooledBuffer buffer = channel.bufferPool().acquire(512);
+		buffer = putAscii(buffer, exchange.method().name());
+		buffer = put(buffer, SP);
+		String target = exchange.requestTarget();
+		buffer = isAscii(target) ? putAscii(buffer, target) : put(buffer, target.getBytes(StandardCharsets.UTF_8));
+		buffer = put(buffer, HTTP_1_1);
+		CaseInsensitiveHeaders headers = exchange.headers();
+		for (int i = 0; i < headers.size(); i++) {
+			String name = headers.name(i);
+			byte[] encoded = HeaderNames.encoded(name);
+			if (encoded != null) {
+				buffer = put(buffer, encoded);
+			} else {
+				buffer = putAscii(buffer, name);
+				buffer = put(buffer, COLON_SP);
+			}
+			buffer = putAscii(buffer, headers.value(i));
+			buffer = put(buffer, CRLF);
+		}
+		buffer = put(buffer, CRLF);
+		buffer.buffer().flip();
+		return buffer;
+	}
+
+	private PooledBuffer put(PooledBuffer buffer, byte[] bytes) {
+		buffer = ensure(buffer, bytes.length);
+		buffer.buffer().put(bytes);
+		return buffer;
+	}
+
+	/**
+	 * Put the chars as single bytes, the ones beyond ISO-8859-1 as '?'.
+	 */
+	private PooledBuffer putAscii(PooledBuffer buffer, String value) {
+		int length = value.length();
+		buffer = ensure(buffer, length);
+		ByteBuffer out = buffer.buffer();
+		for (int i = 0; i < length; i++) {
+			char c = value.charAt(i);
+			out.put(c > 0xff ? (byte) '?' : (byte) c);
+		}
+		return buffer;
+	}
+
+	private PooledBuffer ensure(PooledBuffer buffer, int length) {
+		if (buffer.buffer().remaining() >= length) {
+			return buffer;
+		}
+		ByteBuffer out = buffer.buffer();
+		PooledBuffer bigger = channel.bufferPool().acquire(Math.max(out.capacity() * 2, out.position() + length));
+		out.flip();
+		bigger.buffer().put(out);
+		buffer.release();
+		return bigger;
+	}
+
+	private static boolean isAscii(String value) {
+		for (int i = 0; i < value.length(); i++) {
+			if (value.charAt(i) >= 0x80) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+}
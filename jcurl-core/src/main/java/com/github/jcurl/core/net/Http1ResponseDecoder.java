@@ -0,0 +1,509 @@
+package com.github.jcurl.core.net;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import com.github.jcurl.core.http.HeaderNames;
+import com.github.jcurl.core.http.HttpMethod;
+import com.github.jcurl.core.http.HttpVersion;
+
+/**
+ * Incremental HTTP/1.x response decoder, resumes where it stopped when the
+ * buffer runs out of bytes.
+ * <p>
+ * The lines of the head, of the chunk sizes and of the trailers are copied
+ * into a reused line buffer as they arrive and parsed from their bytes, so
+ * that a partial line is never scanned twice. The header lines are kept one
+ * after the other in the line buffer with the offsets of their names and
+ * values, and the {@link ResponseHead} receives a copy of that block, so that
+ * the headers are only decoded when they are read.
+ */
+public class Http1ResponseDecoder {
+
+	private static final int INITIAL_LINE_SIZE = 512;
+	private static final int INITIAL_FIELDS = 16;
+	private static final byte[] HTTP_1 = { 'H', 'T', 'T', 'P', '/', '1', '.' };
+
+	private enum State {
+		STATUS_LINE, HEADERS, FIXED_BODY, CHUNK_SIZE, CHUNK_DATA, CHUNK_END, TRAILERS, UNTIL_CLOSE, DONE
+	}
+
+	private final int maxHeaderSize;
+	private State state = State.DONE;
+	private HttpMethod method;
+	private ResponseListener listener;
+	private ResponseHead head;
+	private HttpVersion version;
+	private int statusCode;
+	private String statusMessage;
+	private long remaining;
+	private long contentLength;
+	private boolean keepAlive;
+	private boolean suspended;
+	// the current line from lineStart, without its CRLF once complete, the
+	// previous header lines of the head are kept before lineStart
+	private byte[] line = new byte[INITIAL_LINE_SIZE];
+	private int lineStart;
+	private int lineLength;
+	// name start, name end, value start and value end of each header line
+	private int[] fields = new int[INITIAL_FIELDS << 2];
+	private int fieldCount;
+	private boolean lineComplete;
+	// the bytes of the head or of the trailers received so far
+	private int headSize;
+
+	/**
+	 * @param maxHeaderSize the maximum size of the status line and headers, and
+	 *                      of the trailers
+	 */
+	public Http1ResponseDecoder(int maxHeaderSize) {
+		this.maxHeaderSize = maxHeaderSize;
+	}
+
+	/**
+	 * Prepare the decoder for the response of a new request.
+	 *
+	 * @param method   the request method
+	 * @param listener the response listener
+	 */
+	public void reset(HttpMethod method, ResponseListener listener) {
+		this.method = method;
+		this.listener = listener;
+		this.head = null;
+		this.state = State.STATUS_LINE;
+		this.lineStart = 0;
+		this.lineLength = 0;
+		this.lineComplete = false;
+		this.fieldCount = 0;
+		this.headSize = 0;
+		this.contentLength = -1;
+	}
+
+	/**
+	 * @return can the connection be reused for another request after the current
+	 *         response?
+	 */
+	public boolean isKeepAlive() {
+		return keepAlive;
+	}
+
+	/**
+	 * @return is the current response body delimited by the connection close?
+	 */
+	public boolean isUntilClose() {
+		return state == State.UNTIL_CLOSE;
+	}
+
+	/**
+	 * @return was the status line of the current response received?
+	 */
+	public boolean isStarted() {
+		return state != State.STATUS_LINE && state != State.DONE;
+	}
+
+	/**
+	 * @return did the last {@link #decode(ByteBuffer)} stop because the listener
+	 *         is suspended?
+	 */
+	public boolean isSuspended() {
+		return suspended;
+	}
+
+	/**
+	 * Complete a response whose body is delimited by the connection close.
+	 */
+	public void closed() {
+		if (state == State.UNTIL_CLOSE) {
+			finish();
+		}
+	}
+
+	/**
+	 * Consume the bytes of the current response from {@code in}.
+	 *
+	 * @param in the received bytes
+	 * @return true when the response is complete, the bytes of the next response
+	 *         are left in {@code in}
+	 * @throws IOException when the response is malformed
+	 */
+	public boolean decode(ByteBuffer in) throws IOException {
+		suspended = false;
+		for (;;) {
+			switch (state) {
+			case STATUS_LINE:
+				if (!readLine(in)) {
+					return false;
+				}
+				if (lineLength > 0) {
+					// tolerate the empty lines before the status line
+					parseStatusLine();
+					lineLength = 0;
+					lineComplete = false;
+					state = State.HEADERS;
+				}
+				break;
+			case HEADERS:
+				if (!readLine(in)) {
+					return false;
+				}
+				if (lineLength == lineStart) {
+					if (endHeaders()) {
+						return true;
+					}
+				} else {
+					addHeader(true);
+				}
+				break;
+			case FIXED_BODY:
+			case CHUNK_DATA:
+				if (!in.hasRemaining() || isListenerSuspended()) {
+					return false;
+				}
+				int n = (int) Math.min(remaining, in.remaining());
+				deliver(in, n);
+				remaining -= n;
+				if (remaining == 0) {
+					if (state == State.FIXED_BODY) {
+						return finish();
+					}
+					headSize = 0;
+					state = State.CHUNK_END;
+				}
+				break;
+			case CHUNK_SIZE:
+				if (!readLine(in)) {
+					return false;
+				}
+				remaining = parseChunkSize();
+				if (remaining == 0) {
+					headSize = 0;
+					state = State.TRAILERS;
+				} else {
+					state = State.CHUNK_DATA;
+				}
+				break;
+			case CHUNK_END:
+				if (!readLine(in)) {
+					return false;
+				}
+				if (lineLength != 0) {
+					throw new IOException("Invalid chunk delimiter");
+				}
+				headSize = 0;
+				state = State.CHUNK_SIZE;
+				break;
+			case TRAILERS:
+				if (!readLine(in)) {
+					return false;
+				}
+				if (lineLength == 0) {
+					return finish();
+				}
+				addHeader(false);
+				break;
+			case UNTIL_CLOSE:
+				if (in.hasRemaining() && !isListenerSuspended()) {
+					deliver(in, in.remaining());
+				}
+				return false;
+			default:
+				return false;
+			}
+		}
+	}
+
+	private void parseStatusLine() throws IOException {
+		byte[] b = line;
+		int length = lineLength;
+		// HTTP/1.x SP 3DIGIT [SP reason]
+		if (length < 12 || !startsWith(b, HTTP_1) || !isDigit(b[7]) || b[8] != ' ' || !isDigit(b[9]) || !isDigit(b[10])
+				|| !isDigit(b[11]) || (length > 12 && b[12] != ' ')) {
+			throw new IOException("Invalid status line: " + new String(b, 0, length, StandardCharsets.ISO_8859_1));
+		}
+		version = b[7] == '0' ? HttpVersion.HTTP_1_0 : HttpVersion.HTTP_1_1;
+		statusCode = (b[9] - '0') * 100 + (b[10] - '0') * 10 + (b[11] - '0');
+		statusMessage = reason(statusCode, b, length > 12 ? 13 : 12, length);
+	}
+
+	private void addHeader(boolean framing) throws IOException {
+		byte[] b = line;
+		int start = lineStart;
+		int length = lineLength;
+		if (b[start] == ' ' || b[start] == '\t') {
+			throw new IOException("Obsolete header line folding");
+		}
+		int colon = start;
+		while (colon < length && b[colon] != ':') {
+			colon++;
+		}
+		int end = colon;
+		while (end > start && b[end - 1] <= ' ') {
+			end--;
+		}
+		if (colon == length || end == start) {
+			throw new IOException(
+					"Invalid header: " + new String(b, start, length - start, StandardCharsets.ISO_8859_1));
+		}
+		int valueStart = colon + 1;
+		int valueEnd = length;
+		while (valueStart < valueEnd && (b[valueStart] == ' ' || b[valueStart] == '\t')) {
+			valueStart++;
+		}
+		while (valueEnd > valueStart && (b[valueEnd - 1] == ' ' || b[valueEnd - 1] == '\t')) {
+			valueEnd--;
+		}
+		if (!framing) {
+			head.addTrailer(b, start, end, valueStart, valueEnd);
+			return;
+		}
+		if (ResponseHead.equalsIgnoreCase(b, start, end, HeaderNames.CONTENT_LENGTH)) {
+			long value = parseContentLength(b, valueStart, valueEnd);
+			if (contentLength >= 0 && contentLength != value) {
+				throw new IOException("Conflicting content-length: " + contentLength + ", " + value);
+			}
+			contentLength = value;
+		}
+		int f = fieldCount << 2;
+		if (f == fields.length) {
+			fields = Arrays.copyOf(fields, f * 2);
+		}
+		fields[f] = start;
+		fields[f + 1] = end;
+		fields[f + 2] = valueStart;
+		fields[f + 3] = valueEnd;
+		fieldCount++;
+	}
+
+	/**
+	 * @return true when the response has no body and is complete
+	 */
+	private boolean endHeaders() throws IOException {
+		int status = statusCode;
+		if (status >= 100 && status < 200 && status != 101) {
+			// interim response, the final one follows
+			state = State.STATUS_LINE;
+			headSize = 0;
+			contentLength = -1;
+			fieldCount = 0;
+			return false;
+		}
+		head = new ResponseHead(version, status, statusMessage, Arrays.copyOf(line, lineStart),
+				Arrays.copyOf(fields, fieldCount << 2), fieldCount);
+		statusMessage = null;
+		if (version == HttpVersion.HTTP_1_0) {
+			keepAlive = head.containsToken(HeaderNames.CONNECTION, "keep-alive");
+		} else {
+			keepAlive = !head.containsToken(HeaderNames.CONNECTION, "close");
+		}
+		listener.onHead(head);
+		if (method == HttpMethod.HEAD || status == 204 || status == 304) {
+			return finish();
+		}
+		if (head.containsToken(HeaderNames.TRANSFER_ENCODING, "chunked")) {
+			headSize = 0;
+			state = State.CHUNK_SIZE;
+		} else if (contentLength >= 0) {
+			remaining = contentLength;
+			if (remaining == 0) {
+				return finish();
+			}
+			state = State.FIXED_BODY;
+		} else {
+			keepAlive = false;
+			state = State.UNTIL_CLOSE;
+		}
+		return false;
+	}
+
+	private boolean finish() {
+		state = State.DONE;
+		ResponseListener l = listener;
+		listener = null;
+		head.publishTrailers();
+		head = null;
+		l.onEnd();
+		return true;
+	}
+
+	private boolean isListenerSuspended() {
+		suspended = listener.isSuspended();
+		return suspended;
+	}
+
+	private void deliver(ByteBuffer in, int length) {
+		ByteBuffer chunk = in.slice();
+		chunk.limit(length);
+		in.position(in.position() + length);
+		listener.onData(chunk);
+	}
+
+	private long parseChunkSize() throws IOException {
+		byte[] b = line;
+		int length = lineLength;
+		long size = 0;
+		int i = 0;
+		for (; i < length; i++) {
+			int digit = Character.digit(b[i], 16);
+			if (digit < 0) {
+				break;
+			}
+			if (size > (Long.MAX_VALUE >> 4)) {
+				throw new IOException("Chunk size overflow");
+			}
+			size = (size << 4) | digit;
+		}
+		int digits = i;
+		while (i < length && (b[i] == ' ' || b[i] == '\t')) {
+			i++;
+		}
+		// the chunk extensions are ignored
+		if (digits == 0 || (i < length && b[i] != ';')) {
+			throw new IOException("Invalid chunk size: " + new String(b, 0, length, StandardCharsets.ISO_8859_1));
+		}
+		return size;
+	}
+
+	/**
+	 * Copy the bytes of {@code in} up to the next LF into the line buffer.
+	 *
+	 * @return true when the line is complete, its length excludes the CRLF
+	 */
+	private boolean readLine(ByteBuffer in) throws IOException {
+		if (lineComplete) {
+			lineComplete = false;
+			lineStart = state == State.HEADERS ? lineLength : 0;
+			lineLength = lineStart;
+		}
+		int start = in.position();
+		int limit = in.limit();
+		int lf = start;
+		while (lf < limit && in.get(lf) != '\n') {
+			lf++;
+		}
+		int n = lf - start;
+		headSize += n < limit - start ? n + 1 : n;
+		if (headSize > maxHeaderSize) {
+			throw new IOException("Response head exceeds " + maxHeaderSize + " bytes");
+		}
+		if (lineLength + n > line.length) {
+			line = Arrays.copyOf(line, Math.max(lineLength + n, line.length * 2));
+		}
+		in.get(line, lineLength, n);
+		lineLength += n;
+		if (lf == limit) {
+			return false;
+		}
+		in.position(lf + 1);
+		if (lineLength > lineStart && line[lineLength - 1] == '\r') {
+			lineLength--;
+		}
+		lineComplete = true;
+		return true;
+	}
+
+	private static boolean startsWith(byte[] b, byte[] prefix) {
+		for (int i = 0; i < prefix.length; i++) {
+			if (b[i] != prefix[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean isDigit(byte b) {
+		return b >= '0' && b <= '9';
+	}
+
+	private static long parseContentLength(byte[] b, int start, int end) throws IOException {
+		if (start == end) {
+			throw new IOException("Invalid content-length");
+		}
+		long value = 0;
+		for (int i = start; i < end; i++) {
+			if (!isDigit(b[i]) || value > (Long.MAX_VALUE - 9) / 10) {
+				throw new IOException(
+						"Invalid content-length: " + new String(b, start, end - start, StandardCharsets.ISO_8859_1));
+			}
+			value = value * 10 + (b[i] - '0');
+		}
+		return value;
+	}
+
+	/**
+	 * @return the standard reason phrase of {@code statusCode} when it is the
+	 *         received one, or a new string
+	 */
+	private static String reason(int statusCode, byte[] b, int start, int end) {
+		String standard = standardReason(statusCode);
+		if (standard != null && standard.length() == end - start) {
+			int i = 0;
+			while (i < standard.length() && standard.charAt(i) == b[start + i]) {
+				i++;
+			}
+			if (i == standard.length()) {
+				return standard;
+			}
+		}
+		return new String(b, start, end - start, StandardCharsets.ISO_8859_1);
+	}
+
+	private static String standardReason(int statusCode) {
+		switch (statusCode) {
+		case 100:
+			return "Continue";
+		case 101:
+			return "Switching Protocols";
+		case 200:
+			return "OK";
+		case 201:
+			return "Created";
+		case 202:
+			return "Accepted";
+		case 204:
+			return "No Content";
+		case 206:
+			return "Partial Content";
+		case 301:
+			return "Moved Permanently";
+		case 302:
+			return "Found";
+		case 303:
+			return "See Other";
+		case 304:
+			return "Not Modified";
+		case 307:
+			return "Temporary Redirect";
+		case 308:
+			return "Permanent Redirect";
+		case 400:
+			return "Bad Request";
+		case 401:
+			return "Unauthorized";
+		case 403:
+			return "Forbidden";
+		case 404:
+			return "Not Found";
+		case 405:
+			return "Method Not Allowed";
+		case 409:
+			return "Conflict";
+		case 412:
+			return "Precondition Failed";
+		case 429:
+			return "Too Many Requests";
+		case 500:
+			return "Internal Server Error";
+		case 502:
+			return "Bad Gateway";
+		case 503:
+			return "Service Unavailable";
+		case 504:
+			return "Gateway Timeout";
+		default:
+			return null;
+		}
+	}
+
+}
@@ -0,0 +1,195 @@
+package com.github.jcurl.core.net;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+
+import com.github.jcurl.core.http.HttpVersion;
+
+/**
+ * A connection carrying {@link HttpExchange}s over a {@link NioChannel}.
+ * <p>
+ * {@link #send(HttpExchange)}, {@link #cancel(HttpExchange)},
+ * {@link #resume(HttpExchange)}, {@link #release()} and {@link #close()} can
+ * be called from any thread, the
+ * other methods must be called from the event loop thread of the channel.
+ */
+public abstract class HttpConnection implements ChannelListener {
+
+	protected final NioChannel channel;
+	private final ConnectionKey key;
+	private final long createdAt = System.nanoTime();
+	private Consumer<HttpConnection> recycleHandler = HttpConnection::closeIfIdle;
+	private Consumer<HttpConnection> closeHandler;
+	protected volatile boolean closed;
+	protected volatile int exchanges;
+	// guarded by the pool lock
+	boolean pooled;
+	boolean exclusive;
+	int pending;
+	long idleSince;
+
+	protected HttpConnection(NioChannel channel, ConnectionKey key) {
+		this.channel = channel;
+		this.key = key;
+	}
+
+	/**
+	 * @return the protocol of the connection
+	 */
+	public abstract HttpVersion version();
+
+	/**
+	 * @return does the connection carry concurrent exchanges independently of
+	 *         each other?
+	 */
+	public boolean isMultiplexed() {
+		return false;
+	}
+
+	/**
+	 * @return the number of exchanges the connection carries at the same time
+	 */
+	public int concurrency() {
+		return 1;
+	}
+
+	/**
+	 * Write the request of the {@code exchange}.
+	 */
+	public abstract void send(HttpExchange exchange);
+
+	/**
+	 * Abort the {@code exchange}, its listener is not notified. The connection is
+	 * closed when the exchange cannot be aborted on its own.
+	 */
+	public abstract void cancel(HttpExchange exchange);
+
+	/**
+	 * Resume the delivery of the response body of the {@code exchange}, once its
+	 * listener is no longer suspended.
+	 */
+	public abstract void resume(HttpExchange exchange);
+
+	/**
+	 * @return the number of requests waiting for their response
+	 */
+	public abstract int inflight();
+
+	/**
+	 * @return the channel of the connection
+	 */
+	public NioChannel channel() {
+		return channel;
+	}
+
+	/**
+	 * @return the key of the connection
+	 */
+	public ConnectionKey key() {
+		return key;
+	}
+
+	/**
+	 * @return the value of {@link System#nanoTime()} when the connection was
+	 *         created
+	 */
+	public long createdAt() {
+		return createdAt;
+	}
+
+	/**
+	 * @return the number of requests sent on the connection so far
+	 */
+	public int exchanges() {
+		return exchanges;
+	}
+
+	/**
+	 * @return can the connection carry new exchanges?
+	 */
+	public boolean isOpen() {
+		return !closed;
+	}
+
+	/**
+	 * Set the handler called each time an exchange completes and the connection
+	 * can be reused, by default the connection is closed once no request is in
+	 * flight.
+	 */
+	public void recycleHandler(Consumer<HttpConnection> handler) {
+		this.recycleHandler = handler;
+	}
+
+	/**
+	 * Set the handler called once the connection is closed.
+	 */
+	public void closeHandler(Consumer<HttpConnection> handler) {
+		this.closeHandler = handler;
+	}
+
+	/**
+	 * Give back a connection acquired for an exchange that was not sent.
+	 */
+	public void release() {
+		EventLoop loop = channel.eventLoop();
+		if (loop.inEventLoop()) {
+			recycled();
+		} else {
+			try {
+				loop.execute(this::recycled);
+			} catch (RejectedExecutionException e) {
+				// the loop closes its channels on shutdown
+			}
+		}
+	}
+
+	/**
+	 * Close the connection, the in flight exchanges fail.
+	 */
+	public void close() {
+		EventLoop loop = channel.eventLoop();
+		if (loop.inEventLoop()) {
+			doClose();
+		} else if (!closed) {
+			try {
+				loop.execute(this::doClose);
+			} catch (RejectedExecutionException e) {
+				// the loop closes its channels on shutdown
+			}
+		}
+	}
+
+	@Override
+	public void onConnected(NioChannel channel) {
+	}
+
+	/**
+	 * Close the connection from the event loop thread.
+	 */
+	protected void doClose() {
+		channel.close();
+	}
+
+	/**
+	 * Notify the recycle handler that an exchange completed.
+	 */
+	protected void recycled() {
+		recycleHandler.accept(this);
+	}
+
+	/**
+	 * Notify the close handler that the connection is closed.
+	 */
+	protected void closed() {
+		if (closeHandler != null) {
+			closeHandler.accept(this);
+		}
+	}
+
+	private void closeIfIdle() {
+		if (inflight() == 0) {
+			close();
+		}
+	}
+
+}
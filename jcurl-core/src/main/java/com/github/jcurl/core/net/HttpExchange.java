@@ -0,0 +1,101 @@
+package com.github.jcurl.core.net;
+
+import com.github.jcurl.core.buffer.PooledBuffer;
+import com.github.jcurl.core.http.CaseInsensitiveHeaders;
+import com.github.jcurl.core.http.HttpMethod;
+
+/**
+ * A request ready to be written on a connection, and the listener of its
+ * response.
+ */
+public class HttpExchange {
+
+	private final HttpMethod method;
+	private final String requestTarget;
+	private final CaseInsensitiveHeaders headers;
+	private final PooledBuffer body;
+	private final BodyStream stream;
+	private final FileRegion file;
+	private final ResponseListener listener;
+
+	/**
+	 * @param method        the method
+	 * @param requestTarget the path and query of the request
+	 * @param headers       the complete set of request headers, including Host
+	 *                      and Content-Length
+	 * @param body          the body, {@code null} when there is none, the
+	 *                      connections retain it while they write it
+	 * @param listener      the response listener
+	 */
+	public HttpExchange(HttpMethod method, String requestTarget, CaseInsensitiveHeaders headers, PooledBuffer body,
+			ResponseListener listener) {
+		this(method, requestTarget, headers, body, null, null, listener);
+	}
+
+	/**
+	 * @param method        the method
+	 * @param requestTarget the path and query of the request
+	 * @param headers       the complete set of request headers, including Host
+	 *                      and Transfer-Encoding
+	 * @param stream        the body sent while it is written, with the chunked
+	 *                      transfer coding on HTTP/1.1
+	 * @param listener      the response listener
+	 */
+	public HttpExchange(HttpMethod method, String requestTarget, CaseInsensitiveHeaders headers, BodyStream stream,
+			ResponseListener listener) {
+		this(method, requestTarget, headers, null, stream, null, listener);
+	}
+
+	/**
+	 * @param method        the method
+	 * @param requestTarget the path and query of the request
+	 * @param headers       the complete set of request headers, including Host
+	 *                      and Content-Length
+	 * @param file          the body read from a file
+	 * @param listener      the response listener
+	 */
+	public HttpExchange(HttpMethod method, String requestTarget, CaseInsensitiveHeaders headers, FileRegion file,
+			ResponseListener listener) {
+		this(method, requestTarget, headers, null, null, file, listener);
+	}
+
+	private HttpExchange(HttpMethod method, String requestTarget, CaseInsensitiveHeaders headers, PooledBuffer body,
+			BodyStream stream, FileRegion file, ResponseListener listener) {
+		this.method = method;
+		this.requestTarget = requestTarget;
+		this.headers = headers;
+		this.body = body;
+		this.stream = stream;
+		this.file = file;
+		this.listener = listener;
+	}
+
+	public HttpMethod method() {
+		return method;
+	}
+
+	public String requestTarget() {
+		return requestTarget;
+	}
+
+	public CaseInsensitiveHeaders headers() {
+		return headers;
+	}
+
+	public PooledBuffer body() {
+		return body;
+	}
+
+	public BodyStream stream() {
+		return stream;
+	}
+
+	public FileRegion file() {
+		return file;
+	}
+
+	public ResponseListener listener() {
+		return listener;
+	}
+
+}
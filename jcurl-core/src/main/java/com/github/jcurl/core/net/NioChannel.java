@@ -0,0 +1,575 @@
+package com.github.jcurl.core.net;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLEngineResult;
+import javax.net.ssl.SSLException;
+
+import com.github.jcurl.core.buffer.BufferPool;
+import com.github.jcurl.core.buffer.PooledBuffer;
+import com.github.jcurl.core.http.HttpVersion;
+import com.github.jcurl.core.http.JCurlClientOptions;
+
+/**
+ * A non blocking {@link SocketChannel} registered on an {@link EventLoop},
+ * optionally secured by an {@link SSLEngine}.
+ * <p>
+ * The read buffers are taken from the {@link BufferPool} when bytes arrive and
+ * given back once the listener consumed them, so that idle channels hold no
+ * buffer. Heap buffers are copied to pooled buffers before they are written
+ * when the pool is direct.
+ * <p>
+ * Every method must be called from the event loop thread.
+ */
+public class NioChannel implements ChannelHandler {
+
+	private static final ByteBuffer EMPTY = ByteBuffer.allocate(0);
+	private static final int MAX_GATHER = 16;
+	private static final int STAGING_SIZE = 64 * 1024;
+
+	private final EventLoop eventLoop;
+	private final SocketChannel channel;
+	private final SSLEngine sslEngine;
+	private final boolean tcpNoDelay;
+	private final int maxReadBufferSize;
+	private final int readBufferSize;
+	private final BufferPool bufferPool;
+	private final ArrayDeque<PooledBuffer> writeQueue = new ArrayDeque<>();
+	private final ByteBuffer[] gather = new ByteBuffer[MAX_GATHER];
+	private ChannelListener listener;
+	private SelectionKey key;
+	// null when empty
+	private PooledBuffer inbound;
+	private PooledBuffer netIn;
+	private Timeout connectTimeout;
+	private boolean handshaking;
+	private boolean paused;
+	// the buffers are in use, they are released once the handling completes
+	private boolean busy;
+	private boolean closed;
+
+	/**
+	 * @param eventLoop the loop the channel is registered on
+	 * @param sslEngine the engine in client mode, {@code null} for plain text
+	 * @param options    the client options
+	 * @param bufferPool the pool of the read and write buffers
+	 */
+	public NioChannel(EventLoop eventLoop, SSLEngine sslEngine, JCurlClientOptions options, BufferPool bufferPool)
+			throws IOException {
+		this.eventLoop = eventLoop;
+		this.sslEngine = sslEngine;
+		this.bufferPool = bufferPool;
+		this.tcpNoDelay = options.isTcpNoDelay();
+		int maxFrameSize = options.getProtocolVersion() == HttpVersion.HTTP_2 ? options.getHttp2MaxFrameSize() + 9 : 0;
+		this.maxReadBufferSize = Math.max(Math.max(options.getReadBufferSize(), options.getMaxHeaderSize()), maxFrameSize);
+		this.channel = SocketChannel.open();
+		int readBufferSize = options.getReadBufferSize();
+		if (sslEngine != null) {
+			readBufferSize = Math.max(readBufferSize, sslEngine.getSession().getApplicationBufferSize());
+		}
+		this.readBufferSize = readBufferSize;
+	}
+
+	/**
+	 * @return the loop the channel is registered on
+	 */
+	public EventLoop eventLoop() {
+		return eventLoop;
+	}
+
+	/**
+	 * @return the pool of the buffers written to the channel
+	 */
+	public BufferPool bufferPool() {
+		return bufferPool;
+	}
+
+	/**
+	 * @return is the channel secured by SSL/TLS?
+	 */
+	public boolean isSsl() {
+		return sslEngine != null;
+	}
+
+	/**
+	 * @return the protocol negotiated with ALPN during the SSL/TLS handshake,
+	 *         {@code null} when none was or the runtime does not support ALPN
+	 */
+	public String applicationProtocol() {
+		if (sslEngine == null || !ConnectionFactory.ALPN) {
+			return null;
+		}
+		String protocol = sslEngine.getApplicationProtocol();
+		return protocol == null || protocol.isEmpty() ? null : protocol;
+	}
+
+	/**
+	 * @return is the channel open?
+	 */
+	public boolean isOpen() {
+		return !closed;
+	}
+
+	/**
+	 * Connect to the {@code address}, the {@code listener} is notified once
+	 * connected or when the connection fails.
+	 *
+	 * @param address       the resolved address
+	 * @param listener      the listener
+	 * @param timeoutMillis the connect timeout, zero or negative disables it
+	 */
+	public void connect(InetSocketAddress address, ChannelListener listener, long timeoutMillis) {
+		this.listener = listener;
+		try {
+			channel.configureBlocking(false);
+			channel.setOption(StandardSocketOptions.TCP_NODELAY, tcpNoDelay);
+			if (channel.connect(address)) {
+				key = eventLoop.register(channel, SelectionKey.OP_READ, this);
+				connected();
+			} else {
+				key = eventLoop.register(channel, SelectionKey.OP_CONNECT, this);
+				if (timeoutMillis > 0) {
+					connectTimeout = eventLoop.schedule(
+							() -> close(new ConnectException("Connection timed out: " + address)),
+							timeoutMillis, TimeUnit.MILLISECONDS);
+				}
+			}
+		} catch (IOException e) {
+			close(e);
+		}
+	}
+
+	/**
+	 * Write the {@code buffer}, the bytes are queued when the socket send buffer
+	 * is full.
+	 *
+	 * @param buffer the plain text bytes, the channel owns it from now on
+	 */
+	public void write(ByteBuffer buffer) {
+		write(PooledBuffer.wrap(buffer));
+	}
+
+	/**
+	 * Write the remaining bytes of the {@code buffer}, the bytes are queued when
+	 * the socket send buffer is full.
+	 *
+	 * @param buffer the plain text bytes, the channel releases it once written
+	 */
+	public void write(PooledBuffer buffer) {
+		if (closed) {
+			buffer.release();
+			return;
+		}
+		try {
+			if (sslEngine != null) {
+				try {
+					wrap(buffer.buffer());
+				} finally {
+					buffer.release();
+				}
+			} else {
+				writeQueue.add(buffer);
+			}
+			flush();
+		} catch (IOException e) {
+			close(e);
+		}
+	}
+
+	/**
+	 * @return is the channel open with no bytes waiting for the socket send
+	 *         buffer? The listener is called back once the waiting bytes are
+	 *         written.
+	 */
+	public boolean isWritable() {
+		return !closed && writeQueue.isEmpty();
+	}
+
+	/**
+	 * Write the bytes of the {@code file} from the file system cache straight to
+	 * the socket, for a plain text channel that {@link #isWritable()}. The
+	 * listener is called back once the socket accepts more bytes.
+	 *
+	 * @param file     the file
+	 * @param position the position of the first byte in the file
+	 * @param count    the maximum number of bytes
+	 * @return the number of bytes written
+	 * @throws IOException when the file cannot be read, the channel is then
+	 *                     closed
+	 */
+	public long transferFrom(FileChannel file, long position, long count) throws IOException {
+		if (sslEngine != null) {
+			throw new IllegalStateException("The bytes must be encrypted");
+		}
+		long written;
+		try {
+			written = file.transferTo(position, count, channel);
+		} catch (IOException e) {
+			close(e);
+			throw e;
+		}
+		if (written < count) {
+			key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+		}
+		return written;
+	}
+
+	/**
+	 * Stop reading from the socket, the bytes left unconsumed by the listener
+	 * are kept until reading resumes.
+	 */
+	public void pauseReading() {
+		if (paused || closed) {
+			return;
+		}
+		paused = true;
+		key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+	}
+
+	/**
+	 * Resume reading from the socket, the bytes kept while paused are handed
+	 * over to the listener first.
+	 */
+	public void resumeReading() {
+		if (!paused || closed) {
+			return;
+		}
+		paused = false;
+		key.interestOps(key.interestOps() | SelectionKey.OP_READ);
+		busy = true;
+		try {
+			deliver();
+		} finally {
+			busy = false;
+			if (closed) {
+				releaseBuffers();
+			}
+		}
+	}
+
+	/**
+	 * Close the channel.
+	 */
+	public void close() {
+		close(null);
+	}
+
+	@Override
+	public void close(Throwable cause) {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		if (connectTimeout != null) {
+			connectTimeout.cancel();
+		}
+		if (key != null) {
+			key.cancel();
+		}
+		if (sslEngine != null) {
+			sslEngine.closeOutbound();
+		}
+		try {
+			channel.close();
+		} catch (IOException e) {
+			// nothing to do
+		}
+		PooledBuffer buffer;
+		while ((buffer = writeQueue.poll()) != null) {
+			buffer.release();
+		}
+		if (!busy) {
+			releaseBuffers();
+		}
+		listener.onClosed(cause);
+	}
+
+	@Override
+	public void handle(SelectionKey key) throws IOException {
+		busy = true;
+		try {
+			int ready = key.readyOps();
+			if ((ready & SelectionKey.OP_CONNECT) != 0) {
+				channel.finishConnect();
+				key.interestOps(SelectionKey.OP_READ);
+				connected();
+			}
+			if (!closed && (ready & SelectionKey.OP_WRITE) != 0) {
+				flush();
+				if (writeQueue.isEmpty()) {
+					listener.onWritable();
+				}
+			}
+			if (!closed && !paused && (ready & SelectionKey.OP_READ) != 0) {
+				read();
+			}
+		} finally {
+			busy = false;
+			if (closed) {
+				releaseBuffers();
+			}
+		}
+	}
+
+	private void releaseBuffers() {
+		if (inbound != null) {
+			inbound.release();
+			inbound = null;
+		}
+		if (netIn != null) {
+			netIn.release();
+			netIn = null;
+		}
+	}
+
+	private void connected() throws IOException {
+		if (connectTimeout != null) {
+			connectTimeout.cancel();
+			connectTimeout = null;
+		}
+		if (sslEngine != null) {
+			handshaking = true;
+			sslEngine.beginHandshake();
+			handshake();
+		} else {
+			listener.onConnected(this);
+		}
+	}
+
+	private void read() throws IOException {
+		int n;
+		if (sslEngine != null) {
+			if (netIn == null) {
+				netIn = bufferPool.acquire(sslEngine.getSession().getPacketBufferSize());
+			} else if (!netIn.buffer().hasRemaining()) {
+				netIn = grow(netIn);
+			}
+			n = channel.read(netIn.buffer());
+		} else {
+			if (inbound == null) {
+				inbound = bufferPool.acquire(readBufferSize);
+			} else if (!inbound.buffer().hasRemaining()) {
+				inbound = grow(inbound);
+			}
+			n = channel.read(inbound.buffer());
+		}
+		if (n < 0) {
+			close();
+			return;
+		}
+		if (sslEngine != null) {
+			if (handshaking) {
+				handshake();
+			}
+			if (!handshaking) {
+				while (!closed && unwrap()) {
+					runPostHandshake();
+				}
+			}
+			if (netIn != null && netIn.buffer().position() == 0) {
+				netIn.release();
+				netIn = null;
+			}
+		}
+		if (!closed && !handshaking) {
+			deliver();
+		}
+	}
+
+	private void deliver() {
+		if (inbound == null) {
+			return;
+		}
+		ByteBuffer buffer = inbound.buffer();
+		if (buffer.position() > 0) {
+			buffer.flip();
+			listener.onData(buffer);
+			buffer.compact();
+		}
+		if (buffer.position() == 0 && !closed) {
+			inbound.release();
+			inbound = null;
+		}
+	}
+
+	private PooledBuffer grow(PooledBuffer buffer) throws IOException {
+		if (buffer.capacity() >= maxReadBufferSize) {
+			throw new IOException("Read buffer limit exceeded: " + maxReadBufferSize);
+		}
+		PooledBuffer bigger = bufferPool.acquire(Math.min(buffer.capacity() * 2, maxReadBufferSize));
+		buffer.buffer().flip();
+		bigger.buffer().put(buffer.buffer());
+		buffer.release();
+		return bigger;
+	}
+
+	/**
+	 * Write the queued buffers, several at once with a gathering write.
+	 */
+	private void flush() throws IOException {
+		while (!writeQueue.isEmpty()) {
+			stageHead();
+			int count = 0;
+			long length = 0;
+			for (PooledBuffer buffer : writeQueue) {
+				if (count == MAX_GATHER || (bufferPool.isDirect() && !buffer.isDirect())) {
+					break;
+				}
+				gather[count++] = buffer.buffer();
+				length += buffer.buffer().remaining();
+			}
+			long written = channel.write(gather, 0, count);
+			Arrays.fill(gather, 0, count, null);
+			PooledBuffer buffer;
+			while ((buffer = writeQueue.peek()) != null && !buffer.buffer().hasRemaining()) {
+				writeQueue.poll().release();
+			}
+			if (written < length) {
+				// the socket send buffer is full
+				key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+				return;
+			}
+		}
+		if ((key.interestOps() & SelectionKey.OP_WRITE) != 0) {
+			key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+		}
+	}
+
+	/**
+	 * Copy the beginning of a heap buffer at the head of the queue to a pooled
+	 * direct buffer, rather than letting the socket copy it to a temporary
+	 * direct buffer as large as the heap buffer.
+	 */
+	private void stageHead() {
+		PooledBuffer head = writeQueue.peek();
+		if (!bufferPool.isDirect() || head.isDirect()) {
+			return;
+		}
+		ByteBuffer src = head.buffer();
+		PooledBuffer staging = bufferPool.acquire(Math.min(src.remaining(), STAGING_SIZE));
+		ByteBuffer dst = staging.buffer();
+		int length = Math.min(src.remaining(), dst.remaining());
+		int limit = src.limit();
+		src.limit(src.position() + length);
+		dst.put(src);
+		src.limit(limit);
+		dst.flip();
+		if (!src.hasRemaining()) {
+			writeQueue.poll().release();
+		}
+		writeQueue.addFirst(staging);
+	}
+
+	private void handshake() throws IOException {
+		for (;;) {
+			switch (sslEngine.getHandshakeStatus()) {
+			case NEED_TASK:
+				runDelegatedTasks();
+				break;
+			case NEED_WRAP:
+				wrap(EMPTY);
+				break;
+			case NEED_UNWRAP:
+				if (!unwrap()) {
+					flush();
+					return;
+				}
+				break;
+			default:
+				handshaking = false;
+				flush();
+				listener.onConnected(this);
+				return;
+			}
+		}
+	}
+
+	private void runPostHandshake() throws IOException {
+		switch (sslEngine.getHandshakeStatus()) {
+		case NEED_TASK:
+			runDelegatedTasks();
+			break;
+		case NEED_WRAP:
+			wrap(EMPTY);
+			flush();
+			break;
+		default:
+			break;
+		}
+	}
+
+	private void runDelegatedTasks() {
+		Runnable task;
+		while ((task = sslEngine.getDelegatedTask()) != null) {
+			task.run();
+		}
+	}
+
+	private void wrap(ByteBuffer src) throws IOException {
+		do {
+			PooledBuffer out = bufferPool.acquire(sslEngine.getSession().getPacketBufferSize());
+			SSLEngineResult result = sslEngine.wrap(src, out.buffer());
+			if (result.getStatus() == SSLEngineResult.Status.CLOSED) {
+				out.release();
+				throw new SSLException("SSL engine closed");
+			}
+			out.buffer().flip();
+			if (out.buffer().hasRemaining()) {
+				writeQueue.add(out);
+			} else {
+				out.release();
+			}
+		} while (src.hasRemaining());
+	}
+
+	/**
+	 * @return true when bytes were consumed and unwrapping may progress further
+	 */
+	private boolean unwrap() throws IOException {
+		if (netIn == null) {
+			return false;
+		}
+		ByteBuffer src = netIn.buffer();
+		if (inbound == null) {
+			inbound = bufferPool.acquire(readBufferSize);
+		}
+		src.flip();
+		try {
+			for (;;) {
+				SSLEngineResult result = sslEngine.unwrap(src, inbound.buffer());
+				switch (result.getStatus()) {
+				case BUFFER_OVERFLOW:
+					PooledBuffer bigger = bufferPool
+							.acquire(inbound.capacity() + sslEngine.getSession().getApplicationBufferSize());
+					inbound.buffer().flip();
+					bigger.buffer().put(inbound.buffer());
+					inbound.release();
+					inbound = bigger;
+					continue;
+				case BUFFER_UNDERFLOW:
+					// partial record, read() grows netIn when it is full
+					return false;
+				case CLOSED:
+					close();
+					return false;
+				default:
+					return result.bytesConsumed() > 0 || result.bytesProduced() > 0;
+				}
+			}
+		} finally {
+			src.compact();
+		}
+	}
+
+}
@@ -0,0 +1,334 @@
+package com.github.jcurl.core.net;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.github.jcurl.core.http.CaseInsensitiveHeaders;
+import com.github.jcurl.core.http.HeaderNames;
+import com.github.jcurl.core.http.HttpVersion;
+
+/**
+ * The status line and headers of a response.
+ * <p>
+ * The headers received as bytes are kept as the offsets of their names and
+ * values in a byte array, a single header is read by scanning the bytes and
+ * the header map and the cookies are only decoded when they are read.
+ * <p>
+ * The head is read by the caller while the event loop still receives the body,
+ * so the trailers are collected aside and published once at the end of the
+ * body, as new header and cookie collections: a collection read before is
+ * never modified.
+ */
+public class ResponseHead {
+
+	private final HttpVersion version;
+	private final int statusCode;
+	private final String statusMessage;
+	// ISO-8859-1 bytes of the names and values
+	private final byte[] raw;
+	// name start, name end, value start and value end of each header
+	private final int[] fields;
+	private int count;
+	// decoded on demand, or given, replaced when the trailers are published
+	private volatile CaseInsensitiveHeaders headers;
+	private volatile List<String> cookies;
+	private final ReentrantLock lock = new ReentrantLock();
+	// name and value of each trailer received, until they are published
+	private List<String> trailers;
+
+	/**
+	 * A head whose headers are decoded from {@code raw} when they are read.
+	 *
+	 * @param raw    the ISO-8859-1 bytes of the headers, not copied
+	 * @param fields the name start, name end, value start and value end of each
+	 *               header in {@code raw}, not copied
+	 * @param count  the number of headers
+	 */
+	public ResponseHead(HttpVersion version, int statusCode, String statusMessage, byte[] raw, int[] fields,
+			int count) {
+		this.version = version;
+		this.statusCode = statusCode;
+		this.statusMessage = statusMessage;
+		this.raw = raw;
+		this.fields = fields;
+		this.count = count;
+	}
+
+	public ResponseHead(HttpVersion version, int statusCode, String statusMessage, CaseInsensitiveHeaders headers,
+			List<String> cookies) {
+		this.version = version;
+		this.statusCode = statusCode;
+		this.statusMessage = statusMessage;
+		this.raw = null;
+		this.fields = null;
+		this.headers = headers;
+		this.cookies = cookies;
+	}
+
+	/**
+	 * @return the version of the response
+	 */
+	public HttpVersion version() {
+		return version;
+	}
+
+	/**
+	 * @return the status code of the response
+	 */
+	public int statusCode() {
+		return statusCode;
+	}
+
+	/**
+	 * @return the status message of the response
+	 */
+	public String statusMessage() {
+		return statusMessage;
+	}
+
+	/**
+	 * @return the headers, trailers are added once the body is received
+	 */
+	public CaseInsensitiveHeaders headers() {
+		CaseInsensitiveHeaders h = headers;
+		if (h == null) {
+			lock.lock();
+			try {
+				h = decodeHeaders();
+			} finally {
+				lock.unlock();
+			}
+		}
+		return h;
+	}
+
+	private CaseInsensitiveHeaders decodeHeaders() {
+		CaseInsensitiveHeaders h = headers;
+		if (h == null) {
+			h = new CaseInsensitiveHeaders();
+			for (int i = 0; i < count; i++) {
+				int f = i << 2;
+				h.add(HeaderNames.intern(raw, fields[f], fields[f + 1]), string(fields[f + 2], fields[f + 3]));
+			}
+			headers = h;
+		}
+		return h;
+	}
+
+	/**
+	 * @return the Set-Cookie headers, trailers are added once the body is
+	 *         received
+	 */
+	public List<String> cookies() {
+		List<String> c = cookies;
+		if (c == null) {
+			lock.lock();
+			try {
+				c = decodeCookies();
+			} finally {
+				lock.unlock();
+			}
+		}
+		return c;
+	}
+
+	private List<String> decodeCookies() {
+		List<String> c = cookies;
+		if (c == null) {
+			c = new ArrayList<>();
+			for (int i = 0; i < count; i++) {
+				int f = i << 2;
+				if (equalsIgnoreCase(raw, fields[f], fields[f + 1], HeaderNames.SET_COOKIE)) {
+					c.add(string(fields[f + 2], fields[f + 3]));
+				}
+			}
+			cookies = c;
+		}
+		return c;
+	}
+
+	/**
+	 * Read a header without decoding the others.
+	 *
+	 * @param name the name, in any case
+	 * @return the first value of the header, or {@code null}
+	 */
+	public String header(String name) {
+		CaseInsensitiveHeaders h = headers;
+		if (h != null) {
+			return h.get(name);
+		}
+		for (int i = 0; i < count; i++) {
+			int f = i << 2;
+			if (equalsIgnoreCase(raw, fields[f], fields[f + 1], name)) {
+				return string(fields[f + 2], fields[f + 3]);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @param name  the name, in any case
+	 * @param token the token, in any case
+	 * @return does a value of the header contain the token in its comma
+	 *         separated list?
+	 */
+	public boolean containsToken(String name, String token) {
+		CaseInsensitiveHeaders h = headers;
+		if (h != null) {
+			return h.containsToken(name, token);
+		}
+		for (int i = 0; i < count; i++) {
+			int f = i << 2;
+			if (equalsIgnoreCase(raw, fields[f], fields[f + 1], name) && hasToken(fields[f + 2], fields[f + 3], token)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Add a header while the head is built, before it is delivered, after the
+	 * other values of a repeated header. The Set-Cookie values are also added
+	 * to the cookies.
+	 *
+	 * @param name  the name
+	 * @param value the value
+	 */
+	public void addHeader(String name, String value) {
+		headers().add(name, value);
+		if (name == HeaderNames.SET_COOKIE || HeaderNames.SET_COOKIE.equalsIgnoreCase(name)) {
+			cookies().add(value);
+		}
+	}
+
+	/**
+	 * Remove all the values of a header before the head is read by the caller,
+	 * the cookies are left unchanged.
+	 *
+	 * @param name the name, in any case
+	 */
+	public void removeHeader(String name) {
+		if (headers != null) {
+			headers.remove(name);
+			return;
+		}
+		int kept = 0;
+		for (int i = 0; i < count; i++) {
+			int f = i << 2;
+			if (!equalsIgnoreCase(raw, fields[f], fields[f + 1], name)) {
+				if (kept != i) {
+					System.arraycopy(fields, f, fields, kept << 2, 4);
+				}
+				kept++;
+			}
+		}
+		count = kept;
+	}
+
+	/**
+	 * Add a trailer, published with {@link #publishTrailers()}.
+	 *
+	 * @param name  the name
+	 * @param value the value
+	 */
+	public void addTrailer(String name, String value) {
+		if (trailers == null) {
+			trailers = new ArrayList<>();
+		}
+		trailers.add(name);
+		trailers.add(value);
+	}
+
+	/**
+	 * Add a trailer from its bytes, published with {@link #publishTrailers()}.
+	 *
+	 * @param bytes      the ISO-8859-1 bytes of the trailer
+	 * @param nameStart  the index of the name
+	 * @param nameEnd    the index after the name
+	 * @param valueStart the index of the value
+	 * @param valueEnd   the index after the value
+	 */
+	public void addTrailer(byte[] bytes, int nameStart, int nameEnd, int valueStart, int valueEnd) {
+		addTrailer(HeaderNames.intern(bytes, nameStart, nameEnd),
+				new String(bytes, valueStart, valueEnd - valueStart, StandardCharsets.ISO_8859_1));
+	}
+
+	/**
+	 * Publish the trailers added at the end of the body: the headers and the
+	 * cookies are replaced by copies including them.
+	 */
+	public void publishTrailers() {
+		List<String> t = trailers;
+		if (t == null) {
+			return;
+		}
+		trailers = null;
+		lock.lock();
+		try {
+			CaseInsensitiveHeaders h = new CaseInsensitiveHeaders(decodeHeaders());
+			List<String> c = new ArrayList<>(decodeCookies());
+			for (int i = 0; i < t.size(); i += 2) {
+				String name = t.get(i);
+				h.add(name, t.get(i + 1));
+				if (name == HeaderNames.SET_COOKIE || HeaderNames.SET_COOKIE.equalsIgnoreCase(name)) {
+					c.add(t.get(i + 1));
+				}
+			}
+			cookies = c;
+			headers = h;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @return are the bytes between {@code start} and {@code end} the
+	 *         {@code name} in any case?
+	 */
+	static boolean equalsIgnoreCase(byte[] bytes, int start, int end, String name) {
+		if (end - start != name.length()) {
+			return false;
+		}
+		for (int i = start; i < end; i++) {
+			if (toLowerCase(bytes[i] & 0xff) != toLowerCase(name.charAt(i - start))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private boolean hasToken(int start, int end, String token) {
+		byte[] b = raw;
+		while (start < end) {
+			int comma = start;
+			while (comma < end && b[comma] != ',') {
+				comma++;
+			}
+			int from = start;
+			int to = comma;
+			while (from < to && (b[from] == ' ' || b[from] == '\t')) {
+				from++;
+			}
+			while (to > from && (b[to - 1] == ' ' || b[to - 1] == '\t')) {
+				to--;
+			}
+			if (equalsIgnoreCase(b, from, to, token)) {
+				return true;
+			}
+			start = comma + 1;
+		}
+		return false;
+	}
+
+	private String string(int start, int end) {
+		return new String(raw, start, end - start, StandardCharsets.ISO_8859_1);
+	}
+
+	private static int toLowerCase(int c) {
+		return c >= 'A' && c <= 'Z' ? c + ('a' - 'A') : c;
+	}
+
+}
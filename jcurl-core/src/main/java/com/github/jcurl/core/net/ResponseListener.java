@@ -0,0 +1,48 @@
+package com.github.jcurl.core.net;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Receives a response of an {@link HttpExchange}, always on the event loop
+ * thread of the connection.
+ */
+public interface ResponseListener {
+
+	/**
+	 * The status line and headers were received.
+	 *
+	 * @param head the response head
+	 */
+	void onHead(ResponseHead head);
+
+	/**
+	 * A slice of the body was received.
+	 *
+	 * @param chunk the bytes, only valid until the method returns
+	 */
+	void onData(ByteBuffer chunk);
+
+	/**
+	 * Checked before each slice of the body is handed over, the connection stops
+	 * reading the body of the exchange while the listener is suspended, until
+	 * {@link HttpConnection#resume(HttpExchange)} is called.
+	 *
+	 * @return should the delivery of the body pause?
+	 */
+	default boolean isSuspended() {
+		return false;
+	}
+
+	/**
+	 * The response is complete, trailers if any were published to the head.
+	 */
+	void onEnd();
+
+	/**
+	 * The exchange failed, no other method is called afterwards.
+	 *
+	 * @param cause the failure
+	 */
+	void onError(Throwable cause);
+
+}
@@ -0,0 +1,59 @@
+package com.github.jcurl.core.net;
+
+/**
+ * A task scheduled on an {@link EventLoop}.
+ */
+public final class Timeout implements Comparable<Timeout> {
+
+	private final EventLoop loop;
+	private final Runnable task;
+	private final long deadline;
+	private final long sequence;
+	private volatile boolean cancelled;
+	// polled from the queue of the loop
+	private volatile boolean expired;
+
+	Timeout(EventLoop loop, Runnable task, long deadline, long sequence) {
+		this.loop = loop;
+		this.task = task;
+		this.deadline = deadline;
+		this.sequence = sequence;
+	}
+
+	/**
+	 * Cancel the task, it is a no-op when the task already ran.
+	 */
+	public void cancel() {
+		if (!cancelled) {
+			cancelled = true;
+			if (!expired) {
+				loop.cancelled();
+			}
+		}
+	}
+
+	/**
+	 * @return is the task cancelled?
+	 */
+	public boolean isCancelled() {
+		return cancelled;
+	}
+
+	long deadline() {
+		return deadline;
+	}
+
+	void run() {
+		expired = true;
+		if (!cancelled) {
+			task.run();
+		}
+	}
+
+	@Override
+	public int compareTo(Timeout o) {
+		int c = Long.compare(deadline - o.deadline, 0);
+		return c != 0 ? c : Long.compare(sequence, o.sequence);
+	}
+
+}
@@ -0,0 +1,135 @@
+package com.github.jcurl.core.net.http2;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * Decodes HPACK header blocks (RFC 7541) of a connection, the blocks must be
+ * decoded in the order they are received.
+ */
+final class HpackDecoder {
+
+	private final HpackDynamicTable table;
+	private int maxTableSize;
+
+	/**
+	 * @param maxTableSize the maximum size of the dynamic table the encoder can
+	 *                     use
+	 */
+	HpackDecoder(int maxTableSize) {
+		this.table = new HpackDynamicTable(maxTableSize);
+		this.maxTableSize = maxTableSize;
+	}
+
+	/**
+	 * Set the maximum size of the dynamic table the encoder can use, once the
+	 * encoder acknowledged it.
+	 */
+	void maxTableSize(int maxTableSize) {
+		this.maxTableSize = maxTableSize;
+		if (table.maxSize() > maxTableSize) {
+			table.maxSize(maxTableSize);
+		}
+	}
+
+	/**
+	 * Decode a complete header block.
+	 *
+	 * @param block  the header block
+	 * @param fields the names and values of the decoded fields, in turn
+	 * @return the size of the header list, the sum of the field sizes
+	 * @throws Http2Exception when the block is invalid
+	 */
+	int decode(ByteBuffer block, List<String> fields) throws Http2Exception {
+		int size = 0;
+		boolean first = true;
+		while (block.hasRemaining()) {
+			int b = block.get(block.position()) & 0xff;
+			String name;
+			String value;
+			if ((b & 0x80) != 0) {
+				int index = readInt(block, 7);
+				name = name(index);
+				value = index <= HpackStaticTable.LENGTH ? HpackStaticTable.value(index)
+						: table.value(index - HpackStaticTable.LENGTH - 1);
+			} else if ((b & 0xe0) == 0x20) {
+				if (!first) {
+					throw new Http2Exception(Http2Error.COMPRESSION_ERROR, "Dynamic table size update after a field");
+				}
+				int tableSize = readInt(block, 5);
+				if (tableSize > maxTableSize) {
+					throw new Http2Exception(Http2Error.COMPRESSION_ERROR,
+							"Dynamic table size " + tableSize + " exceeds " + maxTableSize);
+				}
+				table.maxSize(tableSize);
+				continue;
+			} else {
+				boolean indexing = (b & 0x40) != 0;
+				int index = readInt(block, indexing ? 6 : 4);
+				name = index == 0 ? readString(block) : name(index);
+				value = readString(block);
+				if (indexing) {
+					table.add(name, value);
+				}
+			}
+			first = false;
+			size += HpackDynamicTable.entrySize(name, value);
+			fields.add(name);
+			fields.add(value);
+		}
+		return size;
+	}
+
+	private String name(int index) throws Http2Exception {
+		if (index <= 0 || index > HpackStaticTable.LENGTH + table.length()) {
+			throw new Http2Exception(Http2Error.COMPRESSION_ERROR, "Invalid table index: " + index);
+		}
+		return index <= HpackStaticTable.LENGTH ? HpackStaticTable.name(index)
+				: table.name(index - HpackStaticTable.LENGTH - 1);
+	}
+
+	private static String readString(ByteBuffer block) throws Http2Exception {
+		if (!block.hasRemaining()) {
+			throw new Http2Exception(Http2Error.COMPRESSION_ERROR, "Truncated header block");
+		}
+		boolean huffman = (block.get(block.position()) & 0x80) != 0;
+		int length = readInt(block, 7);
+		if (length > block.remaining()) {
+			throw new Http2Exception(Http2Error.COMPRESSION_ERROR, "Truncated header block");
+		}
+		if (huffman) {
+			return Huffman.decode(block, length);
+		}
+		char[] chars = new char[length];
+		for (int i = 0; i < length; i++) {
+			chars[i] = (char) (block.get() & 0xff);
+		}
+		return new String(chars);
+	}
+
+	private static int readInt(ByteBuffer block, int prefix) throws Http2Exception {
+		int max = (1 << prefix) - 1;
+		int value = block.get() & max;
+		if (value < max) {
+			return value;
+		}
+		for (int shift = 0; shift <= 28; shift += 7) {
+			if (!block.hasRemaining()) {
+				throw new Http2Exception(Http2Error.COMPRESSION_ERROR, "Truncated header block");
+			}
+			int b = block.get();
+			if (shift == 28 && (b & 0x78) != 0) {
+				break;
+			}
+			value += (b & 0x7f) << shift;
+			if ((b & 0x80) == 0) {
+				if (value < 0) {
+					break;
+				}
+				return value;
+			}
+		}
+		throw new Http2Exception(Http2Error.COMPRESSION_ERROR, "Integer overflow in header block");
+	}
+
+}
@@ -0,0 +1,119 @@
+package com.github.jcurl.core.net.http2;
+
+/**
+ * The dynamic table of an HPACK encoder or decoder, a ring of header fields
+ * where index 0 is the most recently inserted one.
+ */
+final class HpackDynamicTable {
+
+	/**
+	 * The overhead of an entry added to the length of its name and value.
+	 */
+	static final int ENTRY_OVERHEAD = 32;
+
+	private String[] names = new String[16];
+	private String[] values = new String[16];
+	private int head;
+	private int length;
+	private int size;
+	private int maxSize;
+	private long inserted;
+
+	HpackDynamicTable(int maxSize) {
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * @return the number of entries
+	 */
+	int length() {
+		return length;
+	}
+
+	/**
+	 * @return the sum of the sizes of the entries
+	 */
+	int size() {
+		return size;
+	}
+
+	int maxSize() {
+		return maxSize;
+	}
+
+	/**
+	 * @return the number of entries inserted so far, including the evicted ones
+	 */
+	long inserted() {
+		return inserted;
+	}
+
+	String name(int index) {
+		return names[slot(index)];
+	}
+
+	String value(int index) {
+		return values[slot(index)];
+	}
+
+	/**
+	 * Change the maximum size, evicting the oldest entries.
+	 */
+	void maxSize(int maxSize) {
+		this.maxSize = maxSize;
+		evict(0);
+	}
+
+	/**
+	 * Insert an entry, an entry larger than the table empties it.
+	 */
+	void add(String name, String value) {
+		int entrySize = entrySize(name, value);
+		if (entrySize > maxSize) {
+			evict(maxSize);
+			inserted++;
+			return;
+		}
+		evict(entrySize);
+		if (length == names.length) {
+			grow();
+		}
+		head = (head + 1) & (names.length - 1);
+		names[head] = name;
+		values[head] = value;
+		length++;
+		size += entrySize;
+		inserted++;
+	}
+
+	static int entrySize(String name, String value) {
+		return name.length() + value.length() + ENTRY_OVERHEAD;
+	}
+
+	private void evict(int room) {
+		while (length > 0 && size + room > maxSize) {
+			int tail = slot(length - 1);
+			size -= entrySize(names[tail], values[tail]);
+			names[tail] = null;
+			values[tail] = null;
+			length--;
+		}
+	}
+
+	private int slot(int index) {
+		return (head - index) & (names.length - 1);
+	}
+
+	private void grow() {
+		String[] newNames = new String[names.length * 2];
+		String[] newValues = new String[names.length * 2];
+		for (int i = 0; i < length; i++) {
+			newNames[length - 1 - i] = name(i);
+			newValues[length - 1 - i] = value(i);
+		}
+		names = newNames;
+		values = newValues;
+		head = length - 1;
+	}
+
+}
@@ -0,0 +1,195 @@
+package com.github.jcurl.core.net.http2;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Encodes HPACK header blocks (RFC 7541) of a connection, the blocks must be
+ * sent in the order they are encoded.
+ * <p>
+ * Fields are indexed in the dynamic table, except the ones that change with
+ * every request and the credentials, which are never indexed. Strings are
+ * Huffman encoded when it makes them shorter.
+ */
+final class HpackEncoder {
+
+	private final int maxTableSizeLimit;
+	private final HpackDynamicTable table;
+	// insertion number of the fields and names of the dynamic table
+	private final Map<String, Long> fields = new HashMap<>();
+	private final Map<String, Long> names = new HashMap<>();
+	private int minTableSizeUpdate = -1;
+	private int tableSizeUpdate = -1;
+	private ByteBuffer out = ByteBuffer.allocate(1024);
+
+	/**
+	 * @param maxTableSizeLimit the largest dynamic table the encoder uses, even
+	 *                          when the decoder allows a larger one
+	 */
+	HpackEncoder(int maxTableSizeLimit) {
+		this.maxTableSizeLimit = maxTableSizeLimit;
+		this.table = new HpackDynamicTable(Math.min(maxTableSizeLimit, 4096));
+	}
+
+	/**
+	 * Set the maximum size of the dynamic table allowed by the decoder, the
+	 * change is signaled at the beginning of the next header block.
+	 */
+	void maxTableSize(int maxTableSize) {
+		int size = Math.min(maxTableSize, maxTableSizeLimit);
+		if (size == table.maxSize() && tableSizeUpdate < 0) {
+			return;
+		}
+		minTableSizeUpdate = minTableSizeUpdate < 0 ? size : Math.min(minTableSizeUpdate, size);
+		tableSizeUpdate = size;
+		table.maxSize(size);
+	}
+
+	/**
+	 * Start a header block.
+	 */
+	void begin() {
+		out.clear();
+		if (tableSizeUpdate >= 0) {
+			if (minTableSizeUpdate < tableSizeUpdate) {
+				writeInt(0x20, 5, minTableSizeUpdate);
+			}
+			writeInt(0x20, 5, tableSizeUpdate);
+			minTableSizeUpdate = -1;
+			tableSizeUpdate = -1;
+		}
+	}
+
+	/**
+	 * Encode a field of the current header block.
+	 *
+	 * @param name  the lower case name
+	 * @param value the value
+	 */
+	void encode(String name, String value) {
+		int index = HpackStaticTable.indexOf(name, value);
+		if (index == 0) {
+			index = dynamicIndex(fields.get(name + '\0' + value));
+		}
+		if (index > 0) {
+			writeInt(0x80, 7, index);
+			return;
+		}
+		int nameIndex = HpackStaticTable.indexOf(name);
+		if (nameIndex == 0) {
+			nameIndex = dynamicIndex(names.get(name));
+		}
+		if (isSensitive(name, value)) {
+			writeInt(0x10, 4, nameIndex);
+		} else if (isVolatile(name) || HpackDynamicTable.entrySize(name, value) > table.maxSize() / 2) {
+			writeInt(0x00, 4, nameIndex);
+		} else {
+			writeInt(0x40, 6, nameIndex);
+			insert(name, value);
+		}
+		if (nameIndex == 0) {
+			writeString(name);
+		}
+		writeString(value);
+	}
+
+	/**
+	 * End the current header block.
+	 *
+	 * @return the block, valid until the next one begins
+	 */
+	ByteBuffer end() {
+		out.flip();
+		return out;
+	}
+
+	private int dynamicIndex(Long insertion) {
+		if (insertion == null) {
+			return 0;
+		}
+		long index = table.inserted() - 1 - insertion;
+		return index < table.length() ? (int) index + HpackStaticTable.LENGTH + 1 : 0;
+	}
+
+	private void insert(String name, String value) {
+		long insertion = table.inserted();
+		table.add(name, value);
+		fields.put(name + '\0' + value, insertion);
+		names.put(name, insertion);
+		if (fields.size() > 2 * table.length() + 64) {
+			purge(fields);
+			purge(names);
+		}
+	}
+
+	/**
+	 * Remove the evicted entries.
+	 */
+	private void purge(Map<String, Long> map) {
+		long oldest = table.inserted() - table.length();
+		Iterator<Long> it = map.values().iterator();
+		while (it.hasNext()) {
+			if (it.next() < oldest) {
+				it.remove();
+			}
+		}
+	}
+
+	private void writeString(String value) {
+		int huffmanLength = Huffman.encodedLength(value);
+		if (huffmanLength < value.length()) {
+			writeInt(0x80, 7, huffmanLength);
+			ensure(huffmanLength);
+			Huffman.encode(value, out);
+		} else {
+			writeInt(0x00, 7, value.length());
+			ensure(value.length());
+			for (int i = 0; i < value.length(); i++) {
+				out.put((byte) Huffman.octet(value.charAt(i)));
+			}
+		}
+	}
+
+	private void writeInt(int mask, int prefix, int value) {
+		ensure(6);
+		int max = (1 << prefix) - 1;
+		if (value < max) {
+			out.put((byte) (mask | value));
+			return;
+		}
+		out.put((byte) (mask | max));
+		value -= max;
+		while (value >= 0x80) {
+			out.put((byte) ((value & 0x7f) | 0x80));
+			value >>>= 7;
+		}
+		out.put((byte) value);
+	}
+
+	private void ensure(int length) {
+		if (out.remaining() < length) {
+			ByteBuffer bigger = ByteBuffer.allocate(Math.max(out.capacity() * 2, out.position() + length));
+			out.flip();
+			out = bigger.put(out);
+		}
+	}
+
+	/**
+	 * Credentials are never indexed, so that intermediaries do not index them
+	 * either (RFC 7541, section 7.1.3).
+	 */
+	private static boolean isSensitive(String name, String value) {
+		return name.equals("authorization") || name.equals("proxy-authorization")
+				|| (name.equals("cookie") && value.length() < 20);
+	}
+
+	/**
+	 * @return does the value change with every request?
+	 */
+	private static boolean isVolatile(String name) {
+		return name.equals(":path") || name.equals("content-length");
+	}
+
+}
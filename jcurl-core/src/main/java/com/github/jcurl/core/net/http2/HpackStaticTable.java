@@ -0,0 +1,183 @@
+package com.github.jcurl.core.net.http2;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The static table of HPACK (RFC 7541, appendix A), indexed from 1.
+ */
+final class HpackStaticTable {
+
+	static final int LENGTH = 61;
+
+	private static final String[] NAMES = {
+			null,
+			":authority",
+			":method",
+			":method",
+			":path",
+			":path",
+			":scheme",
+			":scheme",
+			":status",
+			":status",
+			":status",
+			":status",
+			":status",
+			":status",
+			":status",
+			"accept-charset",
+			"accept-encoding",
+			"accept-language",
+			"accept-ranges",
+			"accept",
+			"access-control-allow-origin",
+			"age",
+			"allow",
+			"authorization",
+			"cache-control",
+			"content-disposition",
+			"content-encoding",
+			"content-language",
+			"content-length",
+			"content-location",
+			"content-range",
+			"content-type",
+			"cookie",
+			"date",
+			"etag",
+			"expect",
+			"expires",
+			"from",
+			"host",
+			"if-match",
+			"if-modified-since",
+			"if-none-match",
+			"if-range",
+			"if-unmodified-since",
+			"last-modified",
+			"link",
+			"location",
+			"max-forwards",
+			"proxy-authenticate",
+			"proxy-authorization",
+			"range",
+			"referer",
+			"refresh",
+			"retry-after",
+			"server",
+			"set-cookie",
+			"strict-transport-security",
+			"transfer-encoding",
+			"user-agent",
+			"vary",
+			"via",
+			"www-authenticate"
+	};
+
+	private static final String[] VALUES = {
+			null,
+			"",
+			"GET",
+			"POST",
+			"/",
+			"/index.html",
+			"http",
+			"https",
+			"200",
+			"204",
+			"206",
+			"304",
+			"400",
+			"404",
+			"500",
+			"",
+			"gzip, deflate",
+			"",
+			"",
+			"",
+			"",
+			"",
+			"",
+			"",
+			"",
+			"",
+			"",
+			"",
+			"",
+			"",
+			"",
+			"",
+			"",
+			"",
+			"",
+			"",
+			"",
+			"",
+			"",
+			"",
+			"",
+			"",
+			"",
+			"",
+			"",
+			"",
+			"",
+			"",
+			"",
+			"",
+			"",
+			"",
+			"",
+			"",
+			"",
+			"",
+			"",
+			"",
+			"",
+			"",
+			"",
+			""
+	};
+
+	private static final Map<String, Integer> NAME_INDEX = new HashMap<>();
+	private static final Map<String, Integer> FIELD_INDEX = new HashMap<>();
+
+	static {
+		for (int i = LENGTH; i > 0; i--) {
+			// the lowest index of a name wins
+			NAME_INDEX.put(NAMES[i], i);
+			if (!VALUES[i].isEmpty()) {
+				FIELD_INDEX.put(NAMES[i] + '\0' + VALUES[i], i);
+			}
+		}
+	}
+
+	private HpackStaticTable() {
+	}
+
+	static String name(int index) {
+		return NAMES[index];
+	}
+
+	static String value(int index) {
+		return VALUES[index];
+	}
+
+	/**
+	 * @return the index of the name, 0 when it is not in the table
+	 */
+	static int indexOf(String name) {
+		Integer index = NAME_INDEX.get(name);
+		return index != null ? index : 0;
+	}
+
+	/**
+	 * @return the index of the name and value, 0 when they are not in the table
+	 */
+	static int indexOf(String name, String value) {
+		Integer index = FIELD_INDEX.get(name + '\0' + value);
+		return index != null ? index : 0;
+	}
+
+}
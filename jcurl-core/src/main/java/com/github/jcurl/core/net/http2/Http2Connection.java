@@ -0,0 +1,1176 @@
+package com.github.jcurl.core.net.http2;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
+
+import com.github.jcurl.core.buffer.PooledBuffer;
+import com.github.jcurl.core.http.CaseInsensitiveHeaders;
+import com.github.jcurl.core.http.HeaderNames;
+import com.github.jcurl.core.http.HttpVersion;
+import com.github.jcurl.core.http.JCurlClientOptions;
+import com.github.jcurl.core.net.BodyStream;
+import com.github.jcurl.core.net.ConnectionKey;
+import com.github.jcurl.core.net.EventLoop;
+import com.github.jcurl.core.net.FileRegion;
+import com.github.jcurl.core.net.HttpConnection;
+import com.github.jcurl.core.net.HttpExchange;
+import com.github.jcurl.core.net.NioChannel;
+import com.github.jcurl.core.net.ResponseHead;
+import com.github.jcurl.core.net.ResponseListener;
+
+/**
+ * An HTTP/2 connection (RFC 7540), each exchange is carried by its own stream
+ * and the streams are multiplexed over the channel.
+ * <p>
+ * The response bytes are acknowledged to the server as soon as they are handed
+ * over to the listeners. The bytes received for a suspended listener are
+ * copied until it resumes, and only acknowledged to the server then, so that
+ * its flow control window bounds them. The request bodies are written as the flow control
+ * windows of the server allow it. Exchanges beyond the maximum number of
+ * concurrent streams of the server wait for a stream to complete.
+ */
+public class Http2Connection extends HttpConnection {
+
+	private static final byte[] PREFACE = "PRI * HTTP/2.0\r\n\r\nSM\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+	private static final int FRAME_HEADER_LENGTH = 9;
+	private static final int DEFAULT_WINDOW_SIZE = 65535;
+	private static final int DEFAULT_MAX_FRAME_SIZE = 16384;
+	private static final int DEFAULT_HEADER_TABLE_SIZE = 4096;
+	private static final int FILE_CHUNK_SIZE = 64 * 1024;
+
+	private static final int DATA = 0x0;
+	private static final int HEADERS = 0x1;
+	private static final int PRIORITY = 0x2;
+	private static final int RST_STREAM = 0x3;
+	private static final int SETTINGS = 0x4;
+	private static final int PUSH_PROMISE = 0x5;
+	private static final int PING = 0x6;
+	private static final int GOAWAY = 0x7;
+	private static final int WINDOW_UPDATE = 0x8;
+	private static final int CONTINUATION = 0x9;
+
+	private static final int FLAG_END_STREAM = 0x1;
+	private static final int FLAG_ACK = 0x1;
+	private static final int FLAG_END_HEADERS = 0x4;
+	private static final int FLAG_PADDED = 0x8;
+	private static final int FLAG_PRIORITY = 0x20;
+
+	private static final int SETTINGS_HEADER_TABLE_SIZE = 0x1;
+	private static final int SETTINGS_ENABLE_PUSH = 0x2;
+	private static final int SETTINGS_MAX_CONCURRENT_STREAMS = 0x3;
+	private static final int SETTINGS_INITIAL_WINDOW_SIZE = 0x4;
+	private static final int SETTINGS_MAX_FRAME_SIZE = 0x5;
+	private static final int SETTINGS_MAX_HEADER_LIST_SIZE = 0x6;
+
+	/**
+	 * The headers specific to HTTP/1.1 connections, not allowed in HTTP/2.
+	 */
+	private static final Set<String> CONNECTION_HEADERS = new HashSet<>(
+			Arrays.asList("connection", "keep-alive", "proxy-connection", "transfer-encoding", "upgrade", "host"));
+
+	private final int maxConcurrentStreams;
+	private final int initialWindowSize;
+	private final int connectionWindowSize;
+	private final int maxFrameSize;
+	private final int headerTableSize;
+	private final int maxHeaderListSize;
+	private final HpackEncoder encoder;
+	private final HpackDecoder decoder;
+	private final Map<Integer, Stream> streams = new HashMap<>();
+	private final ArrayDeque<HttpExchange> queued = new ArrayDeque<>();
+	private final ArrayDeque<Stream> blocked = new ArrayDeque<>();
+	private final List<String> fields = new ArrayList<>();
+	private volatile int remoteMaxConcurrentStreams = Integer.MAX_VALUE;
+	private volatile boolean goingAway;
+	private int remoteInitialWindowSize = DEFAULT_WINDOW_SIZE;
+	private int remoteMaxFrameSize = DEFAULT_MAX_FRAME_SIZE;
+	private long sendWindow = DEFAULT_WINDOW_SIZE;
+	private int recvWindow;
+	private int recvUnacked;
+	private int nextStreamId = 1;
+	// the DATA frame being received
+	private boolean inData;
+	private Stream dataStream;
+	private int dataRemaining;
+	private int paddingRemaining;
+	private boolean dataEndStream;
+	// the header block being received, split in CONTINUATION frames
+	private int headersStreamId;
+	private boolean headersEndStream;
+	private ByteBuffer headerBlock;
+
+	public Http2Connection(NioChannel channel, ConnectionKey key, JCurlClientOptions options) {
+		super(channel, key);
+		this.maxConcurrentStreams = options.getHttp2MaxConcurrentStreams();
+		this.initialWindowSize = options.getHttp2InitialWindowSize();
+		this.connectionWindowSize = options.getHttp2ConnectionWindowSize();
+		this.maxFrameSize = options.getHttp2MaxFrameSize();
+		this.headerTableSize = options.getHttp2HeaderTableSize();
+		this.maxHeaderListSize = options.getMaxHeaderSize();
+		this.encoder = new HpackEncoder(headerTableSize);
+		// the server uses the default table size until it acknowledges ours
+		this.decoder = new HpackDecoder(Math.max(headerTableSize, DEFAULT_HEADER_TABLE_SIZE));
+		this.recvWindow = DEFAULT_WINDOW_SIZE;
+	}
+
+	@Override
+	public HttpVersion version() {
+		return HttpVersion.HTTP_2;
+	}
+
+	@Override
+	public boolean isMultiplexed() {
+		return true;
+	}
+
+	@Override
+	public int concurrency() {
+		return Math.min(maxConcurrentStreams, remoteMaxConcurrentStreams);
+	}
+
+	@Override
+	public boolean isOpen() {
+		return !closed && !goingAway;
+	}
+
+	@Override
+	public int inflight() {
+		return streams.size() + queued.size();
+	}
+
+	/**
+	 * Write the connection preface and the client settings.
+	 */
+	@Override
+	public void onConnected(NioChannel channel) {
+		PooledBuffer pooled = channel.bufferPool().acquire(PREFACE.length + FRAME_HEADER_LENGTH * 2 + 6 * 5 + 4);
+		ByteBuffer buffer = pooled.buffer();
+		buffer.put(PREFACE);
+		putFrameHeader(buffer, 6 * 5, SETTINGS, 0, 0);
+		putSetting(buffer, SETTINGS_HEADER_TABLE_SIZE, headerTableSize);
+		putSetting(buffer, SETTINGS_ENABLE_PUSH, 0);
+		putSetting(buffer, SETTINGS_INITIAL_WINDOW_SIZE, initialWindowSize);
+		putSetting(buffer, SETTINGS_MAX_FRAME_SIZE, maxFrameSize);
+		putSetting(buffer, SETTINGS_MAX_HEADER_LIST_SIZE, maxHeaderListSize);
+		if (connectionWindowSize > DEFAULT_WINDOW_SIZE) {
+			putFrameHeader(buffer, 4, WINDOW_UPDATE, 0, 0);
+			buffer.putInt(connectionWindowSize - DEFAULT_WINDOW_SIZE);
+			recvWindow = connectionWindowSize;
+		}
+		buffer.flip();
+		channel.write(pooled);
+	}
+
+	@Override
+	public void send(HttpExchange exchange) {
+		EventLoop loop = channel.eventLoop();
+		if (!loop.inEventLoop()) {
+			try {
+				loop.execute(() -> send(exchange));
+			} catch (RejectedExecutionException e) {
+				exchange.listener().onError(e);
+			}
+			return;
+		}
+		if (closed) {
+			exchange.listener().onError(new IOException("Connection closed"));
+			return;
+		}
+		if (goingAway) {
+			exchange.listener().onError(new Http2Exception(Http2Error.REFUSED_STREAM, "Connection is going away"));
+			recycled();
+			return;
+		}
+		exchanges++;
+		if (streams.size() >= remoteMaxConcurrentStreams) {
+			queued.add(exchange);
+		} else {
+			open(exchange);
+		}
+	}
+
+	/**
+	 * Reset the stream of the {@code exchange}, the other streams are not
+	 * affected.
+	 */
+	@Override
+	public void cancel(HttpExchange exchange) {
+		EventLoop loop = channel.eventLoop();
+		if (!loop.inEventLoop()) {
+			try {
+				loop.execute(() -> cancel(exchange));
+			} catch (RejectedExecutionException e) {
+				// the loop closes its channels on shutdown
+			}
+			return;
+		}
+		if (queued.remove(exchange)) {
+			recycled();
+			return;
+		}
+		for (Stream stream : streams.values()) {
+			if (stream.exchange == exchange) {
+				writeRstStream(stream.id, Http2Error.CANCEL);
+				remove(stream);
+				dispatchQueued();
+				recycled();
+				return;
+			}
+		}
+	}
+
+	@Override
+	public void resume(HttpExchange exchange) {
+		EventLoop loop = channel.eventLoop();
+		try {
+			// always deferred, the listener may resume from one of its callbacks
+			loop.execute(() -> {
+				for (Stream stream : streams.values()) {
+					if (stream.exchange == exchange) {
+						deliverPending(stream);
+						return;
+					}
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			// the loop closes its channels on shutdown
+		}
+	}
+
+	@Override
+	protected void doClose() {
+		if (!closed) {
+			writeGoAway(Http2Error.NO_ERROR);
+			channel.close();
+		}
+	}
+
+	@Override
+	public void onData(ByteBuffer buffer) {
+		try {
+			while (!closed) {
+				if (inData) {
+					if (!readData(buffer)) {
+						return;
+					}
+					continue;
+				}
+				if (buffer.remaining() < FRAME_HEADER_LENGTH) {
+					return;
+				}
+				int position = buffer.position();
+				int length = ((buffer.get(position) & 0xff) << 16) | ((buffer.get(position + 1) & 0xff) << 8)
+						| (buffer.get(position + 2) & 0xff);
+				int type = buffer.get(position + 3) & 0xff;
+				int flags = buffer.get(position + 4) & 0xff;
+				int streamId = buffer.getInt(position + 5) & 0x7fffffff;
+				if (length > maxFrameSize) {
+					throw new Http2Exception(Http2Error.FRAME_SIZE_ERROR, "Frame of " + length + " bytes exceeds "
+							+ maxFrameSize);
+				}
+				if (headersStreamId != 0 && type != CONTINUATION) {
+					throw new Http2Exception(Http2Error.PROTOCOL_ERROR, "Expected a CONTINUATION frame");
+				}
+				if (type == DATA) {
+					// the payload is handed over as it is received
+					if (!startData(buffer, length, flags, streamId)) {
+						return;
+					}
+					continue;
+				}
+				if (buffer.remaining() < FRAME_HEADER_LENGTH + length) {
+					return;
+				}
+				ByteBuffer payload = buffer.duplicate();
+				payload.position(position + FRAME_HEADER_LENGTH).limit(position + FRAME_HEADER_LENGTH + length);
+				buffer.position(position + FRAME_HEADER_LENGTH + length);
+				onFrame(type, flags, streamId, payload.slice());
+			}
+		} catch (Http2Exception e) {
+			writeGoAway(e.error());
+			channel.close(e);
+		}
+	}
+
+	@Override
+	public void onClosed(Throwable cause) {
+		closed = true;
+		goingAway = true;
+		Throwable failure = cause != null ? cause : new IOException("Connection closed");
+		List<Stream> active = new ArrayList<>(streams.values());
+		for (Stream stream : active) {
+			remove(stream);
+		}
+		for (Stream stream : active) {
+			stream.exchange.listener().onError(failure);
+		}
+		HttpExchange exchange;
+		while ((exchange = queued.poll()) != null) {
+			exchange.listener().onError(failure);
+		}
+		closed();
+	}
+
+	private void onFrame(int type, int flags, int streamId, ByteBuffer payload) throws Http2Exception {
+		switch (type) {
+		case HEADERS:
+			onHeaders(flags, streamId, payload);
+			break;
+		case CONTINUATION:
+			onContinuation(flags, streamId, payload);
+			break;
+		case RST_STREAM:
+			onRstStream(streamId, payload);
+			break;
+		case SETTINGS:
+			onSettings(flags, streamId, payload);
+			break;
+		case PING:
+			onPing(flags, streamId, payload);
+			break;
+		case GOAWAY:
+			onGoAway(streamId, payload);
+			break;
+		case WINDOW_UPDATE:
+			onWindowUpdate(streamId, payload);
+			break;
+		case PUSH_PROMISE:
+			throw new Http2Exception(Http2Error.PROTOCOL_ERROR, "Server push is disabled");
+		case PRIORITY:
+		default:
+			// priorities are advisory, unknown frames are ignored
+			break;
+		}
+	}
+
+	/**
+	 * @return false when more bytes are needed to read the frame header
+	 */
+	private boolean startData(ByteBuffer buffer, int length, int flags, int streamId) throws Http2Exception {
+		if (streamId == 0) {
+			throw new Http2Exception(Http2Error.PROTOCOL_ERROR, "DATA frame on stream 0");
+		}
+		int padLength = 0;
+		int headerLength = FRAME_HEADER_LENGTH;
+		if ((flags & FLAG_PADDED) != 0) {
+			if (length < 1) {
+				throw new Http2Exception(Http2Error.FRAME_SIZE_ERROR, "Padded DATA frame without pad length");
+			}
+			if (buffer.remaining() < FRAME_HEADER_LENGTH + 1) {
+				return false;
+			}
+			padLength = buffer.get(buffer.position() + FRAME_HEADER_LENGTH) & 0xff;
+			headerLength++;
+			if (padLength >= length) {
+				throw new Http2Exception(Http2Error.PROTOCOL_ERROR, "Padding exceeds the DATA frame");
+			}
+		}
+		buffer.position(buffer.position() + headerLength);
+		recvWindow -= length;
+		if (recvWindow < 0) {
+			throw new Http2Exception(Http2Error.FLOW_CONTROL_ERROR, "Connection window exceeded");
+		}
+		Stream stream = streams.get(streamId);
+		if (stream != null) {
+			stream.recvWindow -= length;
+			if (stream.recvWindow < 0) {
+				reset(stream, new Http2Exception(Http2Error.FLOW_CONTROL_ERROR, "Stream window exceeded"));
+				stream = null;
+			} else if (stream.head == null) {
+				reset(stream, new Http2Exception(Http2Error.PROTOCOL_ERROR, "DATA frame before HEADERS"));
+				stream = null;
+			}
+		}
+		inData = true;
+		dataStream = stream;
+		dataRemaining = length - (headerLength - FRAME_HEADER_LENGTH) - padLength;
+		paddingRemaining = padLength;
+		dataEndStream = (flags & FLAG_END_STREAM) != 0;
+		consumed(stream, headerLength - FRAME_HEADER_LENGTH);
+		return true;
+	}
+
+	/**
+	 * @return false when more bytes are needed to complete the frame
+	 */
+	private boolean readData(ByteBuffer buffer) {
+		if (dataRemaining > 0) {
+			int n = Math.min(buffer.remaining(), dataRemaining);
+			if (n == 0) {
+				return false;
+			}
+			ByteBuffer chunk = buffer.duplicate();
+			chunk.limit(buffer.position() + n);
+			buffer.position(buffer.position() + n);
+			dataRemaining -= n;
+			Stream stream = dataStream;
+			if (stream != null && streams.get(stream.id) == stream
+					&& (stream.pending != null || stream.exchange.listener().isSuspended())) {
+				if (stream.pending == null) {
+					stream.pending = new ArrayDeque<>();
+				}
+				ByteBuffer copy = ByteBuffer.allocate(n);
+				copy.put(chunk).flip();
+				stream.pending.add(copy);
+				// the stream window is acknowledged once the bytes are handed over
+				consumed(null, n);
+			} else {
+				if (stream != null && streams.get(stream.id) == stream) {
+					try {
+						stream.exchange.listener().onData(chunk);
+					} catch (RuntimeException e) {
+						reset(stream, e);
+					}
+				}
+				consumed(stream, n);
+			}
+			if (dataRemaining > 0) {
+				return false;
+			}
+		}
+		if (paddingRemaining > 0) {
+			int n = Math.min(buffer.remaining(), paddingRemaining);
+			buffer.position(buffer.position() + n);
+			paddingRemaining -= n;
+			consumed(dataStream, n);
+			if (paddingRemaining > 0) {
+				return false;
+			}
+		}
+		inData = false;
+		Stream stream = dataStream;
+		dataStream = null;
+		if (dataEndStream && stream != null && streams.get(stream.id) == stream) {
+			endOrDefer(stream);
+		}
+		return true;
+	}
+
+	/**
+	 * Hand the bytes received while the listener was suspended over to it, until
+	 * it suspends again.
+	 */
+	private void deliverPending(Stream stream) {
+		ResponseListener listener = stream.exchange.listener();
+		while (stream.pending != null && streams.get(stream.id) == stream && !listener.isSuspended()) {
+			ByteBuffer chunk = stream.pending.poll();
+			if (chunk == null) {
+				stream.pending = null;
+				if (stream.pendingEnd) {
+					end(stream);
+				}
+				return;
+			}
+			int n = chunk.remaining();
+			try {
+				listener.onData(chunk);
+			} catch (RuntimeException e) {
+				reset(stream, e);
+				return;
+			}
+			if (!stream.pendingEnd) {
+				streamConsumed(stream, n);
+			}
+		}
+	}
+
+	/**
+	 * Acknowledge received bytes once half of a window is consumed.
+	 */
+	private void consumed(Stream stream, int n) {
+		if (n == 0) {
+			return;
+		}
+		recvUnacked += n;
+		if (recvUnacked >= connectionWindowSize / 2) {
+			writeWindowUpdate(0, recvUnacked);
+			recvWindow += recvUnacked;
+			recvUnacked = 0;
+		}
+		if (stream != null && !dataEndStream && streams.get(stream.id) == stream) {
+			streamConsumed(stream, n);
+		}
+	}
+
+	private void streamConsumed(Stream stream, int n) {
+		stream.recvUnacked += n;
+		if (stream.recvUnacked >= initialWindowSize / 2) {
+			writeWindowUpdate(stream.id, stream.recvUnacked);
+			stream.recvWindow += stream.recvUnacked;
+			stream.recvUnacked = 0;
+		}
+	}
+
+	private void onHeaders(int flags, int streamId, ByteBuffer payload) throws Http2Exception {
+		if (streamId == 0) {
+			throw new Http2Exception(Http2Error.PROTOCOL_ERROR, "HEADERS frame on stream 0");
+		}
+		int padLength = 0;
+		if ((flags & FLAG_PADDED) != 0) {
+			padLength = payload.hasRemaining() ? payload.get() & 0xff : -1;
+		}
+		if ((flags & FLAG_PRIORITY) != 0) {
+			payload.position(Math.min(payload.position() + 5, payload.limit() + 1));
+		}
+		if (padLength < 0 || payload.position() > payload.limit() || padLength > payload.remaining()) {
+			throw new Http2Exception(Http2Error.PROTOCOL_ERROR, "Invalid HEADERS frame");
+		}
+		payload.limit(payload.limit() - padLength);
+		boolean endStream = (flags & FLAG_END_STREAM) != 0;
+		if ((flags & FLAG_END_HEADERS) != 0) {
+			onHeaderBlock(streamId, endStream, payload);
+		} else {
+			headersStreamId = streamId;
+			headersEndStream = endStream;
+			headerBlock = ByteBuffer.allocate(Math.max(payload.remaining() * 2, 1024)).put(payload);
+		}
+	}
+
+	private void onContinuation(int flags, int streamId, ByteBuffer payload) throws Http2Exception {
+		if (headersStreamId == 0 || streamId != headersStreamId) {
+			throw new Http2Exception(Http2Error.PROTOCOL_ERROR, "Unexpected CONTINUATION frame");
+		}
+		if (headerBlock.remaining() < payload.remaining()) {
+			if (headerBlock.position() + payload.remaining() > maxHeaderListSize + maxFrameSize) {
+				throw new Http2Exception(Http2Error.ENHANCE_YOUR_CALM, "Header block too large");
+			}
+			ByteBuffer bigger = ByteBuffer.allocate(Math.max(headerBlock.capacity() * 2,
+					headerBlock.position() + payload.remaining()));
+			headerBlock.flip();
+			headerBlock = bigger.put(headerBlock);
+		}
+		headerBlock.put(payload);
+		if ((flags & FLAG_END_HEADERS) != 0) {
+			ByteBuffer block = headerBlock;
+			int id = headersStreamId;
+			headersStreamId = 0;
+			headerBlock = null;
+			block.flip();
+			onHeaderBlock(id, headersEndStream, block);
+		}
+	}
+
+	private void onHeaderBlock(int streamId, boolean endStream, ByteBuffer block) throws Http2Exception {
+		fields.clear();
+		// decoded even when the stream is gone, to keep the table in sync
+		int size = decoder.decode(block, fields);
+		Stream stream = streams.get(streamId);
+		if (stream == null) {
+			return;
+		}
+		if (size > maxHeaderListSize) {
+			reset(stream, new Http2Exception(Http2Error.PROTOCOL_ERROR,
+					"Header list of " + size + " bytes exceeds " + maxHeaderListSize));
+			return;
+		}
+		if (stream.head == null) {
+			int status = parseStatus();
+			if (status < 0) {
+				reset(stream, new Http2Exception(Http2Error.PROTOCOL_ERROR, "Invalid :status"));
+				return;
+			}
+			if (status < 200) {
+				// interim response, the final one follows
+				return;
+			}
+			ResponseHead head = new ResponseHead(HttpVersion.HTTP_2, status, "", new CaseInsensitiveHeaders(),
+					new ArrayList<>());
+			addHeaders(head);
+			stream.head = head;
+			try {
+				stream.exchange.listener().onHead(head);
+			} catch (RuntimeException e) {
+				reset(stream, e);
+				return;
+			}
+		} else if (!endStream) {
+			reset(stream, new Http2Exception(Http2Error.PROTOCOL_ERROR, "Trailers without END_STREAM"));
+			return;
+		} else {
+			addTrailers(stream.head);
+		}
+		if (endStream) {
+			endOrDefer(stream);
+		}
+	}
+
+	private void addTrailers(ResponseHead head) {
+		for (int i = 0; i < fields.size(); i += 2) {
+			String name = fields.get(i);
+			if (!name.startsWith(":")) {
+				head.addTrailer(name, fields.get(i + 1));
+			}
+		}
+		// the trailers end the stream
+		head.publishTrailers();
+	}
+
+	private int parseStatus() {
+		for (int i = 0; i < fields.size(); i += 2) {
+			if (fields.get(i).equals(":status")) {
+				try {
+					return Integer.parseInt(fields.get(i + 1));
+				} catch (NumberFormatException e) {
+					return -1;
+				}
+			}
+		}
+		return -1;
+	}
+
+	private void addHeaders(ResponseHead head) {
+		for (int i = 0; i < fields.size(); i += 2) {
+			String name = fields.get(i);
+			if (!name.startsWith(":")) {
+				head.addHeader(name, fields.get(i + 1));
+			}
+		}
+	}
+
+	private void onRstStream(int streamId, ByteBuffer payload) throws Http2Exception {
+		if (payload.remaining() != 4) {
+			throw new Http2Exception(Http2Error.FRAME_SIZE_ERROR, "Invalid RST_STREAM frame");
+		}
+		Stream stream = streams.get(streamId);
+		if (stream != null) {
+			Http2Error error = Http2Error.valueOf(payload.getInt());
+			fail(stream, new Http2Exception(error, "Stream reset by the server: " + error));
+		}
+	}
+
+	private void onSettings(int flags, int streamId, ByteBuffer payload) throws Http2Exception {
+		if (streamId != 0) {
+			throw new Http2Exception(Http2Error.PROTOCOL_ERROR, "SETTINGS frame on a stream");
+		}
+		if ((flags & FLAG_ACK) != 0) {
+			if (payload.hasRemaining()) {
+				throw new Http2Exception(Http2Error.FRAME_SIZE_ERROR, "SETTINGS acknowledgment with a payload");
+			}
+			decoder.maxTableSize(headerTableSize);
+			return;
+		}
+		if (payload.remaining() % 6 != 0) {
+			throw new Http2Exception(Http2Error.FRAME_SIZE_ERROR, "Invalid SETTINGS frame");
+		}
+		while (payload.hasRemaining()) {
+			int id = payload.getShort() & 0xffff;
+			int value = payload.getInt();
+			switch (id) {
+			case SETTINGS_HEADER_TABLE_SIZE:
+				encoder.maxTableSize(value < 0 ? Integer.MAX_VALUE : value);
+				break;
+			case SETTINGS_MAX_CONCURRENT_STREAMS:
+				remoteMaxConcurrentStreams = value < 0 ? Integer.MAX_VALUE : value;
+				break;
+			case SETTINGS_INITIAL_WINDOW_SIZE:
+				if (value < 0) {
+					throw new Http2Exception(Http2Error.FLOW_CONTROL_ERROR, "Invalid initial window size");
+				}
+				int delta = value - remoteInitialWindowSize;
+				remoteInitialWindowSize = value;
+				for (Stream stream : streams.values()) {
+					stream.sendWindow += delta;
+					if (stream.sendWindow > Integer.MAX_VALUE) {
+						throw new Http2Exception(Http2Error.FLOW_CONTROL_ERROR, "Stream window overflow");
+					}
+				}
+				break;
+			case SETTINGS_MAX_FRAME_SIZE:
+				if (value < DEFAULT_MAX_FRAME_SIZE || value > 16777215) {
+					throw new Http2Exception(Http2Error.PROTOCOL_ERROR, "Invalid max frame size: " + value);
+				}
+				remoteMaxFrameSize = value;
+				break;
+			default:
+				// push is disabled and the header list size is advisory
+				break;
+			}
+		}
+		PooledBuffer pooled = channel.bufferPool().acquire(FRAME_HEADER_LENGTH);
+		ByteBuffer ack = pooled.buffer();
+		putFrameHeader(ack, 0, SETTINGS, FLAG_ACK, 0);
+		ack.flip();
+		channel.write(pooled);
+		dispatchQueued();
+		resumeBlocked();
+	}
+
+	private void onPing(int flags, int streamId, ByteBuffer payload) throws Http2Exception {
+		if (payload.remaining() != 8) {
+			throw new Http2Exception(Http2Error.FRAME_SIZE_ERROR, "Invalid PING frame");
+		}
+		if (streamId != 0) {
+			throw new Http2Exception(Http2Error.PROTOCOL_ERROR, "PING frame on a stream");
+		}
+		if ((flags & FLAG_ACK) == 0) {
+			PooledBuffer pooled = channel.bufferPool().acquire(FRAME_HEADER_LENGTH + 8);
+			ByteBuffer pong = pooled.buffer();
+			putFrameHeader(pong, 8, PING, FLAG_ACK, 0);
+			pong.put(payload);
+			pong.flip();
+			channel.write(pooled);
+		}
+	}
+
+	private void onGoAway(int streamId, ByteBuffer payload) throws Http2Exception {
+		if (streamId != 0 || payload.remaining() < 8) {
+			throw new Http2Exception(Http2Error.PROTOCOL_ERROR, "Invalid GOAWAY frame");
+		}
+		int lastStreamId = payload.getInt() & 0x7fffffff;
+		Http2Error error = Http2Error.valueOf(payload.getInt());
+		goingAway = true;
+		// the streams the server did not process can be retried on another connection
+		Http2Exception refused = new Http2Exception(Http2Error.REFUSED_STREAM, "The server is going away: " + error);
+		List<Stream> unprocessed = new ArrayList<>();
+		for (Stream stream : streams.values()) {
+			if (stream.id > lastStreamId) {
+				unprocessed.add(stream);
+			}
+		}
+		for (Stream stream : unprocessed) {
+			fail(stream, refused);
+		}
+		HttpExchange exchange;
+		while ((exchange = queued.poll()) != null) {
+			exchange.listener().onError(refused);
+			recycled();
+		}
+		if (streams.isEmpty()) {
+			channel.close();
+		}
+	}
+
+	private void onWindowUpdate(int streamId, ByteBuffer payload) throws Http2Exception {
+		if (payload.remaining() != 4) {
+			throw new Http2Exception(Http2Error.FRAME_SIZE_ERROR, "Invalid WINDOW_UPDATE frame");
+		}
+		int increment = payload.getInt() & 0x7fffffff;
+		if (streamId == 0) {
+			if (increment == 0) {
+				throw new Http2Exception(Http2Error.PROTOCOL_ERROR, "Zero window increment");
+			}
+			sendWindow += increment;
+			if (sendWindow > Integer.MAX_VALUE) {
+				throw new Http2Exception(Http2Error.FLOW_CONTROL_ERROR, "Connection window overflow");
+			}
+		} else {
+			Stream stream = streams.get(streamId);
+			if (stream == null) {
+				return;
+			}
+			stream.sendWindow += increment;
+			if (increment == 0 || stream.sendWindow > Integer.MAX_VALUE) {
+				reset(stream, new Http2Exception(increment == 0 ? Http2Error.PROTOCOL_ERROR
+						: Http2Error.FLOW_CONTROL_ERROR, "Invalid stream window increment"));
+				return;
+			}
+		}
+		resumeBlocked();
+	}
+
+	private void open(HttpExchange exchange) {
+		if (nextStreamId < 0) {
+			// stream identifiers exhausted
+			goingAway = true;
+			exchange.listener().onError(new Http2Exception(Http2Error.REFUSED_STREAM, "Connection is going away"));
+			recycled();
+			return;
+		}
+		FileRegion region = exchange.file();
+		FileChannel file = null;
+		if (region != null && region.count() > 0) {
+			try {
+				file = region.open();
+			} catch (IOException e) {
+				exchange.listener().onError(e);
+				recycled();
+				return;
+			}
+		}
+		Stream stream = new Stream(nextStreamId, exchange, remoteInitialWindowSize, initialWindowSize);
+		nextStreamId += 2;
+		streams.put(stream.id, stream);
+		if (file != null) {
+			writeHeaders(stream, false);
+			stream.file = file;
+			stream.filePosition = region.position();
+			stream.fileEnd = region.position() + region.count();
+			writeData(stream);
+			return;
+		}
+		BodyStream upload = exchange.stream();
+		if (upload != null) {
+			writeHeaders(stream, false);
+			stream.upload = upload;
+			EventLoop loop = channel.eventLoop();
+			upload.onAvailable(() -> {
+				try {
+					loop.execute(() -> {
+						if (stream.upload != null && stream.body == null && !stream.blocked) {
+							writeData(stream);
+						}
+					});
+				} catch (RejectedExecutionException e) {
+					// the loop closes its channels on shutdown
+				}
+			});
+			writeData(stream);
+			return;
+		}
+		PooledBuffer body = exchange.body();
+		boolean hasBody = body != null && body.buffer().hasRemaining();
+		writeHeaders(stream, !hasBody);
+		if (hasBody) {
+			// copied to the DATA frames as the windows allow it
+			stream.body = body.retainedDuplicate();
+			writeData(stream);
+		}
+	}
+
+	private void writeHeaders(Stream stream, boolean endStream) {
+		HttpExchange exchange = stream.exchange;
+		CaseInsensitiveHeaders headers = exchange.headers();
+		String authority = headers.get(HeaderNames.HOST);
+		if (authority == null) {
+			authority = key().host() + ":" + key().port();
+		}
+		encoder.begin();
+		encoder.encode(":method", exchange.method().name());
+		encoder.encode(":scheme", channel.isSsl() ? "https" : "http");
+		encoder.encode(":authority", authority);
+		encoder.encode(":path", exchange.requestTarget());
+		for (int i = 0; i < headers.size(); i++) {
+			String name = HeaderNames.toLowerCase(headers.name(i));
+			String value = headers.value(i);
+			if (!CONNECTION_HEADERS.contains(name) && !(name.equals("te") && !value.equals("trailers"))) {
+				encoder.encode(name, value);
+			}
+		}
+		ByteBuffer block = encoder.end();
+		int frames = Math.max(1, (block.remaining() + remoteMaxFrameSize - 1) / remoteMaxFrameSize);
+		PooledBuffer pooled = channel.bufferPool().acquire(block.remaining() + frames * FRAME_HEADER_LENGTH);
+		ByteBuffer buffer = pooled.buffer();
+		int type = HEADERS;
+		int flags = endStream ? FLAG_END_STREAM : 0;
+		do {
+			int length = Math.min(block.remaining(), remoteMaxFrameSize);
+			boolean last = length == block.remaining();
+			putFrameHeader(buffer, length, type, last ? flags | FLAG_END_HEADERS : flags, stream.id);
+			int limit = block.limit();
+			block.limit(block.position() + length);
+			buffer.put(block);
+			block.limit(limit);
+			type = CONTINUATION;
+			flags = 0;
+		} while (block.hasRemaining());
+		buffer.flip();
+		channel.write(pooled);
+		stream.localClosed = endStream;
+	}
+
+	/**
+	 * Write the body of the stream as far as the flow control windows allow it.
+	 */
+	private void writeData(Stream stream) {
+		while (stream.body != null || nextChunk(stream)) {
+			ByteBuffer body = stream.body.buffer();
+			while (body.hasRemaining()) {
+				int length = (int) Math.min(Math.min(body.remaining(), remoteMaxFrameSize),
+						Math.min(stream.sendWindow, sendWindow));
+				if (length <= 0) {
+					block(stream);
+					return;
+				}
+				boolean last = stream.upload == null && stream.file == null && length == body.remaining();
+				PooledBuffer pooled = channel.bufferPool().acquire(FRAME_HEADER_LENGTH + length);
+				ByteBuffer frame = pooled.buffer();
+				putFrameHeader(frame, length, DATA, last ? FLAG_END_STREAM : 0, stream.id);
+				int limit = body.limit();
+				body.limit(body.position() + length);
+				frame.put(body);
+				body.limit(limit);
+				frame.flip();
+				channel.write(pooled);
+				stream.sendWindow -= length;
+				sendWindow -= length;
+			}
+			stream.body.release();
+			stream.body = null;
+			if (stream.upload == null && stream.file == null) {
+				stream.localClosed = true;
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Take the next chunk of a streamed body, once the previous one is written to
+	 * the socket so that the chunks waiting in memory stay bounded.
+	 *
+	 * @return is there a chunk to send?
+	 */
+	private boolean nextChunk(Stream stream) {
+		if (stream.file != null) {
+			return readFile(stream);
+		}
+		BodyStream upload = stream.upload;
+		if (upload == null) {
+			return false;
+		}
+		if (!channel.isWritable()) {
+			block(stream);
+			return false;
+		}
+		stream.body = upload.poll();
+		if (stream.body != null) {
+			return true;
+		}
+		Throwable failure = upload.failure();
+		if (failure != null) {
+			reset(stream, failure);
+		} else if (upload.isEnded()) {
+			PooledBuffer pooled = channel.bufferPool().acquire(FRAME_HEADER_LENGTH);
+			putFrameHeader(pooled.buffer(), 0, DATA, FLAG_END_STREAM, stream.id);
+			pooled.buffer().flip();
+			channel.write(pooled);
+			stream.upload = null;
+			stream.localClosed = true;
+		}
+		// otherwise called back once the writer queues a chunk
+		return false;
+	}
+
+	/**
+	 * Read the next chunk of a file body, the file is closed once the last one
+	 * is read.
+	 *
+	 * @return is there a chunk to send?
+	 */
+	private boolean readFile(Stream stream) {
+		if (!channel.isWritable()) {
+			block(stream);
+			return false;
+		}
+		long remaining = stream.fileEnd - stream.filePosition;
+		PooledBuffer chunk = channel.bufferPool().acquire((int) Math.min(remaining, FILE_CHUNK_SIZE));
+		ByteBuffer buffer = chunk.buffer();
+		buffer.limit((int) Math.min(remaining, buffer.capacity()));
+		try {
+			while (buffer.hasRemaining()) {
+				if (stream.file.read(buffer, stream.filePosition + buffer.position()) < 0) {
+					throw stream.exchange.file().truncated();
+				}
+			}
+		} catch (IOException e) {
+			chunk.release();
+			reset(stream, e);
+			return false;
+		}
+		buffer.flip();
+		stream.filePosition += buffer.remaining();
+		if (stream.filePosition == stream.fileEnd) {
+			closeFile(stream);
+		}
+		stream.body = chunk;
+		return true;
+	}
+
+	private static void closeFile(Stream stream) {
+		if (stream.file != null) {
+			try {
+				stream.file.close();
+			} catch (IOException e) {
+				// read only
+			}
+			stream.file = null;
+		}
+	}
+
+	private void block(Stream stream) {
+		if (!stream.blocked) {
+			stream.blocked = true;
+			blocked.add(stream);
+		}
+	}
+
+	/**
+	 * Send the streamed bodies waiting for the socket.
+	 */
+	@Override
+	public void onWritable() {
+		if (!blocked.isEmpty()) {
+			resumeBlocked();
+		}
+	}
+
+	private void resumeBlocked() {
+		int n = blocked.size();
+		while (n-- > 0 && sendWindow > 0) {
+			Stream stream = blocked.poll();
+			stream.blocked = false;
+			if ((stream.body != null || stream.upload != null || stream.file != null)
+					&& streams.get(stream.id) == stream) {
+				writeData(stream);
+			}
+		}
+	}
+
+	private void dispatchQueued() {
+		while (!queued.isEmpty() && !goingAway && streams.size() < remoteMaxConcurrentStreams) {
+			open(queued.poll());
+		}
+	}
+
+	/**
+	 * The server ended the stream.
+	 */
+	private void end(Stream stream) {
+		if (!stream.localClosed) {
+			// the response is complete, the rest of the request is not needed
+			writeRstStream(stream.id, Http2Error.NO_ERROR);
+		}
+		remove(stream);
+		stream.exchange.listener().onEnd();
+		dispatchQueued();
+		recycled();
+		closeIfDone();
+	}
+
+	/**
+	 * End the stream once the bytes kept for its suspended listener are handed
+	 * over.
+	 */
+	private void endOrDefer(Stream stream) {
+		if (stream.pending != null) {
+			stream.pendingEnd = true;
+		} else {
+			end(stream);
+		}
+	}
+
+	/**
+	 * Reset the stream and fail its exchange.
+	 */
+	private void reset(Stream stream, Throwable cause) {
+		Http2Error error = cause instanceof Http2Exception ? ((Http2Exception) cause).error() : Http2Error.CANCEL;
+		writeRstStream(stream.id, error);
+		fail(stream, cause);
+	}
+
+	private void fail(Stream stream, Throwable cause) {
+		remove(stream);
+		stream.exchange.listener().onError(cause);
+		dispatchQueued();
+		recycled();
+		closeIfDone();
+	}
+
+	private void remove(Stream stream) {
+		streams.remove(stream.id);
+		if (stream.blocked) {
+			blocked.remove(stream);
+			stream.blocked = false;
+		}
+		if (stream.body != null) {
+			stream.body.release();
+			stream.body = null;
+		}
+		if (stream.upload != null) {
+			stream.upload.cancel(new IOException("The stream was closed before the request body was sent"));
+			stream.upload = null;
+		}
+		closeFile(stream);
+		stream.pending = null;
+	}
+
+	private void closeIfDone() {
+		if (goingAway && streams.isEmpty() && queued.isEmpty()) {
+			channel.close();
+		}
+	}
+
+	private void writeRstStream(int streamId, Http2Error error) {
+		PooledBuffer pooled = channel.bufferPool().acquire(FRAME_HEADER_LENGTH + 4);
+		ByteBuffer frame = pooled.buffer();
+		putFrameHeader(frame, 4, RST_STREAM, 0, streamId);
+		frame.putInt(error.code());
+		frame.flip();
+		channel.write(pooled);
+	}
+
+	private void writeWindowUpdate(int streamId, int increment) {
+		PooledBuffer pooled = channel.bufferPool().acquire(FRAME_HEADER_LENGTH + 4);
+		ByteBuffer frame = pooled.buffer();
+		putFrameHeader(frame, 4, WINDOW_UPDATE, 0, streamId);
+		frame.putInt(increment);
+		frame.flip();
+		channel.write(pooled);
+	}
+
+	private void writeGoAway(Http2Error error) {
+		PooledBuffer pooled = channel.bufferPool().acquire(FRAME_HEADER_LENGTH + 8);
+		ByteBuffer frame = pooled.buffer();
+		putFrameHeader(frame, 8, GOAWAY, 0, 0);
+		// no stream is initiated by the server
+		frame.putInt(0);
+		frame.putInt(error.code());
+		frame.flip();
+		channel.write(pooled);
+	}
+
+	private static void putFrameHeader(ByteBuffer buffer, int length, int type, int flags, int streamId) {
+		buffer.put((byte) (length >>> 16));
+		buffer.put((byte) (length >>> 8));
+		buffer.put((byte) length);
+		buffer.put((byte) type);
+		buffer.put((byte) flags);
+		buffer.putInt(streamId);
+	}
+
+	private static void putSetting(ByteBuffer buffer, int id, int value) {
+		buffer.putShort((short) id);
+		buffer.putInt(value);
+	}
+
+	private static final class Stream {
+
+		private final int id;
+		private final HttpExchange exchange;
+		private long sendWindow;
+		private int recvWindow;
+		private int recvUnacked;
+		private ResponseHead head;
+		private PooledBuffer body;
+		// the streamed body, until it ends
+		private BodyStream upload;
+		// the file body, until its last chunk is read
+		private FileChannel file;
+		private long filePosition;
+		private long fileEnd;
+		private boolean blocked;
+		private boolean localClosed;
+		// the bytes received while the listener is suspended
+		private ArrayDeque<ByteBuffer> pending;
+		private boolean pendingEnd;
+
+		Stream(int id, HttpExchange exchange, int sendWindow, int recvWindow) {
+			this.id = id;
+			this.exchange = exchange;
+			this.sendWindow = sendWindow;
+			this.recvWindow = recvWindow;
+		}
+
+	}
+
+}
@@ -0,0 +1,46 @@
+package com.github.jcurl.core.net.http2;
+
+/**
+ * The HTTP/2 error codes of RST_STREAM and GOAWAY frames.
+ */
+public enum Http2Error {
+
+	NO_ERROR(0x0),
+	PROTOCOL_ERROR(0x1),
+	INTERNAL_ERROR(0x2),
+	FLOW_CONTROL_ERROR(0x3),
+	SETTINGS_TIMEOUT(0x4),
+	STREAM_CLOSED(0x5),
+	FRAME_SIZE_ERROR(0x6),
+	REFUSED_STREAM(0x7),
+	CANCEL(0x8),
+	COMPRESSION_ERROR(0x9),
+	CONNECT_ERROR(0xa),
+	ENHANCE_YOUR_CALM(0xb),
+	INADEQUATE_SECURITY(0xc),
+	HTTP_1_1_REQUIRED(0xd);
+
+	private static final Http2Error[] VALUES = values();
+
+	private final int code;
+
+	Http2Error(int code) {
+		this.code = code;
+	}
+
+	/**
+	 * @return the code sent on the wire
+	 */
+	public int code() {
+		return code;
+	}
+
+	/**
+	 * @return the error of the {@code code}, {@link #INTERNAL_ERROR} for unknown
+	 *         codes
+	 */
+	public static Http2Error valueOf(int code) {
+		return code >= 0 && code < VALUES.length ? VALUES[code] : INTERNAL_ERROR;
+	}
+
+}
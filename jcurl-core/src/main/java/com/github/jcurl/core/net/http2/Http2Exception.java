@@ -0,0 +1,26 @@
+package com.github.jcurl.core.net.http2;
+
+import java.io.IOException;
+
+/**
+ * An HTTP/2 connection or stream error.
+ */
+public class Http2Exception extends IOException {
+
+	private static final long serialVersionUID = -2215316279434529106L;
+
+	private final Http2Error error;
+
+	public Http2Exception(Http2Error error, String message) {
+		super(message);
+		this.error = error;
+	}
+
+	/**
+	 * @return the error code
+	 */
+	public Http2Error error() {
+		return error;
+	}
+
+}
@@ -0,0 +1,137 @@
+package com.github.jcurl.core.net.http2;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The static Huffman code of HPACK (RFC 7541, appendix B).
+ * <p>
+ * The code is canonical: the codes of a given length are consecutive and
+ * assigned in symbol order, so the table is rebuilt from the code length of
+ * each of the 257 symbols, the last one being EOS.
+ */
+final class Huffman {
+
+	private static final byte[] LENGTHS = {
+			13, 23, 28, 28, 28, 28, 28, 28, 28, 24, 30, 28, 28, 30, 28, 28,
+			28, 28, 28, 28, 28, 28, 30, 28, 28, 28, 28, 28, 28, 28, 28, 28,
+			6, 10, 10, 12, 13, 6, 8, 11, 10, 10, 8, 11, 8, 6, 6, 6,
+			5, 5, 5, 6, 6, 6, 6, 6, 6, 6, 7, 8, 15, 6, 12, 10,
+			13, 6, 7, 7, 7, 7, 7, 7, 7, 7, 7, 7, 7, 7, 7, 7,
+			7, 7, 7, 7, 7, 7, 7, 7, 8, 7, 8, 13, 19, 13, 14, 6,
+			15, 5, 6, 5, 6, 5, 6, 6, 6, 5, 7, 7, 6, 6, 6, 5,
+			6, 7, 6, 5, 5, 6, 7, 7, 7, 7, 7, 15, 11, 14, 13, 28,
+			20, 22, 20, 20, 22, 22, 22, 23, 22, 23, 23, 23, 23, 23, 24, 23,
+			24, 24, 22, 23, 24, 23, 23, 23, 23, 21, 22, 23, 22, 23, 23, 24,
+			22, 21, 20, 22, 22, 23, 23, 21, 23, 22, 22, 24, 21, 22, 23, 23,
+			21, 21, 22, 21, 23, 22, 23, 23, 20, 22, 22, 22, 23, 22, 22, 23,
+			26, 26, 20, 19, 22, 23, 22, 25, 26, 26, 26, 27, 27, 26, 24, 25,
+			19, 21, 26, 27, 27, 26, 27, 24, 21, 21, 26, 26, 28, 27, 27, 27,
+			20, 24, 20, 21, 22, 21, 21, 23, 22, 22, 25, 25, 24, 24, 26, 23,
+			26, 27, 26, 26, 27, 27, 27, 27, 27, 28, 27, 27, 27, 27, 27, 26,
+			30
+	};
+
+	private static final int EOS = 256;
+	private static final int[] CODES = new int[257];
+	// canonical decoding: the codes of each length start at FIRST_CODE, their
+	// symbols are at OFFSET in SYMBOLS
+	private static final int[] FIRST_CODE = new int[31];
+	private static final int[] COUNT = new int[31];
+	private static final int[] OFFSET = new int[31];
+	private static final int[] SYMBOLS = new int[257];
+
+	static {
+		int code = 0;
+		int index = 0;
+		for (int length = 1; length <= 30; length++) {
+			FIRST_CODE[length] = code;
+			OFFSET[length] = index;
+			for (int symbol = 0; symbol < LENGTHS.length; symbol++) {
+				if (LENGTHS[symbol] == length) {
+					CODES[symbol] = code++;
+					SYMBOLS[index++] = symbol;
+				}
+			}
+			COUNT[length] = index - OFFSET[length];
+			code <<= 1;
+		}
+	}
+
+	private Huffman() {
+	}
+
+	/**
+	 * @return the number of bytes of the encoded {@code value}
+	 */
+	static int encodedLength(String value) {
+		long bits = 0;
+		for (int i = 0; i < value.length(); i++) {
+			bits += LENGTHS[octet(value.charAt(i))];
+		}
+		return (int) ((bits + 7) >> 3);
+	}
+
+	/**
+	 * Encode the {@code value}, the output must have room for
+	 * {@link #encodedLength(String)} bytes.
+	 */
+	static void encode(String value, ByteBuffer out) {
+		long bits = 0;
+		int count = 0;
+		for (int i = 0; i < value.length(); i++) {
+			int symbol = octet(value.charAt(i));
+			bits = (bits << LENGTHS[symbol]) | CODES[symbol];
+			count += LENGTHS[symbol];
+			while (count >= 8) {
+				count -= 8;
+				out.put((byte) (bits >> count));
+			}
+		}
+		if (count > 0) {
+			// padded with the most significant bits of EOS
+			out.put((byte) ((bits << (8 - count)) | (0xff >>> count)));
+		}
+	}
+
+	/**
+	 * Decode {@code length} bytes of the {@code in} buffer.
+	 *
+	 * @throws Http2Exception when the bytes are not a valid encoding
+	 */
+	static String decode(ByteBuffer in, int length) throws Http2Exception {
+		StringBuilder sb = new StringBuilder(length + (length >> 1));
+		int code = 0;
+		int bits = 0;
+		for (int i = 0; i < length; i++) {
+			int b = in.get();
+			for (int shift = 7; shift >= 0; shift--) {
+				code = (code << 1) | ((b >> shift) & 1);
+				bits++;
+				int index = code - FIRST_CODE[bits];
+				if (index >= 0 && index < COUNT[bits]) {
+					int symbol = SYMBOLS[OFFSET[bits] + index];
+					if (symbol == EOS) {
+						throw new Http2Exception(Http2Error.COMPRESSION_ERROR, "EOS in Huffman encoded string");
+					}
+					sb.append((char) symbol);
+					code = 0;
+					bits = 0;
+				} else if (bits == 30) {
+					throw new Http2Exception(Http2Error.COMPRESSION_ERROR, "Invalid Huffman encoded string");
+				}
+			}
+		}
+		if (bits > 7 || code != (1 << bits) - 1) {
+			throw new Http2Exception(Http2Error.COMPRESSION_ERROR, "Invalid Huffman padding");
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * @return the ISO-8859-1 octet of the character, '?' when it has none
+	 */
+	static int octet(char c) {
+		return c <= 0xff ? c : '?';
+	}
+
+}
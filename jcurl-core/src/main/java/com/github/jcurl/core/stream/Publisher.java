@@ -0,0 +1,21 @@
+package com.github.jcurl.core.stream;
+
+/**
+ * A source of items delivered to a {@link Subscriber} as it requests them, in
+ * the manner of Reactive Streams.
+ *
+ * @param <T> the type of the items
+ */
+@FunctionalInterface
+public interface Publisher<T> {
+
+	/**
+	 * Start delivering the items to the {@code subscriber}, once it requests
+	 * them with the {@link Subscription} handed over to
+	 * {@link Subscriber#onSubscribe(Subscription)}.
+	 *
+	 * @param subscriber the subscriber
+	 */
+	void subscribe(Subscriber<? super T> subscriber);
+
+}
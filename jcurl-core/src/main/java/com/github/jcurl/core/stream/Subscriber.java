@@ -0,0 +1,37 @@
+package com.github.jcurl.core.stream;
+
+/**
+ * Receives the items of a {@link Publisher}, the methods are called one at a
+ * time and never concurrently.
+ *
+ * @param <T> the type of the items
+ */
+public interface Subscriber<T> {
+
+	/**
+	 * The subscription started, no item is delivered until some are requested.
+	 *
+	 * @param subscription the subscription
+	 */
+	void onSubscribe(Subscription subscription);
+
+	/**
+	 * An item was delivered, as requested.
+	 *
+	 * @param item the item
+	 */
+	void onNext(T item);
+
+	/**
+	 * All the items were delivered, no other method is called afterwards.
+	 */
+	void onComplete();
+
+	/**
+	 * The publisher failed, no other method is called afterwards.
+	 *
+	 * @param cause the failure
+	 */
+	void onError(Throwable cause);
+
+}
@@ -0,0 +1,22 @@
+package com.github.jcurl.core.stream;
+
+/**
+ * The link between a {@link Publisher} and a {@link Subscriber}, its methods
+ * can be called from any thread, including from the subscriber callbacks.
+ */
+public interface Subscription {
+
+	/**
+	 * Request {@code n} more items, the publisher stops delivering items once
+	 * the requested ones were delivered.
+	 *
+	 * @param n the number of items, strictly positive
+	 */
+	void request(long n);
+
+	/**
+	 * Stop the delivery of the items, the subscriber is not notified.
+	 */
+	void cancel();
+
+}
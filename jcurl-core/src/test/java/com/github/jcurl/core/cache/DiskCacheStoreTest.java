@@ -0,0 +1,225 @@
+package com.github.jcurl.core.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.github.jcurl.core.http.CaseInsensitiveHeaders;
+import com.github.jcurl.core.http.HttpVersion;
+
+class DiskCacheStoreTest {
+
+	private static final int SEGMENT_SIZE = 4096;
+
+	@TempDir
+	Path directory;
+
+	@Test
+	void reopen() throws IOException {
+		try (DiskCacheStore store = new DiskCacheStore(directory, 16 * SEGMENT_SIZE, SEGMENT_SIZE)) {
+			store.put("a", response("alpha"));
+			store.put("b", response("beta"));
+			store.put("c", response(""));
+		}
+		try (DiskCacheStore store = new DiskCacheStore(directory, 16 * SEGMENT_SIZE, SEGMENT_SIZE)) {
+			assertResponse("alpha", store.get("a"));
+			assertResponse("beta", store.get("b"));
+			assertResponse("", store.get("c"));
+			assertNull(store.get("d"));
+			// appended after the recovered records
+			store.put("d", response("delta"));
+		}
+		try (DiskCacheStore store = new DiskCacheStore(directory, 16 * SEGMENT_SIZE, SEGMENT_SIZE)) {
+			assertResponse("alpha", store.get("a"));
+			assertResponse("delta", store.get("d"));
+		}
+	}
+
+	@Test
+	void replaceAndRemoveSurviveReopen() throws IOException {
+		try (DiskCacheStore store = new DiskCacheStore(directory, 16 * SEGMENT_SIZE, SEGMENT_SIZE)) {
+			store.put("a", response("first"));
+			store.put("b", response("beta"));
+			store.put("a", response("second"));
+			store.remove("b");
+			assertResponse("second", store.get("a"));
+			assertNull(store.get("b"));
+		}
+		try (DiskCacheStore store = new DiskCacheStore(directory, 16 * SEGMENT_SIZE, SEGMENT_SIZE)) {
+			assertResponse("second", store.get("a"));
+			assertNull(store.get("b"));
+		}
+	}
+
+	@Test
+	void compaction() throws IOException {
+		try (DiskCacheStore store = new DiskCacheStore(directory, 16 * SEGMENT_SIZE, SEGMENT_SIZE)) {
+			// about 7 records per segment
+			for (int i = 0; i < 30; i++) {
+				store.put("key-" + i, response(body(i)));
+			}
+			int segments = segments().size();
+			assertTrue(segments >= 4, "segments: " + segments);
+			String first = segments().get(0);
+			// less than half of the first segment is left live
+			for (int i = 0; i < 6; i++) {
+				store.remove("key-" + i);
+			}
+			assertFalse(segments().contains(first), "not compacted: " + segments());
+			for (int i = 0; i < 30; i++) {
+				if (i < 6) {
+					assertNull(store.get("key-" + i));
+				} else {
+					assertResponse(body(i), store.get("key-" + i));
+				}
+			}
+		}
+		try (DiskCacheStore store = new DiskCacheStore(directory, 16 * SEGMENT_SIZE, SEGMENT_SIZE)) {
+			for (int i = 0; i < 30; i++) {
+				if (i < 6) {
+					assertNull(store.get("key-" + i));
+				} else {
+					assertResponse(body(i), store.get("key-" + i));
+				}
+			}
+		}
+	}
+
+	@Test
+	void dropTheOldestSegments() throws IOException {
+		try (DiskCacheStore store = new DiskCacheStore(directory, 4 * SEGMENT_SIZE, SEGMENT_SIZE)) {
+			for (int i = 0; i < 100; i++) {
+				store.put("key-" + i, response(body(i)));
+				assertTrue(store.size() <= store.maxSize());
+			}
+			assertNull(store.get("key-0"));
+			assertResponse(body(99), store.get("key-99"));
+			assertTrue(segments().size() <= 4);
+		}
+	}
+
+	@Test
+	void tornRecordEndsTheSegment() throws IOException {
+		try (DiskCacheStore store = new DiskCacheStore(directory, 16 * SEGMENT_SIZE, SEGMENT_SIZE)) {
+			store.put("a", response("alpha"));
+			store.put("b", response("beta"));
+		}
+		Path segment = directory.resolve(segments().get(0));
+		try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			ByteBuffer bytes = ByteBuffer.allocate((int) channel.size());
+			channel.read(bytes, 0);
+			// the last byte of the body of b
+			int last = bytes.capacity() - 1;
+			while (bytes.get(last) == 0) {
+				last--;
+			}
+			channel.write(ByteBuffer.wrap(new byte[] { (byte) (bytes.get(last) ^ 1) }), last);
+		}
+		try (DiskCacheStore store = new DiskCacheStore(directory, 16 * SEGMENT_SIZE, SEGMENT_SIZE)) {
+			assertResponse("alpha", store.get("a"));
+			assertNull(store.get("b"));
+			// written over the torn record
+			store.put("c", response("gamma"));
+		}
+		try (DiskCacheStore store = new DiskCacheStore(directory, 16 * SEGMENT_SIZE, SEGMENT_SIZE)) {
+			assertResponse("alpha", store.get("a"));
+			assertNull(store.get("b"));
+			assertResponse("gamma", store.get("c"));
+		}
+	}
+
+	@Test
+	void bodiesStayReadableAfterClose() throws IOException {
+		CachedResponse response;
+		try (DiskCacheStore store = new DiskCacheStore(directory, 16 * SEGMENT_SIZE, SEGMENT_SIZE)) {
+			store.put("a", response("alpha"));
+			response = store.get("a");
+		}
+		assertResponse("alpha", response);
+	}
+
+	@Test
+	void largeRecord() throws IOException {
+		try (DiskCacheStore store = new DiskCacheStore(directory, 4 * SEGMENT_SIZE, SEGMENT_SIZE)) {
+			char[] large = new char[2 * SEGMENT_SIZE];
+			Arrays.fill(large, 'x');
+			store.put("large", response(new String(large)));
+			assertResponse(new String(large), store.get("large"));
+			char[] tooLarge = new char[4 * SEGMENT_SIZE];
+			store.put("too-large", response(new String(tooLarge)));
+			assertNull(store.get("too-large"));
+		}
+	}
+
+	@Test
+	void lockedDirectory() throws IOException {
+		try (DiskCacheStore store = new DiskCacheStore(directory, 16 * SEGMENT_SIZE, SEGMENT_SIZE)) {
+			assertThrows(IOException.class, () -> new DiskCacheStore(directory, 16 * SEGMENT_SIZE, SEGMENT_SIZE));
+		}
+		new DiskCacheStore(directory, 16 * SEGMENT_SIZE, SEGMENT_SIZE).close();
+	}
+
+	private List<String> segments() throws IOException {
+		List<String> names = new ArrayList<>();
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*.segment")) {
+			for (Path file : stream) {
+				names.add(file.getFileName().toString());
+			}
+		}
+		Collections.sort(names);
+		return names;
+	}
+
+	private static String body(int i) {
+		StringBuilder sb = new StringBuilder();
+		while (sb.length() < 400) {
+			sb.append("body-").append(i).append(' ');
+		}
+		return sb.toString();
+	}
+
+	private static CachedResponse response(String body) {
+		CaseInsensitiveHeaders headers = new CaseInsensitiveHeaders();
+		headers.add("Content-Type", "text/plain").add("Set-Cookie", "a=1").add("Set-Cookie", "b=2");
+		Map<String, String> vary = new LinkedHashMap<>();
+		vary.put("accept-encoding", "gzip");
+		vary.put("accept-language", null);
+		return new CachedResponse(HttpVersion.HTTP_2, 200, "Fine", headers,
+				ByteBuffer.wrap(body.getBytes(StandardCharsets.UTF_8)), vary, 1000, 2000);
+	}
+
+	private static void assertResponse(String body, CachedResponse response) {
+		assertNotNull(response);
+		assertEquals(HttpVersion.HTTP_2, response.version());
+		assertEquals(200, response.statusCode());
+		assertEquals("Fine", response.statusMessage());
+		assertEquals("text/plain", response.headers().get("content-type"));
+		assertEquals(2, response.headers().getAll("set-cookie").size());
+		assertEquals(response("").vary(), response.vary());
+		assertEquals(1000, response.requestTime());
+		assertEquals(2000, response.responseTime());
+		assertEquals(body, StandardCharsets.UTF_8.decode(response.body()).toString());
+	}
+
+}
@@ -0,0 +1,211 @@
+package com.github.jcurl.core.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.github.jcurl.core.HttpResponse;
+import com.github.jcurl.core.JCurlClient;
+import com.github.jcurl.core.http.HttpVersion;
+import com.github.jcurl.core.http.JCurlClientOptions;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+class HttpCacheTest {
+
+	private final Map<String, AtomicInteger> hits = new ConcurrentHashMap<>();
+	private final List<String> storeThreads = new CopyOnWriteArrayList<>();
+	private HttpServer server;
+	private JCurlClient client;
+	private int port;
+
+	@BeforeEach
+	void start() throws IOException {
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.createContext("/", this::handle);
+		server.start();
+		port = server.getAddress().getPort();
+		MemoryCacheStore memory = new MemoryCacheStore(1024 * 1024);
+		CacheStore store = new CacheStore() {
+
+			@Override
+			public CachedResponse get(String key) {
+				return memory.get(key);
+			}
+
+			@Override
+			public void put(String key, CachedResponse response) {
+				storeThreads.add(Thread.currentThread().getName());
+				memory.put(key, response);
+			}
+
+			@Override
+			public void remove(String key) {
+				storeThreads.add(Thread.currentThread().getName());
+				memory.remove(key);
+			}
+
+		};
+		client = JCurlClient.create(new JCurlClientOptions().addInterceptor(new HttpCache(store)));
+	}
+
+	@AfterEach
+	void stop() {
+		client.close();
+		server.stop(0);
+	}
+
+	@Test
+	void fresh() {
+		HttpResponse<?> first = get("/fresh", null);
+		HttpResponse<?> second = get("/fresh", null);
+		assertEquals("/fresh 1", first.bodyAsString());
+		assertEquals("/fresh 1", second.bodyAsString());
+		assertEquals(HttpVersion.HTTP_1_1, second.version());
+		assertEquals(200, second.statusCode());
+		assertEquals("OK", second.statusMessage());
+		assertNotNull(second.getHeader("Age"));
+		assertEquals(1, hits("/fresh"));
+	}
+
+	@Test
+	void requestNoCache() {
+		get("/fresh", null);
+		HttpResponse<?> response = client.get(port, "127.0.0.1", "/fresh").putHeader("Cache-Control", "no-cache")
+				.send();
+		assertEquals("/fresh 2", response.bodyAsString());
+	}
+
+	@Test
+	void noStore() {
+		get("/no-store", null);
+		assertEquals("/no-store 2", get("/no-store", null).bodyAsString());
+	}
+
+	@Test
+	void revalidate() {
+		assertEquals("/etag 1", get("/etag", null).bodyAsString());
+		HttpResponse<?> validated = get("/etag", null);
+		// the stored body with the headers of the 304
+		assertEquals(200, validated.statusCode());
+		assertEquals("/etag 1", validated.bodyAsString());
+		assertEquals("2", validated.getHeader("X-Hit"));
+		// the repeated header of the 304 replaces the stored values together
+		assertEquals(Arrays.asList("a2", "b2"), values(validated, "X-Multi"));
+		assertEquals(2, hits("/etag"));
+		assertEquals("3", get("/etag", null).getHeader("X-Hit"));
+	}
+
+	@Test
+	void vary() {
+		assertEquals("/vary en 1", get("/vary", "en").bodyAsString());
+		assertEquals("/vary en 1", get("/vary", "en").bodyAsString());
+		// replaces the stored response
+		assertEquals("/vary fr 2", get("/vary", "fr").bodyAsString());
+		assertEquals("/vary fr 2", get("/vary", "fr").bodyAsString());
+		assertEquals("/vary en 3", get("/vary", "en").bodyAsString());
+		assertEquals(3, hits("/vary"));
+	}
+
+	@Test
+	void unsafeMethodInvalidates() {
+		get("/fresh", null);
+		client.post(port, "127.0.0.1", "/fresh").send();
+		assertEquals("/fresh 3", get("/fresh", null).bodyAsString());
+	}
+
+	@Test
+	void storeIsNotWrittenOnTheEventLoop() throws Exception {
+		HttpResponse<?> response = client.get(port, "127.0.0.1", "/fresh").sendAsync().get(10, TimeUnit.SECONDS);
+		assertEquals("/fresh 1", response.bodyAsString());
+		client.post(port, "127.0.0.1", "/fresh").sendAsync().get(10, TimeUnit.SECONDS);
+		assertEquals(2, storeThreads.size());
+		for (String thread : storeThreads) {
+			assertFalse(thread.startsWith("jcurl-eventloop"), thread);
+		}
+	}
+
+	@Test
+	void onlyIfCached() {
+		HttpResponse<?> response = client.get(port, "127.0.0.1", "/fresh")
+				.putHeader("Cache-Control", "only-if-cached").send();
+		assertEquals(504, response.statusCode());
+		assertEquals("Gateway Timeout", response.statusMessage());
+		assertNull(hits.get("/fresh"));
+	}
+
+	private HttpResponse<?> get(String uri, String language) {
+		return language == null ? client.get(port, "127.0.0.1", uri).send()
+				: client.get(port, "127.0.0.1", uri).putHeader("Accept-Language", language).send();
+	}
+
+	private static List<String> values(HttpResponse<?> response, String name) {
+		List<String> values = new ArrayList<>();
+		for (Map.Entry<String, String> header : response.headers().entrySet()) {
+			if (header.getKey().equalsIgnoreCase(name)) {
+				values.add(header.getValue());
+			}
+		}
+		return values;
+	}
+
+		private int hits(String path) {
+		return hits.get(path).get();
+	}
+
+	private void handle(HttpExchange exchange) throws IOException {
+		String path = exchange.getRequestURI().getPath();
+		int hit = hits.computeIfAbsent(path, p -> new AtomicInteger()).incrementAndGet();
+		String body = path + " " + hit;
+		switch (path) {
+		case "/fresh":
+			exchange.getResponseHeaders().add("Cache-Control", "max-age=60");
+			break;
+		case "/no-store":
+			exchange.getResponseHeaders().add("Cache-Control", "no-store");
+			break;
+		case "/etag":
+			exchange.getResponseHeaders().add("Cache-Control", "no-cache");
+			exchange.getResponseHeaders().add("ETag", "\"v1\"");
+			exchange.getResponseHeaders().add("X-Hit", Integer.toString(hit));
+			exchange.getResponseHeaders().add("X-Multi", "a" + hit);
+			exchange.getResponseHeaders().add("X-Multi", "b" + hit);
+			if ("\"v1\"".equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+				exchange.sendResponseHeaders(304, -1);
+				exchange.close();
+				return;
+			}
+			break;
+		case "/vary":
+			exchange.getResponseHeaders().add("Cache-Control", "max-age=60");
+			exchange.getResponseHeaders().add("Vary", "Accept-Language");
+			body = path + " " + exchange.getRequestHeaders().getFirst("Accept-Language") + " " + hit;
+			break;
+		default:
+		}
+		byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+		exchange.sendResponseHeaders(200, bytes.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(bytes);
+		}
+	}
+
+}
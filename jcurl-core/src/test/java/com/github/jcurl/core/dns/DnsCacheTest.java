@@ -0,0 +1,216 @@
+package com.github.jcurl.core.dns;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * The lookups run when the test runs the tasks of the executor, the TTLs are
+ * real times.
+ */
+class DnsCacheTest {
+
+	private static final long MINUTE = 60_000;
+
+	private final Queue<Runnable> tasks = new ArrayDeque<>();
+	private final Executor executor = tasks::add;
+	private final AtomicInteger lookups = new AtomicInteger();
+	// the addresses or the failure of the next lookups
+	private volatile Object next;
+	private final HostResolver resolver = host -> {
+		lookups.incrementAndGet();
+		Object result = next;
+		if (result instanceof IOException) {
+			throw (IOException) result;
+		}
+		return (HostAddresses) result;
+	};
+
+	@Test
+	void literalIsNotLookedUp() throws Exception {
+		DnsCache cache = new DnsCache(resolver, executor, 0, 0);
+		assertEquals(Collections.singletonList(address("127.0.0.1")), cache.resolve("127.0.0.1").get());
+		assertEquals(Collections.singletonList(address("::1")), cache.resolve("::1").get());
+		assertEquals(0, lookups.get());
+		assertTrue(tasks.isEmpty());
+	}
+
+	@Test
+	void addressesAreCachedForTheirTtl() throws Exception {
+		next = addresses(MINUTE, "10.0.0.1");
+		DnsCache cache = new DnsCache(resolver, executor, 0, 0);
+		CompletableFuture<List<InetAddress>> first = cache.resolve("example.com");
+		assertFalse(first.isDone());
+		runTasks();
+		assertEquals(Collections.singletonList(address("10.0.0.1")), first.get());
+		// in any case
+		CompletableFuture<List<InetAddress>> second = cache.resolve("Example.COM");
+		assertTrue(second.isDone());
+		assertEquals(first.get(), second.get());
+		assertEquals(1, lookups.get());
+	}
+
+	@Test
+	void expiredAddressesAreLookedUpAgain() throws Exception {
+		next = addresses(50, "10.0.0.1");
+		DnsCache cache = new DnsCache(resolver, executor, 0, 0);
+		resolve(cache, "example.com");
+		Thread.sleep(100);
+		next = addresses(MINUTE, "10.0.0.2");
+		CompletableFuture<List<InetAddress>> future = cache.resolve("example.com");
+		assertFalse(future.isDone());
+		runTasks();
+		assertEquals(Collections.singletonList(address("10.0.0.2")), future.get());
+		assertEquals(2, lookups.get());
+	}
+
+	@Test
+	void concurrentLookupsAreShared() throws Exception {
+		next = addresses(MINUTE, "10.0.0.1");
+		DnsCache cache = new DnsCache(resolver, executor, 0, 0);
+		CompletableFuture<List<InetAddress>> first = cache.resolve("example.com");
+		CompletableFuture<List<InetAddress>> second = cache.resolve("example.com");
+		assertEquals(1, tasks.size());
+		runTasks();
+		assertEquals(first.get(), second.get());
+		assertEquals(1, lookups.get());
+	}
+
+	@Test
+	void staleAddressesAreUsedWhileTheyAreRefreshed() throws Exception {
+		next = addresses(50, "10.0.0.1");
+		DnsCache cache = new DnsCache(resolver, executor, 0, MINUTE);
+		resolve(cache, "example.com");
+		Thread.sleep(100);
+		next = addresses(MINUTE, "10.0.0.2");
+		CompletableFuture<List<InetAddress>> stale = cache.resolve("example.com");
+		assertTrue(stale.isDone());
+		assertEquals(Collections.singletonList(address("10.0.0.1")), stale.get());
+		// a single refresh
+		cache.resolve("example.com");
+		assertEquals(1, tasks.size());
+		runTasks();
+		assertEquals(Collections.singletonList(address("10.0.0.2")), cache.resolve("example.com").get());
+		assertEquals(2, lookups.get());
+	}
+
+	@Test
+	void staleAddressesAreUsedWhenTheRefreshFails() throws Exception {
+		next = addresses(50, "10.0.0.1");
+		DnsCache cache = new DnsCache(resolver, executor, MINUTE, MINUTE);
+		resolve(cache, "example.com");
+		Thread.sleep(100);
+		next = new IOException("resolver unavailable");
+		assertEquals(Collections.singletonList(address("10.0.0.1")), cache.resolve("example.com").get());
+		runTasks();
+		// until the next attempt, after the negative TTL
+		CompletableFuture<List<InetAddress>> future = cache.resolve("example.com");
+		assertTrue(future.isDone());
+		assertEquals(Collections.singletonList(address("10.0.0.1")), future.get());
+		assertTrue(tasks.isEmpty());
+		assertEquals(2, lookups.get());
+	}
+
+	@Test
+	void failureIsCachedForTheNegativeTtl() throws Exception {
+		next = new UnknownHostException("unknown.example.com");
+		DnsCache cache = new DnsCache(resolver, executor, MINUTE, 0);
+		assertUnknown(cache, "unknown.example.com");
+		CompletableFuture<List<InetAddress>> cached = cache.resolve("unknown.example.com");
+		assertTrue(cached.isDone());
+		assertThrows(ExecutionException.class, cached::get);
+		assertEquals(1, lookups.get());
+	}
+
+	@Test
+	void failureIsNotCachedWithoutNegativeTtl() throws Exception {
+		next = new UnknownHostException("unknown.example.com");
+		DnsCache cache = new DnsCache(resolver, executor, 0, 0);
+		assertUnknown(cache, "unknown.example.com");
+		assertUnknown(cache, "unknown.example.com");
+		assertEquals(2, lookups.get());
+	}
+
+	@Test
+	void invalidatedAddressesAreLookedUpAgain() throws Exception {
+		next = addresses(MINUTE, "10.0.0.1");
+		DnsCache cache = new DnsCache(resolver, executor, 0, 0);
+		resolve(cache, "example.com");
+		cache.invalidate("EXAMPLE.com");
+		next = addresses(MINUTE, "10.0.0.2");
+		assertEquals(Collections.singletonList(address("10.0.0.2")), resolve(cache, "example.com"));
+		assertEquals(2, lookups.get());
+	}
+
+	@Test
+	void familiesAlternateAndAddressesRotate() throws Exception {
+		next = addresses(MINUTE, "10.0.0.1", "10.0.0.2", "::1");
+		DnsCache cache = new DnsCache(resolver, executor, 0, 0);
+		assertEquals(Arrays.asList(address("10.0.0.1"), address("::1"), address("10.0.0.2")),
+				resolve(cache, "example.com"));
+		assertEquals(Arrays.asList(address("10.0.0.2"), address("::1"), address("10.0.0.1")),
+				resolve(cache, "example.com"));
+		assertEquals(Arrays.asList(address("10.0.0.1"), address("::1"), address("10.0.0.2")),
+				resolve(cache, "example.com"));
+	}
+
+	@Test
+	void rejectedLookupFails() {
+		DnsCache cache = new DnsCache(resolver, task -> {
+			throw new RejectedExecutionException();
+		}, MINUTE, 0);
+		ExecutionException e = assertThrows(ExecutionException.class, () -> cache.resolve("example.com").get());
+		assertTrue(e.getCause() instanceof RejectedExecutionException, e.toString());
+		assertEquals(0, lookups.get());
+	}
+
+	private List<InetAddress> resolve(DnsCache cache, String host) throws Exception {
+		CompletableFuture<List<InetAddress>> future = cache.resolve(host);
+		runTasks();
+		return future.get();
+	}
+
+	private void assertUnknown(DnsCache cache, String host) {
+		CompletableFuture<List<InetAddress>> future = cache.resolve(host);
+		runTasks();
+		ExecutionException e = assertThrows(ExecutionException.class, future::get);
+		assertTrue(e.getCause() instanceof UnknownHostException, e.toString());
+	}
+
+	private void runTasks() {
+		Runnable task;
+		while ((task = tasks.poll()) != null) {
+			task.run();
+		}
+	}
+
+	private static HostAddresses addresses(long ttl, String... literals) throws UnknownHostException {
+		InetAddress[] addresses = new InetAddress[literals.length];
+		for (int i = 0; i < literals.length; i++) {
+			addresses[i] = address(literals[i]);
+		}
+		return new HostAddresses(Arrays.asList(addresses), ttl);
+	}
+
+	private static InetAddress address(String literal) throws UnknownHostException {
+		return IpLiterals.parse(literal);
+	}
+
+}
@@ -0,0 +1,232 @@
+package com.github.jcurl.core.encoding;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * The decoder parses the gzip header and trailer as the bytes arrive, so the
+ * same data is decoded whatever the boundaries of the received chunks.
+ */
+class InflaterDecoderTest {
+
+	private static final byte[] SMALL = text(2_000, 1);
+	// larger than the initial output buffer
+	private static final byte[] LARGE = text(100_000, 2);
+
+	private final InflaterPool raw = new InflaterPool(true, 4);
+	private final InflaterPool zlib = new InflaterPool(false, 4);
+
+	@Test
+	void gzipSplitAtEveryByte() throws IOException {
+		assertSplitAtEveryByte(true, gzip(SMALL), SMALL);
+	}
+
+	@Test
+	void gzipHeaderFieldsSplitAtEveryByte() throws IOException {
+		assertSplitAtEveryByte(true, gzipWithHeaderFields(SMALL), SMALL);
+	}
+
+	@Test
+	void gzipMembersSplitAtEveryByte() throws IOException {
+		byte[] first = gzip(SMALL);
+		byte[] second = gzipWithHeaderFields(SMALL);
+		assertSplitAtEveryByte(true, concat(first, second), concat(SMALL, SMALL));
+	}
+
+	@Test
+	void zlibSplitAtEveryByte() throws IOException {
+		assertSplitAtEveryByte(false, zlib(SMALL), SMALL);
+	}
+
+	@Test
+	void rawDeflateSplitAtEveryByte() throws IOException {
+		assertSplitAtEveryByte(false, rawDeflate(SMALL), SMALL);
+	}
+
+	@Test
+	void largeByteByByte() throws IOException {
+		assertArrayEquals(LARGE, decode(true, gzip(LARGE), 1, 1));
+		assertArrayEquals(LARGE, decode(false, zlib(LARGE), 1, 1));
+		assertArrayEquals(LARGE, decode(false, rawDeflate(LARGE), 1, 1));
+	}
+
+	@Test
+	void largeWholeBuffer() throws IOException {
+		assertArrayEquals(LARGE, decode(true, gzip(LARGE)));
+	}
+
+	@Test
+	void rejectNotGzip() {
+		byte[] data = zlib(SMALL);
+		assertThrows(IOException.class, () -> decode(true, data));
+	}
+
+	@Test
+	void rejectCrcMismatch() {
+		byte[] data = gzip(SMALL);
+		data[data.length - 8] ^= 1;
+		assertThrows(IOException.class, () -> decode(true, data));
+	}
+
+	@Test
+	void rejectSizeMismatch() {
+		byte[] data = gzip(SMALL);
+		data[data.length - 4] ^= 1;
+		assertThrows(IOException.class, () -> decode(true, data));
+	}
+
+	@Test
+	void rejectTruncatedData() {
+		byte[] gzip = gzip(SMALL);
+		byte[] zlib = zlib(SMALL);
+		// in the trailer, in the header and in the deflate data
+		assertThrows(IOException.class, () -> decode(true, Arrays.copyOf(gzip, gzip.length - 1)));
+		assertThrows(IOException.class, () -> decode(true, Arrays.copyOf(gzip, 5)));
+		assertThrows(IOException.class, () -> decode(false, Arrays.copyOf(zlib, zlib.length / 2)));
+	}
+
+	@Test
+	void rejectCorruptData() {
+		byte[] data = zlib(SMALL);
+		data[2] = (byte) 0xff;
+		assertThrows(IOException.class, () -> decode(false, data));
+	}
+
+	private void assertSplitAtEveryByte(boolean gzip, byte[] encoded, byte[] expected) throws IOException {
+		for (int split = 0; split <= encoded.length; split++) {
+			assertArrayEquals(expected, decode(gzip, encoded, split, encoded.length), "split at " + split);
+		}
+	}
+
+	private byte[] decode(boolean gzip, byte[] data) throws IOException {
+		return decode(gzip, data, data.length, data.length);
+	}
+
+	/**
+	 * Decode the first {@code length} bytes of {@code data} and then the rest in
+	 * chunks of {@code next} bytes.
+	 */
+	private byte[] decode(boolean gzip, byte[] data, int length, int next) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		InflaterDecoder decoder = new InflaterDecoder(gzip, raw, zlib);
+		try {
+			int position = 0;
+			while (position < data.length && length > 0) {
+				int n = Math.min(length, data.length - position);
+				write(out, decoder.decode(ByteBuffer.wrap(data, position, n)));
+				position += n;
+				length = next;
+			}
+			if (position < data.length) {
+				write(out, decoder.decode(ByteBuffer.wrap(data, position, data.length - position)));
+			}
+			write(out, decoder.finish());
+		} finally {
+			decoder.close();
+		}
+		return out.toByteArray();
+	}
+
+	private static void write(ByteArrayOutputStream out, ByteBuffer decoded) {
+		out.write(decoded.array(), decoded.arrayOffset() + decoded.position(), decoded.remaining());
+	}
+
+	private static byte[] text(int length, long seed) {
+		String[] words = { "jcurl", "http", "client", "gzip", "deflate", "chunk", "header", "body" };
+		Random random = new Random(seed);
+		StringBuilder sb = new StringBuilder(length + 16);
+		while (sb.length() < length) {
+			sb.append(words[random.nextInt(words.length)]).append(random.nextInt(100)).append(' ');
+		}
+		return sb.substring(0, length).getBytes(StandardCharsets.ISO_8859_1);
+	}
+
+	private static byte[] gzip(byte[] data) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+			gzip.write(data);
+		} catch (IOException e) {
+			throw new AssertionError(e);
+		}
+		return out.toByteArray();
+	}
+
+	/**
+	 * @return a gzip member with an extra field, a name, a comment and a header
+	 *         CRC
+	 */
+	private static byte[] gzipWithHeaderFields(byte[] data) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		out.write(0x1f);
+		out.write(0x8b);
+		out.write(8);
+		out.write(2 | 4 | 8 | 16);
+		out.write(new byte[6], 0, 6);
+		out.write(3);
+		out.write(0);
+		out.write(new byte[] { 'a', 'b', 'c' }, 0, 3);
+		byte[] name = "name.txt\0".getBytes(StandardCharsets.ISO_8859_1);
+		out.write(name, 0, name.length);
+		byte[] comment = "a comment\0".getBytes(StandardCharsets.ISO_8859_1);
+		out.write(comment, 0, comment.length);
+		out.write(0x12);
+		out.write(0x34);
+		byte[] deflated = rawDeflate(data);
+		out.write(deflated, 0, deflated.length);
+		CRC32 crc = new CRC32();
+		crc.update(data, 0, data.length);
+		writeInt(out, (int) crc.getValue());
+		writeInt(out, data.length);
+		return out.toByteArray();
+	}
+
+	private static byte[] zlib(byte[] data) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (DeflaterOutputStream zlib = new DeflaterOutputStream(out)) {
+			zlib.write(data);
+		} catch (IOException e) {
+			throw new AssertionError(e);
+		}
+		return out.toByteArray();
+	}
+
+	private static byte[] rawDeflate(byte[] data) {
+		Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+		deflater.setInput(data);
+		deflater.finish();
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] buffer = new byte[4096];
+		while (!deflater.finished()) {
+			out.write(buffer, 0, deflater.deflate(buffer));
+		}
+		deflater.end();
+		return out.toByteArray();
+	}
+
+	private static void writeInt(ByteArrayOutputStream out, int value) {
+		for (int i = 0; i < 4; i++) {
+			out.write(value >>> (8 * i));
+		}
+	}
+
+	private static byte[] concat(byte[] a, byte[] b) {
+		byte[] c = new byte[a.length + b.length];
+		System.arraycopy(a, 0, c, 0, a.length);
+		System.arraycopy(b, 0, c, a.length, b.length);
+		return c;
+	}
+
+}
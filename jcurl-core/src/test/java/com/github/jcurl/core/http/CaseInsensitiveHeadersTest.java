@@ -0,0 +1,243 @@
+package com.github.jcurl.core.http;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * The headers are scanned up to 16 entries and indexed beyond, the tests
+ * cross that threshold in both directions.
+ */
+class CaseInsensitiveHeadersTest {
+
+	@Test
+	void caseInsensitiveNames() {
+		CaseInsensitiveHeaders headers = new CaseInsensitiveHeaders();
+		headers.put("Content-Type", "text/plain");
+		assertEquals("text/plain", headers.get("content-type"));
+		assertEquals("text/plain", headers.get("CONTENT-TYPE"));
+		assertTrue(headers.containsKey("cOnTeNt-TyPe"));
+		assertEquals("text/plain", headers.put("content-type", "text/html"));
+		assertEquals(1, headers.size());
+		// the name of the last put is kept
+		assertEquals("content-type", headers.name(0));
+	}
+
+	@Test
+	void onlyAsciiCaseFolding() {
+		CaseInsensitiveHeaders headers = new CaseInsensitiveHeaders();
+		headers.put("x-İd", "1");
+		assertNull(headers.get("x-id"));
+		assertNull(headers.get("X-ID"));
+		assertEquals("1", headers.get("X-İD"));
+	}
+
+	@Test
+	void multipleValues() {
+		CaseInsensitiveHeaders headers = new CaseInsensitiveHeaders();
+		headers.add("Set-Cookie", "a=1").add("X-A", "x").add("set-cookie", "b=2");
+		assertEquals(3, headers.size());
+		assertEquals("a=1", headers.get("SET-COOKIE"));
+		assertEquals(Arrays.asList("a=1", "b=2"), headers.getAll("set-cookie"));
+		assertEquals(Collections.emptyList(), headers.getAll("cookie"));
+		assertEquals(2, headers.keySet().size());
+		assertEquals("a=1", headers.put("Set-Cookie", "c=3"));
+		assertEquals(Collections.singletonList("c=3"), headers.getAll("set-cookie"));
+		assertEquals(2, headers.size());
+	}
+
+	@Test
+	void containsToken() {
+		CaseInsensitiveHeaders headers = new CaseInsensitiveHeaders();
+		headers.add("Transfer-Encoding", "gzip").add("Transfer-Encoding", "gzip ,\tChunked ");
+		assertTrue(headers.containsToken("transfer-encoding", "chunked"));
+		assertFalse(headers.containsToken("transfer-encoding", "chunk"));
+		assertFalse(headers.containsToken("connection", "close"));
+	}
+
+	@Test
+	void putAndRemovePastTheThreshold() {
+		CaseInsensitiveHeaders headers = new CaseInsensitiveHeaders();
+		for (int i = 0; i < 40; i++) {
+			headers.put("X-Header-" + i, "v" + i);
+			headers.add("x-header-" + (i / 2), "w" + i);
+		}
+		assertEquals(80, headers.size());
+		for (int i = 0; i < 40; i++) {
+			assertEquals("v" + i, headers.get("X-HEADER-" + i));
+		}
+		assertEquals(Arrays.asList("v3", "w6", "w7"), headers.getAll("x-header-3"));
+		for (int i = 0; i < 40; i += 2) {
+			assertEquals("v" + i, headers.remove("x-header-" + i));
+		}
+		for (int i = 0; i < 40; i++) {
+			assertEquals(i % 2 == 0 ? null : "v" + i, headers.get("x-header-" + i));
+		}
+		assertEquals(Arrays.asList("v3", "w6", "w7"), headers.getAll("X-Header-3"));
+		// back under the threshold
+		for (int i = 1; i < 34; i += 2) {
+			headers.remove("x-header-" + i);
+		}
+		assertEquals(Arrays.asList("X-Header-35", "X-Header-37", "X-Header-39"), new ArrayList<>(headers.keySet()));
+		assertEquals("v37", headers.get("x-header-37"));
+		assertNull(headers.get("x-header-3"));
+	}
+
+	@Test
+	void copyIsIndependent() {
+		CaseInsensitiveHeaders headers = new CaseInsensitiveHeaders();
+		for (int i = 0; i < 20; i++) {
+			headers.add("x-" + i, "v" + i);
+		}
+		CaseInsensitiveHeaders copy = new CaseInsensitiveHeaders(headers);
+		copy.add("x-3", "w3");
+		copy.remove("x-4");
+		copy.put("x-20", "v20");
+		assertEquals(20, headers.size());
+		assertEquals(Collections.singletonList("v3"), headers.getAll("x-3"));
+		assertEquals("v4", headers.get("x-4"));
+		assertNull(headers.get("x-20"));
+		assertEquals(Arrays.asList("v3", "w3"), copy.getAll("X-3"));
+		assertNull(copy.get("x-4"));
+		assertEquals("v20", copy.get("x-20"));
+	}
+
+	@Test
+	void putAllReplacesTheValuesOfEachName() {
+		CaseInsensitiveHeaders headers = new CaseInsensitiveHeaders();
+		headers.add("a", "1").add("a", "2").add("b", "3");
+		CaseInsensitiveHeaders other = new CaseInsensitiveHeaders();
+		other.add("A", "4").add("A", "5").add("c", "6");
+		headers.putAll(other);
+		assertEquals(Arrays.asList("4", "5"), headers.getAll("a"));
+		assertEquals("3", headers.get("b"));
+		assertEquals("6", headers.get("c"));
+		Map<String, String> map = new LinkedHashMap<>();
+		map.put("B", "7");
+		headers.putAll(map);
+		assertEquals(Collections.singletonList("7"), headers.getAll("b"));
+	}
+
+	@Test
+	void randomOperations() {
+		Random random = new Random(42);
+		for (int run = 0; run < 20; run++) {
+			CaseInsensitiveHeaders headers = new CaseInsensitiveHeaders();
+			Model model = new Model();
+			int names = 4 + random.nextInt(60);
+			for (int op = 0; op < 500; op++) {
+				String name = randomCase(random, "x-name-" + random.nextInt(names));
+				String value = Integer.toString(op);
+				switch (random.nextInt(6)) {
+				case 0:
+				case 1:
+					headers.add(name, value);
+					model.add(name, value);
+					break;
+				case 2:
+				case 3:
+					assertEquals(model.get(name), headers.put(name, value));
+					model.put(name, value);
+					break;
+				case 4:
+					assertEquals(model.get(name), headers.remove(name));
+					model.remove(name);
+					break;
+				default:
+					if (random.nextInt(20) == 0) {
+						headers.clear();
+						model.entries.clear();
+					}
+				}
+				model.check(headers, names);
+			}
+		}
+	}
+
+	private static String randomCase(Random random, String name) {
+		char[] chars = name.toCharArray();
+		for (int i = 0; i < chars.length; i++) {
+			if (random.nextBoolean()) {
+				chars[i] = Character.toUpperCase(chars[i]);
+			}
+		}
+		return new String(chars);
+	}
+
+	/**
+	 * The entries in a list, looked up by scanning it.
+	 */
+	private static final class Model {
+
+		private final List<String[]> entries = new ArrayList<>();
+
+		void add(String name, String value) {
+			entries.add(new String[] { name, value });
+		}
+
+		void put(String name, String value) {
+			int first = -1;
+			for (int i = 0; i < entries.size(); i++) {
+				if (entries.get(i)[0].equalsIgnoreCase(name)) {
+					if (first < 0) {
+						first = i;
+					} else {
+						entries.remove(i--);
+					}
+				}
+			}
+			if (first < 0) {
+				add(name, value);
+			} else {
+				entries.set(first, new String[] { name, value });
+			}
+		}
+
+		void remove(String name) {
+			entries.removeIf(e -> e[0].equalsIgnoreCase(name));
+		}
+
+		String get(String name) {
+			List<String> all = getAll(name);
+			return all.isEmpty() ? null : all.get(0);
+		}
+
+		List<String> getAll(String name) {
+			List<String> all = new ArrayList<>();
+			for (String[] e : entries) {
+				if (e[0].equalsIgnoreCase(name)) {
+					all.add(e[1]);
+				}
+			}
+			return all;
+		}
+
+		void check(CaseInsensitiveHeaders headers, int names) {
+			assertEquals(entries.size(), headers.size());
+			for (int i = 0; i < entries.size(); i++) {
+				assertEquals(entries.get(i)[0], headers.name(i));
+				assertEquals(entries.get(i)[1], headers.value(i));
+			}
+			for (int n = 0; n < names; n++) {
+				String name = "X-NAME-" + n;
+				assertEquals(getAll(name), headers.getAll(name.toLowerCase(Locale.ROOT)));
+				assertEquals(get(name), headers.get(name));
+				assertEquals(get(name) != null, headers.containsKey(name));
+			}
+		}
+
+	}
+
+}
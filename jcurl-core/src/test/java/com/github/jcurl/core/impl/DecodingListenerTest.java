@@ -0,0 +1,104 @@
+package com.github.jcurl.core.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.jcurl.core.encoding.ContentDecoders;
+import com.github.jcurl.core.http.CaseInsensitiveHeaders;
+import com.github.jcurl.core.http.HttpVersion;
+import com.github.jcurl.core.net.ResponseHead;
+import com.github.jcurl.core.net.ResponseListener;
+
+class DecodingListenerTest {
+
+	@Test
+	void decodedHeadDescribesTheDecodedBody() throws IOException {
+		byte[] gzip = gzip("hello hello hello");
+		ResponseHead head = head("gzip", gzip.length);
+		Recorder recorder = new Recorder();
+		DecodingListener listener = new DecodingListener(recorder, new ContentDecoders());
+		listener.onHead(head);
+		listener.onData(ByteBuffer.wrap(gzip));
+		listener.onEnd();
+		assertTrue(recorder.ended);
+		assertEquals("hello hello hello", new String(recorder.body.toByteArray(), StandardCharsets.ISO_8859_1));
+		assertNull(head.header("content-encoding"));
+		assertNull(head.header("content-length"));
+		assertNull(head.headers().get("Content-Encoding"));
+		assertEquals("text/plain", head.header("content-type"));
+	}
+
+	@Test
+	void decodedRawHead() throws IOException {
+		byte[] raw = "Content-Encoding".concat("gzip").concat("Content-Length").concat("12").concat("X-A").concat("a")
+				.getBytes(StandardCharsets.ISO_8859_1);
+		int[] fields = { 0, 16, 16, 20, 20, 34, 34, 36, 36, 39, 39, 40 };
+		ResponseHead head = new ResponseHead(HttpVersion.HTTP_1_1, 200, "OK", raw, fields, 3);
+		new DecodingListener(new Recorder(), new ContentDecoders()).onHead(head);
+		assertNull(head.header("content-encoding"));
+		assertNull(head.header("content-length"));
+		assertEquals("a", head.header("x-a"));
+		assertEquals(1, head.headers().size());
+	}
+
+	@Test
+	void unsupportedCodingIsLeftAsReceived() {
+		ResponseHead head = head("x-unknown", 3);
+		new DecodingListener(new Recorder(), new ContentDecoders()).onHead(head);
+		assertEquals("x-unknown", head.header("content-encoding"));
+		assertEquals("3", head.header("content-length"));
+	}
+
+	private static ResponseHead head(String contentEncoding, int contentLength) {
+		CaseInsensitiveHeaders headers = new CaseInsensitiveHeaders();
+		headers.add("Content-Type", "text/plain").add("Content-Encoding", contentEncoding).add("Content-Length",
+				Integer.toString(contentLength));
+		return new ResponseHead(HttpVersion.HTTP_2, 200, "", headers, null);
+	}
+
+	private static byte[] gzip(String s) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+			gzip.write(s.getBytes(StandardCharsets.ISO_8859_1));
+		}
+		return out.toByteArray();
+	}
+
+	private static final class Recorder implements ResponseListener {
+
+		private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+		private boolean ended;
+
+		@Override
+		public void onHead(ResponseHead head) {
+		}
+
+		@Override
+		public void onData(ByteBuffer chunk) {
+			while (chunk.hasRemaining()) {
+				body.write(chunk.get());
+			}
+		}
+
+		@Override
+		public void onEnd() {
+			ended = true;
+		}
+
+		@Override
+		public void onError(Throwable cause) {
+			throw new AssertionError(cause);
+		}
+
+	}
+
+}
@@ -0,0 +1,27 @@
+package com.github.jcurl.core.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Collections;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.jcurl.core.JCurlException;
+
+class HttpContextTest {
+
+	@Test
+	void bodyIsReleasedWhenTheRequestCannotStart() {
+		JCurlClientImpl client = new JCurlClientImpl();
+		client.close();
+		assertEquals(0, client.bufferPool().retained());
+		JCurlException e = assertThrows(JCurlException.class, () -> client.post(8080, "127.0.0.1", "/")
+				.timeout(1000).sendJson(Collections.singletonMap("name", "value")));
+		assertEquals("Client is closed", e.getMessage());
+		// the encoded body went back to the pool
+		assertTrue(client.bufferPool().retained() > 0);
+	}
+
+}
@@ -0,0 +1,149 @@
+package com.github.jcurl.core.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.github.jcurl.core.HttpResponse;
+import com.github.jcurl.core.JCurlClient;
+import com.github.jcurl.core.codec.BodyCodec;
+import com.github.jcurl.core.http.JCurlClientOptions;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+class RequestCoalescerTest {
+
+	private final AtomicInteger hits = new AtomicInteger();
+	// a permit per request received, the responses wait for the release
+	private final Semaphore received = new Semaphore(0);
+	private final CountDownLatch release = new CountDownLatch(1);
+	private ExecutorService handlers;
+	private HttpServer server;
+	private JCurlClient client;
+	private int port;
+
+	@BeforeEach
+	void start() throws IOException {
+		handlers = Executors.newCachedThreadPool();
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.createContext("/", this::handle);
+		server.setExecutor(handlers);
+		server.start();
+		port = server.getAddress().getPort();
+		client = JCurlClient.create(new JCurlClientOptions().setCoalescing(true));
+	}
+
+	@AfterEach
+	void stop() {
+		release.countDown();
+		client.close();
+		server.stop(0);
+		handlers.shutdownNow();
+	}
+
+	@Test
+	void followerDecodesWithItsOwnCodec() throws Exception {
+		CompletableFuture<HttpResponse<ByteBuffer>> leader = client.get(port, "127.0.0.1", "/slow")
+				.putHeader("X-A", "a").putHeader("X-B", "b").sendAsync();
+		awaitReceived(1);
+		// the same headers in another order
+		CompletableFuture<HttpResponse<String>> follower = client.get(port, "127.0.0.1", "/slow")
+				.putHeader("X-B", "b").putHeader("x-a", "a").as(BodyCodec.string()).sendAsync();
+		release.countDown();
+		HttpResponse<String> response = follower.get(10, TimeUnit.SECONDS);
+		assertEquals("/slow 1", response.body());
+		assertEquals("OK", response.statusMessage());
+		assertEquals("/slow 1", StandardCharsets.UTF_8.decode(leader.get(10, TimeUnit.SECONDS).body()).toString());
+		assertEquals(1, hits.get());
+	}
+
+	@Test
+	void differentHeadersAreSentApart() throws Exception {
+		CompletableFuture<HttpResponse<ByteBuffer>> first = client.get(port, "127.0.0.1", "/slow")
+				.putHeader("X-A", "a").sendAsync();
+		CompletableFuture<HttpResponse<ByteBuffer>> second = client.get(port, "127.0.0.1", "/slow")
+				.putHeader("X-A", "b").sendAsync();
+		awaitReceived(2);
+		release.countDown();
+		first.get(10, TimeUnit.SECONDS);
+		second.get(10, TimeUnit.SECONDS);
+		assertEquals(2, hits.get());
+	}
+
+	@Test
+	void followerTimesOutOnItsOwn() throws Exception {
+		CompletableFuture<HttpResponse<ByteBuffer>> leader = client.get(port, "127.0.0.1", "/slow").sendAsync();
+		awaitReceived(1);
+		CompletableFuture<HttpResponse<ByteBuffer>> follower = client.get(port, "127.0.0.1", "/slow").timeout(100)
+				.sendAsync();
+		ExecutionException e = assertThrows(ExecutionException.class, () -> follower.get(10, TimeUnit.SECONDS));
+		assertTrue(hasCause(e, TimeoutException.class), e.toString());
+		assertEquals(1, hits.get());
+		release.countDown();
+		assertEquals(200, leader.get(10, TimeUnit.SECONDS).statusCode());
+	}
+
+	@Test
+	void followerIsSentWhenTheLeaderIsCancelled() throws Exception {
+		CompletableFuture<HttpResponse<ByteBuffer>> leader = client.get(port, "127.0.0.1", "/slow").sendAsync();
+		awaitReceived(1);
+		CompletableFuture<HttpResponse<String>> follower = client.get(port, "127.0.0.1", "/slow")
+				.as(BodyCodec.string()).sendAsync();
+		leader.cancel(false);
+		// the follower leads a new request
+		awaitReceived(1);
+		release.countDown();
+		assertEquals("/slow 2", follower.get(10, TimeUnit.SECONDS).body());
+		assertEquals(2, hits.get());
+	}
+
+	private void awaitReceived(int requests) throws InterruptedException {
+		assertTrue(received.tryAcquire(requests, 10, TimeUnit.SECONDS));
+	}
+
+	private static boolean hasCause(Throwable err, Class<? extends Throwable> type) {
+		for (Throwable cause = err; cause != null; cause = cause.getCause()) {
+			if (type.isInstance(cause)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void handle(HttpExchange exchange) throws IOException {
+		int hit = hits.incrementAndGet();
+		received.release();
+		try {
+			release.await(10, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		byte[] bytes = (exchange.getRequestURI().getPath() + " " + hit).getBytes(StandardCharsets.UTF_8);
+		exchange.sendResponseHeaders(200, bytes.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(bytes);
+		} catch (IOException e) {
+			// the cancelled request closed its connection
+		}
+	}
+
+}
@@ -0,0 +1,52 @@
+package com.github.jcurl.core.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+class WorkersTest {
+
+	@Test
+	void platformThreadIsNotVirtual() {
+		assertFalse(Workers.isVirtual(Thread.currentThread()));
+	}
+
+	@Test
+	void virtualThreads() throws Exception {
+		ExecutorService executor = Workers.virtual("test");
+		assumeTrue(executor != null, "the runtime has no virtual threads");
+		try {
+			Thread thread = executor.submit(Thread::currentThread).get(5, TimeUnit.SECONDS);
+			assertTrue(Workers.isVirtual(thread));
+			assertTrue(thread.getName().startsWith("jcurl-test-"));
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	void platformFallbackIsBounded() throws Exception {
+		assumeTrue(Workers.virtual("test") == null, "the runtime has virtual threads");
+		assertNull(Workers.virtual("test"));
+		ExecutorService executor = Workers.create("test");
+		try {
+			ThreadPoolExecutor pool = (ThreadPoolExecutor) executor;
+			assertEquals(pool.getCorePoolSize(), pool.getMaximumPoolSize());
+			assertTrue(pool.allowsCoreThreadTimeOut());
+			Thread thread = executor.submit(Thread::currentThread).get(5, TimeUnit.SECONDS);
+			assertTrue(thread.isDaemon());
+			assertTrue(thread.getName().startsWith("jcurl-test-"));
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+}
@@ -0,0 +1,189 @@
+package com.github.jcurl.core.net;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.github.jcurl.core.HttpResponse;
+import com.github.jcurl.core.JCurlClient;
+import com.github.jcurl.core.JCurlException;
+import com.github.jcurl.core.http.JCurlClientOptions;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+class ConnectionPoolTest {
+
+	// the client port of each request, one per connection
+	private final List<Integer> ports = new CopyOnWriteArrayList<>();
+	private final AtomicInteger active = new AtomicInteger();
+	private final AtomicInteger maxActive = new AtomicInteger();
+	// a permit per request received, the slow responses wait for the release
+	private final Semaphore received = new Semaphore(0);
+	private final CountDownLatch release = new CountDownLatch(1);
+	private ExecutorService handlers;
+	private HttpServer server;
+	private JCurlClient client;
+	private int port;
+
+	@BeforeEach
+	void start() throws IOException {
+		handlers = Executors.newCachedThreadPool();
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.createContext("/", this::handle);
+		server.setExecutor(handlers);
+		server.start();
+		port = server.getAddress().getPort();
+	}
+
+	@AfterEach
+	void stop() {
+		release.countDown();
+		if (client != null) {
+			client.close();
+		}
+		server.stop(0);
+		handlers.shutdownNow();
+	}
+
+	@Test
+	void keepAliveConnectionIsReused() {
+		client = JCurlClient.create(new JCurlClientOptions());
+		for (int i = 0; i < 5; i++) {
+			assertEquals(200, get("/fast").statusCode());
+		}
+		assertEquals(1, connections());
+	}
+
+	@Test
+	void connectionIsClosedWithoutKeepAlive() {
+		client = JCurlClient.create(new JCurlClientOptions().setKeepAlive(false));
+		for (int i = 0; i < 3; i++) {
+			assertEquals(200, get("/fast").statusCode());
+		}
+		assertEquals(3, connections());
+	}
+
+	@Test
+	void requestsWaitOnceTheMaxPoolSizeIsReached() throws Exception {
+		client = JCurlClient.create(new JCurlClientOptions().setMaxPoolSize(2));
+		List<CompletableFuture<HttpResponse<ByteBuffer>>> futures = new ArrayList<>();
+		for (int i = 0; i < 6; i++) {
+			futures.add(client.get(port, "127.0.0.1", "/slow").sendAsync());
+		}
+		assertTrue(received.tryAcquire(2, 10, TimeUnit.SECONDS));
+		// the others wait for a connection
+		assertFalse(received.tryAcquire(200, TimeUnit.MILLISECONDS));
+		release.countDown();
+		for (CompletableFuture<HttpResponse<ByteBuffer>> future : futures) {
+			assertEquals(200, future.get(10, TimeUnit.SECONDS).statusCode());
+		}
+		assertEquals(2, maxActive.get());
+		assertEquals(2, connections());
+	}
+
+	@Test
+	void requestFailsOnceTheWaitQueueIsFull() throws Exception {
+		client = JCurlClient.create(new JCurlClientOptions().setMaxPoolSize(1).setMaxWaitQueueSize(1));
+		CompletableFuture<HttpResponse<ByteBuffer>> first = client.get(port, "127.0.0.1", "/slow").sendAsync();
+		assertTrue(received.tryAcquire(10, TimeUnit.SECONDS));
+		CompletableFuture<HttpResponse<ByteBuffer>> queued = client.get(port, "127.0.0.1", "/slow").sendAsync();
+		CompletableFuture<HttpResponse<ByteBuffer>> rejected = client.get(port, "127.0.0.1", "/slow").sendAsync();
+		ExecutionException e = assertThrows(ExecutionException.class, () -> rejected.get(10, TimeUnit.SECONDS));
+		assertTrue(e.getCause() instanceof JCurlException, e.toString());
+		assertTrue(e.getCause().getMessage().contains("max wait queue size"), e.getCause().getMessage());
+		release.countDown();
+		assertEquals(200, first.get(10, TimeUnit.SECONDS).statusCode());
+		assertEquals(200, queued.get(10, TimeUnit.SECONDS).statusCode());
+		assertEquals(1, connections());
+	}
+
+	@Test
+	void acquireTimesOut() throws Exception {
+		client = JCurlClient.create(new JCurlClientOptions().setMaxPoolSize(1).setAcquireTimeout(100));
+		CompletableFuture<HttpResponse<ByteBuffer>> first = client.get(port, "127.0.0.1", "/slow").sendAsync();
+		assertTrue(received.tryAcquire(10, TimeUnit.SECONDS));
+		CompletableFuture<HttpResponse<ByteBuffer>> waiting = client.get(port, "127.0.0.1", "/slow").sendAsync();
+		ExecutionException e = assertThrows(ExecutionException.class, () -> waiting.get(10, TimeUnit.SECONDS));
+		assertTrue(e.getCause().getCause() instanceof TimeoutException, e.toString());
+		release.countDown();
+		assertEquals(200, first.get(10, TimeUnit.SECONDS).statusCode());
+	}
+
+	@Test
+	void idleConnectionIsEvicted() throws InterruptedException {
+		client = JCurlClient.create(new JCurlClientOptions().setIdleTimeout(100).setPoolCleanerPeriod(50));
+		get("/fast");
+		Thread.sleep(500);
+		get("/fast");
+		assertEquals(2, connections());
+	}
+
+	@Test
+	void closeFailsTheWaitingRequests() throws Exception {
+		client = JCurlClient.create(new JCurlClientOptions().setMaxPoolSize(1));
+		client.get(port, "127.0.0.1", "/slow").sendAsync();
+		assertTrue(received.tryAcquire(10, TimeUnit.SECONDS));
+		CompletableFuture<HttpResponse<ByteBuffer>> waiting = client.get(port, "127.0.0.1", "/slow").sendAsync();
+		client.close();
+		ExecutionException e = assertThrows(ExecutionException.class, () -> waiting.get(10, TimeUnit.SECONDS));
+		assertEquals("Client is closed", e.getCause().getMessage());
+	}
+
+	private HttpResponse<ByteBuffer> get(String uri) {
+		return client.get(port, "127.0.0.1", uri).send();
+	}
+
+	private int connections() {
+		Set<Integer> distinct = new HashSet<>(ports);
+		return distinct.size();
+	}
+
+	private void handle(HttpExchange exchange) throws IOException {
+		ports.add(exchange.getRemoteAddress().getPort());
+		int now = active.incrementAndGet();
+		maxActive.accumulateAndGet(now, Math::max);
+		received.release();
+		try {
+			if (exchange.getRequestURI().getPath().equals("/slow")) {
+				release.await(10, TimeUnit.SECONDS);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			active.decrementAndGet();
+		}
+		byte[] bytes = "ok".getBytes(StandardCharsets.UTF_8);
+		exchange.sendResponseHeaders(200, bytes.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(bytes);
+		} catch (IOException e) {
+			// the client closed the connection
+		}
+	}
+
+}
@@ -0,0 +1,249 @@
+package com.github.jcurl.core.net;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.jcurl.core.http.CaseInsensitiveHeaders;
+import com.github.jcurl.core.http.HttpMethod;
+import com.github.jcurl.core.http.HttpVersion;
+
+/**
+ * The decoder resumes where it stopped, so the same pipelined responses are
+ * decoded whatever the boundaries of the received buffers.
+ */
+class Http1ResponseDecoderTest {
+
+	private static final String RESPONSES = "HTTP/1.1 100 Continue\r\n\r\n"
+			+ "HTTP/1.1 200 OK\r\nContent-Length: 5\r\nX-A: \t a b \r\n\r\nhello"
+			+ "HTTP/1.1 200 OK\r\nTransfer-Encoding: chunked\r\n\r\n"
+			+ "3;ext=1\r\nabc\r\n10\r\n0123456789abcdef\r\n0\r\nX-Trailer: t\r\n\r\n"
+			+ "HTTP/1.1 204 No Content\r\nSet-Cookie: a=1\r\nSet-Cookie: b=2\r\n\r\n"
+			+ "HTTP/1.1 404 Not Here\nContent-Length: 0\n\n"
+			+ "HTTP/1.0 200 OK\r\n\r\nuntil close";
+
+	@Test
+	void wholeBuffer() throws IOException {
+		assertResponses(decode(RESPONSES, RESPONSES.length()));
+	}
+
+	@Test
+	void splitAtEveryByte() throws IOException {
+		for (int split = 0; split <= RESPONSES.length(); split++) {
+			assertResponses(decode(RESPONSES, split));
+		}
+	}
+
+	@Test
+	void byteByByte() throws IOException {
+		assertResponses(decode(RESPONSES, 1, 1));
+	}
+
+	@Test
+	void headResponse() throws IOException {
+		Http1ResponseDecoder decoder = new Http1ResponseDecoder(8192);
+		Recorder recorder = new Recorder();
+		decoder.reset(HttpMethod.HEAD, recorder);
+		ByteBuffer in = ascii("HTTP/1.1 200 OK\r\nContent-Length: 42\r\n\r\nHTTP/1.1");
+		assertTrue(decoder.decode(in));
+		assertTrue(recorder.ended);
+		assertEquals("", recorder.body.toString());
+		assertEquals(8, in.remaining());
+	}
+
+	@Test
+	void trailersArePublishedAtTheEnd() throws IOException {
+		Http1ResponseDecoder decoder = new Http1ResponseDecoder(8192);
+		Recorder recorder = new Recorder();
+		decoder.reset(HttpMethod.GET, recorder);
+		assertFalse(decoder.decode(ascii("HTTP/1.1 200 OK\r\nTransfer-Encoding: chunked\r\nSet-Cookie: a=1\r\n\r\n"
+				+ "3\r\nabc\r\n0\r\nX-Trailer: t\r\nSet-Cookie: b=2\r\n")));
+		// read while the body is received
+		CaseInsensitiveHeaders headers = recorder.head.headers();
+		List<String> cookies = recorder.head.cookies();
+		assertNull(recorder.head.header("X-Trailer"));
+		assertTrue(decoder.decode(ascii("\r\n")));
+		assertTrue(recorder.ended);
+		assertNull(headers.get("X-Trailer"));
+		assertEquals(Arrays.asList("a=1"), cookies);
+		assertEquals("t", recorder.head.header("X-Trailer"));
+		assertEquals("t", recorder.head.headers().get("X-Trailer"));
+		assertEquals(Arrays.asList("a=1", "b=2"), recorder.head.cookies());
+	}
+
+	@Test
+	void keepAlive() throws IOException {
+		assertTrue(keepAlive("HTTP/1.1 200 OK\r\nContent-Length: 0\r\n\r\n"));
+		assertFalse(keepAlive("HTTP/1.1 200 OK\r\nConnection: close\r\nContent-Length: 0\r\n\r\n"));
+		assertFalse(keepAlive("HTTP/1.0 200 OK\r\nContent-Length: 0\r\n\r\n"));
+		assertTrue(keepAlive("HTTP/1.0 200 OK\r\nConnection: Keep-Alive\r\nContent-Length: 0\r\n\r\n"));
+	}
+
+	@Test
+	void suspended() throws IOException {
+		Http1ResponseDecoder decoder = new Http1ResponseDecoder(8192);
+		Recorder recorder = new Recorder();
+		recorder.suspended = true;
+		decoder.reset(HttpMethod.GET, recorder);
+		ByteBuffer in = ascii("HTTP/1.1 200 OK\r\nContent-Length: 5\r\n\r\nhello");
+		assertFalse(decoder.decode(in));
+		assertTrue(decoder.isSuspended());
+		assertEquals(5, in.remaining());
+		recorder.suspended = false;
+		assertTrue(decoder.decode(in));
+		assertEquals("hello", recorder.body.toString());
+	}
+
+	@Test
+	void rejectMalformedResponses() {
+		assertRejected("HTTP/2.0 200 OK\r\n\r\n");
+		assertRejected("HTTP/1.1 20 OK\r\n\r\n");
+		assertRejected("HTTP/1.1 200 OK\r\nno colon\r\n\r\n");
+		assertRejected("HTTP/1.1 200 OK\r\n: empty name\r\n\r\n");
+		assertRejected("HTTP/1.1 200 OK\r\nX-A: a\r\n folded\r\n\r\n");
+		assertRejected("HTTP/1.1 200 OK\r\nContent-Length: 1\r\nContent-Length: 2\r\n\r\n");
+		assertRejected("HTTP/1.1 200 OK\r\nContent-Length: -1\r\n\r\n");
+		assertRejected("HTTP/1.1 200 OK\r\nContent-Length: 99999999999999999999\r\n\r\n");
+		assertRejected("HTTP/1.1 200 OK\r\nTransfer-Encoding: chunked\r\n\r\nx\r\n");
+		assertRejected("HTTP/1.1 200 OK\r\nTransfer-Encoding: chunked\r\n\r\n1\r\naX\r\n");
+		assertRejected("HTTP/1.1 200 OK\r\nTransfer-Encoding: chunked\r\n\r\nffffffffffffffffff\r\n");
+	}
+
+	@Test
+	void rejectOversizedHead() {
+		char[] value = new char[200];
+		Arrays.fill(value, 'v');
+		String response = "HTTP/1.1 200 OK\r\nX-A: " + new String(value) + "\r\n\r\n";
+		Http1ResponseDecoder decoder = new Http1ResponseDecoder(128);
+		decoder.reset(HttpMethod.GET, new Recorder());
+		assertThrows(IOException.class, () -> decoder.decode(ascii(response)));
+	}
+
+	private static void assertResponses(List<Recorder> responses) {
+		assertEquals(5, responses.size());
+
+		Recorder r = responses.get(0);
+		assertEquals(200, r.head.statusCode());
+		assertEquals("OK", r.head.statusMessage());
+		assertEquals("a b", r.head.header("x-a"));
+		assertEquals("hello", r.body.toString());
+
+		r = responses.get(1);
+		assertEquals("abc0123456789abcdef", r.body.toString());
+		assertEquals("t", r.head.header("X-Trailer"));
+
+		r = responses.get(2);
+		assertEquals(204, r.head.statusCode());
+		assertEquals(Arrays.asList("a=1", "b=2"), r.head.cookies());
+
+		r = responses.get(3);
+		assertEquals(404, r.head.statusCode());
+		assertEquals("Not Here", r.head.statusMessage());
+
+		r = responses.get(4);
+		assertEquals(HttpVersion.HTTP_1_0, r.head.version());
+		assertEquals("until close", r.body.toString());
+		for (Recorder response : responses) {
+			assertTrue(response.ended);
+		}
+	}
+
+	/**
+	 * Decode the responses received in buffers of {@code first} bytes, then of
+	 * {@code next} bytes.
+	 */
+	private static List<Recorder> decode(String responses, int first) throws IOException {
+		return decode(responses, first, responses.length());
+	}
+
+	private static List<Recorder> decode(String responses, int first, int next) throws IOException {
+		byte[] bytes = responses.getBytes(StandardCharsets.ISO_8859_1);
+		Http1ResponseDecoder decoder = new Http1ResponseDecoder(8192);
+		List<Recorder> recorders = new ArrayList<>();
+		Recorder recorder = new Recorder();
+		decoder.reset(HttpMethod.GET, recorder);
+		int position = 0;
+		int length = first;
+		while (position < bytes.length) {
+			ByteBuffer in = ByteBuffer.wrap(bytes, position, Math.min(length, bytes.length - position));
+			position += in.remaining();
+			length = next;
+			while (decoder.decode(in)) {
+				recorders.add(recorder);
+				recorder = new Recorder();
+				decoder.reset(HttpMethod.GET, recorder);
+			}
+			assertFalse(in.hasRemaining());
+		}
+		assertTrue(decoder.isUntilClose());
+		decoder.closed();
+		recorders.add(recorder);
+		return recorders;
+	}
+
+	private static boolean keepAlive(String response) throws IOException {
+		Http1ResponseDecoder decoder = new Http1ResponseDecoder(8192);
+		decoder.reset(HttpMethod.GET, new Recorder());
+		assertTrue(decoder.decode(ascii(response)));
+		return decoder.isKeepAlive();
+	}
+
+	private static void assertRejected(String response) {
+		Http1ResponseDecoder decoder = new Http1ResponseDecoder(8192);
+		decoder.reset(HttpMethod.GET, new Recorder());
+		assertThrows(IOException.class, () -> decoder.decode(ascii(response)), response);
+	}
+
+	private static ByteBuffer ascii(String s) {
+		return ByteBuffer.wrap(s.getBytes(StandardCharsets.ISO_8859_1));
+	}
+
+	private static final class Recorder implements ResponseListener {
+
+		private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+		private ResponseHead head;
+		private boolean ended;
+		private boolean suspended;
+
+		@Override
+		public void onHead(ResponseHead head) {
+			this.head = head;
+		}
+
+		@Override
+		public void onData(ByteBuffer chunk) {
+			while (chunk.hasRemaining()) {
+				body.write(chunk.get());
+			}
+		}
+
+		@Override
+		public boolean isSuspended() {
+			return suspended;
+		}
+
+		@Override
+		public void onEnd() {
+			ended = true;
+		}
+
+		@Override
+		public void onError(Throwable cause) {
+			throw new AssertionError(cause);
+		}
+
+	}
+
+}
@@ -0,0 +1,232 @@
+package com.github.jcurl.core.net;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.github.jcurl.core.HttpResponse;
+import com.github.jcurl.core.JCurlClient;
+import com.github.jcurl.core.codec.BodyCodec;
+import com.github.jcurl.core.http.JCurlClientOptions;
+
+/**
+ * Pipelined requests against a server reading the raw requests, which sees
+ * whether they arrive before the responses are sent.
+ */
+class PipeliningTest {
+
+	private final List<String> errors = new CopyOnWriteArrayList<>();
+	private final AtomicInteger connections = new AtomicInteger();
+	private ServerSocket server;
+	private JCurlClient client;
+
+	@AfterEach
+	void stop() throws IOException {
+		if (client != null) {
+			client.close();
+		}
+		if (server != null) {
+			server.close();
+		}
+		assertEquals(new ArrayList<>(), errors);
+	}
+
+	@Test
+	void requestsAreSentAheadOfTheResponses() throws Exception {
+		serve((index, in, out) -> {
+			// the four requests arrive before any response is sent
+			List<String> targets = readRequests(in, 4);
+			StringBuilder responses = new StringBuilder();
+			for (String target : targets) {
+				responses.append(response(target));
+			}
+			write(out, responses.toString());
+			drain(in);
+		});
+		client = JCurlClient.create(new JCurlClientOptions().setPipelining(true).setPipeliningLimit(4).setMaxPoolSize(1));
+		List<CompletableFuture<HttpResponse<String>>> futures = new ArrayList<>();
+		for (int i = 0; i < 4; i++) {
+			futures.add(client.get(server.getLocalPort(), "127.0.0.1", "/" + i).as(BodyCodec.string()).sendAsync());
+		}
+		for (int i = 0; i < 4; i++) {
+			assertEquals("/" + i, futures.get(i).get(10, TimeUnit.SECONDS).body());
+		}
+		assertEquals(1, connections.get());
+	}
+
+	@Test
+	void pipelinedRequestsAreRetriedWhenTheConnectionCloses() throws Exception {
+		serve((index, in, out) -> {
+			if (index == 0) {
+				// answers the first of the requests and closes the connection
+				List<String> targets = readRequests(in, 3);
+				write(out, response(targets.get(0)));
+				return;
+			}
+			for (;;) {
+				List<String> targets = readRequests(in, 1);
+				if (targets.isEmpty()) {
+					return;
+				}
+				write(out, response(targets.get(0)));
+			}
+		});
+		client = JCurlClient.create(new JCurlClientOptions().setPipelining(true).setPipeliningLimit(3).setMaxPoolSize(1));
+		List<CompletableFuture<HttpResponse<String>>> futures = new ArrayList<>();
+		for (int i = 0; i < 3; i++) {
+			futures.add(client.get(server.getLocalPort(), "127.0.0.1", "/" + i).as(BodyCodec.string()).sendAsync());
+		}
+		for (int i = 0; i < 3; i++) {
+			assertEquals("/" + i, futures.get(i).get(10, TimeUnit.SECONDS).body());
+		}
+		assertTrue(connections.get() > 1);
+	}
+
+	@Test
+	void postIsNotPipelined() throws Exception {
+		serve((index, in, out) -> {
+			List<String> targets = readRequests(in, 1);
+			assertNothingReceived(in);
+			write(out, response(targets.get(0)));
+			targets = readRequests(in, 1);
+			write(out, response(targets.get(0)));
+			drain(in);
+		});
+		client = JCurlClient.create(new JCurlClientOptions().setPipelining(true).setPipeliningLimit(4).setMaxPoolSize(1));
+		CompletableFuture<HttpResponse<String>> get = client.get(server.getLocalPort(), "127.0.0.1", "/get")
+				.as(BodyCodec.string()).sendAsync();
+		CompletableFuture<HttpResponse<String>> post = client.post(server.getLocalPort(), "127.0.0.1", "/post")
+				.as(BodyCodec.string()).sendAsync();
+		assertEquals("/get", get.get(10, TimeUnit.SECONDS).body());
+		assertEquals("/post", post.get(10, TimeUnit.SECONDS).body());
+		assertEquals(1, connections.get());
+	}
+
+	@Test
+	void requestsAreNotPipelinedByDefault() throws Exception {
+		serve((index, in, out) -> {
+			for (int i = 0; i < 3; i++) {
+				List<String> targets = readRequests(in, 1);
+				assertNothingReceived(in);
+				write(out, response(targets.get(0)));
+			}
+			drain(in);
+		});
+		client = JCurlClient.create(new JCurlClientOptions().setMaxPoolSize(1));
+		List<CompletableFuture<HttpResponse<String>>> futures = new ArrayList<>();
+		for (int i = 0; i < 3; i++) {
+			futures.add(client.get(server.getLocalPort(), "127.0.0.1", "/" + i).as(BodyCodec.string()).sendAsync());
+		}
+		for (int i = 0; i < 3; i++) {
+			assertEquals("/" + i, futures.get(i).get(10, TimeUnit.SECONDS).body());
+		}
+		assertEquals(1, connections.get());
+	}
+
+	/**
+	 * Accept the connections, each one handled by its own thread.
+	 */
+	private void serve(Handler handler) throws IOException {
+		server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+		Thread acceptor = new Thread(() -> {
+			try {
+				for (;;) {
+					Socket socket = server.accept();
+					int index = connections.getAndIncrement();
+					Thread thread = new Thread(() -> {
+						try (Socket s = socket) {
+							s.setSoTimeout(10000);
+							handler.handle(index, s.getInputStream(), s.getOutputStream());
+						} catch (IOException | AssertionError e) {
+							errors.add(e.toString());
+						}
+					});
+					thread.setDaemon(true);
+					thread.start();
+				}
+			} catch (IOException e) {
+				// closed
+			}
+		});
+		acceptor.setDaemon(true);
+		acceptor.start();
+	}
+
+	/**
+	 * @return the request targets of the next {@code count} requests, fewer
+	 *         when the connection is closed
+	 */
+	private static List<String> readRequests(InputStream in, int count) throws IOException {
+		List<String> targets = new ArrayList<>();
+		StringBuilder head = new StringBuilder();
+		while (targets.size() < count) {
+			int b = in.read();
+			if (b < 0) {
+				break;
+			}
+			head.append((char) b);
+			if (head.length() >= 4 && head.lastIndexOf("\r\n\r\n") == head.length() - 4) {
+				String requestLine = head.substring(0, head.indexOf("\r\n"));
+				targets.add(requestLine.split(" ")[1]);
+				head.setLength(0);
+			}
+		}
+		return targets;
+	}
+
+	/**
+	 * The client waits for the response before sending another request.
+	 */
+	private static void assertNothingReceived(InputStream in) throws IOException {
+		try {
+			for (int i = 0; i < 10; i++) {
+				assertEquals(0, in.available(), "request received before the response");
+				Thread.sleep(20);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static void drain(InputStream in) {
+		try {
+			while (in.read() >= 0) {
+				// until the client closes the connection
+			}
+		} catch (IOException e) {
+			// closed or kept by the client
+		}
+	}
+
+	private static String response(String target) {
+		return "HTTP/1.1 200 OK\r\nContent-Length: " + target.length() + "\r\n\r\n" + target;
+	}
+
+	private static void write(OutputStream out, String data) throws IOException {
+		out.write(data.getBytes(StandardCharsets.ISO_8859_1));
+		out.flush();
+	}
+
+	private interface Handler {
+
+		void handle(int index, InputStream in, OutputStream out) throws IOException;
+
+	}
+
+}
@@ -0,0 +1,26 @@
+package com.github.jcurl.core.net.http2;
+
+import java.nio.ByteBuffer;
+
+final class Hex {
+
+	private Hex() {
+	}
+
+	static byte[] decode(String hex) {
+		byte[] bytes = new byte[hex.length() / 2];
+		for (int i = 0; i < bytes.length; i++) {
+			bytes[i] = (byte) Integer.parseInt(hex.substring(2 * i, 2 * i + 2), 16);
+		}
+		return bytes;
+	}
+
+	static String encode(ByteBuffer buffer) {
+		StringBuilder hex = new StringBuilder();
+		for (int i = buffer.position(); i < buffer.limit(); i++) {
+			hex.append(String.format("%02x", buffer.get(i) & 0xff));
+		}
+		return hex.toString();
+	}
+
+}
@@ -0,0 +1,127 @@
+package com.github.jcurl.core.net.http2;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * The header blocks of RFC 7541, appendix C.3 to C.6, each sequence decoded
+ * with the same dynamic table.
+ */
+class HpackDecoderTest {
+
+	static final String[][] REQUEST_FIELDS = {
+			{ ":method", "GET", ":scheme", "http", ":path", "/", ":authority", "www.example.com" },
+			{ ":method", "GET", ":scheme", "http", ":path", "/", ":authority", "www.example.com",
+					"cache-control", "no-cache" },
+			{ ":method", "GET", ":scheme", "https", ":path", "/index.html", ":authority", "www.example.com",
+					"custom-key", "custom-value" } };
+
+	static final String[][] RESPONSE_FIELDS = {
+			{ ":status", "302", "cache-control", "private", "date", "Mon, 21 Oct 2013 20:13:21 GMT",
+					"location", "https://www.example.com" },
+			{ ":status", "307", "cache-control", "private", "date", "Mon, 21 Oct 2013 20:13:21 GMT",
+					"location", "https://www.example.com" },
+			{ ":status", "200", "cache-control", "private", "date", "Mon, 21 Oct 2013 20:13:22 GMT",
+					"location", "https://www.example.com", "content-encoding", "gzip",
+					"set-cookie", "foo=ASDJKHQKBZXOQWEOPIUAXQWEOIU; max-age=3600; version=1" } };
+
+	static final String[] REQUESTS = {
+			"828684410f7777772e6578616d706c652e636f6d",
+			"828684be58086e6f2d6361636865",
+			"828785bf400a637573746f6d2d6b65790c637573746f6d2d76616c7565" };
+
+	static final String[] HUFFMAN_REQUESTS = {
+			"828684418cf1e3c2e5f23a6ba0ab90f4ff",
+			"828684be5886a8eb10649cbf",
+			"828785bf408825a849e95ba97d7f8925a849e95bb8e8b4bf" };
+
+	static final String[] RESPONSES = {
+			"4803333032580770726976617465611d4d6f6e2c203231204f637420323031332032303a31333a323120474d54"
+					+ "6e1768747470733a2f2f7777772e6578616d706c652e636f6d",
+			"4803333037c1c0bf",
+			"88c1611d4d6f6e2c203231204f637420323031332032303a31333a323220474d54c05a04677a69707738666f6f3d"
+					+ "4153444a4b48514b425a584f5157454f50495541585157454f49553b206d61782d6167653d333630303b2076"
+					+ "657273696f6e3d31" };
+
+	static final String[] HUFFMAN_RESPONSES = {
+			"488264025885aec3771a4b6196d07abe941054d444a8200595040b8166e082a62d1bff6e919d29ad171863c78f0b97"
+					+ "c8e9ae82ae43d3",
+			"4883640effc1c0bf",
+			"88c16196d07abe941054d444a8200595040b8166e084a62d1bffc05a839bd9ab77ad94e7821dd7f2e6c7b335dfdf"
+					+ "cd5b3960d5af27087f3672c1ab270fb5291f9587316065c003ed4ee5b1063d5007" };
+
+	@Test
+	void requestsWithoutHuffman() throws Http2Exception {
+		assertDecoded(new HpackDecoder(4096), REQUESTS, REQUEST_FIELDS);
+	}
+
+	@Test
+	void requestsWithHuffman() throws Http2Exception {
+		assertDecoded(new HpackDecoder(4096), HUFFMAN_REQUESTS, REQUEST_FIELDS);
+	}
+
+	@Test
+	void responsesWithoutHuffman() throws Http2Exception {
+		// the table of 256 bytes evicts entries in the second and third responses
+		assertDecoded(new HpackDecoder(256), RESPONSES, RESPONSE_FIELDS);
+	}
+
+	@Test
+	void responsesWithHuffman() throws Http2Exception {
+		assertDecoded(new HpackDecoder(256), HUFFMAN_RESPONSES, RESPONSE_FIELDS);
+	}
+
+	@Test
+	void headerListSize() throws Http2Exception {
+		// 32 bytes of overhead per field (RFC 7541, section 4.1)
+		List<String> fields = new ArrayList<>();
+		int size = new HpackDecoder(4096).decode(ByteBuffer.wrap(Hex.decode(REQUESTS[0])), fields);
+		assertEquals(42 + 43 + 38 + 57, size);
+	}
+
+	@Test
+	void rejectInvalidIndex() {
+		// the dynamic table is empty, index 62 does not exist
+		assertThrows(Http2Exception.class, () -> new HpackDecoder(4096).decode(ByteBuffer.wrap(Hex.decode("be")),
+				new ArrayList<>()));
+	}
+
+	@Test
+	void rejectTableSizeUpdateAboveTheMaximum() {
+		// a table size update to 4097 with a maximum of 4096
+		assertThrows(Http2Exception.class, () -> new HpackDecoder(4096).decode(ByteBuffer.wrap(Hex.decode("3fe21f")),
+				new ArrayList<>()));
+	}
+
+	@Test
+	void rejectTableSizeUpdateAfterAField() {
+		assertThrows(Http2Exception.class, () -> new HpackDecoder(4096).decode(ByteBuffer.wrap(Hex.decode("8220")),
+				new ArrayList<>()));
+	}
+
+	@Test
+	void rejectTruncatedBlock() {
+		// a literal value of 15 bytes with only 3
+		assertThrows(Http2Exception.class, () -> new HpackDecoder(4096)
+				.decode(ByteBuffer.wrap(Hex.decode("410f777777")), new ArrayList<>()));
+	}
+
+	private static void assertDecoded(HpackDecoder decoder, String[] blocks, String[][] expected)
+			throws Http2Exception {
+		for (int i = 0; i < blocks.length; i++) {
+			List<String> fields = new ArrayList<>();
+			ByteBuffer block = ByteBuffer.wrap(Hex.decode(blocks[i]));
+			decoder.decode(block, fields);
+			assertEquals(Arrays.asList(expected[i]), fields, "block " + i);
+			assertEquals(0, block.remaining());
+		}
+	}
+
+}
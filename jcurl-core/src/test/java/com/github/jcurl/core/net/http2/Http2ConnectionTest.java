@@ -0,0 +1,315 @@
+package com.github.jcurl.core.net.http2;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.github.jcurl.core.HttpResponse;
+import com.github.jcurl.core.JCurlClient;
+import com.github.jcurl.core.http.HttpVersion;
+import com.github.jcurl.core.http.JCurlClientOptions;
+
+/**
+ * The flow control of the connections, against a server speaking HTTP/2 with
+ * prior knowledge frame by frame.
+ */
+class Http2ConnectionTest {
+
+	private static final int DATA = 0x0;
+	private static final int HEADERS = 0x1;
+	private static final int SETTINGS = 0x4;
+	private static final int WINDOW_UPDATE = 0x8;
+	private static final int END_STREAM = 0x1;
+	private static final int ACK = 0x1;
+	private static final int END_HEADERS = 0x4;
+	private static final int SETTINGS_INITIAL_WINDOW_SIZE = 0x4;
+	private static final int DEFAULT_WINDOW_SIZE = 65535;
+	private static final int MAX_FRAME_SIZE = 16384;
+	// :status 200, indexed in the static table
+	private static final byte[] STATUS_200 = { (byte) 0x88 };
+
+	private final List<String> errors = new CopyOnWriteArrayList<>();
+	private ServerSocket server;
+	private JCurlClient client;
+
+	@AfterEach
+	void stop() throws IOException {
+		if (client != null) {
+			client.close();
+		}
+		if (server != null) {
+			server.close();
+		}
+		assertEquals(new ArrayList<>(), errors);
+	}
+
+	@Test
+	void requestBodyWaitsForTheWindows() throws Exception {
+		byte[] body = bytes(100_000);
+		serve(peer -> {
+			int stream = peer.readHeaders();
+			byte[] received = peer.readData(stream, DEFAULT_WINDOW_SIZE);
+			// the windows of the stream and of the connection are exhausted
+			peer.assertNothingReceived();
+			peer.write(WINDOW_UPDATE, 0, 0, increment(body.length - DEFAULT_WINDOW_SIZE));
+			peer.write(WINDOW_UPDATE, 0, stream, increment(body.length - DEFAULT_WINDOW_SIZE));
+			byte[] rest = peer.readData(stream, body.length - DEFAULT_WINDOW_SIZE);
+			assertTrue(peer.endStream);
+			assertArrayEquals(body, concat(received, rest));
+			peer.write(HEADERS, END_HEADERS | END_STREAM, stream, STATUS_200);
+		});
+		client = JCurlClient.create(new JCurlClientOptions().setProtocolVersion(HttpVersion.HTTP_2));
+		HttpResponse<ByteBuffer> response = client.post(server.getLocalPort(), "127.0.0.1", "/")
+				.sendBufferAsync(ByteBuffer.wrap(body)).get(10, TimeUnit.SECONDS);
+		assertEquals(200, response.statusCode());
+		assertEquals(HttpVersion.HTTP_2, response.version());
+	}
+
+	@Test
+	void initialWindowSizeChangeAppliesToOpenStreams() throws Exception {
+		byte[] body = bytes(100_000);
+		serve(peer -> {
+			int stream = peer.readHeaders();
+			byte[] received = peer.readData(stream, DEFAULT_WINDOW_SIZE);
+			peer.assertNothingReceived();
+			// the stream window grows by the difference, the connection window by its update
+			ByteBuffer settings = ByteBuffer.allocate(6);
+			settings.putShort((short) SETTINGS_INITIAL_WINDOW_SIZE).putInt(body.length);
+			peer.write(SETTINGS, 0, 0, settings.array());
+			peer.write(WINDOW_UPDATE, 0, 0, increment(body.length - DEFAULT_WINDOW_SIZE));
+			byte[] rest = peer.readData(stream, body.length - DEFAULT_WINDOW_SIZE);
+			assertArrayEquals(body, concat(received, rest));
+			peer.write(HEADERS, END_HEADERS | END_STREAM, stream, STATUS_200);
+		});
+		client = JCurlClient.create(new JCurlClientOptions().setProtocolVersion(HttpVersion.HTTP_2));
+		HttpResponse<ByteBuffer> response = client.post(server.getLocalPort(), "127.0.0.1", "/")
+				.sendBufferAsync(ByteBuffer.wrap(body)).get(10, TimeUnit.SECONDS);
+		assertEquals(200, response.statusCode());
+	}
+
+	@Test
+	void responseBytesAreAcknowledged() throws Exception {
+		byte[] body = bytes(300_000);
+		serve(peer -> {
+			int stream = peer.readHeaders();
+			peer.write(HEADERS, END_HEADERS, stream, STATUS_200);
+			// sends within the windows granted by the client
+			long streamWindow = peer.initialWindowSize;
+			long connectionWindow = DEFAULT_WINDOW_SIZE;
+			int sent = 0;
+			while (sent < body.length) {
+				while (streamWindow == 0 || connectionWindow == 0) {
+					Frame frame = peer.read();
+					if (frame.type == WINDOW_UPDATE) {
+						int increment = ByteBuffer.wrap(frame.payload).getInt();
+						if (frame.stream == 0) {
+							connectionWindow += increment;
+						} else {
+							streamWindow += increment;
+						}
+					}
+				}
+				int length = (int) Math.min(Math.min(streamWindow, connectionWindow),
+						Math.min(MAX_FRAME_SIZE, body.length - sent));
+				byte[] payload = new byte[length];
+				System.arraycopy(body, sent, payload, 0, length);
+				sent += length;
+				peer.write(DATA, sent == body.length ? END_STREAM : 0, stream, payload);
+				streamWindow -= length;
+				connectionWindow -= length;
+			}
+		});
+		client = JCurlClient.create(new JCurlClientOptions().setProtocolVersion(HttpVersion.HTTP_2)
+				.setHttp2InitialWindowSize(DEFAULT_WINDOW_SIZE).setHttp2ConnectionWindowSize(DEFAULT_WINDOW_SIZE));
+		HttpResponse<ByteBuffer> response = client.get(server.getLocalPort(), "127.0.0.1", "/").sendAsync()
+				.get(10, TimeUnit.SECONDS);
+		ByteBuffer received = response.body();
+		byte[] bytes = new byte[received.remaining()];
+		received.get(bytes);
+		assertArrayEquals(body, bytes);
+	}
+
+	private void serve(Handler handler) throws IOException {
+		server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+		Thread thread = new Thread(() -> {
+			try (Socket socket = server.accept()) {
+				socket.setSoTimeout(10000);
+				Peer peer = new Peer(socket);
+				handler.handle(peer);
+				peer.drain();
+			} catch (IOException | AssertionError e) {
+				if (!server.isClosed()) {
+					errors.add(e.toString());
+				}
+			}
+		});
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	private static byte[] bytes(int length) {
+		byte[] bytes = new byte[length];
+		for (int i = 0; i < length; i++) {
+			bytes[i] = (byte) (i % 251);
+		}
+		return bytes;
+	}
+
+	private static byte[] concat(byte[] first, byte[] second) {
+		byte[] bytes = new byte[first.length + second.length];
+		System.arraycopy(first, 0, bytes, 0, first.length);
+		System.arraycopy(second, 0, bytes, first.length, second.length);
+		return bytes;
+	}
+
+	private static byte[] increment(int increment) {
+		return ByteBuffer.allocate(4).putInt(increment).array();
+	}
+
+	private interface Handler {
+
+		void handle(Peer peer) throws IOException;
+
+	}
+
+	private static final class Frame {
+
+		private int type;
+		private int flags;
+		private int stream;
+		private byte[] payload;
+
+	}
+
+	/**
+	 * The server side of the connection: the preface and the settings are
+	 * exchanged, the settings of the client are acknowledged as they arrive.
+	 */
+	private static final class Peer {
+
+		private final DataInputStream in;
+		private final OutputStream out;
+		private int initialWindowSize = DEFAULT_WINDOW_SIZE;
+		private boolean endStream;
+
+		Peer(Socket socket) throws IOException {
+			in = new DataInputStream(socket.getInputStream());
+			out = socket.getOutputStream();
+			in.readFully(new byte[24]);
+			write(SETTINGS, 0, 0, new byte[0]);
+		}
+
+		/**
+		 * @return the next frame other than SETTINGS
+		 */
+		Frame read() throws IOException {
+			for (;;) {
+				Frame frame = readFrame();
+				if (frame.type != SETTINGS) {
+					return frame;
+				}
+			}
+		}
+
+		private Frame readFrame() throws IOException {
+			Frame frame = new Frame();
+			int length = in.readUnsignedByte() << 16 | in.readUnsignedShort();
+			frame.type = in.readUnsignedByte();
+			frame.flags = in.readUnsignedByte();
+			frame.stream = in.readInt() & 0x7fffffff;
+			frame.payload = new byte[length];
+			in.readFully(frame.payload);
+			if (frame.type == SETTINGS && (frame.flags & ACK) == 0) {
+				ByteBuffer settings = ByteBuffer.wrap(frame.payload);
+				while (settings.hasRemaining()) {
+					int id = settings.getShort() & 0xffff;
+					int value = settings.getInt();
+					if (id == SETTINGS_INITIAL_WINDOW_SIZE) {
+						initialWindowSize = value;
+					}
+				}
+				write(SETTINGS, ACK, 0, new byte[0]);
+			}
+			return frame;
+		}
+
+		/**
+		 * @return the stream of the request
+		 */
+		int readHeaders() throws IOException {
+			for (;;) {
+				Frame frame = read();
+				if (frame.type == HEADERS) {
+					return frame.stream;
+				}
+			}
+		}
+
+		byte[] readData(int stream, int length) throws IOException {
+			byte[] data = new byte[length];
+			int received = 0;
+			while (received < length) {
+				Frame frame = read();
+				if (frame.type == DATA) {
+					assertEquals(stream, frame.stream);
+					assertTrue(received + frame.payload.length <= length, "window exceeded");
+					System.arraycopy(frame.payload, 0, data, received, frame.payload.length);
+					received += frame.payload.length;
+					endStream = (frame.flags & END_STREAM) != 0;
+				}
+			}
+			return data;
+		}
+
+		/**
+		 * The client waits for the windows before sending more data, the other
+		 * frames may still arrive.
+		 */
+		void assertNothingReceived() throws IOException {
+			try {
+				Thread.sleep(200);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			while (in.available() > 0) {
+				assertTrue(readFrame().type != DATA, "data sent beyond the windows");
+			}
+		}
+
+		void write(int type, int flags, int stream, byte[] payload) throws IOException {
+			ByteBuffer header = ByteBuffer.allocate(9);
+			header.put((byte) (payload.length >>> 16)).putShort((short) payload.length).put((byte) type)
+					.put((byte) flags).putInt(stream);
+			out.write(header.array());
+			out.write(payload);
+			out.flush();
+		}
+
+		void drain() {
+			try {
+				while (in.read() >= 0) {
+					// until the client closes the connection
+				}
+			} catch (IOException e) {
+				// closed
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,78 @@
+package com.github.jcurl.core.net.http2;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.ByteBuffer;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * The Huffman encoded strings of RFC 7541, appendix C.4 and C.6.
+ */
+class HuffmanTest {
+
+	private static final String[][] VECTORS = {
+			{ "www.example.com", "f1e3c2e5f23a6ba0ab90f4ff" },
+			{ "no-cache", "a8eb10649cbf" },
+			{ "custom-key", "25a849e95ba97d7f" },
+			{ "custom-value", "25a849e95bb8e8b4bf" },
+			{ "302", "6402" },
+			{ "307", "640eff" },
+			{ "private", "aec3771a4b" },
+			{ "Mon, 21 Oct 2013 20:13:21 GMT", "d07abe941054d444a8200595040b8166e082a62d1bff" },
+			{ "Mon, 21 Oct 2013 20:13:22 GMT", "d07abe941054d444a8200595040b8166e084a62d1bff" },
+			{ "https://www.example.com", "9d29ad171863c78f0b97c8e9ae82ae43d3" },
+			{ "gzip", "9bd9ab" },
+			{ "foo=ASDJKHQKBZXOQWEOPIUAXQWEOIU; max-age=3600; version=1",
+					"94e7821dd7f2e6c7b335dfdfcd5b3960d5af27087f3672c1ab270fb5291f9587316065c003ed4ee5b1063d5007" } };
+
+	@Test
+	void encode() {
+		for (String[] vector : VECTORS) {
+			byte[] expected = Hex.decode(vector[1]);
+			assertEquals(expected.length, Huffman.encodedLength(vector[0]), vector[0]);
+			ByteBuffer out = ByteBuffer.allocate(expected.length);
+			Huffman.encode(vector[0], out);
+			assertArrayEquals(expected, out.array(), vector[0]);
+		}
+	}
+
+	@Test
+	void decode() throws Http2Exception {
+		for (String[] vector : VECTORS) {
+			byte[] encoded = Hex.decode(vector[1]);
+			ByteBuffer in = ByteBuffer.wrap(encoded);
+			assertEquals(vector[0], Huffman.decode(in, encoded.length));
+			assertEquals(0, in.remaining());
+		}
+	}
+
+	@Test
+	void allOctets() throws Http2Exception {
+		StringBuilder value = new StringBuilder();
+		for (char c = 0; c < 256; c++) {
+			value.append(c);
+		}
+		ByteBuffer out = ByteBuffer.allocate(Huffman.encodedLength(value.toString()));
+		Huffman.encode(value.toString(), out);
+		out.flip();
+		assertEquals(value.toString(), Huffman.decode(out, out.remaining()));
+	}
+
+	@Test
+	void rejectPaddingLongerThan7Bits() {
+		// "0" is 00000, followed by a whole octet of EOS padding
+		ByteBuffer in = ByteBuffer.wrap(Hex.decode("07ff"));
+		assertThrows(Http2Exception.class, () -> Huffman.decode(in, 2));
+	}
+
+	@Test
+	void rejectPaddingOtherThanEos() {
+		// "0" is 00000, followed by 000 instead of 111
+		ByteBuffer in = ByteBuffer.wrap(Hex.decode("00"));
+		assertThrows(Http2Exception.class, () -> Huffman.decode(in, 1));
+	}
+
+}
@@ -0,0 +1,103 @@
+package com.github.jcurl.rx;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionStage;
+
+import com.github.jcurl.core.HttpRequest;
+import com.github.jcurl.core.HttpResponse;
+import com.github.jcurl.core.codec.BodyCodec;
+import com.github.jcurl.core.stream.Publisher;
+
+import io.reactivex.Flowable;
+import io.reactivex.Single;
+
+/**
+ * RxJava 2 adapters of the requests and of the streamed bodies.
+ * <p>
+ * The requests are sent once subscribed to, each subscription sends the
+ * request again. The items are emitted from the event loop thread, or from the
+ * {@link HttpRequest#executor(java.util.concurrent.Executor) executor} of the
+ * request, use {@code observeOn} before blocking operators.
+ */
+public final class JCurlRx {
+
+	private JCurlRx() {
+	}
+
+	/**
+	 * Send the {@code request} with {@link HttpRequest#sendAsync()} when
+	 * subscribed to. Disposing the subscription aborts the request.
+	 *
+	 * @param request the request
+	 * @return the single response
+	 */
+	public static <T> Single<HttpResponse<T>> single(HttpRequest<T> request) {
+		return single(request::sendAsync);
+	}
+
+	/**
+	 * Send a request with the {@code send} function when subscribed to, such as
+	 * {@code () -> request.sendJsonAsync(body)}. Disposing the subscription
+	 * cancels the future returned by the function.
+	 *
+	 * @param send the function sending the request
+	 * @return the single response
+	 */
+	public static <T> Single<HttpResponse<T>> single(Callable<? extends CompletionStage<HttpResponse<T>>> send) {
+		return new ResponseSingle<>(send);
+	}
+
+	/**
+	 * Send the {@code request} when subscribed to and stream its response body
+	 * with {@link BodyCodec#stream()}. The socket is only read as the
+	 * subscriber requests slices, cancelling the subscription aborts the
+	 * request.
+	 * <p>
+	 * Unlike the slices of {@link BodyCodec#stream()}, the emitted buffers are
+	 * copies that remain valid once emitted.
+	 *
+	 * @param request the request
+	 * @return the flowable slices of the body
+	 */
+	public static Flowable<ByteBuffer> stream(HttpRequest<?> request) {
+		return single(request.as(BodyCodec.stream()))
+				.flatMapPublisher(response -> toFlowable(response.body()).map(JCurlRx::copy));
+	}
+
+	/**
+	 * Send the {@code request} when subscribed to and stream its response body
+	 * as JSON elements with {@link BodyCodec#jsonStream(Class)}. The socket is
+	 * only read as the subscriber requests elements, cancelling the
+	 * subscription aborts the request.
+	 *
+	 * @param request the request
+	 * @param type    the class of the elements
+	 * @return the flowable elements of the body
+	 */
+	public static <U> Flowable<U> jsonStream(HttpRequest<?> request, Class<U> type) {
+		return single(request.as(BodyCodec.jsonStream(type))).flatMapPublisher(response -> toFlowable(response.body()));
+	}
+
+	/**
+	 * Adapt a streamed body to a {@link Flowable}, the requests of its
+	 * subscribers are forwarded to the body so that the backpressure reaches
+	 * the connection.
+	 * <p>
+	 * The body can only be subscribed to once, and the slices of
+	 * {@link BodyCodec#stream()} are only valid until they are emitted.
+	 *
+	 * @param body the streamed body
+	 * @return the flowable body
+	 */
+	public static <T> Flowable<T> toFlowable(Publisher<T> body) {
+		return Flowable.fromPublisher(new ReactivePublisher<>(body));
+	}
+
+	private static ByteBuffer copy(ByteBuffer slice) {
+		ByteBuffer copy = ByteBuffer.allocate(slice.remaining());
+		copy.put(slice).flip();
+		return copy;
+	}
+
+}
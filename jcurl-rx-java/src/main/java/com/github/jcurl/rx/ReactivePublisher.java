@@ -0,0 +1,68 @@
+package com.github.jcurl.rx;
+
+import com.github.jcurl.core.stream.Publisher;
+import com.github.jcurl.core.stream.Subscriber;
+import com.github.jcurl.core.stream.Subscription;
+
+/**
+ * A Reactive Streams view of a jcurl {@link Publisher}, the signals and the
+ * requests are forwarded as they are.
+ *
+ * @param <T> the type of the items
+ */
+final class ReactivePublisher<T> implements org.reactivestreams.Publisher<T> {
+
+	private final Publisher<T> publisher;
+
+	ReactivePublisher(Publisher<T> publisher) {
+		this.publisher = publisher;
+	}
+
+	@Override
+	public void subscribe(org.reactivestreams.Subscriber<? super T> subscriber) {
+		publisher.subscribe(new SubscriberAdapter<>(subscriber));
+	}
+
+	private static final class SubscriberAdapter<T> implements Subscriber<T>, org.reactivestreams.Subscription {
+
+		private final org.reactivestreams.Subscriber<? super T> subscriber;
+		private Subscription subscription;
+
+		SubscriberAdapter(org.reactivestreams.Subscriber<? super T> subscriber) {
+			this.subscriber = subscriber;
+		}
+
+		@Override
+		public void onSubscribe(Subscription subscription) {
+			this.subscription = subscription;
+			subscriber.onSubscribe(this);
+		}
+
+		@Override
+		public void onNext(T item) {
+			subscriber.onNext(item);
+		}
+
+		@Override
+		public void onComplete() {
+			subscriber.onComplete();
+		}
+
+		@Override
+		public void onError(Throwable cause) {
+			subscriber.onError(cause);
+		}
+
+		@Override
+		public void request(long n) {
+			subscription.request(n);
+		}
+
+		@Override
+		public void cancel() {
+			subscription.cancel();
+		}
+
+	}
+
+}
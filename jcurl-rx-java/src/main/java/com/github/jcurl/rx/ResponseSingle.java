@@ -0,0 +1,109 @@
+package com.github.jcurl.rx;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.github.jcurl.core.HttpResponse;
+import com.github.jcurl.core.stream.Publisher;
+import com.github.jcurl.core.stream.Subscriber;
+import com.github.jcurl.core.stream.Subscription;
+
+import io.reactivex.Single;
+import io.reactivex.SingleObserver;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.disposables.Disposables;
+import io.reactivex.exceptions.Exceptions;
+
+/**
+ * Sends a request for each subscriber and emits its response.
+ * <p>
+ * Either the response is emitted or the subscription is disposed, a streamed
+ * body that is never emitted is cancelled so that its connection is released.
+ *
+ * @param <T> the type of the response body
+ */
+final class ResponseSingle<T> extends Single<HttpResponse<T>> {
+
+	private final Callable<? extends CompletionStage<HttpResponse<T>>> send;
+
+	ResponseSingle(Callable<? extends CompletionStage<HttpResponse<T>>> send) {
+		this.send = send;
+	}
+
+	@Override
+	protected void subscribeActual(SingleObserver<? super HttpResponse<T>> observer) {
+		CompletableFuture<HttpResponse<T>> future;
+		try {
+			future = send.call().toCompletableFuture();
+		} catch (Throwable e) {
+			Exceptions.throwIfFatal(e);
+			observer.onSubscribe(Disposables.disposed());
+			observer.onError(e);
+			return;
+		}
+		ResponseDisposable<T> disposable = new ResponseDisposable<>(future);
+		observer.onSubscribe(disposable);
+		future.whenComplete((response, err) -> {
+			if (!disposable.done.compareAndSet(false, true)) {
+				discard(response);
+			} else if (err != null) {
+				observer.onError(err instanceof CompletionException && err.getCause() != null ? err.getCause() : err);
+			} else {
+				observer.onSuccess(response);
+			}
+		});
+	}
+
+	private static void discard(HttpResponse<?> response) {
+		if (response != null && response.body() instanceof Publisher) {
+			((Publisher<?>) response.body()).subscribe(new Subscriber<Object>() {
+
+				@Override
+				public void onSubscribe(Subscription subscription) {
+					subscription.cancel();
+				}
+
+				@Override
+				public void onNext(Object item) {
+				}
+
+				@Override
+				public void onComplete() {
+				}
+
+				@Override
+				public void onError(Throwable cause) {
+				}
+
+			});
+		}
+	}
+
+	private static final class ResponseDisposable<T> implements Disposable {
+
+		private final CompletableFuture<HttpResponse<T>> future;
+		// set once the response is emitted or the subscription disposed
+		final AtomicBoolean done = new AtomicBoolean();
+
+		ResponseDisposable(CompletableFuture<HttpResponse<T>> future) {
+			this.future = future;
+		}
+
+		@Override
+		public void dispose() {
+			if (done.compareAndSet(false, true)) {
+				future.cancel(false);
+			}
+		}
+
+		@Override
+		public boolean isDisposed() {
+			return done.get();
+		}
+
+	}
+
+}
@@ -0,0 +1,276 @@
+package com.github.jcurl.rx;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.github.jcurl.core.HttpResponse;
+import com.github.jcurl.core.JCurlClient;
+import com.github.jcurl.core.codec.BodyCodec;
+import com.github.jcurl.core.http.HttpVersion;
+import com.github.jcurl.core.http.JCurlClientOptions;
+import com.github.jcurl.core.stream.Publisher;
+import com.github.jcurl.core.stream.Subscriber;
+import com.github.jcurl.core.stream.Subscription;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import io.reactivex.Single;
+import io.reactivex.observers.TestObserver;
+import io.reactivex.subscribers.TestSubscriber;
+
+class JCurlRxTest {
+
+	private static final byte[] BODY = bytes(200_000);
+	private static final String JSON = "[{\"id\":1},{\"id\":2},{\"id\":3}]";
+
+	private final AtomicInteger requests = new AtomicInteger();
+	private HttpServer server;
+	private JCurlClient client;
+	private int port;
+
+	@BeforeEach
+	void start() throws IOException {
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.createContext("/", this::handle);
+		server.start();
+		port = server.getAddress().getPort();
+		client = JCurlClient.create(new JCurlClientOptions());
+	}
+
+	@AfterEach
+	void stop() {
+		client.close();
+		server.stop(0);
+	}
+
+	@Test
+	void eachSubscriptionSendsTheRequest() throws Exception {
+		Single<HttpResponse<String>> single = JCurlRx.single(client.get(port, "127.0.0.1", "/text").as(BodyCodec.string()));
+		assertEquals(0, requests.get());
+		for (int i = 1; i <= 2; i++) {
+			TestObserver<HttpResponse<String>> observer = single.test();
+			assertTrue(observer.awaitTerminalEvent(10, TimeUnit.SECONDS));
+			observer.assertNoErrors();
+			assertEquals("text", observer.values().get(0).body());
+			assertEquals(i, requests.get());
+		}
+	}
+
+	@Test
+	void failureIsEmittedUnwrapped() {
+		IOException failure = new IOException("refused");
+		CompletableFuture<HttpResponse<String>> future = new CompletableFuture<>();
+		future.completeExceptionally(failure);
+		TestObserver<HttpResponse<String>> observer = JCurlRx.single(() -> future).test();
+		observer.assertError(failure);
+		// thrown by the function
+		JCurlRx.<String>single(() -> {
+			throw failure;
+		}).test().assertError(failure);
+	}
+
+	@Test
+	void disposingCancelsTheFuture() {
+		CompletableFuture<HttpResponse<String>> future = new CompletableFuture<>();
+		TestObserver<HttpResponse<String>> observer = JCurlRx.single(() -> future).test();
+		observer.dispose();
+		assertTrue(future.isCancelled());
+		observer.assertNoValues();
+		observer.assertNotTerminated();
+	}
+
+	@Test
+	void streamedBodyIsCancelledWhenDisposedFirst() {
+		AtomicBoolean cancelled = new AtomicBoolean();
+		// the response arrives as the subscription is disposed, too late to be cancelled
+		CompletableFuture<HttpResponse<Publisher<ByteBuffer>>> future = new CompletableFuture<HttpResponse<Publisher<ByteBuffer>>>() {
+
+			@Override
+			public boolean cancel(boolean mayInterruptIfRunning) {
+				return false;
+			}
+
+		};
+		TestObserver<HttpResponse<Publisher<ByteBuffer>>> observer = JCurlRx.single(() -> future).test();
+		observer.dispose();
+		future.complete(new StreamedResponse(subscriber -> subscriber.onSubscribe(new Subscription() {
+
+			@Override
+			public void request(long n) {
+			}
+
+			@Override
+			public void cancel() {
+				cancelled.set(true);
+			}
+
+		})));
+		assertTrue(cancelled.get());
+		observer.assertNoValues();
+	}
+
+	@Test
+	void streamIsReadAsRequested() throws Exception {
+		TestSubscriber<ByteBuffer> subscriber = JCurlRx.stream(client.get(port, "127.0.0.1", "/bytes")).test(0);
+		Thread.sleep(200);
+		subscriber.assertNoValues();
+		subscriber.assertNotComplete();
+		subscriber.requestMore(Long.MAX_VALUE);
+		assertTrue(subscriber.await(10, TimeUnit.SECONDS));
+		subscriber.assertNoErrors();
+		subscriber.assertComplete();
+		// the emitted buffers are copies, still valid once the next ones are read
+		ByteBuffer received = ByteBuffer.allocate(BODY.length);
+		for (ByteBuffer slice : subscriber.values()) {
+			received.put(slice);
+		}
+		assertArrayEquals(BODY, received.array());
+	}
+
+	@Test
+	void jsonStreamEmitsTheElements() throws Exception {
+		@SuppressWarnings("rawtypes")
+		TestSubscriber<Map> subscriber = JCurlRx.jsonStream(client.get(port, "127.0.0.1", "/json"), Map.class).test();
+		assertTrue(subscriber.await(10, TimeUnit.SECONDS));
+		subscriber.assertNoErrors();
+		List<Object> ids = new ArrayList<>();
+		for (Map<?, ?> element : subscriber.values()) {
+			ids.add(element.get("id"));
+		}
+		assertEquals(Arrays.asList(1, 2, 3), ids);
+	}
+
+	@Test
+	void requestsAndCancelAreForwarded() {
+		List<Long> requested = new ArrayList<>();
+		AtomicBoolean cancelled = new AtomicBoolean();
+		TestSubscriber<String> subscriber = JCurlRx.toFlowable(new Publisher<String>() {
+
+			@Override
+			public void subscribe(Subscriber<? super String> s) {
+				s.onSubscribe(new Subscription() {
+
+					@Override
+					public void request(long n) {
+						requested.add(n);
+						s.onNext("item");
+					}
+
+					@Override
+					public void cancel() {
+						cancelled.set(true);
+					}
+
+				});
+			}
+
+		}).test(0);
+		assertTrue(requested.isEmpty());
+		subscriber.requestMore(1);
+		subscriber.requestMore(2);
+		assertEquals(Arrays.asList(1L, 2L), requested);
+		subscriber.assertValues("item", "item");
+		assertFalse(cancelled.get());
+		subscriber.cancel();
+		assertTrue(cancelled.get());
+	}
+
+	private void handle(HttpExchange exchange) throws IOException {
+		requests.incrementAndGet();
+		String path = exchange.getRequestURI().getPath();
+		byte[] bytes;
+		if (path.equals("/bytes")) {
+			bytes = BODY;
+		} else if (path.equals("/json")) {
+			bytes = JSON.getBytes(StandardCharsets.UTF_8);
+		} else {
+			bytes = "text".getBytes(StandardCharsets.UTF_8);
+		}
+		exchange.sendResponseHeaders(200, bytes.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(bytes);
+		} catch (IOException e) {
+			// the client closed the connection
+		}
+	}
+
+	private static byte[] bytes(int length) {
+		byte[] bytes = new byte[length];
+		for (int i = 0; i < length; i++) {
+			bytes[i] = (byte) (i % 251);
+		}
+		return bytes;
+	}
+
+	private static final class StreamedResponse implements HttpResponse<Publisher<ByteBuffer>> {
+
+		private final Publisher<ByteBuffer> body;
+
+		StreamedResponse(Publisher<ByteBuffer> body) {
+			this.body = body;
+		}
+
+		@Override
+		public HttpVersion version() {
+			return HttpVersion.HTTP_1_1;
+		}
+
+		@Override
+		public int statusCode() {
+			return 200;
+		}
+
+		@Override
+		public String statusMessage() {
+			return "OK";
+		}
+
+		@Override
+		public Map<String, String> headers() {
+			return Collections.emptyMap();
+		}
+
+		@Override
+		public String getHeader(String headerName) {
+			return null;
+		}
+
+		@Override
+		public List<String> cookies() {
+			return Collections.emptyList();
+		}
+
+		@Override
+		public Publisher<ByteBuffer> body() {
+			return body;
+		}
+
+		@Override
+		public ByteBuffer bodyAsBuffer() {
+			return null;
+		}
+
+	}
+
+}